@@ -0,0 +1,371 @@
+package be.esi.prj.easyeval;
+
+import be.esi.prj.easyeval.model.ExamDocument;
+import be.esi.prj.easyeval.model.ScanResult;
+import be.esi.prj.easyeval.model.Submission;
+import be.esi.prj.easyeval.repository.ConnectionManager;
+import be.esi.prj.easyeval.repository.ExamDocumentRepository;
+import be.esi.prj.easyeval.repository.OcrCacheRepository;
+import be.esi.prj.easyeval.repository.ScanResultRepository;
+import be.esi.prj.easyeval.repository.SubmissionRepository;
+import be.esi.prj.easyeval.service.HotFolderWatcher;
+import be.esi.prj.easyeval.service.OCRBatchEngine;
+import be.esi.prj.easyeval.service.TesseractOCRService;
+import be.esi.prj.easyeval.utils.NormalizationPolicy;
+import be.esi.prj.easyeval.utils.PdfScanSource;
+import be.esi.prj.easyeval.utils.ResultsCsvExporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Grades the scans of an exam from the command line, without the JavaFX interface, e.g. overnight on a server:
+ * <pre>
+ * java -p &lt;module path&gt; -m be.esi.prj.easyeval/be.esi.prj.easyeval.HeadlessGrader &lt;exam id&gt; &lt;scan folder or PDF&gt;
+ *      [--output DIR] [--parallelism N] [--decode-threads N] [--preprocess-threads N]
+ *      [--enhance] [--no-rotation] [--template-zones] [--normalization POLICY] [--db FILE]
+ * </pre>
+ * The scans go through the {@link OCRBatchEngine} as from the submission view, the results are saved in the database
+ * and written to the same CSV file as the view's export.
+ * Logs go to the standard error; the standard output only receives a one-line JSON summary of the run.
+ * The exit code is 0 when every page was graded, 1 when some failed, 2 for invalid arguments and 3 when the run
+ * could not be done at all.
+ */
+public class HeadlessGrader {
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILURES = 1;
+    static final int EXIT_USAGE = 2;
+    static final int EXIT_ERROR = 3;
+
+    private static final String USAGE = """
+            Usage: HeadlessGrader <exam id> <scan folder or PDF> [options]
+              --output DIR              Directory of the CSV file (default: current directory)
+              --parallelism N           OCR threads (default: one per core)
+              --decode-threads N        Threads reading image files and rendering PDF pages
+              --preprocess-threads N    Threads preprocessing the pages
+              --enhance                 Enhance images before OCR
+              --no-rotation             Do not correct the rotation of the pages
+              --template-zones          Read answers only inside the answer boxes of the exam sheet
+              --normalization POLICY    Comparison of the answers of every question, instead of the policy
+                                        stored with each question: standard, accents (accented letters as
+                                        their base letter) or numeric (letters read as the digits OCR
+                                        confuses them with)
+              --db FILE                 Database file (default: the application database)""";
+
+    /**
+     * Command line options.
+     */
+    record Options(long examId, Path scans, Path outputDirectory, int parallelism, int decodeThreads,
+                   int preprocessThreads, boolean enhanceImages, boolean correctRotation, boolean templateZones,
+                   NormalizationPolicy normalization, String databasePath) {
+    }
+
+    /**
+     * A page that could not be imported or graded.
+     * @param pageIndex Index of the page in the batch PDF, or -1 for an image file
+     */
+    private record Failure(File scanFile, int pageIndex, String error) {
+    }
+
+    public static void main(String[] args) {
+        // Keeps the standard output for the summary
+        PrintStream summary = System.out;
+        System.setOut(System.err);
+        System.exit(run(args, summary));
+    }
+
+    /**
+     * Grades the scans given on the command line.
+     * @param args Command line arguments
+     * @param summary Receives the JSON summary
+     * @return The exit code
+     */
+    static int run(String[] args, PrintStream summary) {
+        Options options;
+        try {
+            options = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        if (options.databasePath() != null) {
+            ConnectionManager.setDatabasePath(options.databasePath());
+        }
+        try {
+            return grade(options, summary);
+        } catch (IOException | RuntimeException e) {
+            // A crashed OCR worker, e.g. without the Tesseract library, stops the whole batch
+            String error = e.getCause() != null ? e.getMessage() + ": " + e.getCause().getMessage() : e.getMessage();
+            System.err.println("Grading failed: " + error);
+            e.printStackTrace();
+            summary.println("{\"status\":\"error\",\"examId\":" + options.examId() +
+                    ",\"error\":" + json(error) + "}");
+            return EXIT_ERROR;
+        } finally {
+            ConnectionManager.close();
+        }
+    }
+
+    private static int grade(Options options, PrintStream summary) throws IOException {
+        long start = System.nanoTime();
+
+        Optional<ExamDocument> found = new ExamDocumentRepository().findById(options.examId());
+        if (found.isEmpty()) {
+            throw new IOException("Exam not found: " + options.examId());
+        }
+        ExamDocument exam = found.get();
+        if (!Files.isDirectory(options.outputDirectory())) {
+            throw new IOException("Output directory not found: " + options.outputDirectory());
+        }
+
+        List<File> scanFiles = listScans(options.scans());
+        System.out.println("Grading " + scanFiles.size() + " scan files for exam " + exam.getTitle());
+
+        SubmissionRepository submissionRepository = new SubmissionRepository();
+        ScanResultRepository scanResultRepository = new ScanResultRepository();
+        List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+        List<OCRBatchEngine.ScanJob> jobs = new ArrayList<>();
+        for (File file : scanFiles) {
+            try {
+                jobs.addAll(importScan(exam, file, submissionRepository));
+            } catch (IOException e) {
+                System.err.println("Import Error for file " + file.getName() + ": " + e.getMessage());
+                failures.add(new Failure(file, -1, e.getMessage()));
+            }
+        }
+
+        OCRBatchEngine batchEngine = new OCRBatchEngine(TesseractOCRService::new, submissionRepository,
+                scanResultRepository, new OcrCacheRepository(),
+                options.parallelism() > 0 ? options.parallelism() : OCRBatchEngine.defaultParallelism());
+        if (options.decodeThreads() > 0) {
+            batchEngine.setDecodeParallelism(options.decodeThreads());
+        }
+        if (options.preprocessThreads() > 0) {
+            batchEngine.setPreprocessParallelism(options.preprocessThreads());
+        }
+        if (options.normalization() != null) {
+            batchEngine.setNormalizationPolicies(question -> options.normalization());
+        }
+
+        List<Submission> graded = Collections.synchronizedList(new ArrayList<>());
+        List<ScanResult> results = Collections.synchronizedList(new ArrayList<>());
+        OCRBatchEngine.BatchReport report = batchEngine.process(jobs, exam,
+                options.enhanceImages(), options.correctRotation(), false, options.templateZones(), () -> false,
+                new OCRBatchEngine.BatchListener() {
+                    @Override
+                    public void onGraded(Submission submission, ScanResult scanResult) {
+                        graded.add(submission);
+                        results.add(scanResult);
+                    }
+
+                    @Override
+                    public void onFailed(OCRBatchEngine.ScanJob job, Exception error) {
+                        System.err.println("Error processing " + job.scanFile().getName() + ": " + error.getMessage());
+                        failures.add(new Failure(job.scanFile(), job.pageIndex(), error.getMessage()));
+                    }
+
+                    @Override
+                    public void onProgress(int done, int total) {
+                        System.out.println("Processed submission " + done + " of " + total);
+                    }
+                });
+
+        File csvFile = ResultsCsvExporter.export(exam, graded, results, options.outputDirectory().toFile());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("OCR processing finished: " + report.graded() + " graded, " +
+                report.failed() + " failed, results written to " + csvFile);
+        System.out.println("Peak queue depths: " + report.peakDepths());
+
+        StringBuilder json = new StringBuilder("{\"status\":")
+                .append(json(failures.isEmpty() ? "ok" : "failures"))
+                .append(",\"examId\":").append(options.examId())
+                .append(",\"files\":").append(scanFiles.size())
+                .append(",\"pages\":").append(jobs.size())
+                .append(",\"graded\":").append(report.graded())
+                .append(",\"failed\":").append(failures.size())
+                .append(",\"elapsedSeconds\":").append(String.format(Locale.ROOT, "%.3f", seconds))
+                .append(",\"pagesPerMinute\":").append(String.format(Locale.ROOT, "%.1f",
+                        seconds > 0 ? report.graded() * 60 / seconds : 0))
+                .append(",\"csv\":").append(json(csvFile.getAbsolutePath()))
+                .append(",\"failures\":[");
+        synchronized (failures) {
+            for (int i = 0; i < failures.size(); i++) {
+                Failure failure = failures.get(i);
+                json.append(i > 0 ? "," : "")
+                        .append("{\"file\":").append(json(failure.scanFile().getAbsolutePath()))
+                        .append(",\"page\":").append(failure.pageIndex() >= 0 ? failure.pageIndex() + 1 : "null")
+                        .append(",\"error\":").append(json(failure.error()))
+                        .append('}');
+            }
+        }
+        summary.println(json.append("]}"));
+
+        return failures.isEmpty() ? EXIT_OK : EXIT_FAILURES;
+    }
+
+    static Options parse(String[] args) {
+        List<String> positional = new ArrayList<>();
+        Path output = Path.of(".");
+        int parallelism = 0;
+        int decodeThreads = 0;
+        int preprocessThreads = 0;
+        boolean enhance = false;
+        boolean rotate = true;
+        boolean zones = false;
+        NormalizationPolicy normalization = null;
+        String database = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--output" -> output = Path.of(value(args, ++i, "--output"));
+                case "--parallelism" -> parallelism = count(value(args, ++i, "--parallelism"), "--parallelism");
+                case "--decode-threads" -> decodeThreads = count(value(args, ++i, "--decode-threads"), "--decode-threads");
+                case "--preprocess-threads" ->
+                        preprocessThreads = count(value(args, ++i, "--preprocess-threads"), "--preprocess-threads");
+                case "--enhance" -> enhance = true;
+                case "--no-rotation" -> rotate = false;
+                case "--template-zones" -> zones = true;
+                case "--normalization" -> normalization = policy(value(args, ++i, "--normalization"));
+                case "--db" -> database = value(args, ++i, "--db");
+                default -> {
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                    }
+                    positional.add(args[i]);
+                }
+            }
+        }
+        if (positional.size() != 2) {
+            throw new IllegalArgumentException("Expected an exam id and a scan folder or PDF");
+        }
+
+        long examId;
+        try {
+            examId = Long.parseLong(positional.get(0));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid exam id: " + positional.get(0));
+        }
+        return new Options(examId, Path.of(positional.get(1)), output, parallelism, decodeThreads,
+                preprocessThreads, enhance, rotate, zones, normalization, database);
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static int count(String value, String option) {
+        try {
+            int count = Integer.parseInt(value);
+            if (count > 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+    }
+
+    private static NormalizationPolicy policy(String name) {
+        if (!NormalizationPolicy.NAMES.contains(name)) {
+            throw new IllegalArgumentException("Invalid value for --normalization: " + name);
+        }
+        return NormalizationPolicy.named(name);
+    }
+
+    /**
+     * @return The scan files of a folder sorted by name, or the given file
+     */
+    private static List<File> listScans(Path scans) throws IOException {
+        if (Files.isRegularFile(scans)) {
+            return List.of(scans.toFile());
+        }
+        if (!Files.isDirectory(scans)) {
+            throw new IOException("Scan folder or PDF not found: " + scans);
+        }
+        try (Stream<Path> files = Files.list(scans)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(HotFolderWatcher::isScanFile)
+                    .sorted()
+                    .map(Path::toFile)
+                    .toList();
+        }
+    }
+
+    /**
+     * Saves one submission per page of a scan.
+     * As from the submission view, the student ID is the file name until OCR reads it.
+     */
+    private static List<OCRBatchEngine.ScanJob> importScan(ExamDocument exam, File file,
+                                                           SubmissionRepository submissionRepository)
+            throws IOException {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String studentId = dot > 0 ? name.substring(0, dot) : name;
+
+        if (!PdfScanSource.isPdf(file)) {
+            return List.of(new OCRBatchEngine.ScanJob(saveSubmission(exam, studentId, submissionRepository), file));
+        }
+
+        // Only the page count is read, pages are rendered during OCR
+        int pageCount;
+        try (PdfScanSource source = new PdfScanSource(file)) {
+            pageCount = source.getPageCount();
+        }
+        List<OCRBatchEngine.ScanJob> jobs = new ArrayList<>();
+        for (int page = 0; page < pageCount; page++) {
+            Submission submission = saveSubmission(exam, studentId + "_p" + (page + 1), submissionRepository);
+            jobs.add(new OCRBatchEngine.ScanJob(submission, file, page));
+        }
+        return jobs;
+    }
+
+    private static Submission saveSubmission(ExamDocument exam, String studentId,
+                                             SubmissionRepository submissionRepository) {
+        Submission submission = new Submission(exam.getId(), studentId);
+        submission.setSubmissionDate(LocalDateTime.now());
+        return submissionRepository.save(submission);
+    }
+
+    /**
+     * @return The value as a JSON string, or null
+     */
+    static String json(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
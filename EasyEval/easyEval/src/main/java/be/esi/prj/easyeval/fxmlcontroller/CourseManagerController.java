@@ -48,12 +48,9 @@ public class CourseManagerController {
         viewModel = new CourseManagerViewModel();
         navigationService = NavigationService.getInstance();
 
-        // Set listener for search bar
-        searchField.textProperty().addListener((observable, oldValue, newValue) -> {
-            if (newValue.trim().isEmpty()) {
-                viewModel.fetchAllCourses();
-            }
-        });
+        // Search as the user types, once the typing pauses
+        searchField.textProperty().addListener((observable, oldValue, newValue) ->
+                viewModel.searchCoursesDebounced(newValue));
         refreshCoursesGrid();
 
         // Set listener for course list
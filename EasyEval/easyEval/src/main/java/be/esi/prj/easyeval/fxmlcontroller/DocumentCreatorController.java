@@ -4,6 +4,7 @@ import be.esi.prj.easyeval.model.ExamDocument;
 import be.esi.prj.easyeval.model.Question;
 import be.esi.prj.easyeval.repository.CourseRepository;
 import be.esi.prj.easyeval.service.NavigationService;
+import be.esi.prj.easyeval.utils.NormalizationPolicy;
 import be.esi.prj.easyeval.viewmodel.DocumentCreatorViewModel;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -30,6 +31,9 @@ public class DocumentCreatorController {
     @FXML
     private TextField answerField;
 
+    @FXML
+    private ComboBox<String> normalizationBox;
+
     @FXML
     private Button addQuestionBtn;
 
@@ -84,6 +88,8 @@ public class DocumentCreatorController {
         instructionsArea.textProperty().bindBidirectional(viewModel.examInstructionsProperty());
         questionField.textProperty().bindBidirectional(viewModel.questionTextProperty());
         answerField.textProperty().bindBidirectional(viewModel.correctAnswerProperty());
+        normalizationBox.getItems().setAll(NormalizationPolicy.NAMES);
+        normalizationBox.valueProperty().bindBidirectional(viewModel.normalizationProperty());
 
         // Bind table to ViewModel
         questionsTable.setItems(viewModel.getQuestionList());
@@ -13,6 +13,8 @@ import javafx.collections.ListChangeListener;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -25,8 +27,14 @@ import javafx.util.StringConverter;
 import java.io.File;
 import java.io.IOException;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
 
 /**
  * Controller for the Submission view, which allows importing and processing of exam submissions.
@@ -42,6 +50,9 @@ public class SubmissionController {
     @FXML
     private Button importScansButton;
 
+    @FXML
+    private CheckBox watchScansFolderCheckbox;
+
     @FXML
     private Label scanCountLabel;
 
@@ -84,6 +95,9 @@ public class SubmissionController {
     @FXML
     private CheckBox debugModeCheckbox;
 
+    @FXML
+    private CheckBox templateZonesCheckbox;
+
     @FXML
     private Button processSubmissionsButton;
 
@@ -207,6 +221,12 @@ public class SubmissionController {
         enhanceImagesCheckbox.setSelected(false);
         rotationCorrectionCheckbox.setSelected(true);
         debugModeCheckbox.setSelected(false);
+        templateZonesCheckbox.setSelected(false);
+
+        // The watched folder imports the scans by itself
+        importScansButton.disableProperty().bind(viewModel.watchingHotFolderProperty());
+        viewModel.watchingHotFolderProperty().addListener((obs, wasWatching, watching) ->
+                watchScansFolderCheckbox.setSelected(watching));
 
         processSubmissionsButton.disableProperty().bind(
                 Bindings.or(
@@ -258,14 +278,16 @@ public class SubmissionController {
 
         // Setup listeners
         viewModel.getSubmissionsList().addListener((ListChangeListener<Submission>) change -> {
-            refreshSubmissionsTable();
+            onSubmissionsChanged(change);
             updateScanCountLabel();
         });
         viewModel.getScanResultsList().addListener((ListChangeListener<ScanResult>) change -> {
-            refreshSubmissionsTable();
+            onScanResultsChanged(change);
         });
 
-        viewModel.loadExamsForSelection();
+        // Load the next page of existing submissions when the table is scrolled to the end
+        submissionsTable.skinProperty().addListener((obs, oldSkin, newSkin) -> watchTableScroll());
+
         // obliger d'utiliser string convertor pour pouvoir modifier le toString d'un comboBox
         examSelector.setItems(viewModel.getExamsList());
         examSelector.setConverter(new StringConverter<ExamDocument>() {
@@ -287,12 +309,34 @@ public class SubmissionController {
             if (newValue != null) {
                 currentExam = newValue;
                 examTitleLabel.setText(newValue.getTitle() + " - Submissions");
-                viewModel.setSelectedExam(newValue);
+                // The exam given by initData is already selected, its submissions are loading
+                ExamDocument selected = viewModel.getSelectedExam();
+                if (selected == null || !selected.getId().equals(newValue.getId())) {
+                    viewModel.setSelectedExam(newValue);
+                }
             }
         });
 
-        if (!viewModel.getExamsList().isEmpty()) {
-            examSelector.getSelectionModel().selectFirst();
+        // The exams are listed in the background, then the current exam is selected
+        viewModel.loadExamsForSelection().thenRun(this::selectCurrentExam);
+    }
+
+    /**
+     * Selects the current exam in the selector, or the first exam if there is no current exam.
+     */
+    private void selectCurrentExam() {
+        if (currentExam == null) {
+            if (!examSelector.getItems().isEmpty()) {
+                examSelector.getSelectionModel().selectFirst();
+            }
+            return;
+        }
+
+        for (ExamDocument exam : examSelector.getItems()) {
+            if (exam.getId().equals(currentExam.getId())) {
+                examSelector.getSelectionModel().select(exam);
+                break;
+            }
         }
     }
 
@@ -308,26 +352,81 @@ public class SubmissionController {
      * Refreshes the submissions table with current data.
      */
     private void refreshSubmissionsTable() {
-        List<Submission> submissions = viewModel.getSubmissionsList();
-        List<ScanResult> scanResults = viewModel.getScanResultsList();
+        submissionsTable.getItems().setAll(toDisplayModels(viewModel.getSubmissionsList()));
+    }
 
-        submissionsTable.getItems().clear();
+    /**
+     * Builds the table rows of submissions, with their scan result if exists.
+     */
+    private List<SubmissionDisplayModel> toDisplayModels(List<? extends Submission> submissions) {
+        Map<Long, ScanResult> resultsBySubmission = new HashMap<>();
+        for (ScanResult scanResult : viewModel.getScanResultsList()) {
+            resultsBySubmission.put(scanResult.getSubmissionId(), scanResult);
+        }
 
-        // Add submissions to table
+        List<SubmissionDisplayModel> displayModels = new ArrayList<>();
         for (Submission submission : submissions) {
-            ScanResult result = null;
+            displayModels.add(new SubmissionDisplayModel(viewModel.getFileNameForSubmission(submission),
+                    submission, resultsBySubmission.get(submission.getId())));
+        }
+        return displayModels;
+    }
+
+    /**
+     * Appends the rows of submissions added at the end of the list, such as a newly loaded page,
+     * so the table keeps its scroll position. Any other change rebuilds the table.
+     */
+    private void onSubmissionsChanged(ListChangeListener.Change<? extends Submission> change) {
+        List<Submission> appended = new ArrayList<>();
+        while (change.next()) {
+            boolean append = change.wasAdded() && !change.wasRemoved() && !change.wasPermutated()
+                    && change.getFrom() == submissionsTable.getItems().size() + appended.size();
+            if (!append) {
+                refreshSubmissionsTable();
+                return;
+            }
+            appended.addAll(change.getAddedSubList());
+        }
+        submissionsTable.getItems().addAll(toDisplayModels(appended));
+    }
+
+    /**
+     * Rebuilds the table when a displayed submission gets or loses a scan result.
+     * Results of submissions not displayed yet are shown when their rows are added.
+     */
+    private void onScanResultsChanged(ListChangeListener.Change<? extends ScanResult> change) {
+        Set<Long> displayed = new HashSet<>();
+        for (SubmissionDisplayModel displayModel : submissionsTable.getItems()) {
+            displayed.add(displayModel.getSubmission().getId());
+        }
 
-            // Find matching scan result if exists
-            for (ScanResult scanResult : scanResults) {
-                if (scanResult.getSubmissionId().equals(submission.getId())) {
-                    result = scanResult;
-                    break;
+        while (change.next()) {
+            if (change.wasRemoved() || change.wasPermutated() || change.wasUpdated()) {
+                refreshSubmissionsTable();
+                return;
+            }
+            for (ScanResult scanResult : change.getAddedSubList()) {
+                if (displayed.contains(scanResult.getSubmissionId())) {
+                    refreshSubmissionsTable();
+                    return;
                 }
             }
+        }
+    }
 
-            SubmissionDisplayModel displayModel = new SubmissionDisplayModel(
-                    viewModel.getFileNameForSubmission(submission), submission, result);
-            submissionsTable.getItems().add(displayModel);
+    /**
+     * Asks the view model for more submissions when the vertical scroll bar of the table reaches the end.
+     */
+    private void watchTableScroll() {
+        for (Node node : submissionsTable.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar scrollBar && scrollBar.getOrientation() == Orientation.VERTICAL) {
+                scrollBar.valueProperty().addListener((obs, oldValue, newValue) -> {
+                    if (newValue.doubleValue() >= scrollBar.getMax()
+                            && viewModel.moreSubmissionsProperty().get()) {
+                        viewModel.loadMoreSubmissions();
+                    }
+                });
+            }
         }
     }
 
@@ -349,15 +448,32 @@ public class SubmissionController {
         if (selectedFiles != null && !selectedFiles.isEmpty()) {
 
             // Appel à la méthode modifiée, qui efface automatiquement les soumissions existantes
-            boolean imported = viewModel.importScannedFiles(selectedFiles);
+            viewModel.importScannedFiles(selectedFiles).thenAccept(imported -> {
+                if (imported) {
+                    showInfoAlert("Import Successful", "Successfully imported " +
+                            selectedFiles.size() + " file(s).");
+                } else {
+                    showErrorAlert("Import Error", "Failed to import some files. Check log for details.");
+                }
+            });
+        }
+    }
 
-            if (imported) {
-                showInfoAlert("Import Successful", "Successfully imported " +
-                        selectedFiles.size() + " file(s).");
-            } else {
-                showErrorAlert("Import Error", "Failed to import some files. Check log for details.");
-            }
+    /**
+     * Handle watching the scans folder, where each new scan is imported and graded once fully written.
+     */
+    @FXML
+    private void handleWatchScansFolder() {
+        if (!watchScansFolderCheckbox.isSelected()) {
+            viewModel.stopHotFolder();
+            return;
         }
+
+        boolean watching = viewModel.startHotFolder(
+                enhanceImagesCheckbox.isSelected(),
+                rotationCorrectionCheckbox.isSelected(),
+                templateZonesCheckbox.isSelected());
+        watchScansFolderCheckbox.setSelected(watching);
     }
 
     /**
@@ -410,19 +526,21 @@ public class SubmissionController {
         boolean enhanceImages = enhanceImagesCheckbox.isSelected();
         boolean correctRotation = rotationCorrectionCheckbox.isSelected();
         boolean debugMode = debugModeCheckbox.isSelected();
+        boolean templateZones = templateZonesCheckbox.isSelected();
 
         System.out.println("Starting OCR processing with settings:");
         System.out.println("- Engine: " + ocrEngine);
         System.out.println("- Enhance images: " + enhanceImages);
         System.out.println("- Correction rotation: " + correctRotation);
         System.out.println("- Debug mode: " + debugMode);
+        System.out.println("- Template zones: " + templateZones);
 
         // Update UI state
         processing.set(true);
         processingStatusLabel.setText("Processing submissions...");
 
         // Create a task to do the processing
-        currentTask = viewModel.processSubmissions(enhanceImages, correctRotation, debugMode);
+        currentTask = viewModel.processSubmissions(enhanceImages, correctRotation, debugMode, templateZones);
 
         // Bind message
         processingStatusLabel.textProperty().bind(currentTask.messageProperty());
@@ -460,6 +578,11 @@ public class SubmissionController {
 
     @FXML
     private void handleViewAllReports() {
+        // The reports of the submissions not loaded yet are read in the background first
+        viewModel.loadRemainingSubmissions().thenAccept(loaded -> showAllReports());
+    }
+
+    private void showAllReports() {
         if (viewModel.getProcessedSubmissionsList().isEmpty()) {
             showInfoAlert("Aucun rapport", "Aucune soumission n'a été traitée.");
             return;
@@ -546,8 +669,13 @@ public class SubmissionController {
         File directory = directoryChooser.showDialog(exportResultsButton.getScene().getWindow());
 
         if (directory != null) {
-            try {
-                File csvFile = viewModel.exportResultsToCSV(directory);
+            viewModel.exportResultsToCSV(directory).whenComplete((csvFile, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    showErrorAlert("Export Error", "Failed to export results: " + cause.getMessage());
+                    return;
+                }
                 showInfoAlert("Export Successful", "Results exported to " + csvFile.getAbsolutePath());
 
                 // Ask if user wants to open the file
@@ -564,9 +692,7 @@ public class SubmissionController {
                         showErrorAlert("Open File Error", "Could not open the file: " + e.getMessage());
                     }
                 }
-            } catch (Exception e) {
-                showErrorAlert("Export Error", "Failed to export results: " + e.getMessage());
-            }
+            });
         }
     }
 
@@ -644,12 +770,15 @@ public class SubmissionController {
             processing.set(false);
         }
 
+        viewModel.stopHotFolder();
+
         // clear existing submissions when leaving the view
         viewModel.clearAllSubmissions();
 
         // Navigate back to document manager for the course
         if (currentExam != null && currentExam.getCourseId() != null) {
-            navigationService.navigateToDocumentManager(viewModel.getCourseForExam(currentExam.getCourseId()));
+            viewModel.getCourseForExam(currentExam.getCourseId())
+                    .thenAccept(course -> navigationService.navigateToDocumentManager(course));
         } else {
             navigationService.navigateToCourseManager();
         }
@@ -664,15 +793,10 @@ public class SubmissionController {
             currentExam = examDocument;
             examTitleLabel.setText(examDocument.getTitle() + " - Submissions");
 
-            // Set the exam in the selector
-            for (ExamDocument exam : examSelector.getItems()) {
-                if (exam.getId().equals(examDocument.getId())) {
-                    examSelector.getSelectionModel().select(exam);
-                    break;
-                }
-            }
-
             viewModel.setSelectedExam(examDocument);
+
+            // Set the exam in the selector, once listed if the exams are still loading
+            selectCurrentExam();
         }
     }
 
@@ -10,6 +10,7 @@ public class Question {
     private Long id;
     private String text;
     private String correctAnswer;
+    private String normalization = "standard";
     private LocalDateTime createdAt;
     
     /**
@@ -69,6 +70,17 @@ public class Question {
         this.correctAnswer = correctAnswer;
     }
     
+    /**
+     * @return Le nom de la normalisation utilisée pour comparer les réponses : standard, accents ou numeric
+     */
+    public String getNormalization() {
+        return normalization;
+    }
+    
+    public void setNormalization(String normalization) {
+        this.normalization = normalization;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -96,6 +108,7 @@ public class Question {
                 "id=" + id +
                 ", text='" + text + '\'' +
                 ", correctAnswer='" + correctAnswer + '\'' +
+                ", normalization='" + normalization + '\'' +
                 ", createdAt=" + createdAt +
                 '}';
     }
@@ -4,36 +4,265 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
+/**
+ * Connections to the SQLite database: one writer connection and a few read-only reader connections.
+ * The database runs in WAL mode, so readers never wait for the writer and the UI stays responsive
+ * while grading results are saved.
+ * The database path can be set with the {@value #DB_PATH_PROPERTY} system property,
+ * the {@value #DB_PATH_ENV} environment variable or {@link #setDatabasePath(String)}.
+ * Each connection keeps its prepared statements in a {@link StatementCache}.
+ * Pending {@link SchemaMigrations} are applied when the writer connection is opened.
+ * The writer is shared by every thread, so repositories write through {@link #inTransaction(Connection, SqlWork)}:
+ * one thread writes at a time, and a transaction never commits or rolls back the statements of another thread.
+ */
 public class ConnectionManager {
+    public static final String DB_PATH_PROPERTY = "easyeval.db.path";
+    public static final String DB_PATH_ENV = "EASYEVAL_DB_PATH";
+    private static final String DEFAULT_DB_PATH = "external-data/easyeval.db";
+    private static final int READER_COUNT = 2;
 
-    private static Connection connection;
+    private static String databasePath = defaultDatabasePath();
+    private static StatementCache writer;
+    private static final List<StatementCache> readers = new ArrayList<>();
+    private static int nextReader;
 
-    public static Connection getConnection() {
+    // Held while a thread writes, so the statements of two threads never share a transaction
+    private static final ReentrantLock writeLock = new ReentrantLock();
+    // Connections written by the unit of work of the current thread, null outside a unit of work
+    private static final ThreadLocal<Set<Connection>> unitOfWork = new ThreadLocal<>();
+
+    /**
+     * Writes done in a transaction.
+     * @param <T> Type of the result
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Gets the writer connection. Also used for reads that must see uncommitted writes.
+     */
+    public static synchronized Connection getConnection() {
         try {
-            if (connection == null || connection.isClosed()) {
-                String dbUrl = "jdbc:sqlite:external-data/easyeval.db";
-                connection = DriverManager.getConnection(dbUrl);
+            if (writer == null || writer.getConnection().isClosed()) {
+                Connection connection = open();
 
                 try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("PRAGMA journal_mode = WAL;");
                     stmt.execute("PRAGMA foreign_keys = ON;");
                 }
+                SchemaMigrations.migrate(connection);
+                writer = new StatementCache(connection);
             }
-            return connection;
+            return writer.getConnection();
         } catch (SQLException e) {
             System.err.println("Failed to get connection: " + e.getMessage()); // for debug
             throw new RepositoryException("Can not make connection", e.getCause());
         }
     }
 
-    public static void close() {
+    /**
+     * Gets a read-only connection. Readers are handed out in turn.
+     */
+    public static synchronized Connection getReadConnection() {
+        // WAL mode is enabled by the writer and stored in the database file
+        getConnection();
+        try {
+            if (readers.isEmpty()) {
+                for (int i = 0; i < READER_COUNT; i++) {
+                    Connection reader = open();
+                    try (Statement stmt = reader.createStatement()) {
+                        stmt.execute("PRAGMA query_only = ON;");
+                    }
+                    readers.add(new StatementCache(reader));
+                }
+            }
+
+            Connection reader = readers.get(nextReader).getConnection();
+            nextReader = (nextReader + 1) % readers.size();
+            if (reader.isClosed()) {
+                readers.clear();
+                return getReadConnection();
+            }
+            return reader;
+        } catch (SQLException e) {
+            System.err.println("Failed to get read connection: " + e.getMessage()); // for debug
+            throw new RepositoryException("Can not make connection", e.getCause());
+        }
+    }
+
+    /**
+     * Runs writes in one transaction, while no other thread writes.
+     * A transaction already open on this thread is joined: the outermost one commits, or rolls back
+     * when an exception is thrown. The connection is always left in auto-commit mode afterwards.
+     * @param connection Connection written to, the writer connection outside of tests
+     * @param work The writes
+     * @return The result of the writes
+     * @throws SQLException If a write fails, after the rollback
+     */
+    public static <T> T inTransaction(Connection connection, SqlWork<T> work) throws SQLException {
+        writeLock.lock();
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+            Set<Connection> enlisted = unitOfWork.get();
+            if (enlisted != null) {
+                // Committed or rolled back with the unit of work
+                if (enlisted.add(connection)) {
+                    connection.setAutoCommit(false);
+                }
+                return work.run();
+            }
+            // Only this thread holds the lock, so manual-commit mode means its own transaction
+            if (!connection.getAutoCommit()) {
+                return work.run();
+            }
+
+            connection.setAutoCommit(false);
+            try {
+                T result = work.run();
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Runs the writes of several repositories in one transaction, while no other thread writes.
+     * Each repository writing inside the unit of work joins it; all of them are committed together,
+     * or all rolled back when an exception is thrown. A unit of work started inside another one is joined.
+     * @param work The writes
+     * @return The result of the writes
+     */
+    public static <T> T inUnitOfWork(Supplier<T> work) {
+        writeLock.lock();
+        try {
+            if (unitOfWork.get() != null) {
+                return work.get();
+            }
+            Set<Connection> enlisted = Collections.newSetFromMap(new IdentityHashMap<>());
+            unitOfWork.set(enlisted);
+            try {
+                T result = work.get();
+                for (Connection connection : enlisted) {
+                    connection.commit();
+                }
+                return result;
+            } catch (SQLException e) {
+                rollback(enlisted, e);
+                throw new RepositoryException("Can not commit transaction", e);
+            } catch (RuntimeException e) {
+                rollback(enlisted, e);
+                throw e;
+            } finally {
+                unitOfWork.remove();
+                for (Connection connection : enlisted) {
+                    try {
+                        connection.setAutoCommit(true);
+                    } catch (SQLException e) {
+                        System.err.println("Failed to restore auto-commit: " + e.getMessage()); // for debug
+                    }
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static void rollback(Set<Connection> connections, Exception cause) {
+        for (Connection connection : connections) {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Opens a connection with the tuning shared by the writer and the readers.
+     */
+    private static Connection open() throws SQLException {
+        Connection opened = DriverManager.getConnection("jdbc:sqlite:" + databasePath);
+        try (Statement stmt = opened.createStatement()) {
+            stmt.execute("PRAGMA synchronous = NORMAL;");  // safe in WAL mode, no fsync per commit
+            stmt.execute("PRAGMA cache_size = -16000;");   // 16 MB page cache
+            stmt.execute("PRAGMA mmap_size = 268435456;"); // 256 MB memory-mapped reads
+            stmt.execute("PRAGMA temp_store = MEMORY;");
+            stmt.execute("PRAGMA busy_timeout = 5000;");
+        }
+        return opened;
+    }
+
+    /**
+     * @return The path of the database file
+     */
+    public static synchronized String getDatabasePath() {
+        return databasePath;
+    }
+
+    /**
+     * Changes the database file. Open connections are closed.
+     * @param path Path of the database file
+     */
+    public static synchronized void setDatabasePath(String path) {
+        close();
+        databasePath = path;
+    }
+
+    /**
+     * @return The hit and miss counters of the statement cache of each open connection, one line each
+     */
+    public static synchronized String getStatementCacheStats() {
+        StringBuilder stats = new StringBuilder();
+        if (writer != null) {
+            stats.append("writer: ").append(writer).append('\n');
+        }
+        for (int i = 0; i < readers.size(); i++) {
+            stats.append("reader ").append(i + 1).append(": ").append(readers.get(i)).append('\n');
+        }
+        return stats.toString();
+    }
+
+    private static String defaultDatabasePath() {
+        String path = System.getProperty(DB_PATH_PROPERTY);
+        if (path == null || path.isBlank()) {
+            path = System.getenv(DB_PATH_ENV);
+        }
+        return path == null || path.isBlank() ? DEFAULT_DB_PATH : path;
+    }
+
+    public static synchronized void close() {
+        try {
+            for (StatementCache reader : readers) {
+                if (!reader.getConnection().isClosed()) {
+                    reader.getConnection().close();
+                }
+            }
+            readers.clear();
+            nextReader = 0;
+
+            if (writer != null && !writer.getConnection().isClosed()) {
+                writer.getConnection().close();
             }
+            writer = null;
         } catch (SQLException e) {
             System.err.println("Failed to close connection: " + e.getMessage()); // for debug
             throw new RepositoryException("Can not close connection", e.getCause());
         }
     }
-}
\ No newline at end of file
+}
@@ -14,20 +14,38 @@ import java.util.Optional;
 
 public class CourseRepository {
     private final Connection connection;
+    private final Connection readConnection;
     private final DateTimeFormatter formatter;
+    private final EntityCaches caches;
+    private final QuestionRepository questionRepository;
 
     public CourseRepository() {
         connection = ConnectionManager.getConnection();
+        readConnection = ConnectionManager.getReadConnection();
         formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        caches = EntityCaches.shared();
+        questionRepository = new QuestionRepository();
     }
 
     // Constructor with connection for testing
     CourseRepository(Connection connection) {
+        this(connection, EntityCaches.disabled());
+    }
+
+    // Constructor with connection and caches for testing
+    CourseRepository(Connection connection, EntityCaches caches) {
         this.connection = connection;
+        this.readConnection = connection;
         formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        this.caches = caches;
+        questionRepository = new QuestionRepository(connection, caches);
     }
 
     public Optional<Course> findById(long id) {
+        return Optional.ofNullable(caches.courses.get(id, key -> queryById(key).orElse(null)));
+    }
+
+    private Optional<Course> queryById(long id) {
         String sql = """
                 SELECT 
                     * 
@@ -36,7 +54,7 @@ public class CourseRepository {
                 WHERE 
                     id = ?
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -63,7 +81,7 @@ public class CourseRepository {
                 WHERE 
                     name = ?
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setString(1, name);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -81,8 +99,27 @@ public class CourseRepository {
         return Optional.empty();
     }
 
+    /**
+     * Searches the courses by name, ignoring case and accents: each word typed is matched as the start
+     * of a word of the name. Falls back to a substring search on a database without search index.
+     * @param substring Text typed by the user
+     * @return Matching courses, sorted by name
+     */
     public List<Course> findByNameContaining(String substring) {
-        List<Course> courses = new ArrayList<>();
+        String match = SearchIndex.matchQuery(substring);
+        if (match != null && hasSearchIndex()) {
+            String sql = """
+                    SELECT 
+                        * 
+                    FROM 
+                        courses 
+                    WHERE 
+                        id IN (SELECT rowid FROM courses_fts WHERE courses_fts MATCH ?)
+                    ORDER BY
+                        name
+                    """;
+            return queryByName(sql, match);
+        }
         String sql = """
                 SELECT 
                     * 
@@ -93,8 +130,21 @@ public class CourseRepository {
                 ORDER BY
                     name
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, "%" + substring + "%");
+        return queryByName(sql, "%" + substring + "%");
+    }
+
+    private boolean hasSearchIndex() {
+        try {
+            return SearchIndex.exists(readConnection, SearchIndex.COURSES);
+        } catch (SQLException e) {
+            throw new RepositoryException("Recherche impossible", e);
+        }
+    }
+
+    private List<Course> queryByName(String sql, String parameter) {
+        List<Course> courses = new ArrayList<>();
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+            stmt.setString(1, parameter);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     long id = rs.getLong("id");
@@ -113,9 +163,13 @@ public class CourseRepository {
     }
 
     public List<Course> findAll() {
+        return caches.courseLists.get(EntityCaches.ALL, key -> queryAll());
+    }
+
+    private List<Course> queryAll() {
         List<Course> courses = new ArrayList<>();
         String sql = "SELECT * FROM courses ORDER BY name";
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 long id = rs.getLong("id");
@@ -142,7 +196,7 @@ public class CourseRepository {
                 WHERE 
                     course_id = ?
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, courseId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -181,7 +235,7 @@ public class CourseRepository {
 
     public long count() {
         String sql = "SELECT COUNT(*) FROM courses";
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             if (rs.next()) {
                 return rs.getLong(1);
@@ -239,33 +293,52 @@ public class CourseRepository {
     }
 
     public Course save(Course course) {
-        if (course.getId() != null && existsById(course.getId())) {
-            update(course);
-        } else {
-            long newId = insert(course);
-            course.setId(newId);
+        try {
+            ConnectionManager.inTransaction(connection, () -> {
+                if (course.getId() != null && existsById(course.getId())) {
+                    update(course);
+                } else {
+                    long newId = insert(course);
+                    course.setId(newId);
+                }
+                return course;
+            });
+        } catch (SQLException e) {
+            throw new RepositoryException("Sauvegarde impossible", e);
         }
+        caches.courseSaved(course.getId());
         return course;
     }
 
     public boolean deleteById(long id) {
         String sql = "DELETE FROM courses WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setLong(1, id);
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected > 0) {
-                new QuestionRepository().deleteOrphanedQuestions(); // same as in ExamDocumentRepository
-            }
-            return rowsAffected > 0;
+        int rowsAffected;
+        try {
+            rowsAffected = ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, id);
+                    return stmt.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             throw new RepositoryException("Suppression impossible", e);
         }
+        if (rowsAffected > 0) {
+            caches.coursesDeleted(); // exams of the course are deleted in cascade
+            questionRepository.deleteOrphanedQuestions(); // same as in ExamDocumentRepository
+        }
+        return rowsAffected > 0;
     }
 
     public boolean deleteAllCourses() {
         String sql = "DELETE FROM courses";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            int rowsAffected = stmt.executeUpdate();
+        try {
+            int rowsAffected = ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    return stmt.executeUpdate();
+                }
+            });
+            caches.coursesDeleted();
             return rowsAffected > 0;
         } catch (SQLException e) {
             throw new RepositoryException("Suppression de tous les cours impossible", e);
@@ -0,0 +1,113 @@
+package be.esi.prj.easyeval.repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Size-bounded, read-through cache of loaded entities, evicting the least recently used entry.
+ * Entities are mutable, so the cache keeps its own copies and hands out copies:
+ * a caller editing a returned entity does not change what the next caller gets.
+ * @param <K> Key of an entry (an ID or a query)
+ * @param <V> Cached value
+ */
+public class EntityCache<K, V> {
+    private final int capacity;
+    private final UnaryOperator<V> copier;
+    private final LinkedHashMap<K, V> entries;
+    // Incremented by each invalidation, so a value loaded before it is not stored after it
+    private long generation;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructor
+     * @param capacity Maximum number of entries, 0 disables the cache
+     * @param copier Makes an independent copy of a value
+     */
+    public EntityCache(int capacity, UnaryOperator<V> copier) {
+        this.capacity = capacity;
+        this.copier = copier;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > EntityCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets a value from the cache, or loads and caches it.
+     * @param key Key of the entry
+     * @param loader Loads the value from the database, may return null (not cached)
+     * @return A copy of the value, or null
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            V cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return copier.apply(cached);
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        V loaded = loader.apply(key);
+        if (loaded == null) {
+            return null;
+        }
+
+        synchronized (this) {
+            if (generation == loadGeneration && capacity > 0) {
+                entries.put(key, copier.apply(loaded));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Removes an entry after a write.
+     * @param key Key of the entry
+     */
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Share of reads served from the cache, between 0 and 1
+     */
+    public synchronized double getHitRate() {
+        long reads = hits + misses;
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("hits=%d, misses=%d, hit rate=%.1f%%, cached=%d",
+                hits, misses, getHitRate() * 100, entries.size());
+    }
+}
@@ -0,0 +1,145 @@
+package be.esi.prj.easyeval.repository;
+
+import be.esi.prj.easyeval.model.Course;
+import be.esi.prj.easyeval.model.ExamDocument;
+import be.esi.prj.easyeval.model.Question;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caches of the courses, exams and questions read by the repositories, so navigating between screens
+ * does not query the database again for data that has not changed.
+ * Exams hold their questions and courses own their exams, so a write invalidates every cache that
+ * may hold the changed rows; the rules are kept here rather than in each repository.
+ */
+public class EntityCaches {
+    static final String ALL = "all";
+
+    private static final EntityCaches SHARED = new EntityCaches(256, 1024, 64);
+
+    final EntityCache<Long, Course> courses;
+    final EntityCache<String, List<Course>> courseLists;
+    final EntityCache<Long, ExamDocument> exams;
+    final EntityCache<String, List<ExamDocument>> examLists;
+    final EntityCache<Long, Question> questions;
+    final EntityCache<Long, List<Question>> examQuestions;
+
+    /**
+     * Constructor
+     * @param entityCapacity Maximum number of cached courses and exams
+     * @param questionCapacity Maximum number of cached questions and question lists
+     * @param listCapacity Maximum number of cached course and exam lists
+     */
+    EntityCaches(int entityCapacity, int questionCapacity, int listCapacity) {
+        courses = new EntityCache<>(entityCapacity, EntityCaches::copy);
+        courseLists = new EntityCache<>(listCapacity, list -> copyAll(list, EntityCaches::copy));
+        exams = new EntityCache<>(entityCapacity, EntityCaches::copy);
+        examLists = new EntityCache<>(listCapacity, list -> copyAll(list, EntityCaches::copy));
+        questions = new EntityCache<>(questionCapacity, EntityCaches::copy);
+        examQuestions = new EntityCache<>(questionCapacity, list -> copyAll(list, EntityCaches::copy));
+    }
+
+    /**
+     * @return The caches shared by the repositories of the application
+     */
+    public static EntityCaches shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return Caches that keep nothing, for repositories on a test connection
+     */
+    static EntityCaches disabled() {
+        return new EntityCaches(0, 0, 0);
+    }
+
+    static String courseKey(Long courseId) {
+        return "course:" + courseId;
+    }
+
+    void courseSaved(Long courseId) {
+        courses.invalidate(courseId);
+        courseLists.invalidateAll();
+    }
+
+    /**
+     * Deleting courses cascades to their exams, whose questions may then be removed as orphans.
+     */
+    void coursesDeleted() {
+        courses.invalidateAll();
+        courseLists.invalidateAll();
+        questionsChanged();
+    }
+
+    void examSaved(Long examId) {
+        exams.invalidate(examId);
+        examLists.invalidateAll();
+        examQuestions.invalidate(examId);
+    }
+
+    void examDeleted(Long examId) {
+        examSaved(examId);
+        // Questions left without exam are deleted with it
+        questions.invalidateAll();
+    }
+
+    void questionSaved(Long questionId) {
+        questions.invalidate(questionId);
+        examQuestions.invalidateAll();
+        exams.invalidateAll();
+        examLists.invalidateAll();
+    }
+
+    void questionsChanged() {
+        questions.invalidateAll();
+        examQuestions.invalidateAll();
+        exams.invalidateAll();
+        examLists.invalidateAll();
+    }
+
+    void examQuestionsChanged(Long examId) {
+        examSaved(examId);
+    }
+
+    /**
+     * @return The hit rate of each cache, one line each
+     */
+    public String getStats() {
+        return "courses: " + courses + '\n'
+                + "course lists: " + courseLists + '\n'
+                + "exams: " + exams + '\n'
+                + "exam lists: " + examLists + '\n'
+                + "questions: " + questions + '\n'
+                + "exam questions: " + examQuestions + '\n';
+    }
+
+    private static Course copy(Course course) {
+        return new Course(course.getId(), course.getName(), course.getCreatedAt());
+    }
+
+    private static Question copy(Question question) {
+        Question copy = new Question(question.getId(), question.getText(), question.getCorrectAnswer(),
+                question.getCreatedAt());
+        copy.setNormalization(question.getNormalization());
+        return copy;
+    }
+
+    private static ExamDocument copy(ExamDocument examDocument) {
+        ExamDocument copy = new ExamDocument(examDocument.getId(), examDocument.getTitle(),
+                examDocument.getInstructions(), examDocument.getCourseId(), examDocument.getCreatedAt());
+        copy.setQuestions(examDocument.getQuestions() != null
+                ? copyAll(examDocument.getQuestions(), EntityCaches::copy)
+                : null);
+        return copy;
+    }
+
+    private static <T> List<T> copyAll(List<T> items, UnaryOperator<T> copier) {
+        List<T> copies = new ArrayList<>(items.size());
+        for (T item : items) {
+            copies.add(copier.apply(item));
+        }
+        return copies;
+    }
+}
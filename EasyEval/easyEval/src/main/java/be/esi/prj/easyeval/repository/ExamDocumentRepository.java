@@ -10,39 +10,62 @@ import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repository for handling ExamDocument entity persistence operations.
  */
-public class ExamDocumentRepository {
+public class ExamDocumentRepository implements Repository<Long, ExamDocument> {
     private final Connection connection;
+    private final Connection readConnection;
     private final DateTimeFormatter formatter;
     private final QuestionRepository questionRepository;
+    private final EntityCaches caches;
 
     /**
      * Default constructor.
      */
     public ExamDocumentRepository() {
         connection = ConnectionManager.getConnection();
+        readConnection = ConnectionManager.getReadConnection();
         formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         questionRepository = new QuestionRepository();
+        caches = EntityCaches.shared();
     }
 
     /**
      * Constructor for testing.
      */
     ExamDocumentRepository(Connection connection, QuestionRepository questionRepository) {
+        this(connection, questionRepository, EntityCaches.disabled());
+    }
+
+    /**
+     * Constructor for testing with caches, to share with the question repository.
+     */
+    ExamDocumentRepository(Connection connection, QuestionRepository questionRepository, EntityCaches caches) {
         this.connection = connection;
+        this.readConnection = connection;
         this.formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         this.questionRepository = questionRepository;
+        this.caches = caches;
     }
 
     /**
      * Finds an exam document by its ID.
      */
     public Optional<ExamDocument> findById(Long id) {
+        return Optional.ofNullable(caches.exams.get(id, key -> queryById(key).orElse(null)));
+    }
+
+    private Optional<ExamDocument> queryById(Long id) {
         String sql = """
                 SELECT 
                     id, title, instructions, course_id, created_at 
@@ -51,7 +74,7 @@ public class ExamDocumentRepository {
                 WHERE 
                     id = ?
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -79,9 +102,13 @@ public class ExamDocumentRepository {
      * Retrieves all exam documents.
      */
     public List<ExamDocument> findAll() {
+        return caches.examLists.get(EntityCaches.ALL, key -> queryAll());
+    }
+
+    private List<ExamDocument> queryAll() {
         List<ExamDocument> examDocuments = new ArrayList<>();
         String sql = "SELECT id, title, instructions, course_id, created_at FROM exam_documents ORDER BY created_at DESC";
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 ExamDocument examDocument = new ExamDocument();
@@ -98,10 +125,50 @@ public class ExamDocumentRepository {
         return examDocuments;
     }
 
+    /**
+     * Retrieves the exam documents following an ID, by ascending ID.
+     */
+    public Page<Long, ExamDocument> findPage(Long afterId, int limit) {
+        List<ExamDocument> examDocuments = new ArrayList<>();
+        String sql = """
+                SELECT
+                    id, title, instructions, course_id, created_at
+                FROM
+                    exam_documents
+                WHERE
+                    id > ?
+                ORDER BY
+                    id
+                LIMIT ?
+                """;
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+            stmt.setLong(1, afterId != null ? afterId : 0);
+            stmt.setInt(2, limit + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ExamDocument examDocument = new ExamDocument();
+                    examDocument.setId(rs.getLong("id"));
+                    examDocument.setTitle(rs.getString("title"));
+                    examDocument.setInstructions(rs.getString("instructions"));
+                    examDocument.setCourseId(rs.getLong("course_id"));
+                    examDocument.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                    examDocuments.add(examDocument);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Selection impossible", e);
+        }
+        return Page.of(examDocuments, limit, ExamDocument::getId);
+    }
+
     /**
      * Finds all exam documents for a specific course.
      */
     public List<ExamDocument> findByCourseId(Long courseId) {
+        return caches.examLists.get(EntityCaches.courseKey(courseId), key -> queryByCourseId(courseId));
+    }
+
+    private List<ExamDocument> queryByCourseId(Long courseId) {
         List<ExamDocument> examDocuments = new ArrayList<>();
         String sql = """
                 SELECT 
@@ -113,7 +180,7 @@ public class ExamDocumentRepository {
                 ORDER BY 
                     created_at DESC
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, courseId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -124,18 +191,31 @@ public class ExamDocumentRepository {
                     examDocument.setCourseId(rs.getLong("course_id"));
                     examDocument.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
                     examDocuments.add(examDocument);
-
-                    // Load questions associated with this exam
-                    List<Question> questions = questionRepository.findByExamId(examDocument.getId());
-                    examDocument.setQuestions(questions);
                 }
             }
+
+            // Load questions of all exams at once
+            loadQuestions(examDocuments);
         } catch (SQLException e) {
             throw new RepositoryException("Selection impossible", e);
         }
         return examDocuments;
     }
 
+    /**
+     * Helper method to load the questions of several exam documents.
+     */
+    private void loadQuestions(List<ExamDocument> examDocuments) {
+        List<Long> examIds = new ArrayList<>();
+        for (ExamDocument examDocument : examDocuments) {
+            examIds.add(examDocument.getId());
+        }
+        Map<Long, List<Question>> questionsByExam = questionRepository.findByExamIds(examIds);
+        for (ExamDocument examDocument : examDocuments) {
+            examDocument.setQuestions(questionsByExam.get(examDocument.getId()));
+        }
+    }
+
     /**
      * Inserts a new exam document.
      */
@@ -189,41 +269,279 @@ public class ExamDocumentRepository {
     }
 
     /**
-     * Saves an exam document (create or update).
+     * Question of an exam as stored in the database.
+     */
+    private record StoredQuestion(int order, String text, String correctAnswer, String normalization) {
+    }
+
+    /**
+     * Saves an exam document (create or update) with its questions, in a single transaction.
+     * The questions are compared with those stored for the exam, and only the differences are written:
+     * new questions are inserted, edited ones updated, and the links of the exam to its questions
+     * added, removed or reordered in batches.
      */
     public ExamDocument save(ExamDocument examDocument) {
+        Long previousId = examDocument.getId();
+        List<Question> insertedQuestions = new ArrayList<>();
+        boolean[] questionsWritten = {false};
         try {
-            boolean isUpdate = examDocument.getId() != null && existsById(examDocument.getId());
+            return ConnectionManager.inTransaction(connection, () -> {
+                boolean isUpdate = examDocument.getId() != null && existsById(examDocument.getId());
+                if (isUpdate) {
+                    update(examDocument);
+                } else {
+                    long newId = insert(examDocument);
+                    examDocument.setId(newId);
+                }
+
+                questionsWritten[0] = saveQuestions(examDocument, isUpdate, insertedQuestions);
+                return examDocument;
+            });
+        } catch (SQLException e) {
+            forgetInsertedIds(examDocument, previousId, insertedQuestions);
+            throw new RepositoryException("Sauvegarde impossible", e);
+        } catch (RuntimeException e) {
+            forgetInsertedIds(examDocument, previousId, insertedQuestions);
+            throw e;
+        } finally {
+            if (examDocument.getId() != null) {
+                caches.examSaved(examDocument.getId());
+            }
+            if (questionsWritten[0]) {
+                // Edited questions may belong to other exams
+                caches.questionsChanged();
+            }
+        }
+    }
 
-            if (isUpdate) {
-                update(examDocument);
+    /**
+     * The IDs given by rolled back inserts do not exist.
+     */
+    private static void forgetInsertedIds(ExamDocument examDocument, Long previousId, List<Question> insertedQuestions) {
+        examDocument.setId(previousId);
+        for (Question question : insertedQuestions) {
+            question.setId(null);
+        }
+    }
+
+    /**
+     * Writes the differences between the questions of the exam and those stored.
+     * @param insertedQuestions Receives the questions inserted, whose IDs are new
+     * @return true if rows of the questions table were written
+     */
+    private boolean saveQuestions(ExamDocument examDocument, boolean isUpdate, List<Question> insertedQuestions)
+            throws SQLException {
+        Long examId = examDocument.getId();
+        List<Question> questions = examDocument.getQuestions() != null ? examDocument.getQuestions() : List.of();
+        Map<Long, StoredQuestion> stored = isUpdate ? findStoredQuestions(examId) : Map.of();
+
+        // Questions with an ID that are not in the exam yet, such as questions of another exam
+        List<Long> otherIds = new ArrayList<>();
+        for (Question question : questions) {
+            if (question.getId() != null && !stored.containsKey(question.getId())) {
+                otherIds.add(question.getId());
+            }
+        }
+        Set<Long> existingIds = otherIds.isEmpty() ? Set.of() : findExistingQuestionIds(otherIds);
+
+        List<Question> toInsert = new ArrayList<>();
+        List<Integer> insertOrders = new ArrayList<>();
+        List<Question> toUpdate = new ArrayList<>();
+        Map<Long, Integer> toLink = new LinkedHashMap<>();
+        Map<Long, Integer> toReorder = new LinkedHashMap<>();
+        Set<Long> kept = new HashSet<>();
+
+        for (int i = 0; i < questions.size(); i++) {
+            Question question = questions.get(i);
+            int order = i + 1;
+            StoredQuestion storedQuestion = question.getId() != null ? stored.get(question.getId()) : null;
+
+            if (storedQuestion != null) {
+                kept.add(question.getId());
+                if (!Objects.equals(storedQuestion.text(), question.getText())
+                        || !Objects.equals(storedQuestion.correctAnswer(), question.getCorrectAnswer())
+                        || !Objects.equals(storedQuestion.normalization(), QuestionRepository.normalization(question))) {
+                    toUpdate.add(question);
+                }
+                if (storedQuestion.order() != order) {
+                    toReorder.put(question.getId(), order);
+                }
+            } else if (question.getId() != null && existingIds.contains(question.getId())) {
+                // Its stored text is not known, so it is written
+                toUpdate.add(question);
+                toLink.put(question.getId(), order);
             } else {
-                long newId = insert(examDocument);
-                examDocument.setId(newId);
+                toInsert.add(question);
+                insertOrders.add(order);
+            }
+        }
+
+        List<Long> toUnlink = new ArrayList<>();
+        for (Long questionId : stored.keySet()) {
+            if (!kept.contains(questionId)) {
+                toUnlink.add(questionId);
             }
+        }
+
+        insertQuestions(toInsert, insertedQuestions);
+        for (int i = 0; i < toInsert.size(); i++) {
+            toLink.put(toInsert.get(i).getId(), insertOrders.get(i));
+        }
+        updateQuestions(toUpdate);
+        unlinkQuestions(examId, toUnlink);
+        reorderQuestions(examId, toReorder);
+        linkQuestions(examId, toLink);
+
+        return !toInsert.isEmpty() || !toUpdate.isEmpty();
+    }
 
-            // First clear existing associations if updating
-            if (isUpdate) {
-                String deleteSQL = "DELETE FROM exam_questions WHERE exam_id = ?";
-                try (PreparedStatement deleteStmt = connection.prepareStatement(deleteSQL)) {
-                    deleteStmt.setLong(1, examDocument.getId());
-                    deleteStmt.executeUpdate();
+    /**
+     * @return The questions linked to the exam, by ID
+     */
+    private Map<Long, StoredQuestion> findStoredQuestions(Long examId) throws SQLException {
+        String sql = """
+                SELECT 
+                    eq.question_id, eq.question_order, q.text, q.correct_answer, q.normalization 
+                FROM 
+                    exam_questions eq 
+                    JOIN questions q ON q.id = eq.question_id 
+                WHERE 
+                    eq.exam_id = ?
+                """;
+        Map<Long, StoredQuestion> stored = new HashMap<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, examId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    stored.put(rs.getLong("question_id"), new StoredQuestion(rs.getInt("question_order"),
+                            rs.getString("text"), rs.getString("correct_answer"), rs.getString("normalization")));
                 }
             }
+        }
+        return stored;
+    }
 
-            // If there are questions, associate them with the exam
-            if (examDocument.getQuestions() != null && !examDocument.getQuestions().isEmpty()) {
+    private Set<Long> findExistingQuestionIds(List<Long> questionIds) throws SQLException {
+        Set<Long> existingIds = new HashSet<>();
+        for (List<Long> chunk : InClause.chunks(questionIds)) {
+            String sql = "SELECT id FROM questions WHERE id IN (" + InClause.placeholders(chunk.size()) + ")";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        existingIds.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+        return existingIds;
+    }
 
-                for (int i = 0; i < examDocument.getQuestions().size(); i++) {
-                    Question question = examDocument.getQuestions().get(i);
-                    question = questionRepository.save(question);
-                    questionRepository.addQuestionToExam(examDocument.getId(), question.getId(), i + 1);
+    /**
+     * Inserts new questions with one reused statement, each insert giving the ID of its question.
+     */
+    private void insertQuestions(List<Question> questions, List<Question> insertedQuestions) throws SQLException {
+        if (questions.isEmpty()) {
+            return;
+        }
+        String sql = """
+                INSERT INTO 
+                    questions (text, correct_answer, normalization) 
+                VALUES 
+                    (?, ?, ?)
+                """;
+        try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (Question question : questions) {
+                stmt.setString(1, question.getText());
+                stmt.setString(2, question.getCorrectAnswer());
+                stmt.setString(3, QuestionRepository.normalization(question));
+                stmt.executeUpdate();
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    if (!rs.next()) {
+                        throw new SQLException("No ID generated for question");
+                    }
+                    question.setId(rs.getLong(1));
                 }
+                insertedQuestions.add(question);
             }
+        }
+    }
 
-            return examDocument;
-        } catch (SQLException e) {
-            throw new RepositoryException("Sauvegarde impossible", e);
+    private void updateQuestions(List<Question> questions) throws SQLException {
+        if (questions.isEmpty()) {
+            return;
+        }
+        String sql = """
+                UPDATE 
+                    questions 
+                SET 
+                    text = ?, correct_answer = ?, normalization = ? 
+                WHERE 
+                    id = ?
+                """;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (Question question : questions) {
+                stmt.setString(1, question.getText());
+                stmt.setString(2, question.getCorrectAnswer());
+                stmt.setString(3, QuestionRepository.normalization(question));
+                stmt.setLong(4, question.getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void unlinkQuestions(Long examId, List<Long> questionIds) throws SQLException {
+        if (questionIds.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM exam_questions WHERE exam_id = ? AND question_id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (Long questionId : questionIds) {
+                stmt.setLong(1, examId);
+                stmt.setLong(2, questionId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void reorderQuestions(Long examId, Map<Long, Integer> orders) throws SQLException {
+        if (orders.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE exam_questions SET question_order = ? WHERE exam_id = ? AND question_id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (Map.Entry<Long, Integer> entry : orders.entrySet()) {
+                stmt.setInt(1, entry.getValue());
+                stmt.setLong(2, examId);
+                stmt.setLong(3, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void linkQuestions(Long examId, Map<Long, Integer> orders) throws SQLException {
+        if (orders.isEmpty()) {
+            return;
+        }
+        String sql = """
+                INSERT INTO 
+                    exam_questions (exam_id, question_id, question_order) 
+                VALUES 
+                    (?, ?, ?)
+                """;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (Map.Entry<Long, Integer> entry : orders.entrySet()) {
+                stmt.setLong(1, examId);
+                stmt.setLong(2, entry.getKey());
+                stmt.setInt(3, entry.getValue());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
         }
     }
 
@@ -232,17 +550,23 @@ public class ExamDocumentRepository {
      */
     public boolean deleteById(Long id) {
         String sql = "DELETE FROM exam_documents WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setLong(1, id);
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected > 0) {
-                questionRepository.deleteOrphanedQuestions(); // so questions with no documents are deleted
-            }
-            return rowsAffected > 0;
+        int rowsAffected;
+        try {
+            rowsAffected = ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, id);
+                    return stmt.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RepositoryException("Suppression impossible", e);
         }
+        if (rowsAffected > 0) {
+            caches.examDeleted(id);
+            questionRepository.deleteOrphanedQuestions(); // so questions with no documents are deleted
+        }
+        return rowsAffected > 0;
     }
 
     /**
@@ -263,7 +587,7 @@ public class ExamDocumentRepository {
      */
     public long count() {
         String sql = "SELECT COUNT(*) FROM exam_documents";
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             if (rs.next()) {
                 return rs.getLong(1);
@@ -279,7 +603,7 @@ public class ExamDocumentRepository {
      */
     public long countByCourseId(Long courseId) {
         String sql = "SELECT COUNT(*) FROM exam_documents WHERE course_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, courseId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -0,0 +1,39 @@
+package be.esi.prj.easyeval.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Helpers for queries filtering on a set of values with {@code IN (...)}.
+ * Values are split into chunks to stay below the SQLite limit on statement parameters.
+ */
+final class InClause {
+    static final int CHUNK_SIZE = 500;
+
+    private InClause() {
+    }
+
+    /**
+     * @param count Number of values
+     * @return The placeholders of an IN list, such as "?, ?, ?"
+     */
+    static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Splits distinct values into chunks of at most {@link #CHUNK_SIZE}.
+     * @param values Values to split, duplicates are removed
+     * @return The chunks, in the order of the values
+     */
+    static <T> List<List<T>> chunks(Collection<T> values) {
+        List<T> distinct = values.stream().distinct().toList();
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += CHUNK_SIZE) {
+            chunks.add(distinct.subList(from, Math.min(distinct.size(), from + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+}
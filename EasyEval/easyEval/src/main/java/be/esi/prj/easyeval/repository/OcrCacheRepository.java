@@ -0,0 +1,206 @@
+package be.esi.prj.easyeval.repository;
+
+import be.esi.prj.easyeval.model.Submission;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Repository for the OCR result cache.
+ * An entry holds what OCR read on a scan, keyed by the SHA-256 of the scan file,
+ * the OCR settings and the exam, so unchanged scans are not recognised again on re-import.
+ * The tables are created by {@link SchemaMigrations}.
+ */
+public class OcrCacheRepository {
+    private final Connection connection;
+    private final Connection readConnection;
+
+    /**
+     * Default constructor.
+     */
+    public OcrCacheRepository() {
+        this(ConnectionManager.getConnection(), ConnectionManager.getReadConnection());
+    }
+
+    /**
+     * Constructor for testing.
+     */
+    OcrCacheRepository(Connection connection) {
+        this(connection, connection);
+    }
+
+    private OcrCacheRepository(Connection connection, Connection readConnection) {
+        this.connection = connection;
+        this.readConnection = readConnection;
+    }
+
+    /**
+     * Finds the cached OCR result of a scan.
+     * @param examId ID of the exam
+     * @param fileHash SHA-256 of the scan file
+     * @param settings Fingerprint of the OCR settings
+     * @return A submission holding the cached student ID and answers, without ID
+     */
+    public Optional<Submission> find(Long examId, String fileHash, String settings) {
+        return Optional.ofNullable(findAll(examId, settings, List.of(fileHash)).get(fileHash));
+    }
+
+    /**
+     * Finds the cached OCR results of several scans of an exam.
+     * @param examId ID of the exam
+     * @param settings Fingerprint of the OCR settings
+     * @param fileHashes SHA-256 of the scan files
+     * @return The cached result of each hash found
+     */
+    public Map<String, Submission> findAll(Long examId, String settings, Collection<String> fileHashes) {
+        Map<String, Submission> results = new HashMap<>();
+
+        for (List<String> chunk : InClause.chunks(fileHashes)) {
+            String placeholders = InClause.placeholders(chunk.size());
+            String sql = """
+                    SELECT
+                        c.file_hash, c.student_id, a.question_id, a.answer
+                    FROM
+                        ocr_cache c
+                    LEFT JOIN
+                        ocr_cache_answers a ON a.cache_id = c.id
+                    WHERE
+                        c.exam_id = ? AND c.settings = ? AND c.file_hash IN (%s)
+                    """.formatted(placeholders);
+
+            try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+                stmt.setLong(1, examId);
+                stmt.setString(2, settings);
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setString(i + 3, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String studentId = rs.getString("student_id");
+                        Submission cached = results.computeIfAbsent(rs.getString("file_hash"),
+                                hash -> new Submission(examId, studentId));
+
+                        long questionId = rs.getLong("question_id");
+                        if (!rs.wasNull()) {
+                            cached.setAnswer(questionId, rs.getString("answer"));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RepositoryException("Lecture du cache OCR impossible", e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Stores the OCR result of a scan, replacing any previous result for the same key.
+     * @param examId ID of the exam
+     * @param fileHash SHA-256 of the scan file
+     * @param settings Fingerprint of the OCR settings
+     * @param submission Submission holding the recognised student ID and answers
+     */
+    public void save(Long examId, String fileHash, String settings, Submission submission) {
+        saveAll(examId, settings, Map.of(fileHash, submission));
+    }
+
+    /**
+     * Stores the OCR results of several scans in a single transaction,
+     * replacing any previous results for the same keys.
+     * @param examId ID of the exam
+     * @param settings Fingerprint of the OCR settings
+     * @param entries Submission holding the recognised student ID and answers, by SHA-256 of the scan file
+     */
+    public void saveAll(Long examId, String settings, Map<String, Submission> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        String deleteSql = """
+                DELETE FROM
+                    ocr_cache
+                WHERE
+                    exam_id = ? AND file_hash = ? AND settings = ?
+                """;
+        String insertSql = """
+                INSERT INTO
+                    ocr_cache (exam_id, file_hash, settings, student_id)
+                VALUES
+                    (?, ?, ?, ?)
+                """;
+        String answerSql = """
+                INSERT INTO
+                    ocr_cache_answers (cache_id, question_id, answer)
+                VALUES
+                    (?, ?, ?)
+                """;
+
+        try {
+            ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement deleteStmt = connection.prepareStatement(deleteSql);
+                     PreparedStatement insertStmt = connection.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS);
+                     PreparedStatement answerStmt = connection.prepareStatement(answerSql)) {
+                    for (var entry : entries.entrySet()) {
+                        deleteStmt.setLong(1, examId);
+                        deleteStmt.setString(2, entry.getKey());
+                        deleteStmt.setString(3, settings);
+                        deleteStmt.addBatch();
+                    }
+                    deleteStmt.executeBatch();
+
+                    for (var entry : entries.entrySet()) {
+                        insertStmt.setLong(1, examId);
+                        insertStmt.setString(2, entry.getKey());
+                        insertStmt.setString(3, settings);
+                        insertStmt.setString(4, entry.getValue().getStudentId());
+                        insertStmt.executeUpdate();
+
+                        long cacheId;
+                        try (ResultSet rs = insertStmt.getGeneratedKeys()) {
+                            if (!rs.next()) {
+                                throw new SQLException("No generated key for the OCR cache entry");
+                            }
+                            cacheId = rs.getLong(1);
+                        }
+
+                        for (var answer : entry.getValue().getStudentAnswers().entrySet()) {
+                            answerStmt.setLong(1, cacheId);
+                            answerStmt.setLong(2, answer.getKey());
+                            answerStmt.setString(3, answer.getValue() != null ? answer.getValue() : "");
+                            answerStmt.addBatch();
+                        }
+                    }
+                    answerStmt.executeBatch();
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new RepositoryException("Sauvegarde du cache OCR impossible", e);
+        }
+    }
+
+    /**
+     * Removes the cached results of an exam.
+     * @param examId ID of the exam
+     * @return Number of removed entries
+     */
+    public int deleteByExamId(Long examId) {
+        String sql = "DELETE FROM ocr_cache WHERE exam_id = ?";
+        try {
+            return ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, examId);
+                    return stmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new RepositoryException("Suppression du cache OCR impossible", e);
+        }
+    }
+}
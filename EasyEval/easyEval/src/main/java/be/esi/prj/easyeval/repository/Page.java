@@ -0,0 +1,32 @@
+package be.esi.prj.easyeval.repository;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated query.
+ * @param items Rows of the page, in key order
+ * @param nextKey Key to pass to get the next page, null if this is the last page
+ */
+public record Page<K, T>(List<T> items, K nextKey) {
+
+    public boolean hasNext() {
+        return nextKey != null;
+    }
+
+    /**
+     * Builds a page from rows queried with a limit one above the page size,
+     * the extra row only telling that another page follows.
+     * @param rows Rows read, at most limit + 1
+     * @param limit Page size
+     * @param key Key of a row
+     * @return The page
+     */
+    static <K, T> Page<K, T> of(List<T> rows, int limit, Function<T, K> key) {
+        if (rows.size() <= limit) {
+            return new Page<>(List.copyOf(rows), null);
+        }
+        List<T> items = List.copyOf(rows.subList(0, limit));
+        return new Page<>(items, key.apply(items.get(limit - 1)));
+    }
+}
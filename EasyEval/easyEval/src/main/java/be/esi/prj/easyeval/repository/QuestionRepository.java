@@ -9,23 +9,30 @@ import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Repository for handling Question entity persistence operations.
  * Implements direct database access for question management.
  */
-public class QuestionRepository {
+public class QuestionRepository implements Repository<Long, Question> {
     private final Connection connection;
+    private final Connection readConnection;
     private final DateTimeFormatter formatter;
+    private final EntityCaches caches;
 
     /**
      * Default constructor using ConnectionManager to get a connection.
      */
     public QuestionRepository() {
         connection = ConnectionManager.getConnection();
+        readConnection = ConnectionManager.getReadConnection();
         formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        caches = EntityCaches.shared();
     }
 
     /**
@@ -34,8 +41,20 @@ public class QuestionRepository {
      * @param connection Database connection to use
      */
     QuestionRepository(Connection connection) {
+        this(connection, EntityCaches.disabled());
+    }
+
+    /**
+     * Constructor with connection and caches for testing.
+     *
+     * @param connection Database connection to use
+     * @param caches Caches of the loaded entities
+     */
+    QuestionRepository(Connection connection, EntityCaches caches) {
         this.connection = connection;
+        this.readConnection = connection;
         formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        this.caches = caches;
     }
 
     /**
@@ -45,15 +64,19 @@ public class QuestionRepository {
      * @return An Optional containing the question if found, otherwise an empty Optional
      */
     public Optional<Question> findById(Long id) {
+        return Optional.ofNullable(caches.questions.get(id, key -> queryById(key).orElse(null)));
+    }
+
+    private Optional<Question> queryById(Long id) {
         String sql = """
                 SELECT 
-                    id, text, correct_answer, created_at 
+                    id, text, correct_answer, normalization, created_at 
                 FROM 
                     questions 
                 WHERE 
                     id = ?
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -61,6 +84,7 @@ public class QuestionRepository {
                     question.setId(rs.getLong("id"));
                     question.setText(rs.getString("text"));
                     question.setCorrectAnswer(rs.getString("correct_answer"));
+                    question.setNormalization(rs.getString("normalization"));
                     question.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
                     return Optional.of(question);
                 }
@@ -78,14 +102,15 @@ public class QuestionRepository {
      */
     public List<Question> findAll() {
         List<Question> questions = new ArrayList<>();
-        String sql = "SELECT id, text, correct_answer, created_at FROM questions ORDER BY created_at DESC";
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        String sql = "SELECT id, text, correct_answer, normalization, created_at FROM questions ORDER BY created_at DESC";
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 Question question = new Question();
                 question.setId(rs.getLong("id"));
                 question.setText(rs.getString("text"));
                 question.setCorrectAnswer(rs.getString("correct_answer"));
+                question.setNormalization(rs.getString("normalization"));
                 question.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
                 questions.add(question);
             }
@@ -96,16 +121,72 @@ public class QuestionRepository {
     }
 
     /**
-     * Finds questions containing the specified text.
+     * Retrieves the questions following an ID, by ascending ID.
+     *
+     * @param afterId ID of the last question already read, null for the first page
+     * @param limit Maximum number of questions
+     * @return The page of questions
+     */
+    public Page<Long, Question> findPage(Long afterId, int limit) {
+        List<Question> questions = new ArrayList<>();
+        String sql = """
+                SELECT
+                    id, text, correct_answer, normalization, created_at
+                FROM
+                    questions
+                WHERE
+                    id > ?
+                ORDER BY
+                    id
+                LIMIT ?
+                """;
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+            stmt.setLong(1, afterId != null ? afterId : 0);
+            stmt.setInt(2, limit + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Question question = new Question();
+                    question.setId(rs.getLong("id"));
+                    question.setText(rs.getString("text"));
+                    question.setCorrectAnswer(rs.getString("correct_answer"));
+                    question.setNormalization(rs.getString("normalization"));
+                    question.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                    questions.add(question);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Error retrieving questions", e);
+        }
+        return Page.of(questions, limit, Question::getId);
+    }
+
+    /**
+     * Finds questions containing the specified text, ignoring case and accents.
+     * Each word of the text matches the start of a word of the question, through the full-text index,
+     * so a text inside a word is not found: "seau" does not find "réseau" as a substring search did.
+     * On a database without the index, the text is still searched as a substring.
      *
      * @param textPart Part of the text to search for
      * @return List of questions matching the search criteria
      */
     public List<Question> findByTextContaining(String textPart) {
-        List<Question> questions = new ArrayList<>();
+        String match = SearchIndex.matchQuery(textPart);
+        if (match != null && hasSearchIndex()) {
+            String sql = """
+                    SELECT 
+                        id, text, correct_answer, normalization, created_at 
+                    FROM 
+                        questions 
+                    WHERE 
+                        id IN (SELECT rowid FROM questions_fts WHERE questions_fts MATCH ?) 
+                    ORDER BY 
+                        created_at DESC
+                    """;
+            return queryByText(sql, match);
+        }
         String sql = """
                 SELECT 
-                    id, text, correct_answer, created_at 
+                    id, text, correct_answer, normalization, created_at 
                 FROM 
                     questions 
                 WHERE 
@@ -113,14 +194,28 @@ public class QuestionRepository {
                 ORDER BY 
                     created_at DESC
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, "%" + textPart + "%");
+        return queryByText(sql, "%" + textPart + "%");
+    }
+
+    private boolean hasSearchIndex() {
+        try {
+            return SearchIndex.exists(readConnection, SearchIndex.QUESTIONS);
+        } catch (SQLException e) {
+            throw new RepositoryException("Error checking the search index", e);
+        }
+    }
+
+    private List<Question> queryByText(String sql, String parameter) {
+        List<Question> questions = new ArrayList<>();
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+            stmt.setString(1, parameter);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     Question question = new Question();
                     question.setId(rs.getLong("id"));
                     question.setText(rs.getString("text"));
                     question.setCorrectAnswer(rs.getString("correct_answer"));
+                    question.setNormalization(rs.getString("normalization"));
                     question.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
                     questions.add(question);
                 }
@@ -138,10 +233,14 @@ public class QuestionRepository {
      * @return List of questions belonging to the exam, ordered by their position in the exam
      */
     public List<Question> findByExamId(Long examId) {
+        return caches.examQuestions.get(examId, this::queryByExamId);
+    }
+
+    private List<Question> queryByExamId(Long examId) {
         List<Question> questions = new ArrayList<>();
         String sql = """
                 SELECT 
-                    q.id, q.text, q.correct_answer, q.created_at 
+                    q.id, q.text, q.correct_answer, q.normalization, q.created_at 
                 FROM 
                     questions q 
                 JOIN 
@@ -151,7 +250,7 @@ public class QuestionRepository {
                 ORDER BY 
                     eq.question_order
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, examId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -159,6 +258,7 @@ public class QuestionRepository {
                     question.setId(rs.getLong("id"));
                     question.setText(rs.getString("text"));
                     question.setCorrectAnswer(rs.getString("correct_answer"));
+                    question.setNormalization(rs.getString("normalization"));
                     question.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
                     questions.add(question);
                 }
@@ -169,6 +269,63 @@ public class QuestionRepository {
         return questions;
     }
 
+    /**
+     * Finds the questions of several exams, with one query per chunk of exam IDs.
+     *
+     * @param examIds The IDs of the exams
+     * @return The questions of each exam, ordered by their position in the exam
+     */
+    public Map<Long, List<Question>> findByExamIds(Collection<Long> examIds) {
+        Map<Long, List<Question>> questionsByExam = new HashMap<>();
+        for (Long examId : examIds) {
+            questionsByExam.put(examId, new ArrayList<>());
+        }
+
+        for (List<Long> chunk : InClause.chunks(examIds)) {
+            String sql = """
+                    SELECT 
+                        eq.exam_id, q.id, q.text, q.correct_answer, q.normalization, q.created_at 
+                    FROM 
+                        questions q 
+                    JOIN 
+                        exam_questions eq ON q.id = eq.question_id 
+                    WHERE 
+                        eq.exam_id IN (%s) 
+                    ORDER BY 
+                        eq.exam_id, eq.question_order
+                    """.formatted(InClause.placeholders(chunk.size()));
+            try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Question question = new Question();
+                        question.setId(rs.getLong("id"));
+                        question.setText(rs.getString("text"));
+                        question.setCorrectAnswer(rs.getString("correct_answer"));
+                        question.setNormalization(rs.getString("normalization"));
+                        question.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                        questionsByExam.get(rs.getLong("exam_id")).add(question);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RepositoryException("Error finding questions by exam IDs", e);
+            }
+        }
+        return questionsByExam;
+    }
+
+    /**
+     * Name of the normalization policy stored with a question.
+     *
+     * @param question The question to save
+     * @return The name of its policy, standard when it has none
+     */
+    static String normalization(Question question) {
+        return question.getNormalization() != null ? question.getNormalization() : "standard";
+    }
+
     /**
      * Insert a new question.
      *
@@ -178,13 +335,14 @@ public class QuestionRepository {
     private long insert(Question question) {
         String sql = """
                 INSERT INTO 
-                    questions (text, correct_answer) 
+                    questions (text, correct_answer, normalization) 
                 VALUES 
-                    (?, ?)
+                    (?, ?, ?)
                 """;
         try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, question.getText());
             stmt.setString(2, question.getCorrectAnswer());
+            stmt.setString(3, normalization(question));
             stmt.executeUpdate();
 
             try (ResultSet rs = stmt.getGeneratedKeys()) {
@@ -209,7 +367,7 @@ public class QuestionRepository {
                 UPDATE 
                     questions 
                 SET 
-                    text = ?, correct_answer = ? 
+                    text = ?, correct_answer = ?, normalization = ? 
                 WHERE 
                     id = ?
                 """;
@@ -217,7 +375,8 @@ public class QuestionRepository {
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, question.getText());
             stmt.setString(2, question.getCorrectAnswer());
-            stmt.setLong(3, question.getId());
+            stmt.setString(3, normalization(question));
+            stmt.setLong(4, question.getId());
             updatedRows = stmt.executeUpdate();
         } catch (SQLException e) {
             throw new RepositoryException("Error updating question", e);
@@ -233,12 +392,16 @@ public class QuestionRepository {
      */
     public Question save(Question question) {
         try {
-            if (question.getId() != null && existsById(question.getId())) {
-                update(question);
-            } else {
-                long newId = insert(question);
-                question.setId(newId);
-            }
+            ConnectionManager.inTransaction(connection, () -> {
+                if (question.getId() != null && existsById(question.getId())) {
+                    update(question);
+                } else {
+                    long newId = insert(question);
+                    question.setId(newId);
+                }
+                return question;
+            });
+            caches.questionSaved(question.getId());
             return question;
         } catch (SQLException e) {
             throw new RepositoryException("Error saving question", e);
@@ -253,9 +416,14 @@ public class QuestionRepository {
      */
     public boolean deleteById(Long id) {
         String sql = "DELETE FROM questions WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setLong(1, id);
-            int rowsAffected = stmt.executeUpdate();
+        try {
+            int rowsAffected = ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, id);
+                    return stmt.executeUpdate();
+                }
+            });
+            caches.questionSaved(id);
             return rowsAffected > 0;
         } catch (SQLException e) {
             throw new RepositoryException("Error deleting question", e);
@@ -286,7 +454,7 @@ public class QuestionRepository {
      */
     public long count() {
         String sql = "SELECT COUNT(*) FROM questions";
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             if (rs.next()) {
                 return rs.getLong(1);
@@ -312,11 +480,16 @@ public class QuestionRepository {
                 VALUES 
                     (?, ?, ?)
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setLong(1, examId);
-            stmt.setLong(2, questionId);
-            stmt.setInt(3, questionOrder);
-            int affectedRows = stmt.executeUpdate();
+        try {
+            int affectedRows = ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, examId);
+                    stmt.setLong(2, questionId);
+                    stmt.setInt(3, questionOrder);
+                    return stmt.executeUpdate();
+                }
+            });
+            caches.examQuestionsChanged(examId);
             return affectedRows > 0;
         } catch (SQLException e) {
             throw new RepositoryException("Error adding question to exam", e);
@@ -332,10 +505,15 @@ public class QuestionRepository {
      */
     public boolean removeQuestionFromExam(Long examId, Long questionId) {
         String sql = "DELETE FROM exam_questions WHERE exam_id = ? AND question_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setLong(1, examId);
-            stmt.setLong(2, questionId);
-            int affectedRows = stmt.executeUpdate();
+        try {
+            int affectedRows = ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, examId);
+                    stmt.setLong(2, questionId);
+                    return stmt.executeUpdate();
+                }
+            });
+            caches.examQuestionsChanged(examId);
             return affectedRows > 0;
         } catch (SQLException e) {
             throw new RepositoryException("Error removing question from exam", e);
@@ -352,34 +530,27 @@ public class QuestionRepository {
     public boolean updateQuestionOrder(Long examId, List<Long> questionIds) {
         String sql = "UPDATE exam_questions SET question_order = ? WHERE exam_id = ? AND question_id = ?";
         try {
-            boolean autoCommit = connection.getAutoCommit();
-            connection.setAutoCommit(false);
-
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                for (int i = 0; i < questionIds.size(); i++) {
-                    stmt.setInt(1, i + 1);  // Order starts at 1
-                    stmt.setLong(2, examId);
-                    stmt.setLong(3, questionIds.get(i));
-                    stmt.addBatch();
-                }
-
-                int[] affectedRows = stmt.executeBatch();
-                connection.commit();
-
-                // Check if all updates were successful
-                for (int rows : affectedRows) {
-                    if (rows <= 0) {
-                        return false;
+            int[] affectedRows = ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < questionIds.size(); i++) {
+                        stmt.setInt(1, i + 1);  // Order starts at 1
+                        stmt.setLong(2, examId);
+                        stmt.setLong(3, questionIds.get(i));
+                        stmt.addBatch();
                     }
+                    return stmt.executeBatch();
                 }
+            });
+            caches.examQuestionsChanged(examId);
 
-                return true;
-            } catch (SQLException e) {
-                connection.rollback();
-                throw e;
-            } finally {
-                connection.setAutoCommit(autoCommit);
+            // Check if all updates were successful
+            for (int rows : affectedRows) {
+                if (rows <= 0) {
+                    return false;
+                }
             }
+
+            return true;
         } catch (SQLException e) {
             throw new RepositoryException("Error updating question order", e);
         }
@@ -397,8 +568,16 @@ public class QuestionRepository {
                     SELECT DISTINCT question_id FROM exam_questions
                 )
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            return stmt.executeUpdate();
+        try {
+            int deleted = ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    return stmt.executeUpdate();
+                }
+            });
+            if (deleted > 0) {
+                caches.questionsChanged();
+            }
+            return deleted;
         } catch (SQLException e) {
             throw new RepositoryException("Error deleting orphaned questions", e);
         }
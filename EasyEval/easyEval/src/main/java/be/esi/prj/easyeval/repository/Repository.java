@@ -1,12 +1,53 @@
 package be.esi.prj.easyeval.repository;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface Repository<K, T> {
     public Optional<T> findById(K key);
     public List<T> findAll();
-    public void save(T item);
-    public void deleteById(K key);
+    public T save(T item);
+    public boolean deleteById(K key);
     public void close();
+
+    /**
+     * Finds the rows following a key, in key order, without reading the rows before it.
+     * @param afterKey Key of the last row already read, null for the first page
+     * @param limit Maximum number of rows
+     * @return The page
+     */
+    public Page<K, T> findPage(K afterKey, int limit);
+
+    /**
+     * Streams all rows in key order, reading them one page at a time.
+     * @param pageSize Number of rows read per query
+     * @return A lazy stream of the rows
+     */
+    public default Stream<T> streamAll(int pageSize) {
+        Iterator<List<T>> pages = new Iterator<>() {
+            private Page<K, T> page;
+
+            @Override
+            public boolean hasNext() {
+                return page == null || page.hasNext();
+            }
+
+            @Override
+            public List<T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                page = findPage(page == null ? null : page.nextKey(), pageSize);
+                return page.items();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED), false)
+                .flatMap(List::stream);
+    }
 }
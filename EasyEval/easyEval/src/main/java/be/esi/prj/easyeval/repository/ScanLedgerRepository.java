@@ -0,0 +1,177 @@
+package be.esi.prj.easyeval.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Repository for the ledger of the scans taken from the hot folder, one row per page.
+ * A page is recorded with its submission when it is imported, then marked graded or failed,
+ * so it is neither imported nor graded again when the watcher restarts.
+ * The rows of a page are deleted in cascade with its submission, so deleted submissions are graded again.
+ * The table is created by {@link SchemaMigrations}.
+ */
+public class ScanLedgerRepository {
+    /**
+     * Progress of a page.
+     */
+    public enum State {
+        IMPORTED, GRADED, FAILED
+    }
+
+    /**
+     * A recorded page of a scan.
+     * @param pageIndex Index of the page in the batch PDF, or -1 for an image file
+     * @param submissionId Submission the page was imported as, null for a scan that could not be read
+     * @param state Progress of the page
+     */
+    public record ScanPage(int pageIndex, Long submissionId, State state) {
+    }
+
+    private final Connection connection;
+    private final Connection readConnection;
+
+    /**
+     * Default constructor.
+     */
+    public ScanLedgerRepository() {
+        this(ConnectionManager.getConnection(), ConnectionManager.getReadConnection());
+    }
+
+    /**
+     * Constructor for testing.
+     */
+    ScanLedgerRepository(Connection connection) {
+        this(connection, connection);
+    }
+
+    private ScanLedgerRepository(Connection connection, Connection readConnection) {
+        this.connection = connection;
+        this.readConnection = readConnection;
+    }
+
+    /**
+     * @param examId ID of the exam
+     * @param filePath Absolute path of the scan
+     * @param fileSize Size of the scan in bytes
+     * @param modifiedAt Last modification time of the scan, in milliseconds
+     * @return The recorded pages of this version of the scan for the exam, in page order, empty if it is new
+     */
+    public List<ScanPage> findPages(Long examId, String filePath, long fileSize, long modifiedAt) {
+        String sql = """
+                SELECT
+                    page_index, submission_id, state
+                FROM
+                    ingested_scans
+                WHERE
+                    exam_id = ? AND file_path = ? AND file_size = ? AND modified_at = ?
+                ORDER BY
+                    page_index
+                """;
+        List<ScanPage> pages = new ArrayList<>();
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+            stmt.setLong(1, examId);
+            stmt.setString(2, filePath);
+            stmt.setLong(3, fileSize);
+            stmt.setLong(4, modifiedAt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long submissionId = rs.getLong("submission_id");
+                    boolean unreadable = rs.wasNull();
+                    pages.add(new ScanPage(rs.getInt("page_index"), unreadable ? null : submissionId,
+                            State.valueOf(rs.getString("state"))));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Lecture du registre des scans impossible", e);
+        }
+        return pages;
+    }
+
+    /**
+     * Records a page imported as a submission, not graded yet.
+     * @param examId ID of the exam
+     * @param filePath Absolute path of the scan
+     * @param fileSize Size of the scan in bytes
+     * @param modifiedAt Last modification time of the scan, in milliseconds
+     * @param pageIndex Index of the page in the batch PDF, or -1 for an image file
+     * @param submissionId ID of the saved submission
+     */
+    public void recordImported(Long examId, String filePath, long fileSize, long modifiedAt,
+                               int pageIndex, Long submissionId) {
+        insert(examId, filePath, fileSize, modifiedAt, pageIndex, submissionId, State.IMPORTED);
+    }
+
+    /**
+     * Records a scan that could not be read, so it is not taken again until it is rewritten.
+     * @param examId ID of the exam
+     * @param filePath Absolute path of the scan
+     * @param fileSize Size of the scan in bytes
+     * @param modifiedAt Last modification time of the scan, in milliseconds
+     */
+    public void recordUnreadable(Long examId, String filePath, long fileSize, long modifiedAt) {
+        insert(examId, filePath, fileSize, modifiedAt, -1, null, State.FAILED);
+    }
+
+    /**
+     * Sets the progress of the page imported as a submission.
+     * @param submissionId ID of the submission
+     * @param state New progress
+     * @return true if a page was recorded for the submission
+     */
+    public boolean setState(Long submissionId, State state) {
+        String sql = """
+                UPDATE
+                    ingested_scans
+                SET
+                    state = ?
+                WHERE
+                    submission_id = ?
+                """;
+        try {
+            return ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, state.name());
+                    stmt.setLong(2, submissionId);
+                    return stmt.executeUpdate() > 0;
+                }
+            });
+        } catch (SQLException e) {
+            throw new RepositoryException("Mise à jour du registre des scans impossible", e);
+        }
+    }
+
+    private void insert(Long examId, String filePath, long fileSize, long modifiedAt,
+                        int pageIndex, Long submissionId, State state) {
+        String sql = """
+                INSERT OR REPLACE INTO
+                    ingested_scans (exam_id, file_path, file_size, modified_at, page_index, submission_id, state)
+                VALUES
+                    (?, ?, ?, ?, ?, ?, ?)
+                """;
+        try {
+            ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, examId);
+                    stmt.setString(2, filePath);
+                    stmt.setLong(3, fileSize);
+                    stmt.setLong(4, modifiedAt);
+                    stmt.setInt(5, pageIndex);
+                    if (submissionId != null) {
+                        stmt.setLong(6, submissionId);
+                    } else {
+                        stmt.setNull(6, Types.INTEGER);
+                    }
+                    stmt.setString(7, state.name());
+                    return stmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new RepositoryException("Enregistrement du scan impossible", e);
+        }
+    }
+}
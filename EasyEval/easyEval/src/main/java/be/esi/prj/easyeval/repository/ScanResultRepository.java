@@ -9,14 +9,20 @@ import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repository for handling ScanResult entity persistence operations.
  */
-public class ScanResultRepository {
+public class ScanResultRepository implements Repository<Long, ScanResult> {
     private final Connection connection;
+    private final Connection readConnection;
     private final DateTimeFormatter formatter;
 
     /**
@@ -24,6 +30,7 @@ public class ScanResultRepository {
      */
     public ScanResultRepository() {
         connection = ConnectionManager.getConnection();
+        readConnection = ConnectionManager.getReadConnection();
         formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     }
 
@@ -32,6 +39,7 @@ public class ScanResultRepository {
      */
     ScanResultRepository(Connection connection) {
         this.connection = connection;
+        this.readConnection = connection;
         formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     }
 
@@ -47,7 +55,7 @@ public class ScanResultRepository {
                 WHERE 
                     id = ?
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -81,7 +89,7 @@ public class ScanResultRepository {
                 WHERE 
                     submission_id = ?
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, submissionId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -115,7 +123,7 @@ public class ScanResultRepository {
                 WHERE 
                     scan_result_id = ?
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, scanResult.getId());
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -129,13 +137,47 @@ public class ScanResultRepository {
         }
     }
 
+    /**
+     * Helper method to load the confidence levels of several scan results, with one query per chunk of IDs.
+     */
+    private void loadConfidenceLevels(List<ScanResult> scanResults) {
+        Map<Long, ScanResult> byId = new HashMap<>();
+        for (ScanResult scanResult : scanResults) {
+            byId.put(scanResult.getId(), scanResult);
+        }
+
+        for (List<Long> chunk : InClause.chunks(byId.keySet())) {
+            String sql = """
+                    SELECT 
+                        scan_result_id, question_id, confidence_level 
+                    FROM 
+                        confidence_levels 
+                    WHERE 
+                        scan_result_id IN (%s)
+                    """.formatted(InClause.placeholders(chunk.size()));
+            try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        byId.get(rs.getLong("scan_result_id"))
+                                .setConfidenceLevel(rs.getLong("question_id"), rs.getDouble("confidence_level"));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RepositoryException("Chargement des niveaux de confiance impossible", e);
+            }
+        }
+    }
+
     /**
      * Retrieves all scan results.
      */
     public List<ScanResult> findAll() {
         List<ScanResult> scanResults = new ArrayList<>();
         String sql = "SELECT id, submission_id, score, scan_date FROM scan_results ORDER BY scan_date DESC";
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 ScanResult scanResult = new ScanResult();
@@ -146,13 +188,125 @@ public class ScanResultRepository {
                 scanResults.add(scanResult);
             }
 
-            // Load confidence levels for each scan result
-            for (ScanResult scanResult : scanResults) {
-                loadConfidenceLevels(scanResult);
+            // Load confidence levels of all scan results at once
+            loadConfidenceLevels(scanResults);
+        } catch (SQLException e) {
+            throw new RepositoryException("Selection impossible", e);
+        }
+        return scanResults;
+    }
+
+    /**
+     * Finds the scan results of all submissions of an exam.
+     */
+    public List<ScanResult> findByExamId(Long examId) {
+        List<ScanResult> scanResults = new ArrayList<>();
+        String sql = """
+                SELECT 
+                    sr.id, sr.submission_id, sr.score, sr.scan_date 
+                FROM 
+                    scan_results sr 
+                JOIN 
+                    submissions s ON sr.submission_id = s.id 
+                WHERE 
+                    s.exam_id = ? 
+                ORDER BY 
+                    sr.scan_date DESC
+                """;
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+            stmt.setLong(1, examId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ScanResult scanResult = new ScanResult();
+                    scanResult.setId(rs.getLong("id"));
+                    scanResult.setSubmissionId(rs.getLong("submission_id"));
+                    scanResult.setScore(rs.getDouble("score"));
+                    scanResult.setScanDate(rs.getTimestamp("scan_date").toLocalDateTime());
+                    scanResults.add(scanResult);
+                }
+            }
+
+            // Load confidence levels of all scan results at once
+            loadConfidenceLevels(scanResults);
+        } catch (SQLException e) {
+            throw new RepositoryException("Selection impossible", e);
+        }
+        return scanResults;
+    }
+
+    /**
+     * Retrieves the scan results following an ID, by ascending ID.
+     */
+    public Page<Long, ScanResult> findPage(Long afterId, int limit) {
+        List<ScanResult> scanResults = new ArrayList<>();
+        String sql = """
+                SELECT
+                    id, submission_id, score, scan_date
+                FROM
+                    scan_results
+                WHERE
+                    id > ?
+                ORDER BY
+                    id
+                LIMIT ?
+                """;
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+            stmt.setLong(1, afterId != null ? afterId : 0);
+            stmt.setInt(2, limit + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ScanResult scanResult = new ScanResult();
+                    scanResult.setId(rs.getLong("id"));
+                    scanResult.setSubmissionId(rs.getLong("submission_id"));
+                    scanResult.setScore(rs.getDouble("score"));
+                    scanResult.setScanDate(rs.getTimestamp("scan_date").toLocalDateTime());
+                    scanResults.add(scanResult);
+                }
             }
         } catch (SQLException e) {
             throw new RepositoryException("Selection impossible", e);
         }
+
+        Page<Long, ScanResult> page = Page.of(scanResults, limit, ScanResult::getId);
+        loadConfidenceLevels(page.items());
+        return page;
+    }
+
+    /**
+     * Finds the scan results of several submissions, with one query per chunk of IDs.
+     */
+    public List<ScanResult> findBySubmissionIds(Collection<Long> submissionIds) {
+        List<ScanResult> scanResults = new ArrayList<>();
+        for (List<Long> chunk : InClause.chunks(submissionIds)) {
+            String sql = """
+                    SELECT
+                        id, submission_id, score, scan_date
+                    FROM
+                        scan_results
+                    WHERE
+                        submission_id IN (%s)
+                    """.formatted(InClause.placeholders(chunk.size()));
+            try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ScanResult scanResult = new ScanResult();
+                        scanResult.setId(rs.getLong("id"));
+                        scanResult.setSubmissionId(rs.getLong("submission_id"));
+                        scanResult.setScore(rs.getDouble("score"));
+                        scanResult.setScanDate(rs.getTimestamp("scan_date").toLocalDateTime());
+                        scanResults.add(scanResult);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RepositoryException("Selection impossible", e);
+            }
+        }
+
+        // Load confidence levels of all scan results at once
+        loadConfidenceLevels(scanResults);
         return scanResults;
     }
 
@@ -252,12 +406,10 @@ public class ScanResultRepository {
      * Saves a scan result (create or update).
      */
     public ScanResult save(ScanResult scanResult) {
+        Long previousId = scanResult.getId();
         try {
-            boolean isUpdate = scanResult.getId() != null && existsById(scanResult.getId());
-            boolean autoCommit = connection.getAutoCommit();
-            connection.setAutoCommit(false);
-
-            try {
+            return ConnectionManager.inTransaction(connection, () -> {
+                boolean isUpdate = scanResult.getId() != null && existsById(scanResult.getId());
                 if (isUpdate) {
                     update(scanResult);
                 } else {
@@ -267,28 +419,177 @@ public class ScanResultRepository {
 
                 // Save confidence levels
                 saveConfidenceLevels(scanResult, isUpdate);
-
-                connection.commit();
                 return scanResult;
-            } catch (SQLException e) {
-                connection.rollback();
-                throw e;
-            } finally {
-                connection.setAutoCommit(autoCommit);
-            }
+            });
         } catch (SQLException e) {
+            scanResult.setId(previousId);
             throw new RepositoryException("Sauvegarde impossible", e);
+        } catch (RuntimeException e) {
+            // The key generated by a rolled back insert does not exist
+            scanResult.setId(previousId);
+            throw e;
         }
     }
 
+    /**
+     * Saves several scan results (create or update) in a single transaction.
+     * Rows of the same kind are written with one batched statement.
+     */
+    public List<ScanResult> saveAll(List<ScanResult> scanResults) {
+        if (scanResults.isEmpty()) {
+            return scanResults;
+        }
+        List<ScanResult> inserted = new ArrayList<>();
+        try {
+            return ConnectionManager.inTransaction(connection, () -> {
+                Set<Long> existingIds = findExistingIds(scanResults);
+                List<ScanResult> updated = new ArrayList<>();
+                for (ScanResult scanResult : scanResults) {
+                    if (scanResult.getId() != null && existingIds.contains(scanResult.getId())) {
+                        updated.add(scanResult);
+                    } else {
+                        inserted.add(scanResult);
+                    }
+                }
+
+                String updateSQL = """
+                        UPDATE 
+                            scan_results 
+                        SET 
+                            submission_id = ?, score = ? 
+                        WHERE 
+                            id = ?
+                        """;
+                String deleteLevelsSQL = """
+                        DELETE FROM 
+                            confidence_levels 
+                        WHERE 
+                            scan_result_id = ?
+                        """;
+                if (!updated.isEmpty()) {
+                    try (PreparedStatement updateStmt = connection.prepareStatement(updateSQL);
+                         PreparedStatement deleteStmt = connection.prepareStatement(deleteLevelsSQL)) {
+                        for (ScanResult scanResult : updated) {
+                            updateStmt.setLong(1, scanResult.getSubmissionId());
+                            updateStmt.setDouble(2, scanResult.getScore());
+                            updateStmt.setLong(3, scanResult.getId());
+                            updateStmt.addBatch();
+
+                            deleteStmt.setLong(1, scanResult.getId());
+                            deleteStmt.addBatch();
+                        }
+                        updateStmt.executeBatch();
+                        deleteStmt.executeBatch();
+                    }
+                }
+
+                // Generated keys are read row by row, still inside the same transaction
+                String insertSQL = """
+                        INSERT INTO 
+                            scan_results (submission_id, score) 
+                        VALUES 
+                            (?, ?)
+                        """;
+                if (!inserted.isEmpty()) {
+                    try (PreparedStatement insertStmt = connection.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS)) {
+                        for (ScanResult scanResult : inserted) {
+                            insertStmt.setLong(1, scanResult.getSubmissionId());
+                            insertStmt.setDouble(2, scanResult.getScore());
+                            insertStmt.executeUpdate();
+                            try (ResultSet rs = insertStmt.getGeneratedKeys()) {
+                                if (!rs.next()) {
+                                    throw new SQLException("No generated key for scan result");
+                                }
+                                scanResult.setId(rs.getLong(1));
+                            }
+                        }
+                    }
+                }
+
+                String confidenceSQL = """
+                        INSERT INTO 
+                            confidence_levels (scan_result_id, question_id, confidence_level) 
+                        VALUES 
+                            (?, ?, ?)
+                        """;
+                try (PreparedStatement confidenceStmt = connection.prepareStatement(confidenceSQL)) {
+                    for (ScanResult scanResult : scanResults) {
+                        if (scanResult.getConfidenceLevels() == null) {
+                            continue;
+                        }
+                        for (var entry : scanResult.getConfidenceLevels().entrySet()) {
+                            confidenceStmt.setLong(1, scanResult.getId());
+                            confidenceStmt.setLong(2, entry.getKey());
+                            confidenceStmt.setDouble(3, entry.getValue());
+                            confidenceStmt.addBatch();
+                        }
+                    }
+                    confidenceStmt.executeBatch();
+                }
+
+                return scanResults;
+            });
+        } catch (SQLException e) {
+            forgetIds(inserted);
+            throw new RepositoryException("Sauvegarde groupée impossible", e);
+        } catch (RuntimeException e) {
+            forgetIds(inserted);
+            throw e;
+        }
+    }
+
+    /**
+     * Keys generated by rolled back inserts do not exist.
+     */
+    private static void forgetIds(List<ScanResult> inserted) {
+        for (ScanResult scanResult : inserted) {
+            scanResult.setId(null);
+        }
+    }
+
+    /**
+     * Finds which of the given scan results are already stored, in one query.
+     */
+    private Set<Long> findExistingIds(List<ScanResult> scanResults) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        for (ScanResult scanResult : scanResults) {
+            if (scanResult.getId() != null) {
+                ids.add(scanResult.getId());
+            }
+        }
+
+        Set<Long> existingIds = new HashSet<>();
+        if (ids.isEmpty()) {
+            return existingIds;
+        }
+        for (List<Long> chunk : InClause.chunks(ids)) {
+            String sql = "SELECT id FROM scan_results WHERE id IN (" + InClause.placeholders(chunk.size()) + ")";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        existingIds.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+        return existingIds;
+    }
+
     /**
      * Deletes a scan result by its ID.
      */
     public boolean deleteById(Long id) {
         String sql = "DELETE FROM scan_results WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setLong(1, id);
-            int rowsAffected = stmt.executeUpdate();
+        try {
+            int rowsAffected = ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, id);
+                    return stmt.executeUpdate();
+                }
+            });
             return rowsAffected > 0;
         } catch (SQLException e) {
             throw new RepositoryException("Suppression impossible", e);
@@ -315,7 +616,7 @@ public class ScanResultRepository {
      */
     public long count() {
         String sql = "SELECT COUNT(*) FROM scan_results";
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             if (rs.next()) {
                 return rs.getLong(1);
@@ -340,7 +641,7 @@ public class ScanResultRepository {
                 WHERE 
                     s.exam_id = ?
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, examId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -0,0 +1,290 @@
+package be.esi.prj.easyeval.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Versioned changes of the database schema, applied in order when the writer connection is opened.
+ * The applied versions are recorded in the schema_version table, so each migration runs once per database.
+ * New migrations are appended to {@link #MIGRATIONS} with the next version; applied ones are never edited.
+ */
+public class SchemaMigrations {
+
+    /**
+     * One schema change.
+     * @param version Version reached once applied, starting at 1
+     * @param description Short description stored with the version
+     * @param statements SQL statements run in a single transaction
+     */
+    record Migration(int version, String description, List<String> statements) {
+    }
+
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Base tables", List.of(
+                    """
+                    CREATE TABLE IF NOT EXISTS courses (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        name TEXT NOT NULL UNIQUE,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS exam_documents (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        title TEXT NOT NULL,
+                        instructions TEXT,
+                        course_id INTEGER NOT NULL,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        FOREIGN KEY (course_id) REFERENCES courses(id) ON DELETE CASCADE
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS questions (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        text TEXT NOT NULL,
+                        correct_answer TEXT NOT NULL,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS exam_questions (
+                        exam_id INTEGER NOT NULL,
+                        question_id INTEGER NOT NULL,
+                        question_order INTEGER NOT NULL,
+                        PRIMARY KEY (exam_id, question_id),
+                        FOREIGN KEY (exam_id) REFERENCES exam_documents(id) ON DELETE CASCADE,
+                        FOREIGN KEY (question_id) REFERENCES questions(id) ON DELETE CASCADE
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS submissions (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        exam_id INTEGER NOT NULL,
+                        student_id TEXT NOT NULL,
+                        submission_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        FOREIGN KEY (exam_id) REFERENCES exam_documents(id) ON DELETE CASCADE
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS student_answers (
+                        submission_id INTEGER NOT NULL,
+                        question_id INTEGER NOT NULL,
+                        answer TEXT,
+                        PRIMARY KEY (submission_id, question_id),
+                        FOREIGN KEY (submission_id) REFERENCES submissions(id) ON DELETE CASCADE,
+                        FOREIGN KEY (question_id) REFERENCES questions(id) ON DELETE CASCADE
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS scan_results (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        submission_id INTEGER NOT NULL UNIQUE,
+                        score REAL NOT NULL,
+                        scan_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        FOREIGN KEY (submission_id) REFERENCES submissions(id) ON DELETE CASCADE
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS confidence_levels (
+                        scan_result_id INTEGER NOT NULL,
+                        question_id INTEGER NOT NULL,
+                        confidence_level REAL NOT NULL,
+                        PRIMARY KEY (scan_result_id, question_id),
+                        FOREIGN KEY (scan_result_id) REFERENCES scan_results(id) ON DELETE CASCADE,
+                        FOREIGN KEY (question_id) REFERENCES questions(id) ON DELETE CASCADE
+                    )
+                    """)),
+            new Migration(2, "OCR result cache", List.of(
+                    """
+                    CREATE TABLE IF NOT EXISTS ocr_cache (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        exam_id INTEGER NOT NULL,
+                        file_hash TEXT NOT NULL,
+                        settings TEXT NOT NULL,
+                        student_id TEXT NOT NULL,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        UNIQUE (exam_id, file_hash, settings),
+                        FOREIGN KEY (exam_id) REFERENCES exam_documents(id) ON DELETE CASCADE
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS ocr_cache_answers (
+                        cache_id INTEGER NOT NULL,
+                        question_id INTEGER NOT NULL,
+                        answer TEXT NOT NULL,
+                        PRIMARY KEY (cache_id, question_id),
+                        FOREIGN KEY (cache_id) REFERENCES ocr_cache(id) ON DELETE CASCADE,
+                        FOREIGN KEY (question_id) REFERENCES questions(id) ON DELETE CASCADE
+                    )
+                    """)),
+            // student_answers.submission_id, confidence_levels.scan_result_id and exam_questions.exam_id
+            // lead their primary keys, scan_results.submission_id and courses.name are unique: all indexed already
+            new Migration(3, "Lookup indexes", List.of(
+                    "CREATE INDEX IF NOT EXISTS idx_submissions_exam_id ON submissions(exam_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_submissions_student_id ON submissions(student_id)",
+                    // Questions of an exam in order, read from the index alone
+                    "CREATE INDEX IF NOT EXISTS idx_exam_questions_exam_order ON exam_questions(exam_id, question_order, question_id)",
+                    // Exams of a course, newest first
+                    "CREATE INDEX IF NOT EXISTS idx_exam_documents_course_created ON exam_documents(course_id, created_at)",
+                    "DROP INDEX IF EXISTS idx_exam_documents_course_id",
+                    // Reverse lookups used by the orphan cleanup and the cascades when a question is deleted
+                    "CREATE INDEX IF NOT EXISTS idx_exam_questions_question_id ON exam_questions(question_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_student_answers_question_id ON student_answers(question_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_confidence_levels_question_id ON confidence_levels(question_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_ocr_cache_answers_question_id ON ocr_cache_answers(question_id)")),
+            // External content tables: the text stays in questions and courses, the triggers keep the index in sync.
+            // Accents are removed by the tokenizer, prefixes of 2 and 3 characters are indexed for search-as-you-type
+            new Migration(4, "Full-text search", List.of(
+                    """
+                    CREATE VIRTUAL TABLE IF NOT EXISTS questions_fts USING fts5(
+                        text,
+                        content = 'questions', content_rowid = 'id',
+                        tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3'
+                    )
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS questions_fts_insert AFTER INSERT ON questions BEGIN
+                        INSERT INTO questions_fts (rowid, text) VALUES (new.id, new.text);
+                    END
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS questions_fts_delete AFTER DELETE ON questions BEGIN
+                        INSERT INTO questions_fts (questions_fts, rowid, text) VALUES ('delete', old.id, old.text);
+                    END
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS questions_fts_update AFTER UPDATE OF text ON questions BEGIN
+                        INSERT INTO questions_fts (questions_fts, rowid, text) VALUES ('delete', old.id, old.text);
+                        INSERT INTO questions_fts (rowid, text) VALUES (new.id, new.text);
+                    END
+                    """,
+                    """
+                    CREATE VIRTUAL TABLE IF NOT EXISTS courses_fts USING fts5(
+                        name,
+                        content = 'courses', content_rowid = 'id',
+                        tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3'
+                    )
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS courses_fts_insert AFTER INSERT ON courses BEGIN
+                        INSERT INTO courses_fts (rowid, name) VALUES (new.id, new.name);
+                    END
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS courses_fts_delete AFTER DELETE ON courses BEGIN
+                        INSERT INTO courses_fts (courses_fts, rowid, name) VALUES ('delete', old.id, old.name);
+                    END
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS courses_fts_update AFTER UPDATE OF name ON courses BEGIN
+                        INSERT INTO courses_fts (courses_fts, rowid, name) VALUES ('delete', old.id, old.name);
+                        INSERT INTO courses_fts (rowid, name) VALUES (new.id, new.name);
+                    END
+                    """,
+                    // Index the rows written before the migration
+                    "INSERT INTO questions_fts (questions_fts) VALUES ('rebuild')",
+                    "INSERT INTO courses_fts (courses_fts) VALUES ('rebuild')")),
+            // A scan is identified by its path, size and modification time: a file rewritten by the copier
+            // under the same name is a new scan. One row per page, linked to the submission it was imported as:
+            // deleting submissions forgets their scans, and a page imported but not graded yet is resumed
+            new Migration(5, "Scan ingestion ledger", List.of(
+                    """
+                    CREATE TABLE IF NOT EXISTS ingested_scans (
+                        exam_id INTEGER NOT NULL,
+                        file_path TEXT NOT NULL,
+                        file_size INTEGER NOT NULL,
+                        modified_at INTEGER NOT NULL,
+                        page_index INTEGER NOT NULL,
+                        submission_id INTEGER,
+                        state TEXT NOT NULL,
+                        ingested_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        PRIMARY KEY (exam_id, file_path, file_size, modified_at, page_index),
+                        FOREIGN KEY (exam_id) REFERENCES exam_documents(id) ON DELETE CASCADE,
+                        FOREIGN KEY (submission_id) REFERENCES submissions(id) ON DELETE CASCADE
+                    )
+                    """,
+                    "CREATE INDEX IF NOT EXISTS idx_ingested_scans_submission_id ON ingested_scans(submission_id)")),
+            // Name of the NormalizationPolicy comparing the answers of the question
+            new Migration(6, "Normalization policy per question", List.of(
+                    "ALTER TABLE questions ADD COLUMN normalization TEXT NOT NULL DEFAULT 'standard'"))
+    );
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Applies the migrations the database does not have yet.
+     * @param connection Writer connection
+     * @return Schema version of the database
+     */
+    public static int migrate(Connection connection) {
+        return migrate(connection, MIGRATIONS);
+    }
+
+    static int migrate(Connection connection, List<Migration> migrations) {
+        try {
+            createVersionTable(connection);
+            int version = currentVersion(connection);
+
+            for (Migration migration : migrations) {
+                if (migration.version() > version) {
+                    apply(connection, migration);
+                    version = migration.version();
+                }
+            }
+            return version;
+        } catch (SQLException e) {
+            throw new RepositoryException("Mise à jour du schéma impossible", e);
+        }
+    }
+
+    /**
+     * @param connection Any connection
+     * @return Highest applied version, 0 for a database without migrations
+     */
+    public static int currentVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void createVersionTable(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_version (
+                        version INTEGER PRIMARY KEY,
+                        description TEXT NOT NULL,
+                        applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """);
+        }
+    }
+
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+
+        try (Statement stmt = connection.createStatement();
+             PreparedStatement versionStmt = connection.prepareStatement(
+                     "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+            for (String sql : migration.statements()) {
+                stmt.execute(sql);
+            }
+            versionStmt.setInt(1, migration.version());
+            versionStmt.setString(2, migration.description());
+            versionStmt.executeUpdate();
+
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Migration " + migration.version() + " failed: " + e.getMessage(), e);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
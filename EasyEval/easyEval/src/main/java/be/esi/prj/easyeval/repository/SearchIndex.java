@@ -0,0 +1,55 @@
+package be.esi.prj.easyeval.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.StringJoiner;
+
+/**
+ * Full-text search on the FTS5 tables created by {@link SchemaMigrations} (questions_fts, courses_fts).
+ * The tables use the unicode61 tokenizer without diacritics, so "reseau" finds "Réseaux",
+ * and each searched word is matched as a prefix, so "prog" finds "Programmation".
+ */
+class SearchIndex {
+    static final String QUESTIONS = "questions_fts";
+    static final String COURSES = "courses_fts";
+
+    private SearchIndex() {
+    }
+
+    /**
+     * Builds an FTS5 query matching rows that contain a word starting with each word of the text.
+     * Words are quoted, so the FTS5 operators (AND, OR, NEAR, *, ^...) typed by the user are searched as text.
+     * @param text Text typed by the user
+     * @return The MATCH expression, or null if the text has no word
+     */
+    static String matchQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringJoiner query = new StringJoiner(" ");
+        // Same separators as the unicode61 tokenizer: anything but letters and digits
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                query.add('"' + word + "\"*");
+            }
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+
+    /**
+     * @param connection Connection to the database
+     * @param table Name of the FTS table
+     * @return true if the table exists, false for a database not migrated yet
+     */
+    static boolean exists(Connection connection, String table) throws SQLException {
+        String sql = "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package be.esi.prj.easyeval.repository;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Cache of prepared statements of one connection, so SQLite does not parse the same SQL again on each call.
+ * Repositories use the connection returned by {@link #getConnection()} as usual: closing a statement
+ * clears its parameters and gives it back to the cache instead of closing it.
+ * The least recently used statements are closed when the cache is full.
+ */
+public final class StatementCache {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    // Key of the statements prepared without the autoGeneratedKeys argument
+    private static final int NO_KEYS_ARGUMENT = -1;
+
+    private record Key(String sql, int autoGeneratedKeys) {
+    }
+
+    private static class Entry {
+        private final PreparedStatement statement;
+        private boolean inUse;
+
+        private Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    private final Connection connection;
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Connection cachingConnection;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor
+     * @param connection Connection the statements are prepared on
+     * @param capacity Maximum number of cached statements
+     */
+    public StatementCache(Connection connection, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        this.connection = connection;
+        this.capacity = capacity;
+        this.cachingConnection = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> invokeOnConnection(method, args));
+    }
+
+    public StatementCache(Connection connection) {
+        this(connection, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @return The connection whose prepared statements go through this cache
+     */
+    public Connection getConnection() {
+        return cachingConnection;
+    }
+
+    /**
+     * Gets a prepared statement from the cache, or prepares it.
+     * A statement still in use elsewhere is not shared: a separate, uncached statement is prepared.
+     * @param sql SQL of the statement
+     * @return A statement to close after use
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(new Key(sql, NO_KEYS_ARGUMENT));
+    }
+
+    /**
+     * Gets a prepared statement from the cache, or prepares it.
+     * @param sql SQL of the statement
+     * @param autoGeneratedKeys {@link java.sql.Statement#RETURN_GENERATED_KEYS} or {@link java.sql.Statement#NO_GENERATED_KEYS}
+     * @return A statement to close after use
+     */
+    public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        return prepare(new Key(sql, autoGeneratedKeys));
+    }
+
+    private synchronized PreparedStatement prepare(Key key) throws SQLException {
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse) {
+            hits++;
+            entry.inUse = true;
+            return lease(key, entry);
+        }
+
+        misses++;
+        PreparedStatement statement = key.autoGeneratedKeys() == NO_KEYS_ARGUMENT
+                ? connection.prepareStatement(key.sql())
+                : connection.prepareStatement(key.sql(), key.autoGeneratedKeys());
+        if (entry != null) {
+            return statement;
+        }
+
+        entry = new Entry(statement);
+        entry.inUse = true;
+        entries.put(key, entry);
+        evict();
+        return lease(key, entry);
+    }
+
+    /**
+     * Closes the least recently used statements that are not in use, until the cache fits its capacity.
+     */
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > capacity && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!entry.inUse) {
+                iterator.remove();
+                closeQuietly(entry.statement);
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Wraps a cached statement so that closing it gives it back to the cache.
+     */
+    private PreparedStatement lease(Key key, Entry entry) {
+        boolean[] released = {false};
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (!released[0]) {
+                                released[0] = true;
+                                release(key, entry);
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            return released[0] || entry.statement.isClosed();
+                        }
+                        default -> {
+                            if (released[0]) {
+                                throw new SQLException("Statement is closed");
+                            }
+                            return invoke(entry.statement, method, args);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Resets the parameters of a statement given back, so no value leaks into the next use.
+     */
+    private synchronized void release(Key key, Entry entry) {
+        try {
+            entry.statement.clearParameters();
+            entry.statement.clearBatch();
+            entry.inUse = false;
+        } catch (SQLException e) {
+            entries.remove(key, entry);
+            closeQuietly(entry.statement);
+            return;
+        }
+        if (entries.get(key) != entry) {
+            closeQuietly(entry.statement);
+        }
+        evict();
+    }
+
+    /**
+     * Closes all cached statements.
+     */
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            closeQuietly(entry.statement);
+        }
+        entries.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", cached=" + entries.size();
+    }
+
+    private Object invokeOnConnection(Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("prepareStatement")) {
+            if (args.length == 1) {
+                return prepare((String) args[0]);
+            }
+            if (args.length == 2 && method.getParameterTypes()[1] == int.class) {
+                return prepare((String) args[0], (Integer) args[1]);
+            }
+        }
+        if (method.getName().equals("close")) {
+            clear();
+        }
+        return invoke(connection, method, args);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close statement: " + e.getMessage()); // for debug
+        }
+    }
+}
@@ -9,14 +9,19 @@ import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repository for handling Submission entity persistence operations.
  */
-public class SubmissionRepository {
+public class SubmissionRepository implements Repository<Long, Submission> {
     private final Connection connection;
+    private final Connection readConnection;
     private final DateTimeFormatter formatter;
 
     /**
@@ -24,6 +29,7 @@ public class SubmissionRepository {
      */
     public SubmissionRepository() {
         connection = ConnectionManager.getConnection();
+        readConnection = ConnectionManager.getReadConnection();
         formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     }
 
@@ -32,6 +38,7 @@ public class SubmissionRepository {
      */
     SubmissionRepository(Connection connection) {
         this.connection = connection;
+        this.readConnection = connection;
         formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     }
 
@@ -47,7 +54,7 @@ public class SubmissionRepository {
                 WHERE 
                     id = ?
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -81,7 +88,7 @@ public class SubmissionRepository {
                 WHERE 
                     submission_id = ?
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, submission.getId());
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -95,13 +102,47 @@ public class SubmissionRepository {
         }
     }
 
+    /**
+     * Helper method to load the student answers of several submissions, with one query per chunk of IDs.
+     */
+    private void loadStudentAnswers(List<Submission> submissions) {
+        Map<Long, Submission> byId = new HashMap<>();
+        for (Submission submission : submissions) {
+            byId.put(submission.getId(), submission);
+        }
+
+        for (List<Long> chunk : InClause.chunks(byId.keySet())) {
+            String sql = """
+                    SELECT 
+                        submission_id, question_id, answer 
+                    FROM 
+                        student_answers 
+                    WHERE 
+                        submission_id IN (%s)
+                    """.formatted(InClause.placeholders(chunk.size()));
+            try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        byId.get(rs.getLong("submission_id"))
+                                .setAnswer(rs.getLong("question_id"), rs.getString("answer"));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RepositoryException("Chargement des réponses impossible", e);
+            }
+        }
+    }
+
     /**
      * Retrieves all submissions.
      */
     public List<Submission> findAll() {
         List<Submission> submissions = new ArrayList<>();
         String sql = "SELECT id, exam_id, student_id, submission_date FROM submissions ORDER BY submission_date DESC";
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 Submission submission = new Submission();
@@ -112,10 +153,8 @@ public class SubmissionRepository {
                 submissions.add(submission);
             }
 
-            // Load student answers for each submission
-            for (Submission submission : submissions) {
-                loadStudentAnswers(submission);
-            }
+            // Load student answers of all submissions at once
+            loadStudentAnswers(submissions);
         } catch (SQLException e) {
             throw new RepositoryException("Selection impossible", e);
         }
@@ -137,7 +176,7 @@ public class SubmissionRepository {
                 ORDER BY 
                     submission_date DESC
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setLong(1, examId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -150,16 +189,130 @@ public class SubmissionRepository {
                 }
             }
 
-            // Load student answers for each submission
-            for (Submission submission : submissions) {
-                loadStudentAnswers(submission);
-            }
+            // Load student answers of all submissions at once
+            loadStudentAnswers(submissions);
         } catch (SQLException e) {
             throw new RepositoryException("Selection impossible", e);
         }
         return submissions;
     }
 
+    /**
+     * Retrieves the submissions following an ID, by ascending ID, with their answers.
+     */
+    public Page<Long, Submission> findPage(Long afterId, int limit) {
+        String sql = """
+                SELECT
+                    id, exam_id, student_id, submission_date
+                FROM
+                    submissions
+                WHERE
+                    id > ?
+                ORDER BY
+                    id
+                LIMIT ?
+                """;
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+            stmt.setLong(1, afterId != null ? afterId : 0);
+            stmt.setInt(2, limit + 1);
+            return readPage(stmt, limit);
+        } catch (SQLException e) {
+            throw new RepositoryException("Selection impossible", e);
+        }
+    }
+
+    /**
+     * Position of a submission in the newest first order of the submissions of an exam.
+     * @param submissionDate Date of the submission, as stored
+     * @param id ID of the submission, ordering submissions of the same date
+     */
+    public record SubmissionKey(String submissionDate, long id) {
+    }
+
+    /**
+     * Retrieves the submissions of an exam following a key, newest first, with their answers.
+     * Submissions of the same date are ordered by descending ID.
+     */
+    public Page<SubmissionKey, Submission> findPageByExamId(Long examId, SubmissionKey after, int limit) {
+        String sql = after == null ? """
+                SELECT
+                    id, exam_id, student_id, submission_date
+                FROM
+                    submissions
+                WHERE
+                    exam_id = ?
+                ORDER BY
+                    submission_date DESC, id DESC
+                LIMIT ?
+                """ : """
+                SELECT
+                    id, exam_id, student_id, submission_date
+                FROM
+                    submissions
+                WHERE
+                    exam_id = ? AND (submission_date < ? OR (submission_date = ? AND id < ?))
+                ORDER BY
+                    submission_date DESC, id DESC
+                LIMIT ?
+                """;
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
+            int index = 1;
+            stmt.setLong(index++, examId);
+            if (after != null) {
+                stmt.setString(index++, after.submissionDate());
+                stmt.setString(index++, after.submissionDate());
+                stmt.setLong(index++, after.id());
+            }
+            stmt.setInt(index, limit + 1);
+
+            List<Submission> submissions = new ArrayList<>();
+            SubmissionKey nextKey = null;
+            String lastDate = null;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (submissions.size() == limit) {
+                        // The extra row only tells that another page follows
+                        Submission last = submissions.get(limit - 1);
+                        nextKey = new SubmissionKey(lastDate, last.getId());
+                        break;
+                    }
+                    Submission submission = new Submission();
+                    submission.setId(rs.getLong("id"));
+                    submission.setExamId(rs.getLong("exam_id"));
+                    submission.setStudentId(rs.getString("student_id"));
+                    submission.setSubmissionDate(rs.getTimestamp("submission_date").toLocalDateTime());
+                    lastDate = rs.getString("submission_date");
+                    submissions.add(submission);
+                }
+            }
+            loadStudentAnswers(submissions);
+            return new Page<>(List.copyOf(submissions), nextKey);
+        } catch (SQLException e) {
+            throw new RepositoryException("Selection impossible", e);
+        }
+    }
+
+    /**
+     * Helper method to read a page of submissions queried with limit + 1 rows, and load their answers.
+     */
+    private Page<Long, Submission> readPage(PreparedStatement stmt, int limit) throws SQLException {
+        List<Submission> submissions = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                Submission submission = new Submission();
+                submission.setId(rs.getLong("id"));
+                submission.setExamId(rs.getLong("exam_id"));
+                submission.setStudentId(rs.getString("student_id"));
+                submission.setSubmissionDate(rs.getTimestamp("submission_date").toLocalDateTime());
+                submissions.add(submission);
+            }
+        }
+
+        Page<Long, Submission> page = Page.of(submissions, limit, Submission::getId);
+        loadStudentAnswers(page.items());
+        return page;
+    }
+
     /**
      * Finds submissions for a specific student.
      */
@@ -175,7 +328,7 @@ public class SubmissionRepository {
                 ORDER BY 
                     submission_date DESC
                 """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql)) {
             stmt.setString(1, studentId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -188,10 +341,8 @@ public class SubmissionRepository {
                 }
             }
 
-            // Load student answers for each submission
-            for (Submission submission : submissions) {
-                loadStudentAnswers(submission);
-            }
+            // Load student answers of all submissions at once
+            loadStudentAnswers(submissions);
         } catch (SQLException e) {
             throw new RepositoryException("Selection impossible", e);
         }
@@ -294,12 +445,10 @@ public class SubmissionRepository {
      * Saves a submission (create or update).
      */
     public Submission save(Submission submission) {
+        Long previousId = submission.getId();
         try {
-            boolean isUpdate = submission.getId() != null && existsById(submission.getId());
-            boolean autoCommit = connection.getAutoCommit();
-            connection.setAutoCommit(false);
-
-            try {
+            return ConnectionManager.inTransaction(connection, () -> {
+                boolean isUpdate = submission.getId() != null && existsById(submission.getId());
                 if (isUpdate) {
                     update(submission);
                 } else {
@@ -309,34 +458,203 @@ public class SubmissionRepository {
 
                 // Save student answers
                 saveStudentAnswers(submission, isUpdate);
-
-                connection.commit();
                 return submission;
-            } catch (SQLException e) {
-                connection.rollback();
-                throw e;
-            } finally {
-                connection.setAutoCommit(autoCommit);
-            }
+            });
         } catch (SQLException e) {
+            submission.setId(previousId);
             throw new RepositoryException("Sauvegarde impossible", e);
+        } catch (RuntimeException e) {
+            // The key generated by a rolled back insert does not exist
+            submission.setId(previousId);
+            throw e;
+        }
+    }
+
+    /**
+     * Saves several submissions (create or update) in a single transaction.
+     * Rows of the same kind are written with one batched statement.
+     */
+    public List<Submission> saveAll(List<Submission> submissions) {
+        if (submissions.isEmpty()) {
+            return submissions;
+        }
+        List<Submission> inserted = new ArrayList<>();
+        try {
+            return ConnectionManager.inTransaction(connection, () -> {
+                Set<Long> existingIds = findExistingIds(submissions);
+                List<Submission> updated = new ArrayList<>();
+                for (Submission submission : submissions) {
+                    if (submission.getId() != null && existingIds.contains(submission.getId())) {
+                        updated.add(submission);
+                    } else {
+                        inserted.add(submission);
+                    }
+                }
+
+                String updateSQL = """
+                        UPDATE 
+                            submissions 
+                        SET 
+                            exam_id = ?, student_id = ? 
+                        WHERE 
+                            id = ?
+                        """;
+                String deleteAnswersSQL = """
+                        DELETE FROM 
+                            student_answers 
+                        WHERE 
+                            submission_id = ?
+                        """;
+                if (!updated.isEmpty()) {
+                    try (PreparedStatement updateStmt = connection.prepareStatement(updateSQL);
+                         PreparedStatement deleteStmt = connection.prepareStatement(deleteAnswersSQL)) {
+                        for (Submission submission : updated) {
+                            updateStmt.setLong(1, submission.getExamId());
+                            updateStmt.setString(2, submission.getStudentId());
+                            updateStmt.setLong(3, submission.getId());
+                            updateStmt.addBatch();
+
+                            deleteStmt.setLong(1, submission.getId());
+                            deleteStmt.addBatch();
+                        }
+                        updateStmt.executeBatch();
+                        deleteStmt.executeBatch();
+                    }
+                }
+
+                // Generated keys are read row by row, still inside the same transaction
+                String insertSQL = """
+                        INSERT INTO 
+                            submissions (exam_id, student_id) 
+                        VALUES 
+                            (?, ?)
+                        """;
+                if (!inserted.isEmpty()) {
+                    try (PreparedStatement insertStmt = connection.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS)) {
+                        for (Submission submission : inserted) {
+                            insertStmt.setLong(1, submission.getExamId());
+                            insertStmt.setString(2, submission.getStudentId());
+                            insertStmt.executeUpdate();
+                            try (ResultSet rs = insertStmt.getGeneratedKeys()) {
+                                if (!rs.next()) {
+                                    throw new SQLException("No generated key for submission");
+                                }
+                                submission.setId(rs.getLong(1));
+                            }
+                        }
+                    }
+                }
+
+                String answerSQL = """
+                        INSERT INTO 
+                            student_answers (submission_id, question_id, answer) 
+                        VALUES 
+                            (?, ?, ?)
+                        """;
+                try (PreparedStatement answerStmt = connection.prepareStatement(answerSQL)) {
+                    for (Submission submission : submissions) {
+                        if (submission.getStudentAnswers() == null) {
+                            continue;
+                        }
+                        for (var entry : submission.getStudentAnswers().entrySet()) {
+                            answerStmt.setLong(1, submission.getId());
+                            answerStmt.setLong(2, entry.getKey());
+                            answerStmt.setString(3, entry.getValue());
+                            answerStmt.addBatch();
+                        }
+                    }
+                    answerStmt.executeBatch();
+                }
+
+                return submissions;
+            });
+        } catch (SQLException e) {
+            forgetIds(inserted);
+            throw new RepositoryException("Sauvegarde groupée impossible", e);
+        } catch (RuntimeException e) {
+            forgetIds(inserted);
+            throw e;
         }
     }
 
+    /**
+     * Keys generated by rolled back inserts do not exist.
+     */
+    private static void forgetIds(List<Submission> inserted) {
+        for (Submission submission : inserted) {
+            submission.setId(null);
+        }
+    }
+
+    /**
+     * Finds which of the given submissions are already stored, in one query.
+     */
+    private Set<Long> findExistingIds(List<Submission> submissions) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        for (Submission submission : submissions) {
+            if (submission.getId() != null) {
+                ids.add(submission.getId());
+            }
+        }
+
+        Set<Long> existingIds = new HashSet<>();
+        if (ids.isEmpty()) {
+            return existingIds;
+        }
+        for (List<Long> chunk : InClause.chunks(ids)) {
+            String sql = "SELECT id FROM submissions WHERE id IN (" + InClause.placeholders(chunk.size()) + ")";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        existingIds.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+        return existingIds;
+    }
+
     /**
      * Deletes a submission by its ID.
     */
     public boolean deleteById(Long id) {
         String sql = "DELETE FROM submissions WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setLong(1, id);
-            int rowsAffected = stmt.executeUpdate();
+        try {
+            int rowsAffected = ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, id);
+                    return stmt.executeUpdate();
+                }
+            });
             return rowsAffected > 0;
         } catch (SQLException e) {
             throw new RepositoryException("Suppression impossible", e);
         }
     }
 
+    /**
+     * Deletes all submissions of an exam in a single statement.
+     * Their answers, scan results and confidence levels are deleted in cascade.
+     * @param examId ID of the exam
+     * @return Number of submissions deleted
+     */
+    public int deleteByExamId(Long examId) {
+        String sql = "DELETE FROM submissions WHERE exam_id = ?";
+        try {
+            return ConnectionManager.inTransaction(connection, () -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setLong(1, examId);
+                    return stmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new RepositoryException("Suppression impossible", e);
+        }
+    }
+
     /**
      * Checks if a submission exists with the given ID.
      */
@@ -357,7 +675,7 @@ public class SubmissionRepository {
      */
     public long count() {
         String sql = "SELECT COUNT(*) FROM submissions";
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        try (PreparedStatement stmt = readConnection.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             if (rs.next()) {
                 return rs.getLong(1);
@@ -0,0 +1,103 @@
+package be.esi.prj.easyeval.service;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs the database calls of the view models off the JavaFX application thread.
+ * Each call runs on the I/O executor (one virtual thread per call by default),
+ * and its result or error is handed back on the UI executor (the JavaFX application thread by default),
+ * where the observable lists bound to the view can be updated.
+ */
+public class AsyncDataAccess {
+    private static final ExecutorService IO_EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("easyeval-io-", 0).factory());
+    private static final AsyncDataAccess SHARED = new AsyncDataAccess(IO_EXECUTOR, Platform::runLater);
+
+    private final Executor ioExecutor;
+    private final Executor uiExecutor;
+
+    /**
+     * Constructor
+     * @param ioExecutor Runs the database calls
+     * @param uiExecutor Runs the callbacks that update the view
+     */
+    public AsyncDataAccess(Executor ioExecutor, Executor uiExecutor) {
+        this.ioExecutor = ioExecutor;
+        this.uiExecutor = uiExecutor;
+    }
+
+    /**
+     * @return The data access shared by the view models of the application
+     */
+    public static AsyncDataAccess shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return A data access running everything on the calling thread, for tests and command-line tools
+     */
+    public static AsyncDataAccess direct() {
+        return new AsyncDataAccess(Runnable::run, Runnable::run);
+    }
+
+    /**
+     * Runs a query on the I/O executor.
+     * @param query Database call
+     * @return The result of the query, completed on the I/O executor
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, ioExecutor);
+    }
+
+    /**
+     * Runs a query on the I/O executor, then hands its result or its error to the UI executor.
+     * @param query Database call
+     * @param onSuccess Receives the result on the UI executor
+     * @param onError Receives the error thrown by the query on the UI executor
+     * @return The result of the query, completed once the callback has run
+     */
+    public <T> CompletableFuture<T> load(Supplier<T> query, Consumer<? super T> onSuccess,
+                                         Consumer<? super Throwable> onError) {
+        return supply(query).whenCompleteAsync((result, error) -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onError.accept(unwrap(error));
+            }
+        }, uiExecutor);
+    }
+
+    /**
+     * Runs a database update on the I/O executor, then notifies the UI executor.
+     * @param update Database call
+     * @param onSuccess Runs on the UI executor once the update succeeded
+     * @param onError Receives the error thrown by the update on the UI executor
+     * @return Completed once the callback has run
+     */
+    public CompletableFuture<Void> run(Runnable update, Runnable onSuccess, Consumer<? super Throwable> onError) {
+        return load(() -> {
+            update.run();
+            return null;
+        }, result -> onSuccess.run(), onError);
+    }
+
+    /**
+     * Runs an action on the UI executor.
+     * @param action Action updating the view
+     */
+    public void onUi(Runnable action) {
+        uiExecutor.execute(action);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,402 @@
+package be.esi.prj.easyeval.service;
+
+import be.esi.prj.easyeval.model.ExamDocument;
+import be.esi.prj.easyeval.model.ScanResult;
+import be.esi.prj.easyeval.model.Submission;
+import be.esi.prj.easyeval.repository.ConnectionManager;
+import be.esi.prj.easyeval.repository.ScanLedgerRepository;
+import be.esi.prj.easyeval.repository.SubmissionRepository;
+import be.esi.prj.easyeval.utils.PdfScanSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Grades the scans written by the copier into a folder as soon as they are complete,
+ * so grading overlaps with scanning instead of starting after it.
+ * A file is taken once its size and modification time have not changed for the settle delay,
+ * so a scan still being written is not read half-way.
+ * Taken scans are recorded page by page in the {@link ScanLedgerRepository}: when the watcher starts, the files
+ * already in the folder are looked at again, new ones are imported and pages imported but not graded are resumed.
+ * Watching, importing and saving run on one background thread, where the listener is called;
+ * the scans that settle together are graded as one batch of the {@link OCRBatchEngine}.
+ */
+public class HotFolderWatcher implements AutoCloseable {
+    /** Folder the copier writes to */
+    public static final Path DEFAULT_DIRECTORY = Path.of("external-data", "scans");
+    public static final Duration DEFAULT_SETTLE_DELAY = Duration.ofSeconds(2);
+    private static final Set<String> EXTENSIONS = Set.of("png", "jpg", "jpeg", "tif", "tiff", "pdf");
+
+    /**
+     * Callbacks invoked on the watcher thread.
+     */
+    public interface Listener extends OCRBatchEngine.BatchListener {
+        /**
+         * Called when a submission has been saved for a new scan, before it is graded.
+         * @param submission The saved submission
+         * @param scanFile The scanned image file, or the batch PDF holding the scan
+         * @param pageIndex Index of the page in the batch PDF, or -1 for an image file
+         */
+        void onImported(Submission submission, File scanFile, int pageIndex);
+    }
+
+    /**
+     * A version of a file of the folder.
+     * @param stableSince Time the size and modification time were last seen changing, in milliseconds
+     */
+    private record Candidate(long size, long modifiedAt, long stableSince) {
+    }
+
+    private final Path directory;
+    private final ExamDocument exam;
+    private final OCRBatchEngine batchEngine;
+    private final SubmissionRepository submissionRepository;
+    private final ScanLedgerRepository ledger;
+    private final long settleMillis;
+    private final Listener listener;
+    private boolean enhanceImages = true;
+    private boolean correctRotation = true;
+    private boolean templateZones = false;
+
+    // Files seen in the folder and not taken yet, only used by the watcher thread
+    private final Map<Path, Candidate> candidates = new LinkedHashMap<>();
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Constructor
+     * @param directory Folder the scans are written to
+     * @param exam Exam the scans belong to
+     * @param batchEngine Engine grading the scans
+     * @param submissionRepository Repository used to save the submission of each scan
+     * @param ledger Scans already taken
+     * @param settleDelay Time a file must stay unchanged before it is read
+     * @param listener Receives the imported and graded submissions
+     */
+    public HotFolderWatcher(Path directory, ExamDocument exam, OCRBatchEngine batchEngine,
+                            SubmissionRepository submissionRepository, ScanLedgerRepository ledger,
+                            Duration settleDelay, Listener listener) {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.exam = exam;
+        this.batchEngine = batchEngine;
+        this.submissionRepository = submissionRepository;
+        this.ledger = ledger;
+        this.settleMillis = settleDelay.toMillis();
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the OCR options used for the next scans.
+     * @param enhanceImages Whether to enhance images
+     * @param correctRotation Whether to correct rotation
+     * @param templateZones Whether to read answers only inside the boxes of the exam template
+     */
+    public synchronized void setOcrSettings(boolean enhanceImages, boolean correctRotation, boolean templateZones) {
+        this.enhanceImages = enhanceImages;
+        this.correctRotation = correctRotation;
+        this.templateZones = templateZones;
+    }
+
+    /**
+     * Starts watching the folder, creating it if needed.
+     * @throws IOException If the folder cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            throw new IllegalStateException("Hot folder watcher already started");
+        }
+        Files.createDirectories(directory);
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+
+        running = true;
+        thread = new Thread(this::run, "hot-folder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching. A batch being graded is cancelled, the copies already graded are kept.
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                System.err.println("Unable to close the hot folder watch: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return true until the watcher is closed or its folder is gone
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void run() {
+        try {
+            // Scans written while the watcher was stopped
+            addFolderContent();
+
+            while (running) {
+                WatchKey key = watchService.poll(Math.max(50, settleMillis / 2), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            addFolderContent();
+                        } else {
+                            addCandidate(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        System.err.println("Hot folder is no longer available: " + directory);
+                        return;
+                    }
+                }
+
+                Map<Path, Candidate> settled = takeSettled(now());
+                if (!settled.isEmpty()) {
+                    try {
+                        ingest(settled);
+                    } catch (RuntimeException e) {
+                        System.err.println("Unable to grade the scans of the hot folder: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Closed
+        } catch (IOException e) {
+            System.err.println("Unable to read the hot folder: " + e.getMessage());
+        } finally {
+            running = false;
+        }
+    }
+
+    private void addFolderContent() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                addCandidate(file);
+            }
+        }
+    }
+
+    private void addCandidate(Path file) {
+        if (isScanFile(file)) {
+            candidates.putIfAbsent(file, new Candidate(-1, -1, now()));
+        }
+    }
+
+    /**
+     * @param file Any file
+     * @return true for an image or PDF file a scan can be read from, judging by its extension
+     */
+    public static boolean isScanFile(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && EXTENSIONS.contains(name.substring(dot + 1).toLowerCase());
+    }
+
+    /**
+     * Takes the candidates that have not changed for the settle delay and can be opened.
+     * @return The settled files and their version
+     */
+    private Map<Path, Candidate> takeSettled(long now) {
+        Map<Path, Candidate> settled = new LinkedHashMap<>();
+        Iterator<Map.Entry<Path, Candidate>> iterator = candidates.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Candidate> entry = iterator.next();
+            Path file = entry.getKey();
+            Candidate candidate = entry.getValue();
+
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                // Removed or renamed before it settled
+                iterator.remove();
+                continue;
+            }
+            if (!attributes.isRegularFile()) {
+                iterator.remove();
+                continue;
+            }
+
+            long size = attributes.size();
+            long modifiedAt = attributes.lastModifiedTime().toMillis();
+            if (size != candidate.size() || modifiedAt != candidate.modifiedAt()) {
+                entry.setValue(new Candidate(size, modifiedAt, now));
+            } else if (now - candidate.stableSince() >= settleMillis && size > 0 && canOpen(file)) {
+                iterator.remove();
+                settled.put(file, candidate);
+            }
+        }
+        return settled;
+    }
+
+    /**
+     * @return false while the copier still holds the file, on systems that lock files being written
+     */
+    private static boolean canOpen(Path file) {
+        try {
+            FileChannel.open(file, StandardOpenOption.READ).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Imports and grades the settled scans, recording each page in the ledger with its submission.
+     * The pages of a scan are imported in one transaction, so a scan is either fully imported or not at all.
+     * Pages imported but left ungraded by a stop or a cancellation are graded on the next start
+     * with the submissions already saved, and pages already graded or failed are skipped.
+     */
+    private void ingest(Map<Path, Candidate> settled) {
+        List<OCRBatchEngine.ScanJob> jobs = new ArrayList<>();
+
+        for (var entry : settled.entrySet()) {
+            Path file = entry.getKey();
+            Candidate version = entry.getValue();
+            List<ScanLedgerRepository.ScanPage> pages =
+                    ledger.findPages(exam.getId(), file.toString(), version.size(), version.modifiedAt());
+            if (!pages.isEmpty()) {
+                jobs.addAll(resumeScan(file.toFile(), pages));
+                continue;
+            }
+            try {
+                jobs.addAll(importScan(file.toFile(), version));
+            } catch (IOException e) {
+                System.err.println("Unable to import " + file.getFileName() + ": " + e.getMessage());
+                ledger.recordUnreadable(exam.getId(), file.toString(), version.size(), version.modifiedAt());
+            }
+        }
+        if (jobs.isEmpty()) {
+            return;
+        }
+
+        boolean enhance;
+        boolean rotate;
+        boolean zones;
+        synchronized (this) {
+            enhance = enhanceImages;
+            rotate = correctRotation;
+            zones = templateZones;
+        }
+
+        batchEngine.process(jobs, exam, enhance, rotate, false, zones, () -> !running,
+                new OCRBatchEngine.BatchListener() {
+                    @Override
+                    public void onGraded(Submission submission, ScanResult scanResult) {
+                        ledger.setState(submission.getId(), ScanLedgerRepository.State.GRADED);
+                        listener.onGraded(submission, scanResult);
+                    }
+
+                    @Override
+                    public void onFailed(OCRBatchEngine.ScanJob job, Exception error) {
+                        ledger.setState(job.submission().getId(), ScanLedgerRepository.State.FAILED);
+                        listener.onFailed(job, error);
+                    }
+
+                    @Override
+                    public void onProgress(int done, int total) {
+                        listener.onProgress(done, total);
+                    }
+                });
+    }
+
+    /**
+     * Takes back the pages of a scan imported before and not graded yet.
+     * A page whose submission has been deleted since has no ledger row left, so it is not taken back.
+     */
+    private List<OCRBatchEngine.ScanJob> resumeScan(File file, List<ScanLedgerRepository.ScanPage> pages) {
+        List<OCRBatchEngine.ScanJob> jobs = new ArrayList<>();
+        for (ScanLedgerRepository.ScanPage page : pages) {
+            if (page.state() != ScanLedgerRepository.State.IMPORTED) {
+                continue;
+            }
+            Optional<Submission> submission = submissionRepository.findById(page.submissionId());
+            if (submission.isPresent()) {
+                listener.onImported(submission.get(), file, page.pageIndex());
+                jobs.add(new OCRBatchEngine.ScanJob(submission.get(), file, page.pageIndex()));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Saves one submission per page of a new scan and records the pages as imported.
+     * As for a manual import, the student ID is the file name until OCR reads it.
+     */
+    private List<OCRBatchEngine.ScanJob> importScan(File file, Candidate version) throws IOException {
+        String name = file.getName();
+        String studentId = name.substring(0, name.lastIndexOf('.'));
+
+        Map<Integer, String> studentIds = new LinkedHashMap<>();
+        if (!PdfScanSource.isPdf(file)) {
+            studentIds.put(-1, studentId);
+        } else {
+            // Only the page count is read, pages are rendered during OCR
+            int pageCount;
+            try (PdfScanSource source = new PdfScanSource(file)) {
+                pageCount = source.getPageCount();
+            }
+            for (int page = 0; page < pageCount; page++) {
+                studentIds.put(page, studentId + "_p" + (page + 1));
+            }
+        }
+
+        List<OCRBatchEngine.ScanJob> jobs = ConnectionManager.inUnitOfWork(() -> {
+            List<OCRBatchEngine.ScanJob> saved = new ArrayList<>();
+            for (var page : studentIds.entrySet()) {
+                Submission submission = new Submission(exam.getId(), page.getValue());
+                submission.setSubmissionDate(LocalDateTime.now());
+                submission = submissionRepository.save(submission);
+                ledger.recordImported(exam.getId(), file.getPath(), version.size(), version.modifiedAt(),
+                        page.getKey(), submission.getId());
+                saved.add(new OCRBatchEngine.ScanJob(submission, file, page.getKey()));
+            }
+            return saved;
+        });
+        for (OCRBatchEngine.ScanJob job : jobs) {
+            listener.onImported(job.submission(), file, job.pageIndex());
+        }
+        return jobs;
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
@@ -0,0 +1,890 @@
+package be.esi.prj.easyeval.service;
+
+import be.esi.prj.easyeval.model.ExamDocument;
+import be.esi.prj.easyeval.model.Question;
+import be.esi.prj.easyeval.model.ScanResult;
+import be.esi.prj.easyeval.model.Submission;
+import be.esi.prj.easyeval.repository.ConnectionManager;
+import be.esi.prj.easyeval.repository.OcrCacheRepository;
+import be.esi.prj.easyeval.repository.ScanResultRepository;
+import be.esi.prj.easyeval.repository.SubmissionRepository;
+import be.esi.prj.easyeval.utils.ImageProcessor;
+import be.esi.prj.easyeval.utils.NormalizationPolicy;
+import be.esi.prj.easyeval.utils.OCRProcessor;
+import be.esi.prj.easyeval.utils.PdfScanSource;
+import be.esi.prj.easyeval.utils.PreparedPage;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Grades a batch of scanned submissions in a pipeline of stages, so disk, CPU, Tesseract and the database
+ * are busy at the same time:
+ * <ol>
+ *     <li>decode: image files are read and PDF pages rendered,</li>
+ *     <li>preprocess: pages are straightened and their red ink zones extracted,</li>
+ *     <li>OCR: zones are read and scored,</li>
+ *     <li>write: graded copies are saved in chunks on the calling thread, each chunk in a single transaction
+ *     per table, and the listener is called.</li>
+ * </ol>
+ * Each stage has its own threads, and bounded queues between the stages hold a stage back
+ * when the next one is slower, so decoded pages do not pile up in memory.
+ * Each preprocessing and OCR thread has its own OCRProcessor, since Tesseract handles are not thread-safe.
+ * When an OCR cache is given, scans already recognised with the same settings skip decoding and OCR.
+ */
+public class OCRBatchEngine {
+    private static final long POLL_INTERVAL_MS = 200;
+    // Graded copies written per transaction
+    private static final int FLUSH_SIZE = 25;
+    private static final int DEFAULT_DECODE_PARALLELISM = 2;
+    // Marks the end of the input of a stage
+    private static final ScanItem END = new ScanItem(null, null, null);
+
+    private final Supplier<OCRProcessor> processorFactory;
+    private final SubmissionRepository submissionRepository;
+    private final ScanResultRepository scanResultRepository;
+    private final OcrCacheRepository ocrCache;
+    private final int parallelism;
+    private int decodeParallelism = DEFAULT_DECODE_PARALLELISM;
+    private int preprocessParallelism = defaultParallelism();
+    private float pdfDpi = PdfScanSource.DEFAULT_DPI;
+    private Function<Question, NormalizationPolicy> normalizationPolicies = NormalizationPolicy::forQuestion;
+    private volatile Pipeline running;
+
+    /**
+     * A scanned file waiting to be graded for an already imported submission.
+     * @param submission The stored submission the scan belongs to
+     * @param scanFile The scanned image file, or the batch PDF holding the scan
+     * @param pageIndex Index of the page in the batch PDF, or -1 for an image file
+     */
+    public record ScanJob(Submission submission, File scanFile, int pageIndex) {
+        /**
+         * Job for a scanned image file.
+         * @param submission The stored submission the scan belongs to
+         * @param scanFile The scanned image file
+         */
+        public ScanJob(Submission submission, File scanFile) {
+            this(submission, scanFile, -1);
+        }
+
+        /**
+         * @return true if the scan is a page of a batch PDF
+         */
+        public boolean isPdfPage() {
+            return pageIndex >= 0;
+        }
+    }
+
+    /**
+     * Summary of a batch run.
+     * @param graded Number of submissions graded and saved
+     * @param failed Number of submissions that could not be graded
+     * @param cancelled Whether the run was cancelled before the end
+     */
+    public record BatchReport(int graded, int failed, boolean cancelled, QueueDepths peakDepths) {
+        /**
+         * Summary without queue depths.
+         * @param graded Number of submissions graded and saved
+         * @param failed Number of submissions that could not be graded
+         * @param cancelled Whether the run was cancelled before the end
+         */
+        public BatchReport(int graded, int failed, boolean cancelled) {
+            this(graded, failed, cancelled, QueueDepths.EMPTY);
+        }
+    }
+
+    /**
+     * Scans waiting in front of each stage of the pipeline.
+     * A queue that stays full shows the stage after it is the bottleneck.
+     * @param decoded Decoded pages waiting for preprocessing
+     * @param prepared Preprocessed pages waiting for OCR
+     * @param graded Graded copies waiting to be saved
+     */
+    public record QueueDepths(int decoded, int prepared, int graded) {
+        public static final QueueDepths EMPTY = new QueueDepths(0, 0, 0);
+    }
+
+    /**
+     * Callbacks invoked on the calling thread while a batch is running.
+     */
+    public interface BatchListener {
+        /**
+         * Called once a submission and its scan result have been saved.
+         * Results are saved in chunks, so this may come a little after the matching progress call.
+         * @param submission The updated submission
+         * @param scanResult The saved scan result
+         */
+        void onGraded(Submission submission, ScanResult scanResult);
+
+        /**
+         * Called when a submission could not be graded.
+         * @param job The failed job
+         * @param error The cause of the failure
+         */
+        void onFailed(ScanJob job, Exception error);
+
+        /**
+         * Called after each finished job, successful or not.
+         * @param done Number of finished jobs
+         * @param total Total number of jobs
+         */
+        void onProgress(int done, int total);
+    }
+
+    /**
+     * Constructor.
+     * @param processorFactory Creates one OCR processor per preprocessing and OCR thread
+     * @param submissionRepository Repository used to save graded submissions
+     * @param scanResultRepository Repository used to save scan results
+     * @param ocrCache Cache of OCR results, or null to always run OCR
+     * @param parallelism Maximum number of OCR threads
+     */
+    public OCRBatchEngine(Supplier<OCRProcessor> processorFactory,
+                          SubmissionRepository submissionRepository,
+                          ScanResultRepository scanResultRepository,
+                          OcrCacheRepository ocrCache,
+                          int parallelism) {
+        this.processorFactory = processorFactory;
+        this.submissionRepository = submissionRepository;
+        this.scanResultRepository = scanResultRepository;
+        this.ocrCache = ocrCache;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Constructor without OCR cache.
+     * @param processorFactory Creates one OCR processor per preprocessing and OCR thread
+     * @param submissionRepository Repository used to save graded submissions
+     * @param scanResultRepository Repository used to save scan results
+     * @param parallelism Maximum number of OCR threads
+     */
+    public OCRBatchEngine(Supplier<OCRProcessor> processorFactory,
+                          SubmissionRepository submissionRepository,
+                          ScanResultRepository scanResultRepository,
+                          int parallelism) {
+        this(processorFactory, submissionRepository, scanResultRepository, null, parallelism);
+    }
+
+    /**
+     * Constructor using one OCR thread per available CPU core.
+     * @param processorFactory Creates one OCR processor per preprocessing and OCR thread
+     * @param submissionRepository Repository used to save graded submissions
+     * @param scanResultRepository Repository used to save scan results
+     * @param ocrCache Cache of OCR results, or null to always run OCR
+     */
+    public OCRBatchEngine(Supplier<OCRProcessor> processorFactory,
+                          SubmissionRepository submissionRepository,
+                          ScanResultRepository scanResultRepository,
+                          OcrCacheRepository ocrCache) {
+        this(processorFactory, submissionRepository, scanResultRepository, ocrCache, defaultParallelism());
+    }
+
+    /**
+     * Constructor using one OCR thread per available CPU core.
+     * @param processorFactory Creates one OCR processor per preprocessing and OCR thread
+     * @param submissionRepository Repository used to save graded submissions
+     * @param scanResultRepository Repository used to save scan results
+     */
+    public OCRBatchEngine(Supplier<OCRProcessor> processorFactory,
+                          SubmissionRepository submissionRepository,
+                          ScanResultRepository scanResultRepository) {
+        this(processorFactory, submissionRepository, scanResultRepository, null, defaultParallelism());
+    }
+
+    /**
+     * Sets the resolution batch PDF pages are rendered at.
+     * @param dpi Rendering resolution
+     */
+    public void setPdfDpi(float dpi) {
+        this.pdfDpi = dpi;
+    }
+
+    /**
+     * Sets how the answers of each question are normalized when the copies of the next batches are scored.
+     * By default, each question is compared with the policy stored with it.
+     * @param policies Normalization of each question, the standard one when it returns null
+     */
+    public void setNormalizationPolicies(Function<Question, NormalizationPolicy> policies) {
+        this.normalizationPolicies = policies;
+    }
+
+    /**
+     * Sets the number of threads reading image files and rendering PDF pages.
+     * @param threads Number of decoding threads
+     */
+    public void setDecodeParallelism(int threads) {
+        this.decodeParallelism = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the number of threads preprocessing decoded pages.
+     * @param threads Number of preprocessing threads
+     */
+    public void setPreprocessParallelism(int threads) {
+        this.preprocessParallelism = Math.max(1, threads);
+    }
+
+    /**
+     * @return The queues of the running batch, empty when no batch is running
+     */
+    public QueueDepths getQueueDepths() {
+        Pipeline pipeline = running;
+        return pipeline != null ? pipeline.depths() : QueueDepths.EMPTY;
+    }
+
+    /**
+     * Prepares the OCR engines of the recognizers. Only an optimisation, so a failure is only logged:
+     * the recognizers report it on the copies.
+     */
+    private static void warmUp(OCRProcessor processor, int recognizers) {
+        try {
+            processor.warmUp(recognizers);
+        } catch (RuntimeException | LinkageError e) {
+            System.err.println("Unable to prepare the OCR engines: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The number of available CPU cores
+     */
+    public static int defaultParallelism() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Grades all jobs and saves the results.
+     * @param jobs The scans to grade
+     * @param exam The exam the scans belong to
+     * @param enhanceImages Whether to enhance images
+     * @param correctRotation Whether to correct rotation
+     * @param debug Whether to enable debug mode (forces a single thread per stage, debug files have fixed names, no cache)
+     * @param templateZones Whether to read answers only inside the boxes of the exam template
+     * @param cancelled Polled regularly, stops the batch when it returns true
+     * @param listener Receives progress and per-file results
+     * @return A summary of the run
+     * @throws IllegalStateException If a worker crashed, once the copies graded before the crash are saved
+     */
+    public BatchReport process(List<ScanJob> jobs, ExamDocument exam,
+                               boolean enhanceImages, boolean correctRotation, boolean debug,
+                               boolean templateZones, BooleanSupplier cancelled, BatchListener listener) {
+        int total = jobs.size();
+        if (total == 0) {
+            return new BatchReport(0, 0, false);
+        }
+
+        // Debug files have fixed names, so each stage runs a single thread
+        int decoders = debug ? 1 : Math.min(decodeParallelism, total);
+        int preparers = debug ? 1 : Math.min(preprocessParallelism, total);
+        int recognizers = debug ? 1 : Math.min(parallelism, total);
+
+        List<OCRProcessor> processors = new ArrayList<>();
+        for (int i = 0; i < preparers + recognizers; i++) {
+            OCRProcessor processor = processorFactory.get();
+            processor.setImageEnhancement(enhanceImages);
+            processor.setRotationCorrection(correctRotation);
+            processor.setDebugMode(debug);
+            processor.setTemplateZones(templateZones);
+            processor.setNormalizationPolicies(normalizationPolicies);
+            processors.add(processor);
+        }
+
+        // Every processor has the same settings
+        String settings = debug || ocrCache == null ? null : processors.get(0).getSettingsFingerprint();
+        String[] fileHashes = new String[total];
+        Map<String, Submission> cachedResults = Map.of();
+        if (settings != null) {
+            hashScans(jobs, fileHashes);
+            cachedResults = lookUpCache(exam, settings, fileHashes);
+        }
+
+        Pipeline pipeline = new Pipeline(jobs, fileHashes, cachedResults, exam, debug, cancelled,
+                decoders, preparers, recognizers);
+        List<Decoder> decoderStates = new ArrayList<>();
+        ExecutorService decodeExecutor = Executors.newFixedThreadPool(decoders, workerThreadFactory("ocr-decode-"));
+        ExecutorService preprocessExecutor =
+                Executors.newFixedThreadPool(preparers, workerThreadFactory("ocr-preprocess-"));
+        ExecutorService ocrExecutor = Executors.newFixedThreadPool(recognizers, workerThreadFactory("ocr-worker-"));
+        running = pipeline;
+
+        int done = 0;
+        Flush flush = new Flush(exam, settings, listener);
+
+        try {
+            for (int i = 0; i < decoders; i++) {
+                Decoder decoder = new Decoder();
+                decoderStates.add(decoder);
+                decodeExecutor.execute(() -> pipeline.decode(decoder));
+            }
+            for (int i = 0; i < preparers; i++) {
+                OCRProcessor processor = processors.get(i);
+                preprocessExecutor.execute(() -> pipeline.preprocess(processor));
+            }
+            // Engines load their language data while the first pages are decoded
+            if (cachedResults.size() < total) {
+                warmUp(processors.get(preparers), recognizers);
+            }
+            for (int i = 0; i < recognizers; i++) {
+                OCRProcessor processor = processors.get(preparers + i);
+                ocrExecutor.execute(() -> pipeline.recognize(processor));
+            }
+
+            while (done < total) {
+                if (cancelled.getAsBoolean()) {
+                    // Copies graded before the cancellation are kept
+                    flush.run();
+                    return new BatchReport(flush.graded, flush.failed, true, pipeline.peakDepths());
+                }
+                Throwable crash = pipeline.crash.get();
+                if (crash != null) {
+                    // Copies graded before the crash are kept, the pages left are not graded
+                    for (JobResult result = pipeline.graded.poll(0, TimeUnit.MILLISECONDS); result != null;
+                         result = pipeline.graded.poll(0, TimeUnit.MILLISECONDS)) {
+                        if (result.error() == null) {
+                            flush.add(result);
+                        } else {
+                            flush.failed++;
+                            listener.onFailed(result.job(), result.error());
+                        }
+                    }
+                    flush.run();
+                    throw new IllegalStateException("OCR worker crashed", crash);
+                }
+
+                JobResult result = pipeline.graded.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (result == null) {
+                    // Stages are busy, save what is waiting instead of holding it
+                    flush.run();
+                    continue;
+                }
+
+                done++;
+
+                if (result.error() == null) {
+                    flush.add(result);
+                    if (flush.size() >= FLUSH_SIZE) {
+                        flush.run();
+                    }
+                } else {
+                    flush.failed++;
+                    listener.onFailed(result.job(), result.error());
+                }
+
+                listener.onProgress(done, total);
+            }
+
+            flush.run();
+            return new BatchReport(flush.graded, flush.failed, false, pipeline.peakDepths());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            flush.run();
+            return new BatchReport(flush.graded, flush.failed, true, pipeline.peakDepths());
+        } finally {
+            running = null;
+            decodeExecutor.shutdownNow();
+            preprocessExecutor.shutdownNow();
+            ocrExecutor.shutdownNow();
+            closeDecoders(decodeExecutor, decoderStates);
+        }
+    }
+
+    /**
+     * Computes the cache key of each job: the hash of its file, and the page and resolution for a PDF page.
+     * Each distinct file is read once, files are hashed in parallel.
+     */
+    private void hashScans(List<ScanJob> jobs, String[] fileHashes) {
+        Map<File, String> hashes = new HashMap<>();
+        for (ScanJob job : jobs) {
+            if (job.scanFile() != null) {
+                hashes.put(job.scanFile(), null);
+            }
+        }
+        List<File> files = List.copyOf(hashes.keySet());
+        String[] computed = new String[files.size()];
+        IntStream.range(0, files.size()).parallel().forEach(i -> computed[i] = hashFile(files.get(i)));
+        for (int i = 0; i < files.size(); i++) {
+            hashes.put(files.get(i), computed[i]);
+        }
+
+        for (int i = 0; i < jobs.size(); i++) {
+            ScanJob job = jobs.get(i);
+            String hash = job.scanFile() != null ? hashes.get(job.scanFile()) : null;
+            if (hash != null && job.isPdfPage()) {
+                hash += "#page=" + job.pageIndex() + "@" + pdfDpi;
+            }
+            fileHashes[i] = hash;
+        }
+    }
+
+    /**
+     * Computes the SHA-256 of a scan file.
+     * @return The hash in hexadecimal, or null if the file cannot be read
+     */
+    private static String hashFile(File file) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Loads the cached results of all hashed scans in one query.
+     * The cache is only an optimisation, so a failure means OCR runs again.
+     */
+    private Map<String, Submission> lookUpCache(ExamDocument exam, String settings, String[] fileHashes) {
+        try {
+            return ocrCache.findAll(exam.getId(), settings,
+                    Arrays.stream(fileHashes).filter(Objects::nonNull).distinct().toList());
+        } catch (RuntimeException e) {
+            System.err.println("OCR cache unavailable: " + e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * @return A copy of the cached result if it has an answer for every question of the exam, otherwise null
+     */
+    private static Submission usableCacheEntry(Submission cached, ExamDocument exam) {
+        if (cached == null) {
+            return null;
+        }
+        for (Question question : exam.getQuestions()) {
+            if (!cached.getStudentAnswers().containsKey(question.getId())) {
+                // The questions changed since the scan was cached
+                return null;
+            }
+        }
+
+        // Each job gets its own copy, identical scans may appear more than once
+        Submission copy = new Submission(cached.getExamId(), cached.getStudentId());
+        for (Question question : exam.getQuestions()) {
+            copy.setAnswer(question.getId(), cached.getAnswer(question.getId()));
+        }
+        return copy;
+    }
+
+    /**
+     * Closes the PDF documents opened by the decoding threads once they have all stopped.
+     * A cancelled batch may still be rendering a page, so this does not block the calling thread.
+     */
+    private static void closeDecoders(ExecutorService executor, List<Decoder> decoders) {
+        Thread cleanup = new Thread(() -> {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    for (Decoder decoder : decoders) {
+                        decoder.close();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "ocr-cleanup");
+        cleanup.setDaemon(true);
+        cleanup.start();
+    }
+
+    private static ThreadFactory workerThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Graded copies waiting to be saved, written together on the calling thread.
+     */
+    private final class Flush {
+        private final ExamDocument exam;
+        private final String settings;
+        private final BatchListener listener;
+        private final List<JobResult> pending = new ArrayList<>();
+        private int graded;
+        private int failed;
+
+        Flush(ExamDocument exam, String settings, BatchListener listener) {
+            this.exam = exam;
+            this.settings = settings;
+            this.listener = listener;
+        }
+
+        void add(JobResult result) {
+            // Only the calling thread touches the stored submission
+            Submission submission = result.job().submission();
+            submission.setStudentId(result.processed().getStudentId());
+            submission.getStudentAnswers().putAll(result.processed().getStudentAnswers());
+            pending.add(result);
+        }
+
+        int size() {
+            return pending.size();
+        }
+
+        /**
+         * Saves the pending copies and their scan results in one transaction.
+         * If a chunk fails, its copies are saved one by one so a single bad copy does not fail the others.
+         */
+        void run() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<JobResult> chunk = new ArrayList<>(pending);
+            pending.clear();
+
+            List<Submission> submissions = new ArrayList<>();
+            List<ScanResult> scanResults = new ArrayList<>();
+            for (JobResult result : chunk) {
+                submissions.add(result.job().submission());
+                scanResults.add(result.scanResult());
+            }
+
+            try {
+                ConnectionManager.inUnitOfWork(() -> {
+                    submissionRepository.saveAll(submissions);
+                    return scanResultRepository.saveAll(scanResults);
+                });
+            } catch (RuntimeException e) {
+                saveOneByOne(chunk);
+                return;
+            }
+
+            for (JobResult result : chunk) {
+                graded++;
+                listener.onGraded(result.job().submission(), result.scanResult());
+            }
+            storeInCache(chunk);
+        }
+
+        private void saveOneByOne(List<JobResult> chunk) {
+            List<JobResult> saved = new ArrayList<>();
+            for (JobResult result : chunk) {
+                try {
+                    ScanResult scanResult = ConnectionManager.inUnitOfWork(() -> {
+                        submissionRepository.save(result.job().submission());
+                        return scanResultRepository.save(result.scanResult());
+                    });
+                    graded++;
+                    saved.add(result);
+                    listener.onGraded(result.job().submission(), scanResult);
+                } catch (RuntimeException e) {
+                    failed++;
+                    listener.onFailed(result.job(), e);
+                }
+            }
+            storeInCache(saved);
+        }
+
+        /**
+         * Remembers what OCR read on the saved copies that were not already cached.
+         * The cache is only an optimisation, so a failure is only logged.
+         */
+        private void storeInCache(List<JobResult> saved) {
+            if (settings == null) {
+                return;
+            }
+            Map<String, Submission> entries = new HashMap<>();
+            for (JobResult result : saved) {
+                if (result.fileHash() != null && !result.cached()) {
+                    entries.put(result.fileHash(), result.processed());
+                }
+            }
+            try {
+                ocrCache.saveAll(exam.getId(), settings, entries);
+            } catch (RuntimeException e) {
+                System.err.println("Unable to cache OCR results: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The stages of one batch and the queues between them.
+     * Each stage thread takes from the queue in front of it until it gets {@link #END};
+     * the last thread of a stage to stop sends one END to each thread of the next stage.
+     */
+    private final class Pipeline {
+        private final List<ScanJob> jobs;
+        private final String[] fileHashes;
+        private final Map<String, Submission> cachedResults;
+        private final ExamDocument exam;
+        private final boolean debug;
+        private final BooleanSupplier cancelled;
+        private final AtomicInteger nextJob = new AtomicInteger();
+        private final AtomicInteger decodersLeft;
+        private final AtomicInteger preparersLeft;
+        private final int preparers;
+        private final int recognizers;
+        private final AtomicReference<Throwable> crash = new AtomicReference<>();
+
+        // A decoded page is a full raster, at most one waits per preprocessing thread
+        private final StageQueue<ScanItem> decoded;
+        private final StageQueue<ScanItem> prepared;
+        private final StageQueue<JobResult> graded;
+
+        Pipeline(List<ScanJob> jobs, String[] fileHashes, Map<String, Submission> cachedResults, ExamDocument exam,
+                 boolean debug, BooleanSupplier cancelled, int decoders, int preparers, int recognizers) {
+            this.jobs = jobs;
+            this.fileHashes = fileHashes;
+            this.cachedResults = cachedResults;
+            this.exam = exam;
+            this.debug = debug;
+            this.cancelled = cancelled;
+            this.decodersLeft = new AtomicInteger(decoders);
+            this.preparersLeft = new AtomicInteger(preparers);
+            this.preparers = preparers;
+            this.recognizers = recognizers;
+            this.decoded = new StageQueue<>(preparers);
+            this.prepared = new StageQueue<>(2 * recognizers);
+            this.graded = new StageQueue<>(2 * FLUSH_SIZE);
+        }
+
+        /**
+         * Decoding thread: reads the scans of the jobs not taken yet.
+         * Cached scans and missing files skip the next stages.
+         */
+        void decode(Decoder decoder) {
+            try {
+                int index;
+                while (!cancelled.getAsBoolean() && (index = nextJob.getAndIncrement()) < jobs.size()) {
+                    ScanJob job = jobs.get(index);
+                    try {
+                        File scanFile = job.scanFile();
+                        if (scanFile == null || !scanFile.exists()) {
+                            graded.put(JobResult.failure(job, new FileNotFoundException("Scan file does not exist: "
+                                    + (scanFile != null ? scanFile.getAbsolutePath() : "none"))));
+                            continue;
+                        }
+
+                        String fileHash = fileHashes[index];
+                        Submission cached = fileHash != null
+                                ? usableCacheEntry(cachedResults.get(fileHash), exam) : null;
+                        if (cached != null) {
+                            prepared.put(new ScanItem(job, fileHash, cached));
+                            continue;
+                        }
+
+                        ScanItem item = new ScanItem(job, fileHash, null);
+                        // Only this page is rendered, and dropped once preprocessed
+                        item.image = job.isPdfPage()
+                                ? decoder.pdf(scanFile, pdfDpi).renderPage(job.pageIndex())
+                                : decoder.imageLoader.loadImage(scanFile);
+                        decoded.put(item);
+                    } catch (IOException | RuntimeException e) {
+                        graded.put(JobResult.failure(job, e));
+                    }
+                }
+                endStage(decodersLeft, decoded, preparers);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                crash.compareAndSet(null, e);
+            }
+        }
+
+        /**
+         * Preprocessing thread. In debug mode the page is kept whole, processExam saves each intermediate image.
+         */
+        void preprocess(OCRProcessor processor) {
+            try {
+                for (ScanItem item = decoded.take(); item != END; item = decoded.take()) {
+                    try {
+                        if (!debug) {
+                            item.page = processor.preparePage(item.image, exam);
+                            item.image = null;
+                        }
+                        prepared.put(item);
+                    } catch (RuntimeException e) {
+                        graded.put(JobResult.failure(item.job, e));
+                    }
+                }
+                endStage(preparersLeft, prepared, recognizers);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                crash.compareAndSet(null, e);
+            }
+        }
+
+        /**
+         * OCR thread: reads and scores the preprocessed pages.
+         * A cached OCR result replaces the recognition, only the score is computed.
+         */
+        void recognize(OCRProcessor processor) {
+            try {
+                for (ScanItem item = prepared.take(); item != END; item = prepared.take()) {
+                    ScanJob job = item.job;
+                    JobResult result;
+                    try {
+                        // Work on a fresh submission so the stored one is only touched by the calling thread
+                        Submission processed;
+                        if (item.cached != null) {
+                            processed = item.cached;
+                        } else if (item.page != null) {
+                            processed = processor.recognize(item.page, exam);
+                        } else {
+                            processed = processor.processExam(item.image, exam);
+                        }
+                        processed.setId(job.submission().getId());
+                        ScanResult scanResult = processor.calculateScore(processed, exam);
+                        result = JobResult.success(job, item.fileHash, item.cached != null, processed, scanResult);
+                    } catch (InterruptedException e) {
+                        // Cancelled batch, nobody waits for the result
+                        throw e;
+                    } catch (Exception e) {
+                        result = JobResult.failure(job, e);
+                    }
+                    graded.put(result);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                crash.compareAndSet(null, e);
+            }
+        }
+
+        private void endStage(AtomicInteger threadsLeft, StageQueue<ScanItem> output, int nextThreads)
+                throws InterruptedException {
+            if (threadsLeft.decrementAndGet() == 0) {
+                for (int i = 0; i < nextThreads; i++) {
+                    output.put(END);
+                }
+            }
+        }
+
+        QueueDepths depths() {
+            return new QueueDepths(decoded.size(), prepared.size(), graded.size());
+        }
+
+        QueueDepths peakDepths() {
+            return new QueueDepths(decoded.peak(), prepared.peak(), graded.peak());
+        }
+    }
+
+    /**
+     * Bounded queue between two stages, remembering the most items it held.
+     */
+    private static final class StageQueue<T> {
+        private final BlockingQueue<T> queue;
+        private final AtomicInteger peak = new AtomicInteger();
+
+        StageQueue(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void put(T item) throws InterruptedException {
+            queue.put(item);
+            peak.accumulateAndGet(queue.size(), Math::max);
+        }
+
+        T take() throws InterruptedException {
+            return queue.take();
+        }
+
+        T poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return queue.poll(timeout, unit);
+        }
+
+        int size() {
+            return queue.size();
+        }
+
+        int peak() {
+            return peak.get();
+        }
+    }
+
+    /**
+     * A scan moving through the stages: decoded, then preprocessed, or already read when cached.
+     */
+    private static final class ScanItem {
+        private final ScanJob job;
+        private final String fileHash;
+        private final Submission cached;
+        private BufferedImage image;
+        private PreparedPage page;
+
+        ScanItem(ScanJob job, String fileHash, Submission cached) {
+            this.job = job;
+            this.fileHash = fileHash;
+            this.cached = cached;
+        }
+    }
+
+    /**
+     * The batch PDFs opened by a decoding thread.
+     * Each PDF is opened once per thread, pages are rendered on demand.
+     */
+    private static final class Decoder {
+        private final ImageProcessor imageLoader = new ImageProcessor();
+        private final Map<File, PdfScanSource> pdfs = new HashMap<>();
+
+        PdfScanSource pdf(File file, float dpi) throws IOException {
+            PdfScanSource source = pdfs.get(file);
+            if (source == null) {
+                source = new PdfScanSource(file, dpi);
+                pdfs.put(file, source);
+            }
+            return source;
+        }
+
+        void close() {
+            for (PdfScanSource source : pdfs.values()) {
+                try {
+                    source.close();
+                } catch (IOException e) {
+                    System.err.println("Unable to close " + source.getFile().getName() + ": " + e.getMessage());
+                }
+            }
+            pdfs.clear();
+        }
+    }
+
+    /**
+     * Outcome of a single job, passed from a stage to the calling thread.
+     */
+    private record JobResult(ScanJob job, String fileHash, boolean cached, Submission processed,
+                             ScanResult scanResult, Exception error) {
+        static JobResult success(ScanJob job, String fileHash, boolean cached,
+                                 Submission processed, ScanResult scanResult) {
+            return new JobResult(job, fileHash, cached, processed, scanResult, null);
+        }
+
+        static JobResult failure(ScanJob job, Exception error) {
+            return new JobResult(job, null, false, null, null, error);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * OCR service using Tesseract for exam recognition.
@@ -19,12 +20,23 @@ import java.util.List;
  * Modified to directly extract all answers in order.
  */
 public class TesseractOCRService implements OCRProcessor {
+    // Bump when a change of the recognition makes cached OCR results stale
+    private static final int OCR_VERSION = 1;
+
     private final ImageProcessor imageProcessor;
     private final TextExtractor textExtractor;
 
     private boolean enableDebug = false;
     private boolean enableRotationCorrection = true;
     private boolean enableImageEnhancement = true;
+    private boolean enableTemplateZones = false;
+
+    // Sheet layout of each exam, loaded on first use
+    private final ExamDocumentTemplate examDocumentTemplate = new ExamDocumentTemplate();
+    private final Map<Long, ExamLayout> layouts = new HashMap<>();
+    private Function<Question, NormalizationPolicy> normalizationPolicies = NormalizationPolicy::forQuestion;
+    // Correct answers of the last exam graded, compiled once for all its submissions
+    private ExamScorer scorer;
 
     /**
      * Default constructor.
@@ -52,16 +64,52 @@ public class TesseractOCRService implements OCRProcessor {
         if (enableDebug) {
             System.out.println("Processing exam: " + exam.getTitle());
             System.out.println("File: " + scanFile.getAbsolutePath());
-            System.out.println("Number of questions: " + exam.getQuestions().size());
         }
 
-        BufferedImage originalImage = imageProcessor.loadAndPrepareImage(scanFile);
+        return processExam(imageProcessor.loadImage(scanFile), exam);
+    }
+
+    @Override
+    public Submission processExam(BufferedImage scanImage, ExamDocument exam) throws Exception {
+        if (!enableDebug) {
+            return recognize(preparePage(scanImage, exam), exam);
+        }
+
+        System.out.println("Number of questions: " + exam.getQuestions().size());
+
+        // Separate passes, so each intermediate full page can be saved
+        BufferedImage originalImage = imageProcessor.loadAndPrepareImage(scanImage);
 
         ImageZones zones = imageProcessor.divideImageIntoZones(originalImage);
 
         BufferedImage redTextImage = imageProcessor.extractRedText(originalImage);
 
-        String matricule = textExtractor.extractMatricule(redTextImage, zones.getMatriculeZone());
+        return readSubmission(cropZone(redTextImage, zones.getMatriculeZone()),
+                cropZone(redTextImage, zones.getQuestionsZone()), List.of(), exam);
+    }
+
+    @Override
+    public PreparedPage preparePage(BufferedImage scanImage, ExamDocument exam) {
+        // Single streamed pass that only keeps the zones
+        return imageProcessor.preparePage(scanImage, enableTemplateZones ? getLayout(exam) : null);
+    }
+
+    @Override
+    public Submission recognize(PreparedPage page, ExamDocument exam) {
+        if (page.getZones().hasAnswerBoxes()) {
+            return readSubmission(page.getMatriculeImage(), null, page.getAnswerImages(), exam);
+        }
+        return readSubmission(page.getMatriculeImage(), page.getQuestionsImage(), List.of(), exam);
+    }
+
+    /**
+     * Reads the student ID and the answers of a scan.
+     * @param answersImage Whole questions zone, or null to read the answer boxes
+     * @param answerBoxImages One image per answer box, used when there is no questions zone
+     */
+    private Submission readSubmission(BufferedImage matriculeImage, BufferedImage answersImage,
+                                      List<BufferedImage> answerBoxImages, ExamDocument exam) {
+        String matricule = textExtractor.extractMatricule(matriculeImage);
 
         if (enableDebug) {
             System.out.println("Extracted student ID: " + matricule);
@@ -70,10 +118,10 @@ public class TesseractOCRService implements OCRProcessor {
         Submission submission = new Submission(exam.getId(),
                 matricule.isEmpty() ? "UNKNOWN" : matricule);
 
-        List<String> allAnswers = textExtractor.extractAllAnswers(
-                redTextImage,
-                zones.getQuestionsZone(),
-                exam.getQuestions().size());
+        // One box per question keeps skipped answers aligned, otherwise the whole zone is split into lines
+        List<String> allAnswers = answersImage == null
+                ? textExtractor.extractAnswersByBox(answerBoxImages)
+                : textExtractor.extractAllAnswers(answersImage, exam.getQuestions().size());
 
         for (int i = 0; i < exam.getQuestions().size(); i++) {
             Question question = exam.getQuestions().get(i);
@@ -93,6 +141,27 @@ public class TesseractOCRService implements OCRProcessor {
         return submission;
     }
 
+    /**
+     * Gets the layout of the sheet generated for an exam, from its manifest when there is one.
+     * @return The layout, or null if it cannot be computed
+     */
+    private ExamLayout getLayout(ExamDocument exam) {
+        ExamLayout layout = layouts.get(exam.getId());
+        if (layout == null) {
+            try {
+                layout = examDocumentTemplate.loadLayout(exam);
+                layouts.put(exam.getId(), layout);
+            } catch (IOException e) {
+                System.err.println("Unable to compute the exam layout, using default zones: " + e.getMessage());
+            }
+        }
+        return layout;
+    }
+
+    private BufferedImage cropZone(BufferedImage image, Rectangle zone) {
+        return imageProcessor.safeGetSubimage(image, zone.x, zone.y, zone.width, zone.height);
+    }
+
     @Override
     public ScanResult calculateScore(Submission submission, ExamDocument exam) {
         if (enableDebug) {
@@ -105,7 +174,9 @@ public class TesseractOCRService implements OCRProcessor {
         int correctAnswers = 0;
         int totalQuestions = exam.getQuestions().size();
 
-        for (Question question : exam.getQuestions()) {
+        ExamScorer scorer = scorerFor(exam);
+        for (int i = 0; i < totalQuestions; i++) {
+            Question question = exam.getQuestions().get(i);
             String studentAnswer = submission.getAnswer(question.getId());
             String correctAnswer = question.getCorrectAnswer();
 
@@ -116,18 +187,15 @@ public class TesseractOCRService implements OCRProcessor {
                 System.out.println("  - Correct answer: " + correctAnswer);
             }
 
-            studentAnswer = textExtractor.cleanAnswer(studentAnswer);
-            correctAnswer = textExtractor.cleanAnswer(correctAnswer);
-
-            double confidence = textExtractor.calculateSimilarity(studentAnswer, correctAnswer);
+            double confidence = scorer.similarity(i, studentAnswer);
             result.setConfidenceLevel(question.getId(), confidence);
 
             if (enableDebug) {
                 System.out.println("  - Confidence: " + confidence);
-                System.out.println("  - Correct: " + (confidence >= 0.8 ? "YES" : "NO"));
+                System.out.println("  - Correct: " + (confidence >= ExamScorer.PASS_THRESHOLD ? "YES" : "NO"));
             }
 
-            if (confidence >= 0.8) {
+            if (confidence >= ExamScorer.PASS_THRESHOLD) {
                 correctAnswers++;
             }
         }
@@ -143,6 +211,13 @@ public class TesseractOCRService implements OCRProcessor {
         return result;
     }
 
+    private ExamScorer scorerFor(ExamDocument exam) {
+        if (scorer == null || !scorer.isCompiledFor(exam)) {
+            scorer = new ExamScorer(exam, normalizationPolicies);
+        }
+        return scorer;
+    }
+
     @Override
     public String generateReport(Submission submission, ExamDocument exam, ScanResult scanResult) {
         StringBuilder report = new StringBuilder();
@@ -224,6 +299,32 @@ public class TesseractOCRService implements OCRProcessor {
         if (imageProcessor != null) imageProcessor.setImageEnhancement(enabled);
     }
 
+    @Override
+    public void setTemplateZones(boolean enabled) {
+        this.enableTemplateZones = enabled;
+    }
+
+    @Override
+    public void warmUp(int engines) {
+        TesseractPool.getInstance().warmUp(engines, TesseractPool.Profile.MATRICULE,
+                enableTemplateZones ? TesseractPool.Profile.LINE : TesseractPool.Profile.ANSWERS);
+    }
+
+    @Override
+    public void setNormalizationPolicies(Function<Question, NormalizationPolicy> policies) {
+        this.normalizationPolicies = policies;
+        this.scorer = null;
+    }
+
+    @Override
+    public String getSettingsFingerprint() {
+        return "ocr=" + OCR_VERSION
+                + ";enhance=" + enableImageEnhancement
+                + ";rotate=" + enableRotationCorrection
+                + ";template=" + enableTemplateZones
+                + ";" + imageProcessor.getSettingsFingerprint();
+    }
+
     /**
      * Adjusts red detection parameters.
      * @param hueLow Lower limit for red hue (0.0-1.0)
@@ -0,0 +1,120 @@
+package be.esi.prj.easyeval.utils;
+
+import java.text.Normalizer;
+
+/**
+ * Normalizes the answers read by OCR and the correct answers before they are compared.
+ * A single pass over the characters removes a leading question number such as "3. ",
+ * folds each character with a {@link NormalizationPolicy} and joins the words with single spaces.
+ * With {@link NormalizationPolicy#STANDARD}, the result is the one of the former regular expressions:
+ * "^\s*\d+\.\s*" removed, "[^A-Za-z0-9]" replaced by spaces, spaces collapsed and trimmed, upper case.
+ */
+public final class AnswerNormalizer {
+    // Base letters of the Latin-1 Supplement and Latin Extended-A blocks, 0 for other characters
+    private static final char ACCENTED_FIRST = 'À';
+    private static final char[] BASE_LETTERS = baseLetters(ACCENTED_FIRST, 'ſ');
+
+    private AnswerNormalizer() {
+    }
+
+    /**
+     * @param raw Answer to normalize, may be null
+     * @return The normalized answer with the standard policy, empty for a null answer
+     */
+    public static String normalize(String raw) {
+        return normalize(raw, NormalizationPolicy.STANDARD);
+    }
+
+    /**
+     * @param raw Answer to normalize, may be null
+     * @param policy Folding of the characters
+     * @return The normalized answer, empty for a null answer
+     */
+    public static String normalize(String raw, NormalizationPolicy policy) {
+        if (raw == null || raw.isEmpty()) {
+            return "";
+        }
+        char[] out = new char[raw.length()];
+        return new String(out, 0, normalize(raw, out, policy));
+    }
+
+    /**
+     * Normalizes an answer into a buffer, without allocating.
+     * @param raw Answer to normalize, may be null
+     * @param out Receives the normalized answer, at least as long as the raw answer
+     * @param policy Folding of the characters
+     * @return Length of the normalized answer
+     */
+    public static int normalize(String raw, char[] out, NormalizationPolicy policy) {
+        if (raw == null) {
+            return 0;
+        }
+
+        int length = 0;
+        boolean separator = false;
+        for (int i = questionNumberEnd(raw); i < raw.length(); i++) {
+            char c = policy.fold(raw.charAt(i));
+            if (c == NormalizationPolicy.SEPARATOR) {
+                separator = true;
+                continue;
+            }
+            if (separator && length > 0) {
+                out[length++] = ' ';
+            }
+            separator = false;
+            out[length++] = c;
+        }
+        return length;
+    }
+
+    /**
+     * @param c Any character
+     * @return The letter without accent for an accented Latin letter, the character itself otherwise
+     */
+    static char baseLetter(char c) {
+        if (c < ACCENTED_FIRST || c >= ACCENTED_FIRST + BASE_LETTERS.length) {
+            return c;
+        }
+        char base = BASE_LETTERS[c - ACCENTED_FIRST];
+        return base != 0 ? base : c;
+    }
+
+    /**
+     * @return The index after a leading question number such as " 3. ", or 0 if there is none
+     */
+    private static int questionNumberEnd(String raw) {
+        int i = 0;
+        while (i < raw.length() && isWhitespace(raw.charAt(i))) {
+            i++;
+        }
+        int digitsStart = i;
+        while (i < raw.length() && raw.charAt(i) >= '0' && raw.charAt(i) <= '9') {
+            i++;
+        }
+        if (i == digitsStart || i == raw.length() || raw.charAt(i) != '.') {
+            return 0;
+        }
+        i++;
+        while (i < raw.length() && isWhitespace(raw.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    // Same characters as \s in a regular expression
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static char[] baseLetters(char first, char last) {
+        char[] letters = new char[last - first + 1];
+        for (char c = first; c <= last; c++) {
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            char base = decomposed.charAt(0);
+            if (decomposed.length() > 1 && base < 0x80 && Character.isLetter(base)) {
+                letters[c - first] = base;
+            }
+        }
+        return letters;
+    }
+}
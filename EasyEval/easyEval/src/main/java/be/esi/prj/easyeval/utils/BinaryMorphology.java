@@ -0,0 +1,223 @@
+package be.esi.prj.easyeval.utils;
+
+/**
+ * Morphological operators on packed binary images.
+ * Rows are processed a 64-bit word at a time: a horizontal pass ORs shifted copies of each row,
+ * then a vertical pass ORs neighbouring rows together.
+ * Pixels outside the image count as background for dilation and as ink for erosion.
+ */
+public final class BinaryMorphology {
+
+    /**
+     * Structuring element shapes, all centered and symmetric.
+     */
+    public enum Shape {
+        /** Full (2r+1)x(2r+1) square. */
+        RECTANGLE,
+        /** Horizontal and vertical bars of length 2r+1. */
+        CROSS,
+        /** Pixels at a Euclidean distance of at most r from the center. */
+        DISC
+    }
+
+    private BinaryMorphology() {
+    }
+
+    /**
+     * Grows the ink of an image.
+     * @param source Image to dilate
+     * @param shape Kernel shape
+     * @param radius Kernel radius in pixels
+     * @return A new dilated image
+     */
+    public static BitMatrix dilate(BitMatrix source, Shape shape, int radius) {
+        if (radius <= 0) {
+            return source.copy();
+        }
+
+        return switch (shape) {
+            case RECTANGLE -> verticalDilate(horizontalDilate(source, radius), radius);
+            case CROSS -> {
+                BitMatrix result = horizontalDilate(source, radius);
+                or(result, verticalDilate(source, radius));
+                yield result;
+            }
+            case DISC -> discDilate(source, radius);
+        };
+    }
+
+    /**
+     * Shrinks the ink of an image, as the dilation of the background.
+     * @param source Image to erode
+     * @param shape Kernel shape
+     * @param radius Kernel radius in pixels
+     * @return A new eroded image
+     */
+    public static BitMatrix erode(BitMatrix source, Shape shape, int radius) {
+        BitMatrix background = source.copy();
+        background.invert();
+        BitMatrix result = dilate(background, shape, radius);
+        result.invert();
+        return result;
+    }
+
+    /**
+     * Erosion followed by dilation, removes specks smaller than the kernel.
+     * @param source Image to open
+     * @param shape Kernel shape
+     * @param radius Kernel radius in pixels
+     * @return A new opened image
+     */
+    public static BitMatrix open(BitMatrix source, Shape shape, int radius) {
+        return dilate(erode(source, shape, radius), shape, radius);
+    }
+
+    /**
+     * Dilation followed by erosion, fills gaps smaller than the kernel.
+     * @param source Image to close
+     * @param shape Kernel shape
+     * @param radius Kernel radius in pixels
+     * @return A new closed image
+     */
+    public static BitMatrix close(BitMatrix source, Shape shape, int radius) {
+        return erode(dilate(source, shape, radius), shape, radius);
+    }
+
+    /**
+     * Sets each pixel whose row contains ink within the given horizontal distance.
+     */
+    static BitMatrix horizontalDilate(BitMatrix source, int radius) {
+        BitMatrix result = source.copy();
+        int wordsPerRow = source.wordsPerRow();
+        long[] words = result.words();
+        long[] row = new long[wordsPerRow];
+        long tail = source.tailMask();
+
+        for (int y = 0; y < source.getHeight(); y++) {
+            int offset = y * wordsPerRow;
+            dilateRow(words, offset, row, wordsPerRow, radius);
+            words[offset + wordsPerRow - 1] &= tail;
+        }
+        return result;
+    }
+
+    /**
+     * Dilates one packed row in place.
+     * The covered span doubles at each step, so a radius r costs about log2(r) passes over the row.
+     */
+    static void dilateRow(long[] words, int offset, long[] scratch, int length, int radius) {
+        int covered = 0;
+        while (covered < radius) {
+            int step = Math.min(covered + 1, radius - covered);
+            System.arraycopy(words, offset, scratch, 0, length);
+            shiftOr(scratch, words, offset, length, step);
+            covered += step;
+        }
+    }
+
+    /**
+     * ORs the source row shifted by distance pixels to the left and to the right into the target row.
+     */
+    private static void shiftOr(long[] source, long[] target, int offset, int length, int distance) {
+        int wordShift = distance >>> 6;
+        int bitShift = distance & 63;
+
+        for (int w = 0; w < length; w++) {
+            long towardRight = 0;
+            int from = w - wordShift;
+            if (from >= 0) {
+                towardRight = source[from] << bitShift;
+                if (bitShift != 0 && from - 1 >= 0) {
+                    towardRight |= source[from - 1] >>> (64 - bitShift);
+                }
+            }
+
+            long towardLeft = 0;
+            from = w + wordShift;
+            if (from < length) {
+                towardLeft = source[from] >>> bitShift;
+                if (bitShift != 0 && from + 1 < length) {
+                    towardLeft |= source[from + 1] << (64 - bitShift);
+                }
+            }
+
+            target[offset + w] |= towardRight | towardLeft;
+        }
+    }
+
+    /**
+     * Sets each pixel whose column contains ink within the given vertical distance.
+     */
+    static BitMatrix verticalDilate(BitMatrix source, int radius) {
+        int height = source.getHeight();
+        int wordsPerRow = source.wordsPerRow();
+        long[] in = source.words();
+        BitMatrix result = new BitMatrix(source.getWidth(), height);
+        long[] out = result.words();
+
+        for (int y = 0; y < height; y++) {
+            int target = y * wordsPerRow;
+            int from = Math.max(0, y - radius);
+            int to = Math.min(height - 1, y + radius);
+            for (int sy = from; sy <= to; sy++) {
+                int src = sy * wordsPerRow;
+                for (int w = 0; w < wordsPerRow; w++) {
+                    out[target + w] |= in[src + w];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A disc is the union of horizontal segments whose half-length depends on the row distance.
+     * Each distinct half-length is computed once for the whole image, then rows are ORed together.
+     */
+    private static BitMatrix discDilate(BitMatrix source, int radius) {
+        int height = source.getHeight();
+        int wordsPerRow = source.wordsPerRow();
+        BitMatrix[] segments = new BitMatrix[radius + 1];
+        BitMatrix result = new BitMatrix(source.getWidth(), height);
+        long[] out = result.words();
+
+        for (int dy = -radius; dy <= radius; dy++) {
+            int halfWidth = halfWidth(Shape.DISC, radius, dy);
+            if (segments[halfWidth] == null) {
+                segments[halfWidth] = horizontalDilate(source, halfWidth);
+            }
+            long[] in = segments[halfWidth].words();
+
+            for (int y = Math.max(0, -dy); y < Math.min(height, height - dy); y++) {
+                int target = y * wordsPerRow;
+                int src = (y + dy) * wordsPerRow;
+                for (int w = 0; w < wordsPerRow; w++) {
+                    out[target + w] |= in[src + w];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Half-length of the horizontal segment of a kernel at a given row distance from its center.
+     * @return The half-length, or -1 when the kernel has no pixel on that row
+     */
+    static int halfWidth(Shape shape, int radius, int dy) {
+        if (Math.abs(dy) > radius) {
+            return -1;
+        }
+        return switch (shape) {
+            case RECTANGLE -> radius;
+            case CROSS -> dy == 0 ? radius : 0;
+            case DISC -> (int) Math.floor(Math.sqrt((double) radius * radius - (double) dy * dy));
+        };
+    }
+
+    private static void or(BitMatrix target, BitMatrix source) {
+        long[] out = target.words();
+        long[] in = source.words();
+        for (int i = 0; i < out.length; i++) {
+            out[i] |= in[i];
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package be.esi.prj.easyeval.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.util.Arrays;
+
+/**
+ * Binary image packed in 64-bit words, one bit per pixel.
+ * A set bit is an ink (black) pixel. Each row starts on a new word and
+ * the lowest bit of a word is its leftmost pixel.
+ */
+public final class BitMatrix {
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    /**
+     * Creates an empty (all white) matrix.
+     * @param width Width in pixels
+     * @param height Height in pixels
+     */
+    public BitMatrix(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.words = new long[wordsPerRow * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param x Column
+     * @param y Row
+     * @return true if the pixel is ink
+     */
+    public boolean get(int x, int y) {
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * @param x Column
+     * @param y Row
+     * @param ink true to mark the pixel as ink, false for background
+     */
+    public void set(int x, int y, boolean ink) {
+        int index = y * wordsPerRow + (x >>> 6);
+        if (ink) {
+            words[index] |= 1L << x;
+        } else {
+            words[index] &= ~(1L << x);
+        }
+    }
+
+    /**
+     * @return A copy of this matrix
+     */
+    public BitMatrix copy() {
+        BitMatrix copy = new BitMatrix(width, height);
+        System.arraycopy(words, 0, copy.words, 0, words.length);
+        return copy;
+    }
+
+    /**
+     * Swaps ink and background.
+     */
+    public void invert() {
+        long tail = tailMask();
+        for (int y = 0; y < height; y++) {
+            int row = y * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                words[row + w] = ~words[row + w];
+            }
+            words[row + wordsPerRow - 1] &= tail;
+        }
+    }
+
+    /**
+     * Clears a frame of the given thickness along the edges of the image.
+     * @param size Thickness of the frame in pixels
+     */
+    public void clearBorder(int size) {
+        if (size <= 0) {
+            return;
+        }
+        if (size * 2 >= width || size * 2 >= height) {
+            Arrays.fill(words, 0L);
+            return;
+        }
+
+        Arrays.fill(words, 0, size * wordsPerRow, 0L);
+        Arrays.fill(words, (height - size) * wordsPerRow, height * wordsPerRow, 0L);
+        for (int y = size; y < height - size; y++) {
+            for (int x = 0; x < size; x++) {
+                set(x, y, false);
+                set(width - 1 - x, y, false);
+            }
+        }
+    }
+
+    /**
+     * Adds the ink of another matrix at the given position. Pixels falling outside this matrix are ignored.
+     * @param source Matrix to copy
+     * @param x Column of the top-left corner of the source
+     * @param y Row of the top-left corner of the source
+     */
+    public void paste(BitMatrix source, int x, int y) {
+        if (x < 0 || y < 0) {
+            throw new IllegalArgumentException("Negative paste position: " + x + ", " + y);
+        }
+        int wordShift = x >>> 6;
+        int bitShift = x & 63;
+        long tail = tailMask();
+
+        for (int sy = 0; sy < source.height && y + sy < height; sy++) {
+            int sourceRow = sy * source.wordsPerRow;
+            int row = (y + sy) * wordsPerRow;
+            for (int w = 0; w < source.wordsPerRow; w++) {
+                long bits = source.words[sourceRow + w];
+                int target = wordShift + w;
+                if (bits == 0 || target >= wordsPerRow) {
+                    continue;
+                }
+                words[row + target] |= bits << bitShift;
+                if (bitShift != 0 && target + 1 < wordsPerRow) {
+                    words[row + target + 1] |= bits >>> (64 - bitShift);
+                }
+            }
+            words[row + wordsPerRow - 1] &= tail;
+        }
+    }
+
+    /**
+     * Converts an image to a matrix. A pixel is ink when the average of its components is below 128.
+     * @param image Source image
+     * @return The packed matrix
+     */
+    public static BitMatrix fromImage(BufferedImage image) {
+        BitMatrix matrix = new BitMatrix(image.getWidth(), image.getHeight());
+        if (!matrix.readPackedBinary(image)) {
+            matrix.readAnyImage(image);
+        }
+        return matrix;
+    }
+
+    /**
+     * Converts this matrix to a black and white image.
+     * @return A TYPE_BYTE_BINARY image with ink in black
+     */
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int stride = ((MultiPixelPackedSampleModel) image.getSampleModel()).getScanlineStride();
+
+        for (int y = 0; y < height; y++) {
+            int row = y * wordsPerRow;
+            int dataRow = y * stride;
+            for (int i = 0; i < stride; i++) {
+                int bits = (int) (words[row + (i >>> 3)] >>> ((i & 7) << 3)) & 0xFF;
+                // Image bytes hold the leftmost pixel in their highest bit, with 1 for white
+                data[dataRow + i] = (byte) ~(Integer.reverse(bits) >>> 24);
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Reads a TYPE_BYTE_BINARY image whose index 0 is black, such as the red ink mask.
+     * @return false if the image does not have that layout
+     */
+    private boolean readPackedBinary(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_BYTE_BINARY
+                || !(image.getColorModel() instanceof IndexColorModel palette)
+                || palette.getMapSize() != 2
+                || (palette.getRGB(0) & 0xFFFFFF) != 0
+                || image.getRaster().getSampleModelTranslateX() != 0
+                || image.getRaster().getSampleModelTranslateY() != 0
+                || !(image.getSampleModel() instanceof MultiPixelPackedSampleModel sampleModel)
+                || sampleModel.getPixelBitStride() != 1
+                || sampleModel.getDataBitOffset() != 0
+                || image.getRaster().getDataBuffer().getOffset() != 0) {
+            return false;
+        }
+
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int stride = sampleModel.getScanlineStride();
+
+        for (int y = 0; y < height; y++) {
+            int row = y * wordsPerRow;
+            int dataRow = y * stride;
+            for (int i = 0; i < stride; i++) {
+                long bits = (Integer.reverse(~data[dataRow + i] & 0xFF) >>> 24) & 0xFFL;
+                words[row + (i >>> 3)] |= bits << ((i & 7) << 3);
+            }
+            words[row + wordsPerRow - 1] &= tailMask();
+        }
+        return true;
+    }
+
+    private void readAnyImage(BufferedImage image) {
+        int[] rgbRow = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, rgbRow, 0, width);
+            int row = y * wordsPerRow;
+            for (int x = 0; x < width; x++) {
+                int rgb = rgbRow[x];
+                int avg = ((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF);
+                avg /= 3;
+
+                if (avg < 128) { // Black or dark pixel
+                    words[row + (x >>> 6)] |= 1L << x;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills a row with a run of bits taken from a packed source row.
+     * @param y Row to fill
+     * @param source Packed source bits
+     * @param sourceOffset Index of the first word of the source row
+     * @param sourceLength Number of words of the source row
+     * @param fromBit Index of the source bit copied to the first pixel of the row
+     */
+    void copyRow(int y, long[] source, int sourceOffset, int sourceLength, int fromBit) {
+        int wordShift = fromBit >>> 6;
+        int bitShift = fromBit & 63;
+        int row = y * wordsPerRow;
+
+        for (int w = 0; w < wordsPerRow; w++) {
+            int from = wordShift + w;
+            long bits = from < sourceLength ? source[sourceOffset + from] >>> bitShift : 0;
+            if (bitShift != 0 && from + 1 < sourceLength) {
+                bits |= source[sourceOffset + from + 1] << (64 - bitShift);
+            }
+            words[row + w] = bits;
+        }
+        words[row + wordsPerRow - 1] &= tailMask();
+    }
+
+    // Package-private raw access for the morphology operators
+
+    long[] words() {
+        return words;
+    }
+
+    int wordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * @return Mask of the bits of the last word of a row that are inside the image
+     */
+    long tailMask() {
+        int used = width & 63;
+        return used == 0 ? -1L : (1L << used) - 1;
+    }
+}
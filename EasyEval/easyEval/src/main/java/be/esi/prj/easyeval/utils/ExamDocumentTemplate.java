@@ -21,6 +21,8 @@ import org.apache.pdfbox.pdmodel.font.PDType1Font;
  * Modified to support red-pen answer detection.
  */
 public class ExamDocumentTemplate {
+    private static final String GENERATED_DIRECTORY = "generated-exam";
+
     // Layout constants
     private static final int MARGIN_LEFT = 50;
     private static final int MARGIN_RIGHT = 50;
@@ -32,6 +34,13 @@ public class ExamDocumentTemplate {
     private static final int BOTTOM_MARGIN = 50;
     private static final int PAGE_WIDTH = 595; // A4 width in points
     private static final int TEXT_WIDTH = PAGE_WIDTH - MARGIN_LEFT - MARGIN_RIGHT - 20; // Effective text width
+    private static final int MATRICULE_LINE_X = MARGIN_LEFT + 150;
+    private static final int MATRICULE_LINE_WIDTH = 100;
+
+    // Handwritten field boxes around answer lines, used to locate the answers on scans
+    private static final int FIELD_HEIGHT_ABOVE_LINE = 30;
+    private static final int FIELD_HEIGHT_BELOW_LINE = 8;
+    private static final int FIELD_MARGIN = 10;
 
     // Colors (in RGB, range 0-1)
     private static final float[] HEADER_COLOR = {0.2f, 0.4f, 0.8f}; // Blue for headers
@@ -55,101 +64,187 @@ public class ExamDocumentTemplate {
      */
     public File generatePDF(ExamDocument exam, boolean withAnswers) {
         try (PDDocument pdf = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            pdf.addPage(page);
+            ExamLayout layout = render(pdf, exam, withAnswers);
 
-            PDPageContentStream content = new PDPageContentStream(pdf, page);
+            File directory = new File(GENERATED_DIRECTORY);
+            if (!directory.exists()) {
+                directory.mkdirs();
+            }
 
-            int y = START_Y;
+            String filename = withAnswers
+                    ? "exam_with_answers_" + exam.getId() + ".pdf"
+                    : "exam_" + exam.getId() + ".pdf";
 
-            // Add header with title
-            y = drawHeader(content, exam, withAnswers, y);
+            File output = new File(directory, filename);
+            pdf.save(output);
 
-            // Draw a horizontal line below header
-            drawHorizontalLine(content, MARGIN_LEFT, y - 10, PAGE_WIDTH - MARGIN_LEFT - MARGIN_RIGHT, 1);
-            y -= 20;
+            // Manifest of the handwritten fields, used to read the scans of this sheet
+            layout.save(layoutFile(output));
+            return output;
 
-            // Draw student information section - simplified with only student ID
-            y = drawStudentInfoSection(content, y);
-            y -= SECTION_SPACING;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
 
-            // Instructions with background
-            if (exam.getInstructions() != null && !exam.getInstructions().isEmpty()) {
-                y = drawInstructionsBox(content, exam.getInstructions(), y);
-                y -= SECTION_SPACING;
-            } else {
-                // Add default instructions about using red pen
-                String defaultInstructions = "INSTRUCTIONS: Veuillez écrire votre matricule (5 chiffres) et toutes vos réponses au STYLO ROUGE uniquement. " +
-                        "Les réponses écrites avec une autre couleur ne seront pas détectées par le système d'évaluation automatique.";
-                y = drawInstructionsBox(content, defaultInstructions, y);
-                y -= SECTION_SPACING;
-            }
+    /**
+     * Computes where the student ID and the answers are written on the sheet handed to students.
+     * The sheet is laid out exactly as by {@link #generatePDF(ExamDocument, boolean)} without answers, but not saved.
+     * @param exam The exam document
+     * @return The layout of the handwritten fields
+     * @throws IOException If the layout cannot be computed
+     */
+    public ExamLayout computeLayout(ExamDocument exam) throws IOException {
+        try (PDDocument pdf = new PDDocument()) {
+            return render(pdf, exam, false);
+        }
+    }
 
-            int questionNumber = 1;
-            for (Question question : exam.getQuestions()) {
-                // Check if we need a new page - estimate space needed for question and answer
-                int estimatedQuestionHeight = estimateTextHeight(question.getText(), TEXT_WIDTH);
-                int estimatedAnswerHeight = LINE_SPACING * 2 + ANSWER_SPACING;
-
-                if (y - estimatedQuestionHeight - estimatedAnswerHeight < BOTTOM_MARGIN) {
-                    content.close();
-                    page = new PDPage(PDRectangle.A4);
-                    pdf.addPage(page);
-                    content = new PDPageContentStream(pdf, page);
-
-                    // Add a simple header to continuation pages
-                    y = START_Y;
-                    drawContinuationHeader(content, exam.getTitle(), y);
-                    y -= HEADER_SPACING;
+    /**
+     * Gets the layout of the sheet handed to students.
+     * The manifest written with the generated PDF is used when it still matches the questions of the exam,
+     * otherwise the layout is computed again.
+     * @param exam The exam document
+     * @return The layout of the handwritten fields
+     * @throws IOException If the layout cannot be computed
+     */
+    public ExamLayout loadLayout(ExamDocument exam) throws IOException {
+        File manifest = layoutFile(new File(GENERATED_DIRECTORY, "exam_" + exam.getId() + ".pdf"));
+        if (manifest.isFile()) {
+            try {
+                ExamLayout layout = ExamLayout.load(manifest);
+                if (layout.matchesQuestions(questionIds(exam))) {
+                    return layout;
                 }
+            } catch (IOException e) {
+                System.err.println("Ignoring layout manifest: " + e.getMessage());
+            }
+        }
+        return computeLayout(exam);
+    }
 
-                // Draw question
-                content.setNonStrokingColor(TEXT_COLOR[0], TEXT_COLOR[1], TEXT_COLOR[2]);
-                String questionText = questionNumber + ". " + question.getText();
-                y = drawParagraphText(content, questionText, MARGIN_LEFT, y, PDType1Font.HELVETICA_BOLD, NORMAL_FONT_SIZE);
-                y -= 10; // Extra space between question and answer line
-
-                // Draw answer line
-                y = drawAnswerLine(content, y);
-
-                // Draw answers if requested
-                if (withAnswers) {
-                    y -= 5; // Add extra space before the answer text
-                    content.setNonStrokingColor(ANSWER_COLOR[0], ANSWER_COLOR[1], ANSWER_COLOR[2]);
-                    String answerText = "Réponse correcte : " + question.getCorrectAnswer();
-                    y = drawParagraphText(content, answerText, MARGIN_LEFT, y, PDType1Font.HELVETICA_OBLIQUE, SMALL_FONT_SIZE);
-
-                    // Reset color
-                    content.setNonStrokingColor(TEXT_COLOR[0], TEXT_COLOR[1], TEXT_COLOR[2]);
-                }
+    /**
+     * @return The manifest file written next to a generated PDF
+     */
+    private static File layoutFile(File pdfFile) {
+        String name = pdfFile.getName();
+        String baseName = name.endsWith(".pdf") ? name.substring(0, name.length() - 4) : name;
+        return new File(pdfFile.getParentFile(), baseName + ".layout.properties");
+    }
 
-                y -= SECTION_SPACING; // Space between questions
-                questionNumber++;
-            }
+    private static List<Long> questionIds(ExamDocument exam) {
+        List<Long> ids = new ArrayList<>();
+        for (Question question : exam.getQuestions()) {
+            ids.add(question.getId());
+        }
+        return ids;
+    }
 
-            // Add footer
-            drawFooter(content, pdf.getNumberOfPages());
+    /**
+     * Draws the exam sheet into a document.
+     * @return The layout of the handwritten fields
+     */
+    private ExamLayout render(PDDocument pdf, ExamDocument exam, boolean withAnswers) throws IOException {
+        List<ExamLayout.Box> answerBoxes = new ArrayList<>();
 
-            content.close();
+        PDPage page = new PDPage(PDRectangle.A4);
+        pdf.addPage(page);
 
-            String directoryPath = "generated-exam";
-            File directory = new File(directoryPath);
-            if (!directory.exists()) {
-                directory.mkdirs();
+        PDPageContentStream content = new PDPageContentStream(pdf, page);
+
+        int y = START_Y;
+
+        // Add header with title
+        y = drawHeader(content, exam, withAnswers, y);
+
+        // Draw a horizontal line below header
+        drawHorizontalLine(content, MARGIN_LEFT, y - 10, PAGE_WIDTH - MARGIN_LEFT - MARGIN_RIGHT, 1);
+        y -= 20;
+
+        // Draw student information section - simplified with only student ID
+        ExamLayout.Box matriculeBox = fieldBox(0, MATRICULE_LINE_X, y - 25, MATRICULE_LINE_WIDTH);
+        y = drawStudentInfoSection(content, y);
+        y -= SECTION_SPACING;
+
+        // Instructions with background
+        if (exam.getInstructions() != null && !exam.getInstructions().isEmpty()) {
+            y = drawInstructionsBox(content, exam.getInstructions(), y);
+            y -= SECTION_SPACING;
+        } else {
+            // Add default instructions about using red pen
+            String defaultInstructions = "INSTRUCTIONS: Veuillez écrire votre matricule (5 chiffres) et toutes vos réponses au STYLO ROUGE uniquement. " +
+                    "Les réponses écrites avec une autre couleur ne seront pas détectées par le système d'évaluation automatique.";
+            y = drawInstructionsBox(content, defaultInstructions, y);
+            y -= SECTION_SPACING;
+        }
+
+        int questionNumber = 1;
+        for (Question question : exam.getQuestions()) {
+            // Check if we need a new page - estimate space needed for question and answer
+            int estimatedQuestionHeight = estimateTextHeight(question.getText(), TEXT_WIDTH);
+            int estimatedAnswerHeight = LINE_SPACING * 2 + ANSWER_SPACING;
+
+            if (y - estimatedQuestionHeight - estimatedAnswerHeight < BOTTOM_MARGIN) {
+                content.close();
+                page = new PDPage(PDRectangle.A4);
+                pdf.addPage(page);
+                content = new PDPageContentStream(pdf, page);
+
+                // Add a simple header to continuation pages
+                y = START_Y;
+                drawContinuationHeader(content, exam.getTitle(), y);
+                y -= HEADER_SPACING;
             }
 
-            String filename = withAnswers
-                    ? "exam_with_answers_" + exam.getId() + ".pdf"
-                    : "exam_" + exam.getId() + ".pdf";
+            // Draw question
+            content.setNonStrokingColor(TEXT_COLOR[0], TEXT_COLOR[1], TEXT_COLOR[2]);
+            String questionText = questionNumber + ". " + question.getText();
+            y = drawParagraphText(content, questionText, MARGIN_LEFT, y, PDType1Font.HELVETICA_BOLD, NORMAL_FONT_SIZE);
+            y -= 10; // Extra space between question and answer line
 
-            File output = new File(directory, filename);
-            pdf.save(output);
-            return output;
+            // Draw answer line
+            answerBoxes.add(fieldBox(pdf.getNumberOfPages() - 1, MARGIN_LEFT, y, TEXT_WIDTH));
+            y = drawAnswerLine(content, y);
 
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
+            // Draw answers if requested
+            if (withAnswers) {
+                y -= 5; // Add extra space before the answer text
+                content.setNonStrokingColor(ANSWER_COLOR[0], ANSWER_COLOR[1], ANSWER_COLOR[2]);
+                String answerText = "Réponse correcte : " + question.getCorrectAnswer();
+                y = drawParagraphText(content, answerText, MARGIN_LEFT, y, PDType1Font.HELVETICA_OBLIQUE, SMALL_FONT_SIZE);
+
+                // Reset color
+                content.setNonStrokingColor(TEXT_COLOR[0], TEXT_COLOR[1], TEXT_COLOR[2]);
+            }
+
+            y -= SECTION_SPACING; // Space between questions
+            questionNumber++;
         }
+
+        // Add footer
+        drawFooter(content, pdf.getNumberOfPages());
+
+        content.close();
+
+        return new ExamLayout(pdf.getNumberOfPages(), matriculeBox, answerBoxes, questionIds(exam));
+    }
+
+    /**
+     * Area where a student writes on a line, from a bit below the line to the text above it.
+     * @param pageIndex Index of the page
+     * @param lineX Left end of the line in PDF coordinates
+     * @param lineY Height of the line in PDF coordinates (origin at the bottom)
+     * @param lineWidth Length of the line
+     * @return The box, with the origin at the top of the page
+     */
+    private ExamLayout.Box fieldBox(int pageIndex, float lineX, float lineY, float lineWidth) {
+        float top = lineY + FIELD_HEIGHT_ABOVE_LINE;
+        return new ExamLayout.Box(pageIndex,
+                lineX - FIELD_MARGIN,
+                ExamLayout.PAGE_HEIGHT - top,
+                lineWidth + 2 * FIELD_MARGIN,
+                FIELD_HEIGHT_ABOVE_LINE + FIELD_HEIGHT_BELOW_LINE);
     }
 
     /**
@@ -216,7 +311,7 @@ public class ExamDocumentTemplate {
         content.endText();
 
         // Draw a line for student ID
-        drawHorizontalLine(content, MARGIN_LEFT + 150, y - 25, 100, 0.5f);
+        drawHorizontalLine(content, MATRICULE_LINE_X, y - 25, MATRICULE_LINE_WIDTH, 0.5f);
 
         // Reset color
         content.setNonStrokingColor(TEXT_COLOR[0], TEXT_COLOR[1], TEXT_COLOR[2]);
@@ -0,0 +1,176 @@
+package be.esi.prj.easyeval.utils;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Position of the handwritten fields of a generated exam sheet.
+ * Boxes are in PDF points on an A4 page, with the origin at the top-left corner of the page.
+ */
+public class ExamLayout {
+    public static final float PAGE_WIDTH = 595;  // A4 width in points
+    public static final float PAGE_HEIGHT = 842; // A4 height in points
+
+    /**
+     * Area where a student writes by hand.
+     * @param pageIndex Index of the page, starting at 0
+     * @param x Left edge in points
+     * @param y Top edge in points
+     * @param width Width in points
+     * @param height Height in points
+     */
+    public record Box(int pageIndex, float x, float y, float width, float height) {
+    }
+
+    private final int pageCount;
+    private final Box matriculeBox;
+    private final List<Box> answerBoxes;
+    private final List<Long> questionIds;
+
+    /**
+     * Constructor
+     * @param pageCount Number of pages of the sheet
+     * @param matriculeBox Box of the student ID
+     * @param answerBoxes Box of each answer, in question order
+     * @param questionIds ID of the question of each answer box (null for unsaved questions)
+     */
+    public ExamLayout(int pageCount, Box matriculeBox, List<Box> answerBoxes, List<Long> questionIds) {
+        if (answerBoxes.size() != questionIds.size()) {
+            throw new IllegalArgumentException("One question ID is needed per answer box");
+        }
+        this.pageCount = pageCount;
+        this.matriculeBox = matriculeBox;
+        this.answerBoxes = List.copyOf(answerBoxes);
+        this.questionIds = Collections.unmodifiableList(new ArrayList<>(questionIds));
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public Box getMatriculeBox() {
+        return matriculeBox;
+    }
+
+    public List<Box> getAnswerBoxes() {
+        return answerBoxes;
+    }
+
+    public List<Long> getQuestionIds() {
+        return questionIds;
+    }
+
+    /**
+     * Checks that the layout was made for the given questions, in the same order.
+     * @param ids Question IDs of the exam
+     * @return true if the answer boxes match the questions
+     */
+    public boolean matchesQuestions(List<Long> ids) {
+        return questionIds.equals(ids);
+    }
+
+    /**
+     * @return true if the student ID and all answers are on the first page
+     */
+    public boolean isSinglePage() {
+        if (matriculeBox.pageIndex() != 0) {
+            return false;
+        }
+        for (Box box : answerBoxes) {
+            if (box.pageIndex() != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts a box to pixels on a scan of the whole page.
+     * @param box Box in points
+     * @param imageWidth Width of the upright scan
+     * @param imageHeight Height of the upright scan
+     * @return The box in pixels, clipped to the scan
+     */
+    public static Rectangle toPixels(Box box, int imageWidth, int imageHeight) {
+        int left = (int) Math.floor(box.x() * imageWidth / PAGE_WIDTH);
+        int top = (int) Math.floor(box.y() * imageHeight / PAGE_HEIGHT);
+        int right = (int) Math.ceil((box.x() + box.width()) * imageWidth / PAGE_WIDTH);
+        int bottom = (int) Math.ceil((box.y() + box.height()) * imageHeight / PAGE_HEIGHT);
+
+        return new Rectangle(left, top, right - left, bottom - top)
+                .intersection(new Rectangle(0, 0, imageWidth, imageHeight));
+    }
+
+    /**
+     * Writes the layout as a properties manifest.
+     * @param file Target file
+     * @throws IOException If the file cannot be written
+     */
+    public void save(File file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("pages", String.valueOf(pageCount));
+        properties.setProperty("matricule", format(matriculeBox));
+        properties.setProperty("answers", String.valueOf(answerBoxes.size()));
+        for (int i = 0; i < answerBoxes.size(); i++) {
+            properties.setProperty("answer." + i, format(answerBoxes.get(i)));
+            Long questionId = questionIds.get(i);
+            properties.setProperty("answer." + i + ".question", questionId != null ? questionId.toString() : "");
+        }
+
+        try (Writer writer = new FileWriter(file)) {
+            properties.store(writer, "easyEval exam sheet layout (points, origin at the top-left corner)");
+        }
+    }
+
+    /**
+     * Reads a manifest written by {@link #save(File)}.
+     * @param file Manifest file
+     * @return The layout
+     * @throws IOException If the file cannot be read or is malformed
+     */
+    public static ExamLayout load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(file)) {
+            properties.load(reader);
+        }
+
+        try {
+            int pageCount = Integer.parseInt(properties.getProperty("pages"));
+            Box matriculeBox = parse(properties.getProperty("matricule"));
+            int answerCount = Integer.parseInt(properties.getProperty("answers"));
+
+            List<Box> answerBoxes = new ArrayList<>();
+            List<Long> questionIds = new ArrayList<>();
+            for (int i = 0; i < answerCount; i++) {
+                answerBoxes.add(parse(properties.getProperty("answer." + i)));
+                String questionId = properties.getProperty("answer." + i + ".question", "");
+                questionIds.add(questionId.isEmpty() ? null : Long.valueOf(questionId));
+            }
+            return new ExamLayout(pageCount, matriculeBox, answerBoxes, questionIds);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed layout manifest: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private static String format(Box box) {
+        return box.pageIndex() + "," + box.x() + "," + box.y() + "," + box.width() + "," + box.height();
+    }
+
+    private static Box parse(String value) {
+        String[] parts = value.split(",");
+        return new Box(Integer.parseInt(parts[0].trim()),
+                Float.parseFloat(parts[1].trim()),
+                Float.parseFloat(parts[2].trim()),
+                Float.parseFloat(parts[3].trim()),
+                Float.parseFloat(parts[4].trim()));
+    }
+}
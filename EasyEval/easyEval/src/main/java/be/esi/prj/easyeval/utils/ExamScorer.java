@@ -0,0 +1,183 @@
+package be.esi.prj.easyeval.utils;
+
+import be.esi.prj.easyeval.model.ExamDocument;
+import be.esi.prj.easyeval.model.Question;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Grades the answers of the submissions of an exam, as {@link TextExtractor#cleanAnswer} and
+ * {@link TextExtractor#calculateSimilarity} do, without their allocations.
+ * The correct answers are normalized with the {@link NormalizationPolicy} of their question and compiled once
+ * for the exam. Each student answer is normalized with the same policy into a reused buffer, then compared with
+ * the exact edit distance: Myers' bit-parallel algorithm for correct answers of up to 64 characters,
+ * two rows of the Levenshtein matrix beyond. The similarity is stored as the confidence of the answer,
+ * so it is never estimated.
+ * A scorer keeps buffers between answers, so each OCR worker uses its own.
+ */
+public class ExamScorer {
+    /** Similarity from which an answer is correct */
+    public static final double PASS_THRESHOLD = 0.8;
+
+    // Characters left by the normalization: A-Z, 0-9 and space
+    private static final int ALPHABET_SIZE = 37;
+    private static final int WORD_SIZE = 64;
+
+    private final ExamDocument exam;
+    private final List<Question> questions;
+    private final NormalizationPolicy[] policies;
+    private final char[][] correctAnswers;
+    // Positions of each character in each correct answer, null for answers longer than a word
+    private final long[][] positionMasks;
+
+    private char[] answer = new char[WORD_SIZE];
+    private int[] previousRow = new int[0];
+    private int[] currentRow = new int[0];
+
+    /**
+     * Constructor, comparing the answers of each question with the policy stored with it
+     * @param exam Exam whose questions are graded, in order
+     */
+    public ExamScorer(ExamDocument exam) {
+        this(exam, NormalizationPolicy::forQuestion);
+    }
+
+    /**
+     * Constructor
+     * @param exam Exam whose questions are graded, in order
+     * @param policies Normalization of the answers of each question
+     */
+    public ExamScorer(ExamDocument exam, Function<Question, NormalizationPolicy> policies) {
+        this.exam = exam;
+        this.questions = exam.getQuestions();
+        this.policies = new NormalizationPolicy[questions.size()];
+        this.correctAnswers = new char[questions.size()][];
+        this.positionMasks = new long[questions.size()][];
+
+        for (int i = 0; i < questions.size(); i++) {
+            NormalizationPolicy policy = policies.apply(questions.get(i));
+            this.policies[i] = policy != null ? policy : NormalizationPolicy.STANDARD;
+            String correctAnswer = questions.get(i).getCorrectAnswer();
+            char[] normalized = new char[correctAnswer != null ? correctAnswer.length() : 0];
+            correctAnswers[i] = Arrays.copyOf(normalized,
+                    AnswerNormalizer.normalize(correctAnswer, normalized, this.policies[i]));
+
+            if (correctAnswers[i].length <= WORD_SIZE) {
+                long[] masks = new long[ALPHABET_SIZE];
+                for (int j = 0; j < correctAnswers[i].length; j++) {
+                    masks[symbol(correctAnswers[i][j])] |= 1L << j;
+                }
+                positionMasks[i] = masks;
+            }
+        }
+    }
+
+    /**
+     * @param exam An exam
+     * @return true if this scorer was compiled for this exam and its current questions
+     */
+    public boolean isCompiledFor(ExamDocument exam) {
+        return this.exam == exam && exam.getQuestions() == questions && questions.size() == correctAnswers.length;
+    }
+
+    /**
+     * Compares a student answer with the correct answer of a question.
+     * @param questionIndex Position of the question in the exam
+     * @param studentAnswer Answer read by OCR, may be null
+     * @return Similarity between 0.0 and 1.0, one minus the edit distance divided by the longest length
+     */
+    public double similarity(int questionIndex, String studentAnswer) {
+        if (studentAnswer != null && studentAnswer.length() > answer.length) {
+            answer = new char[Math.max(studentAnswer.length(), answer.length * 2)];
+        }
+        int answerLength = AnswerNormalizer.normalize(studentAnswer, answer, policies[questionIndex]);
+        char[] correctAnswer = correctAnswers[questionIndex];
+
+        if (Arrays.equals(correctAnswer, 0, correctAnswer.length, answer, 0, answerLength)) {
+            return 1.0;
+        }
+        int maxLength = Math.max(correctAnswer.length, answerLength);
+        if (correctAnswer.length == 0) {
+            return 0.0;
+        }
+
+        int distance = positionMasks[questionIndex] != null
+                ? bitParallelDistance(positionMasks[questionIndex], correctAnswer.length, answerLength)
+                : twoRowDistance(correctAnswer, answerLength);
+        return 1.0 - (double) distance / maxLength;
+    }
+
+    /**
+     * Myers' algorithm: the columns of the Levenshtein matrix are kept as bit vectors of vertical deltas,
+     * and each character of the answer updates the whole column at once.
+     * @return The edit distance
+     */
+    private int bitParallelDistance(long[] masks, int correctLength, int answerLength) {
+        long positive = -1L;
+        long negative = 0L;
+        long lastBit = 1L << (correctLength - 1);
+        int distance = correctLength;
+
+        for (int j = 0; j < answerLength; j++) {
+            long equal = masks[symbol(answer[j])];
+            long vertical = equal | negative;
+            long horizontal = (((equal & positive) + positive) ^ positive) | equal;
+            long horizontalPositive = negative | ~(horizontal | positive);
+            long horizontalNegative = positive & horizontal;
+
+            if ((horizontalPositive & lastBit) != 0) {
+                distance++;
+            } else if ((horizontalNegative & lastBit) != 0) {
+                distance--;
+            }
+
+            // The first row of the matrix grows by one at each character
+            horizontalPositive = (horizontalPositive << 1) | 1L;
+            horizontalNegative <<= 1;
+            positive = horizontalNegative | ~(vertical | horizontalPositive);
+            negative = horizontalPositive & vertical;
+        }
+        return distance;
+    }
+
+    /**
+     * Levenshtein distance keeping two rows of the matrix.
+     * @return The edit distance
+     */
+    private int twoRowDistance(char[] correctAnswer, int answerLength) {
+        int correctLength = correctAnswer.length;
+        if (previousRow.length <= correctLength) {
+            previousRow = new int[correctLength + 1];
+            currentRow = new int[correctLength + 1];
+        }
+        for (int k = 0; k <= correctLength; k++) {
+            previousRow[k] = k;
+        }
+
+        for (int j = 1; j <= answerLength; j++) {
+            currentRow[0] = j;
+            char c = answer[j - 1];
+            for (int k = 1; k <= correctLength; k++) {
+                int cost = correctAnswer[k - 1] == c ? 0 : 1;
+                currentRow[k] = Math.min(Math.min(previousRow[k] + 1, currentRow[k - 1] + 1), previousRow[k - 1] + cost);
+            }
+
+            int[] row = previousRow;
+            previousRow = currentRow;
+            currentRow = row;
+        }
+        return previousRow[correctLength];
+    }
+
+    private static int symbol(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + c - '0';
+        }
+        return 36;
+    }
+}
@@ -6,6 +6,8 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class responsible for image processing for OCR recognition.
@@ -17,6 +19,11 @@ public class ImageProcessor {
     private float hueThresholdHigh = 0.05f;  // Upper limit for red hue
     private float saturationThreshold = 0.2f; // Threshold for saturation
     private float brightnessThreshold = 0.2f; // Threshold for brightness
+    private RedInkFilter redInkFilter;
+
+    // Kernel used by the contrast enhancement
+    private BinaryMorphology.Shape dilationShape = BinaryMorphology.Shape.RECTANGLE;
+    private int dilationRadius = 2;
 
     private boolean enableDebug = false;
     private boolean enableRotationCorrection = true;
@@ -29,16 +36,16 @@ public class ImageProcessor {
      * @throws IOException If the file cannot be read
      */
     public BufferedImage loadAndPrepareImage(File imageFile) throws IOException {
-        if (!imageFile.exists() || !imageFile.canRead()) {
-            throw new IOException("Unable to read image file: " + imageFile.getAbsolutePath());
-        }
-
         // Load the image
-        BufferedImage originalImage = ImageIO.read(imageFile);
-        if (originalImage == null) {
-            throw new IOException("Unsupported image format: " + imageFile.getAbsolutePath());
-        }
+        return loadAndPrepareImage(loadImage(imageFile));
+    }
 
+    /**
+     * Prepares an already decoded scan, such as a rendered PDF page, for OCR processing.
+     * @param originalImage Decoded scan
+     * @return Prepared image
+     */
+    public BufferedImage loadAndPrepareImage(BufferedImage originalImage) {
         // Save the original image for debugging
         if (enableDebug) {
             saveDebugImage(originalImage, "original.png");
@@ -55,6 +62,105 @@ public class ImageProcessor {
         return originalImage;
     }
 
+    /**
+     * Loads a scan and prepares the zones used by OCR in a single pass.
+     * The page is rotated, masked and enhanced row by row, and only the zones are kept.
+     * @param imageFile Image file to process
+     * @return The prepared zones of the page
+     * @throws IOException If the file cannot be read
+     */
+    public PreparedPage preparePage(File imageFile) throws IOException {
+        return preparePage(loadImage(imageFile), null);
+    }
+
+    /**
+     * Loads a scan and prepares only the handwritten fields of the given sheet layout.
+     * @param imageFile Image file to process
+     * @param layout Layout of the exam sheet, or null to use the default zones
+     * @return The prepared zones of the page
+     * @throws IOException If the file cannot be read
+     */
+    public PreparedPage preparePage(File imageFile, ExamLayout layout) throws IOException {
+        return preparePage(loadImage(imageFile), layout);
+    }
+
+    /**
+     * Prepares the zones used by OCR from a decoded scan in a single pass.
+     * @param image Decoded scan
+     * @param layout Layout of the exam sheet, or null to use the default zones
+     * @return The prepared zones of the page
+     */
+    public PreparedPage preparePage(BufferedImage image, ExamLayout layout) {
+        // A landscape scan is turned to portrait mode
+        boolean rotate = enableRotationCorrection && image.getWidth() > image.getHeight();
+        int width = rotate ? image.getHeight() : image.getWidth();
+        int height = rotate ? image.getWidth() : image.getHeight();
+
+        ImageZones zones = divideImageIntoZones(width, height, layout);
+
+        // Pixels outside the regions are never read
+        List<Rectangle> regions = new ArrayList<>();
+        regions.add(zones.getMatriculeZone());
+        if (zones.hasAnswerBoxes()) {
+            regions.addAll(zones.getAnswerBoxes());
+        } else {
+            regions.add(zones.getQuestionsZone());
+        }
+
+        PagePreprocessor preprocessor = new PagePreprocessor(
+                getRedInkFilter(), enableImageEnhancement, dilationShape, dilationRadius);
+        PreparedPage page = new PreparedPage(width, height, zones, preprocessor.process(image, rotate, regions));
+
+        if (enableDebug) {
+            saveDebugImage(page.getMatriculeImage(), "prepared_matricule_zone.png");
+            saveDebugImage(page.getQuestionsImage(), "prepared_questions_zone.png");
+        }
+
+        return page;
+    }
+
+    /**
+     * Computes the functional zones of a page of the given size.
+     * @param width Width of the upright page
+     * @param height Height of the upright page
+     * @return Object containing the different zones
+     */
+    public ImageZones divideImageIntoZones(int width, int height) {
+        // Student ID zone: upper third of the image
+        Rectangle matriculeZone = new Rectangle(0, 0, width, height / 3);
+
+        // Questions zone: lower two-thirds of the image
+        Rectangle questionsZone = new Rectangle(0, height / 3, width, height * 2 / 3);
+
+        return new ImageZones(matriculeZone, questionsZone);
+    }
+
+    /**
+     * Computes the zones of a page from the layout of the exam sheet.
+     * The student ID zone and one box per answer come from the template, and the questions zone encloses all boxes.
+     * Falls back to the default zones when the layout is unknown or spans several pages.
+     * @param width Width of the upright page
+     * @param height Height of the upright page
+     * @param layout Layout of the exam sheet, or null
+     * @return Object containing the different zones
+     */
+    public ImageZones divideImageIntoZones(int width, int height, ExamLayout layout) {
+        if (layout == null || !layout.isSinglePage() || layout.getAnswerBoxes().isEmpty()) {
+            return divideImageIntoZones(width, height);
+        }
+
+        Rectangle matriculeZone = ExamLayout.toPixels(layout.getMatriculeBox(), width, height);
+        List<Rectangle> answerBoxes = new ArrayList<>();
+        Rectangle questionsZone = null;
+        for (ExamLayout.Box box : layout.getAnswerBoxes()) {
+            Rectangle answerBox = ExamLayout.toPixels(box, width, height);
+            answerBoxes.add(answerBox);
+            questionsZone = questionsZone == null ? answerBox : questionsZone.union(answerBox);
+        }
+
+        return new ImageZones(matriculeZone, questionsZone, answerBoxes);
+    }
+
     /**
      * Divides the image into functional zones: student ID zone and questions/answers zone.
      * @param image Image to divide
@@ -64,11 +170,9 @@ public class ImageProcessor {
         int height = image.getHeight();
         int width = image.getWidth();
 
-        // Student ID zone: upper third of the image
-        Rectangle matriculeZone = new Rectangle(0, 0, width, height / 3);
-
-        // Questions zone: lower two-thirds of the image
-        Rectangle questionsZone = new Rectangle(0, height / 3, width, height * 2 / 3);
+        ImageZones zones = divideImageIntoZones(width, height);
+        Rectangle matriculeZone = zones.getMatriculeZone();
+        Rectangle questionsZone = zones.getQuestionsZone();
 
         if (enableDebug) {
             // Create a copy of the image with highlighted zones
@@ -94,49 +198,17 @@ public class ImageProcessor {
             saveDebugImage(debugImage, "image_zones.png");
         }
 
-        return new ImageZones(matriculeZone, questionsZone);
+        return zones;
     }
 
     /**
      * Extracts only the red text from the image using the HSV color space.
      * @param image Original image
-     * @return Image containing only the red text
+     * @return Binary image containing only the red text, in black on white
      */
     public BufferedImage extractRedText(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-
-        // Create a new image with white background
-        BufferedImage redTextImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = redTextImage.createGraphics();
-        g.setColor(Color.WHITE);
-        g.fillRect(0, 0, width, height);
-        g.dispose();
-
-        float[] hsb = new float[3];
-
-        // Process all pixels
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color pixelColor = new Color(image.getRGB(x, y));
-
-                // Convert RGB to HSB
-                Color.RGBtoHSB(pixelColor.getRed(), pixelColor.getGreen(), pixelColor.getBlue(), hsb);
-                float hue = hsb[0];            // 0-1 (0 and 1 are red)
-                float saturation = hsb[1];     // 0-1
-                float brightness = hsb[2];     // 0-1
-
-                // Detect red pixels (hue close to 0 or 1)
-                boolean isRed = ((hue <= hueThresholdHigh || hue >= hueThresholdLow) &&
-                        saturation > saturationThreshold &&
-                        brightness > brightnessThreshold);
-
-                if (isRed) {
-                    // Preserve red pixels in black (for OCR)
-                    redTextImage.setRGB(x, y, Color.BLACK.getRGB());
-                }
-            }
-        }
+        // Red pixels in black (for OCR) on a white background
+        BufferedImage redTextImage = getRedInkFilter().apply(image);
 
         if (enableDebug) {
             saveDebugImage(redTextImage, "extracted_red_text.png");
@@ -155,51 +227,20 @@ public class ImageProcessor {
 
     /**
      * Enhances image contrast for better OCR recognition.
+     * Dark pixels are dilated with the configured kernel to strengthen thin strokes.
      * @param image Image to enhance
-     * @return Image with enhanced contrast
+     * @return Black and white image with enhanced contrast
      */
     public BufferedImage enhanceContrast(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = result.createGraphics();
-        g.setColor(Color.WHITE);
-        g.fillRect(0, 0, width, height);
-        g.dispose();
+        BitMatrix ink = BitMatrix.fromImage(image);
 
         // Dilation to strengthen lines
-        int kernelSize = 2;
-
-        for (int y = kernelSize; y < height - kernelSize; y++) {
-            for (int x = kernelSize; x < width - kernelSize; x++) {
-                boolean hasBlackPixel = false;
-
-                // Check neighboring pixels
-                for (int ky = -kernelSize; ky <= kernelSize && !hasBlackPixel; ky++) {
-                    for (int kx = -kernelSize; kx <= kernelSize && !hasBlackPixel; kx++) {
-                        int ny = y + ky;
-                        int nx = x + kx;
-
-                        if (ny >= 0 && ny < height && nx >= 0 && nx < width) {
-                            int rgb = image.getRGB(nx, ny);
-                            int avg = ((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF);
-                            avg /= 3;
-
-                            if (avg < 128) { // Black or dark pixel
-                                hasBlackPixel = true;
-                            }
-                        }
-                    }
-                }
+        BitMatrix dilated = BinaryMorphology.dilate(ink, dilationShape, dilationRadius);
 
-                if (hasBlackPixel) {
-                    result.setRGB(x, y, Color.BLACK.getRGB());
-                }
-            }
-        }
+        // Pixels closer to the edge than the kernel are left white
+        dilated.clearBorder(dilationRadius);
 
-        return result;
+        return dilated.toImage();
     }
 
     /**
@@ -222,6 +263,24 @@ public class ImageProcessor {
         return grayImage;
     }
 
+    /**
+     * Decodes an image file.
+     * @param imageFile Image file to read
+     * @return Decoded image
+     * @throws IOException If the file cannot be read or decoded
+     */
+    public BufferedImage loadImage(File imageFile) throws IOException {
+        if (!imageFile.exists() || !imageFile.canRead()) {
+            throw new IOException("Unable to read image file: " + imageFile.getAbsolutePath());
+        }
+
+        BufferedImage image = ImageIO.read(imageFile);
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + imageFile.getAbsolutePath());
+        }
+        return image;
+    }
+
     /**
      * Checks and corrects image orientation if necessary.
      * @param image Image to check
@@ -365,6 +424,16 @@ public class ImageProcessor {
         this.enableImageEnhancement = enabled;
     }
 
+    /**
+     * Adjusts the dilation kernel used by the contrast enhancement.
+     * @param shape Kernel shape
+     * @param radius Kernel radius in pixels (2 gives a 5x5 rectangle)
+     */
+    public void setDilationKernel(BinaryMorphology.Shape shape, int radius) {
+        this.dilationShape = shape;
+        this.dilationRadius = Math.max(0, radius);
+    }
+
     /**
      * Adjusts red detection parameters.
      * @param hueLow Lower limit for red hue (0.0-1.0)
@@ -377,5 +446,27 @@ public class ImageProcessor {
         this.hueThresholdHigh = hueHigh;
         this.saturationThreshold = saturation;
         this.brightnessThreshold = brightness;
+        this.redInkFilter = null;
+    }
+
+    /**
+     * Describes the settings that change the prepared images.
+     * @return A stable text made of the red detection parameters and the dilation kernel
+     */
+    public String getSettingsFingerprint() {
+        return "red=" + hueThresholdLow + "," + hueThresholdHigh + "," + saturationThreshold + "," + brightnessThreshold
+                + ";kernel=" + dilationShape + "," + dilationRadius;
+    }
+
+    /**
+     * Gets the red ink filter matching the current detection parameters.
+     * @return The shared filter for these parameters
+     */
+    private RedInkFilter getRedInkFilter() {
+        if (redInkFilter == null) {
+            redInkFilter = RedInkFilter.forParameters(
+                    hueThresholdLow, hueThresholdHigh, saturationThreshold, brightnessThreshold);
+        }
+        return redInkFilter;
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package be.esi.prj.easyeval.utils;
 
 import java.awt.Rectangle;
+import java.util.List;
 
 /**
  * Data class representing the different functional areas of an exam image.
@@ -8,6 +9,7 @@ import java.awt.Rectangle;
 public class ImageZones {
     private final Rectangle matriculeZone;
     private final Rectangle questionsZone;
+    private final List<Rectangle> answerBoxes;
 
     /**
      * Constructor
@@ -15,8 +17,19 @@ public class ImageZones {
      * @param questionsZone Zone where questions and answers are located
      */
     public ImageZones(Rectangle matriculeZone, Rectangle questionsZone) {
+        this(matriculeZone, questionsZone, List.of());
+    }
+
+    /**
+     * Constructor with the answer box of each question.
+     * @param matriculeZone Zone where the student ID is located
+     * @param questionsZone Zone where questions and answers are located, containing all answer boxes
+     * @param answerBoxes Zone of each answer, in question order
+     */
+    public ImageZones(Rectangle matriculeZone, Rectangle questionsZone, List<Rectangle> answerBoxes) {
         this.matriculeZone = matriculeZone;
         this.questionsZone = questionsZone;
+        this.answerBoxes = List.copyOf(answerBoxes);
     }
 
     /**
@@ -34,4 +47,19 @@ public class ImageZones {
     public Rectangle getQuestionsZone() {
         return questionsZone;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the answer box of each question, if known.
+     * @return Rectangles in question order, empty when only the questions zone is known
+     */
+    public List<Rectangle> getAnswerBoxes() {
+        return answerBoxes;
+    }
+
+    /**
+     * @return true if the answers are located by individual boxes
+     */
+    public boolean hasAnswerBoxes() {
+        return !answerBoxes.isEmpty();
+    }
+}
@@ -0,0 +1,77 @@
+package be.esi.prj.easyeval.utils;
+
+import be.esi.prj.easyeval.model.Question;
+
+import java.util.List;
+
+/**
+ * How the characters of an answer are compared by {@link AnswerNormalizer}.
+ * A policy folds each character to an upper case letter or a digit, or drops it as a word separator.
+ * Each question stores the name of its policy, see {@link #forQuestion(Question)}.
+ * Any other policy can be given to the scorer, as long as it only returns A-Z, 0-9 or {@link #SEPARATOR}.
+ */
+@FunctionalInterface
+public interface NormalizationPolicy {
+    /** Returned for a character that separates words */
+    char SEPARATOR = 0;
+
+    /**
+     * @param c Character of the answer
+     * @return The character compared, A-Z or 0-9, or {@link #SEPARATOR}
+     */
+    char fold(char c);
+
+    /** ASCII letters and digits, in upper case; anything else separates words */
+    NormalizationPolicy STANDARD = c -> {
+        if (c >= 'a' && c <= 'z') {
+            return (char) (c - 'a' + 'A');
+        }
+        if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+            return c;
+        }
+        return SEPARATOR;
+    };
+
+    /** As {@link #STANDARD}, with accented Latin letters compared as their base letter: "Réseau" equals "RESEAU" */
+    NormalizationPolicy ACCENT_FOLDING = c -> STANDARD.fold(AnswerNormalizer.baseLetter(c));
+
+    /** As {@link #STANDARD}, with the letters OCR confuses with digits read as digits: "1O5" equals "105" */
+    NormalizationPolicy NUMERIC = c -> {
+        char folded = STANDARD.fold(c);
+        return switch (folded) {
+            case 'O', 'Q', 'D' -> '0';
+            case 'I', 'L' -> '1';
+            case 'Z' -> '2';
+            case 'S' -> '5';
+            case 'G' -> '6';
+            case 'B' -> '8';
+            default -> folded;
+        };
+    };
+
+    /** Names of the policies a question can store, the first one is the default */
+    List<String> NAMES = List.of("standard", "accents", "numeric");
+
+    /**
+     * @param name Name of a policy, one of {@link #NAMES}
+     * @return The policy of that name
+     * @throws IllegalArgumentException If no policy has that name
+     */
+    static NormalizationPolicy named(String name) {
+        return switch (name) {
+            case "standard" -> STANDARD;
+            case "accents" -> ACCENT_FOLDING;
+            case "numeric" -> NUMERIC;
+            default -> throw new IllegalArgumentException("Unknown normalization policy: " + name);
+        };
+    }
+
+    /**
+     * @param question Question of an exam
+     * @return The policy stored with the question, {@link #STANDARD} when it has none
+     */
+    static NormalizationPolicy forQuestion(Question question) {
+        String name = question.getNormalization();
+        return name == null ? STANDARD : named(name);
+    }
+}
@@ -1,11 +1,14 @@
 package be.esi.prj.easyeval.utils;
 
 import be.esi.prj.easyeval.model.ExamDocument;
+import be.esi.prj.easyeval.model.Question;
 import be.esi.prj.easyeval.model.ScanResult;
 import be.esi.prj.easyeval.model.Submission;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.function.Function;
 
 /**
  * Interface for OCR operations.
@@ -27,6 +30,36 @@ public interface OCRProcessor {
      */
     Submission processExam(File scanFile, ExamDocument exam) throws IOException, Exception;
 
+    /**
+     * Processes an exam submission from an already decoded scan, such as a page of a batch PDF.
+     *
+     * @param scanImage The scanned page
+     * @param exam The exam document with questions
+     * @return A submission object with recognized answers
+     * @throws Exception If OCR processing fails
+     */
+    Submission processExam(BufferedImage scanImage, ExamDocument exam) throws Exception;
+
+    /**
+     * Preprocesses an already decoded scan without reading it: the image work of processExam.
+     * Together with {@link #recognize}, this lets the image work and OCR run on different threads.
+     *
+     * @param scanImage The scanned page
+     * @param exam The exam document with questions
+     * @return The zones of the page, ready for OCR
+     */
+    PreparedPage preparePage(BufferedImage scanImage, ExamDocument exam);
+
+    /**
+     * Reads the student ID and the answers of a preprocessed scan: the OCR work of processExam.
+     *
+     * @param page The page returned by {@link #preparePage}
+     * @param exam The exam document with questions
+     * @return A submission object with recognized answers
+     * @throws Exception If OCR processing fails
+     */
+    Submission recognize(PreparedPage page, ExamDocument exam) throws Exception;
+
     /**
      * Calculates score for a submission by comparing with correct answers.
      *
@@ -66,4 +99,37 @@ public interface OCRProcessor {
      * @param enabled true to enable debug mode
      */
     void setDebugMode(boolean enabled);
-}
\ No newline at end of file
+
+    /**
+     * Sets template zones option: answers are only read inside the boxes of the generated exam sheet.
+     *
+     * @param enabled true to locate answers with the exam template
+     */
+    void setTemplateZones(boolean enabled);
+
+    /**
+     * Sets how the answers of each question are normalized before being compared with the correct answer.
+     * By default, each question is compared with the policy stored with it.
+     *
+     * @param policies Normalization of each question, the standard one when it returns null
+     */
+    void setNormalizationPolicies(Function<Question, NormalizationPolicy> policies);
+
+    /**
+     * Prepares the OCR engines used by the current settings ahead of the first scan,
+     * so the first copies of a batch do not wait for the language data to load.
+     *
+     * @param engines Number of scans about to be read at the same time
+     */
+    default void warmUp(int engines) {
+    }
+
+    /**
+     * Describes every setting that changes what is read on a scan, used to key cached OCR results.
+     *
+     * @return A stable fingerprint, or null if results must not be cached
+     */
+    default String getSettingsFingerprint() {
+        return null;
+    }
+}
@@ -0,0 +1,191 @@
+package be.esi.prj.easyeval.utils;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fused preprocessing of a scanned page: rotation, red ink masking and dilation in a single pass.
+ * The page is streamed row by row through a rolling window of 2r+1 packed rows, where r is the dilation radius,
+ * and only the requested regions are written out. No full-size intermediate image is allocated.
+ * The result is the same as extracting the red text of the whole upright page, enhancing it and cropping each region.
+ */
+public class PagePreprocessor {
+    private final RedInkFilter redInkFilter;
+    private final boolean dilate;
+    private final BinaryMorphology.Shape shape;
+    private final int radius;
+
+    /**
+     * Constructor
+     * @param redInkFilter Filter used to detect red pixels
+     * @param dilate Whether to dilate the mask (contrast enhancement)
+     * @param shape Dilation kernel shape
+     * @param radius Dilation kernel radius in pixels
+     */
+    public PagePreprocessor(RedInkFilter redInkFilter, boolean dilate, BinaryMorphology.Shape shape, int radius) {
+        this.redInkFilter = redInkFilter;
+        this.dilate = dilate && radius > 0;
+        this.shape = shape;
+        this.radius = this.dilate ? radius : 0;
+    }
+
+    /**
+     * Builds the red ink mask of some regions of a page.
+     * @param source Decoded scan
+     * @param rotate Whether the scan must be turned 90 degrees clockwise to be upright
+     * @param regions Regions of the upright page to keep
+     * @return The mask of each region, cropped to the page
+     */
+    public Map<Rectangle, BitMatrix> process(BufferedImage source, boolean rotate, List<Rectangle> regions) {
+        int pageWidth = rotate ? source.getHeight() : source.getWidth();
+        int pageHeight = rotate ? source.getWidth() : source.getHeight();
+        Rectangle page = new Rectangle(0, 0, pageWidth, pageHeight);
+
+        Map<Rectangle, BitMatrix> masks = new LinkedHashMap<>();
+        List<Rectangle> areas = new ArrayList<>();
+        List<BitMatrix> targets = new ArrayList<>();
+        Rectangle window = null;
+
+        for (Rectangle region : regions) {
+            if (masks.containsKey(region)) {
+                continue;
+            }
+            Rectangle area = region.intersection(page);
+            if (area.isEmpty()) {
+                // Same as an empty subimage
+                masks.put(region, new BitMatrix(1, 1));
+                continue;
+            }
+
+            BitMatrix mask = new BitMatrix(area.width, area.height);
+            masks.put(region, mask);
+            areas.add(area);
+            targets.add(mask);
+
+            // Pixels up to r outside a region can still dilate into it
+            Rectangle needed = new Rectangle(area.x - radius, area.y - radius,
+                    area.width + 2 * radius, area.height + 2 * radius).intersection(page);
+            window = window == null ? needed : window.union(needed);
+        }
+
+        if (window != null) {
+            stream(RgbSource.of(source), rotate, pageWidth, pageHeight, window, areas, targets);
+        }
+        return masks;
+    }
+
+    private void stream(RgbSource pixels, boolean rotate, int pageWidth, int pageHeight,
+                        Rectangle window, List<Rectangle> areas, List<BitMatrix> targets) {
+        int words = (window.width + 63) >>> 6;
+        int span = 2 * radius + 1;
+
+        // Half-length of the kernel on each row of the window, and one buffer per distinct half-length
+        int[] halfWidths = new int[span];
+        int[] bufferOf = new int[radius + 1];
+        Arrays.fill(bufferOf, -1);
+        int distinct = 0;
+        for (int dy = -radius; dy <= radius; dy++) {
+            int halfWidth = radius == 0 ? 0 : BinaryMorphology.halfWidth(shape, radius, dy);
+            halfWidths[dy + radius] = halfWidth;
+            if (bufferOf[halfWidth] < 0) {
+                bufferOf[halfWidth] = distinct++;
+            }
+        }
+
+        long[][][] ring = new long[span][distinct][words];
+        long[] raw = new long[words];
+        long[] scratch = new long[words];
+        long[] out = new long[words];
+        int[] rgb = new int[window.width];
+        long tail = window.width % 64 == 0 ? -1L : (1L << window.width) - 1;
+
+        int top = window.y;
+        int bottom = window.y + window.height;
+
+        for (int y = top; y < bottom + radius; y++) {
+            if (y < bottom) {
+                Arrays.fill(raw, 0L);
+                readPageRow(pixels, rotate, window.x, y, window.width, rgb);
+                redInkFilter.classify(rgb, window.width, raw, 0);
+
+                long[][] slot = ring[(y - top) % span];
+                for (int halfWidth = 0; halfWidth <= radius; halfWidth++) {
+                    if (bufferOf[halfWidth] >= 0) {
+                        long[] segment = slot[bufferOf[halfWidth]];
+                        System.arraycopy(raw, 0, segment, 0, words);
+                        BinaryMorphology.dilateRow(segment, 0, scratch, words, halfWidth);
+                    }
+                }
+            }
+
+            // The row r lines above is now complete
+            int outY = y - radius;
+            if (outY < top) {
+                continue;
+            }
+            if (dilate && (outY < radius || outY >= pageHeight - radius)) {
+                // Rows closer to the edge than the kernel stay white
+                continue;
+            }
+
+            Arrays.fill(out, 0L);
+            for (int dy = -radius; dy <= radius; dy++) {
+                int sourceY = outY + dy;
+                if (sourceY < top || sourceY >= bottom) {
+                    continue;
+                }
+                long[] segment = ring[(sourceY - top) % span][bufferOf[halfWidths[dy + radius]]];
+                for (int w = 0; w < words; w++) {
+                    out[w] |= segment[w];
+                }
+            }
+            out[words - 1] &= tail;
+
+            if (dilate) {
+                clearBits(out, 0, radius - window.x);
+                clearBits(out, pageWidth - radius - window.x, window.width);
+            }
+
+            for (int i = 0; i < areas.size(); i++) {
+                Rectangle area = areas.get(i);
+                if (outY >= area.y && outY < area.y + area.height) {
+                    targets.get(i).copyRow(outY - area.y, out, 0, words, area.x - window.x);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a run of pixels of the upright page.
+     * When rotated, page pixel (x, y) is scan pixel (y, scanHeight - 1 - x).
+     */
+    private static void readPageRow(RgbSource pixels, boolean rotate, int x, int y, int length, int[] rgb) {
+        if (!rotate) {
+            pixels.readRow(x, y, length, rgb);
+            return;
+        }
+
+        pixels.readColumn(y, pixels.getHeight() - x - length, length, rgb);
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int swap = rgb[i];
+            rgb[i] = rgb[j];
+            rgb[j] = swap;
+        }
+    }
+
+    /**
+     * Clears the bits in [from, to) of a packed row.
+     */
+    private static void clearBits(long[] row, int from, int to) {
+        from = Math.max(0, from);
+        to = Math.min(row.length << 6, to);
+        for (int x = from; x < to; x++) {
+            row[x >>> 6] &= ~(1L << x);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package be.esi.prj.easyeval.utils;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Scanned pages of a batch PDF, as produced by the copier.
+ * Pages are rendered one at a time, only when asked, and the document buffers are kept in temporary files,
+ * so memory does not grow with the number of pages.
+ */
+public class PdfScanSource implements AutoCloseable {
+    public static final float DEFAULT_DPI = 200;
+
+    private final File pdfFile;
+    private final PDDocument document;
+    private final PDFRenderer renderer;
+    private final float dpi;
+    private final ImageType imageType;
+
+    /**
+     * Opens a batch PDF rendered in colour at the default resolution.
+     * @param pdfFile Scanned PDF file
+     * @throws IOException If the file cannot be read
+     */
+    public PdfScanSource(File pdfFile) throws IOException {
+        this(pdfFile, DEFAULT_DPI);
+    }
+
+    /**
+     * Opens a batch PDF rendered in colour.
+     * @param pdfFile Scanned PDF file
+     * @param dpi Rendering resolution
+     * @throws IOException If the file cannot be read
+     */
+    public PdfScanSource(File pdfFile, float dpi) throws IOException {
+        this(pdfFile, dpi, ImageType.RGB);
+    }
+
+    /**
+     * Opens a batch PDF.
+     * @param pdfFile Scanned PDF file
+     * @param dpi Rendering resolution
+     * @param imageType Raster type of the rendered pages, RGB is needed to detect red ink
+     * @throws IOException If the file cannot be read
+     */
+    public PdfScanSource(File pdfFile, float dpi, ImageType imageType) throws IOException {
+        if (!pdfFile.exists() || !pdfFile.canRead()) {
+            throw new IOException("Unable to read PDF file: " + pdfFile.getAbsolutePath());
+        }
+        this.pdfFile = pdfFile;
+        this.dpi = dpi;
+        this.imageType = imageType;
+        this.document = PDDocument.load(pdfFile, MemoryUsageSetting.setupTempFileOnly());
+        this.renderer = new PDFRenderer(document);
+
+        // Scanned images larger than the target resolution are decoded subsampled
+        renderer.setSubsamplingAllowed(true);
+    }
+
+    /**
+     * @param file Any file
+     * @return true if the file name has the PDF extension
+     */
+    public static boolean isPdf(File file) {
+        return file.getName().toLowerCase().endsWith(".pdf");
+    }
+
+    public File getFile() {
+        return pdfFile;
+    }
+
+    public int getPageCount() {
+        return document.getNumberOfPages();
+    }
+
+    /**
+     * Renders one page.
+     * @param pageIndex Index of the page, starting at 0
+     * @return The page raster, not kept by this source
+     * @throws IOException If the page cannot be rendered
+     */
+    public BufferedImage renderPage(int pageIndex) throws IOException {
+        if (pageIndex < 0 || pageIndex >= getPageCount()) {
+            throw new IOException("Page " + (pageIndex + 1) + " does not exist in " + pdfFile.getName());
+        }
+        return renderer.renderImageWithDPI(pageIndex, dpi, imageType);
+    }
+
+    @Override
+    public void close() throws IOException {
+        document.close();
+    }
+}
@@ -0,0 +1,97 @@
+package be.esi.prj.easyeval.utils;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of the preprocessing of a scanned page: its zones and the red ink mask of each zone.
+ * Only the zones are kept, not the full page. When the page has answer boxes,
+ * only the boxes of the questions zone are prepared.
+ */
+public class PreparedPage {
+    private final int width;
+    private final int height;
+    private final ImageZones zones;
+    private final Map<Rectangle, BitMatrix> masks;
+
+    /**
+     * Constructor
+     * @param width Width of the upright page
+     * @param height Height of the upright page
+     * @param zones Zones of the page
+     * @param masks Mask of each preprocessed region, cropped to the region
+     */
+    public PreparedPage(int width, int height, ImageZones zones, Map<Rectangle, BitMatrix> masks) {
+        this.width = width;
+        this.height = height;
+        this.zones = zones;
+        this.masks = masks;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public ImageZones getZones() {
+        return zones;
+    }
+
+    /**
+     * Gets the mask of a region, in black on white.
+     * @param region One of the regions the page was prepared for
+     * @return The cropped mask of the region
+     */
+    public BufferedImage getImage(Rectangle region) {
+        BitMatrix mask = masks.get(region);
+        if (mask == null) {
+            throw new IllegalArgumentException("Region was not prepared: " + region);
+        }
+        return mask.toImage();
+    }
+
+    /**
+     * @return The mask of the student ID zone
+     */
+    public BufferedImage getMatriculeImage() {
+        return getImage(zones.getMatriculeZone());
+    }
+
+    /**
+     * @return The mask of the questions/answers zone
+     */
+    public BufferedImage getQuestionsImage() {
+        if (!zones.hasAnswerBoxes()) {
+            return getImage(zones.getQuestionsZone());
+        }
+
+        // Only the answer boxes were prepared, everything else in the zone stays white
+        Rectangle zone = zones.getQuestionsZone();
+        BitMatrix questions = new BitMatrix(Math.max(1, zone.width), Math.max(1, zone.height));
+        for (Rectangle box : zones.getAnswerBoxes()) {
+            BitMatrix mask = masks.get(box);
+            if (mask != null && !box.isEmpty()) {
+                questions.paste(mask, box.x - zone.x, box.y - zone.y);
+            }
+        }
+        return questions.toImage();
+    }
+
+    /**
+     * Gets the mask of each answer box.
+     * @return Images in question order, empty when the page has no answer boxes
+     */
+    public List<BufferedImage> getAnswerImages() {
+        List<BufferedImage> images = new ArrayList<>();
+        for (Rectangle box : zones.getAnswerBoxes()) {
+            images.add(getImage(box));
+        }
+        return images;
+    }
+}
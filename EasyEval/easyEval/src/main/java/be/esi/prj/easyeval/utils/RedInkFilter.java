@@ -0,0 +1,134 @@
+package be.esi.prj.easyeval.utils;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Detects red ink pixels and writes them into a binary mask.
+ * The HSV test is evaluated once for every 24-bit color and stored in a lookup table,
+ * so classifying a pixel is a single bit read with no conversion and no allocation.
+ * The table is built with {@link Color#RGBtoHSB}, which gives exactly the same result as testing each pixel in HSV.
+ */
+public final class RedInkFilter {
+    private static final int COLOR_COUNT = 1 << 24;
+
+    // One table per parameter set, shared by the whole process
+    private static final Map<Parameters, RedInkFilter> FILTERS = new ConcurrentHashMap<>();
+
+    private final long[] redColors;
+
+    /**
+     * Red detection thresholds, see {@link ImageProcessor#setRedDetectionParameters}.
+     */
+    private record Parameters(float hueLow, float hueHigh, float saturation, float brightness) {
+    }
+
+    private RedInkFilter(Parameters parameters) {
+        redColors = buildTable(parameters);
+    }
+
+    /**
+     * Gets the filter for the given thresholds, building its lookup table on first use.
+     * @param hueLow Lower limit for red hue (0.0-1.0)
+     * @param hueHigh Upper limit for red hue (0.0-1.0)
+     * @param saturation Threshold for saturation (0.0-1.0)
+     * @param brightness Threshold for brightness (0.0-1.0)
+     * @return The shared filter
+     */
+    public static RedInkFilter forParameters(float hueLow, float hueHigh, float saturation, float brightness) {
+        return FILTERS.computeIfAbsent(new Parameters(hueLow, hueHigh, saturation, brightness), RedInkFilter::new);
+    }
+
+    /**
+     * Checks whether a color is red ink. The alpha channel is ignored.
+     * @param rgb Color in the default RGB model
+     * @return true if the color is red ink
+     */
+    public boolean isRed(int rgb) {
+        int index = rgb & 0xFFFFFF;
+        return (redColors[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Builds a binary mask of the red ink of an image.
+     * Red pixels are black (index 0) and all other pixels are white (index 1).
+     * @param image Source image
+     * @return A TYPE_BYTE_BINARY mask of the same size
+     */
+    public BufferedImage apply(BufferedImage image) {
+        return mask(image).toImage();
+    }
+
+    /**
+     * Builds a packed mask of the red ink of an image.
+     * @param image Source image
+     * @return A matrix of the same size where red pixels are ink
+     */
+    public BitMatrix mask(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BitMatrix mask = new BitMatrix(width, height);
+        long[] words = mask.words();
+        int wordsPerRow = mask.wordsPerRow();
+
+        RgbSource source = RgbSource.of(image);
+        int[] row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            source.readRow(0, y, width, row);
+            classify(row, width, words, y * wordsPerRow);
+        }
+
+        return mask;
+    }
+
+    /**
+     * Sets the bits of the red pixels of a run of colors. The target bits must be cleared beforehand.
+     * @param rgb Colors to classify
+     * @param length Number of colors
+     * @param words Packed row receiving one bit per color
+     * @param offset Index of the first word of the row
+     */
+    void classify(int[] rgb, int length, long[] words, int offset) {
+        for (int x = 0; x < length; x++) {
+            if (isRed(rgb[x])) {
+                words[offset + (x >>> 6)] |= 1L << x;
+            }
+        }
+    }
+
+    /**
+     * Evaluates the HSV test for all 2^24 colors, one bit per color.
+     * Each red value owns a disjoint range of words, so the rows are filled in parallel.
+     */
+    private static long[] buildTable(Parameters parameters) {
+        long[] table = new long[COLOR_COUNT >>> 6];
+
+        IntStream.range(0, 256).parallel().forEach(red -> {
+            float[] hsb = new float[3];
+            for (int green = 0; green < 256; green++) {
+                for (int blue = 0; blue < 256; blue++) {
+                    Color.RGBtoHSB(red, green, blue, hsb);
+                    float hue = hsb[0];            // 0-1 (0 and 1 are red)
+                    float saturation = hsb[1];     // 0-1
+                    float brightness = hsb[2];     // 0-1
+
+                    // Detect red pixels (hue close to 0 or 1)
+                    boolean isRed = ((hue <= parameters.hueHigh() || hue >= parameters.hueLow()) &&
+                            saturation > parameters.saturation() &&
+                            brightness > parameters.brightness());
+
+                    if (isRed) {
+                        int index = (red << 16) | (green << 8) | blue;
+                        table[index >>> 6] |= 1L << index;
+                    }
+                }
+            }
+        });
+
+        return table;
+    }
+}
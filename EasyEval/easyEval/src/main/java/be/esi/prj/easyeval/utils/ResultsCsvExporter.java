@@ -0,0 +1,91 @@
+package be.esi.prj.easyeval.utils;
+
+import be.esi.prj.easyeval.model.ExamDocument;
+import be.esi.prj.easyeval.model.Question;
+import be.esi.prj.easyeval.model.ScanResult;
+import be.esi.prj.easyeval.model.Submission;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the results of the graded submissions of an exam to a CSV file,
+ * one line per submission with its score, the average confidence and each answer next to the correct one.
+ * Used by the submission view and by the {@code HeadlessGrader}.
+ */
+public final class ResultsCsvExporter {
+
+    private ResultsCsvExporter() {
+    }
+
+    /**
+     * Exports results to a CSV file named after the exam and the current time.
+     *
+     * @param exam        The exam the submissions belong to
+     * @param submissions The graded submissions, in the order of the lines
+     * @param results     The scan results of the submissions, a submission without result is skipped
+     * @param directory   Directory to save the CSV file
+     * @return The generated CSV file
+     * @throws IOException If file cannot be written
+     */
+    public static File export(ExamDocument exam, List<Submission> submissions, List<ScanResult> results,
+                              File directory) throws IOException {
+        if (directory == null || !directory.isDirectory()) {
+            throw new IOException("Invalid directory");
+        }
+
+        Map<Long, ScanResult> resultsBySubmission = new HashMap<>();
+        for (ScanResult result : results) {
+            resultsBySubmission.putIfAbsent(result.getSubmissionId(), result);
+        }
+
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String examName = exam.getTitle().replaceAll("[^a-zA-Z0-9]", "_");
+        File csvFile = new File(directory, examName + "_results_" + timestamp + ".csv");
+
+        try (FileWriter writer = new FileWriter(csvFile)) {
+            writer.write("StudentID,Score (%),ConfidenceLevel (%)");
+
+            for (Question question : exam.getQuestions()) {
+                writer.write(",Q" + question.getId() + "_Answer,Q" + question.getId() + "_Correct");
+            }
+            writer.write("\n");
+
+            for (Submission submission : submissions) {
+                ScanResult scanResult = resultsBySubmission.get(submission.getId());
+                if (scanResult == null) continue;
+
+                writer.write(submission.getStudentId() + ",");
+                writer.write(String.format("%.2f", scanResult.getScore()) + ",");
+
+                double avgConfidence = 0;
+                int confidenceCount = 0;
+                for (Double confidence : scanResult.getConfidenceLevels().values()) {
+                    avgConfidence += confidence;
+                    confidenceCount++;
+                }
+                avgConfidence = confidenceCount > 0 ? avgConfidence / confidenceCount : 0;
+                writer.write(String.format("%.2f", avgConfidence));
+
+                // Write answers and correct answers for each question
+                for (Question question : exam.getQuestions()) {
+                    String studentAnswer = submission.getAnswer(question.getId());
+                    String correctAnswer = question.getCorrectAnswer();
+
+                    writer.write("," + (studentAnswer != null ? studentAnswer : ""));
+                    writer.write("," + correctAnswer);
+                }
+
+                writer.write("\n");
+            }
+        }
+
+        return csvFile;
+    }
+}
@@ -0,0 +1,134 @@
+package be.esi.prj.easyeval.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Reads runs of pixels of an image as packed RGB values.
+ * INT_RGB, INT_ARGB, 3BYTE_BGR and 4BYTE_ABGR images are read straight from their data buffer;
+ * other types go through the color model with {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+ * The alpha byte of the returned values is not significant.
+ */
+final class RgbSource {
+    private final BufferedImage image;
+
+    // Packed int pixels
+    private final int[] intPixels;
+
+    // Interleaved byte pixels
+    private final byte[] bytePixels;
+    private final int pixelStride;
+    private final int redOffset;
+    private final int greenOffset;
+    private final int blueOffset;
+
+    private final int origin;
+    private final int scanlineStride;
+
+    private RgbSource(BufferedImage image) {
+        this.image = image;
+
+        Raster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        int type = image.getType();
+
+        if (buffer instanceof DataBufferInt intBuffer
+                && (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)) {
+            intPixels = intBuffer.getData();
+            bytePixels = null;
+            scanlineStride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            pixelStride = 1;
+            redOffset = greenOffset = blueOffset = 0;
+        } else if (buffer instanceof DataBufferByte byteBuffer
+                && (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR)) {
+            ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+            int[] bandOffsets = sampleModel.getBandOffsets();
+            intPixels = null;
+            bytePixels = byteBuffer.getData();
+            scanlineStride = sampleModel.getScanlineStride();
+            pixelStride = sampleModel.getPixelStride();
+            redOffset = bandOffsets[0];
+            greenOffset = bandOffsets[1];
+            blueOffset = bandOffsets[2];
+        } else {
+            intPixels = null;
+            bytePixels = null;
+            scanlineStride = 0;
+            pixelStride = 0;
+            redOffset = greenOffset = blueOffset = 0;
+            origin = 0;
+            return;
+        }
+
+        // Subimages share the parent buffer and start at a translated position
+        origin = buffer.getOffset()
+                - raster.getSampleModelTranslateY() * scanlineStride
+                - raster.getSampleModelTranslateX() * pixelStride;
+    }
+
+    static RgbSource of(BufferedImage image) {
+        return new RgbSource(image);
+    }
+
+    int getWidth() {
+        return image.getWidth();
+    }
+
+    int getHeight() {
+        return image.getHeight();
+    }
+
+    /**
+     * Reads a horizontal run of pixels.
+     * @param x First column
+     * @param y Row
+     * @param length Number of pixels
+     * @param out Receives the pixel at (x + i, y) in out[i]
+     */
+    void readRow(int x, int y, int length, int[] out) {
+        if (intPixels != null) {
+            System.arraycopy(intPixels, origin + y * scanlineStride + x, out, 0, length);
+        } else if (bytePixels != null) {
+            int pixel = origin + y * scanlineStride + x * pixelStride;
+            for (int i = 0; i < length; i++, pixel += pixelStride) {
+                out[i] = rgb(pixel);
+            }
+        } else {
+            image.getRGB(x, y, length, 1, out, 0, length);
+        }
+    }
+
+    /**
+     * Reads a vertical run of pixels.
+     * @param x Column
+     * @param y First row
+     * @param length Number of pixels
+     * @param out Receives the pixel at (x, y + i) in out[i]
+     */
+    void readColumn(int x, int y, int length, int[] out) {
+        if (intPixels != null) {
+            int pixel = origin + y * scanlineStride + x;
+            for (int i = 0; i < length; i++, pixel += scanlineStride) {
+                out[i] = intPixels[pixel];
+            }
+        } else if (bytePixels != null) {
+            int pixel = origin + y * scanlineStride + x * pixelStride;
+            for (int i = 0; i < length; i++, pixel += scanlineStride) {
+                out[i] = rgb(pixel);
+            }
+        } else {
+            image.getRGB(x, y, 1, length, out, 0, 1);
+        }
+    }
+
+    private int rgb(int pixel) {
+        return (bytePixels[pixel + redOffset] & 0xFF) << 16
+                | (bytePixels[pixel + greenOffset] & 0xFF) << 8
+                | (bytePixels[pixel + blueOffset] & 0xFF);
+    }
+}
@@ -0,0 +1,220 @@
+package be.esi.prj.easyeval.utils;
+
+import net.sourceforge.tess4j.ITesseract;
+import net.sourceforge.tess4j.Tesseract;
+
+import java.io.File;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Process-wide pool of pre-configured Tesseract engines.
+ * Each profile keeps its own idle engines, so a borrowed engine never needs to be reconfigured.
+ * Engines stay initialized between calls: the language data is loaded once per engine, not once per OCR call.
+ */
+public class TesseractPool {
+
+    /**
+     * Fixed OCR configurations handed out by the pool.
+     */
+    public enum Profile {
+        /** Single line of digits, used for the student ID. */
+        MATRICULE(7, "0123456789"),
+        /** Block of text, used for the answers zone. */
+        ANSWERS(6, "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789.,;:!?()-"),
+        /** Single line of text, used for one answer box. */
+        LINE(7, "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789.,;:!?()-");
+
+        private final int pageSegMode;
+        private final String whitelist;
+
+        Profile(int pageSegMode, String whitelist) {
+            this.pageSegMode = pageSegMode;
+            this.whitelist = whitelist;
+        }
+
+        public int getPageSegMode() {
+            return pageSegMode;
+        }
+
+        public String getWhitelist() {
+            return whitelist;
+        }
+    }
+
+    // Possible paths for Tesseract data
+    private static final String[] TESSDATA_PATHS = {
+            "src/main/resources/be/esi/prj/easyeval/data/tessdata",
+            "data/tessdata",
+            "tessdata",
+            System.getProperty("user.dir") + "/src/main/resources/be/esi/prj/easyeval/data/tessdata",
+            System.getProperty("user.dir") + "/data/tessdata",
+            System.getProperty("user.dir") + "/tessdata"
+    };
+
+    private static final String LANGUAGE = "fra";
+
+    private static TesseractPool instance;
+
+    private final String tessdataPath;
+    private final int maxIdlePerProfile;
+    private final Map<Profile, BlockingQueue<PersistentTesseract>> idle = new EnumMap<>(Profile.class);
+
+    /**
+     * Private constructor for singleton pattern.
+     */
+    private TesseractPool(int maxIdlePerProfile) {
+        this.tessdataPath = resolveTessdataPath();
+        this.maxIdlePerProfile = maxIdlePerProfile;
+        for (Profile profile : Profile.values()) {
+            idle.put(profile, new ArrayBlockingQueue<>(maxIdlePerProfile));
+        }
+    }
+
+    /**
+     * Get the singleton instance of the pool.
+     * At most one idle engine per CPU core is kept for each profile.
+     * @return The TesseractPool instance
+     */
+    public static synchronized TesseractPool getInstance() {
+        if (instance == null) {
+            instance = new TesseractPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::shutdown, "tesseract-pool-shutdown"));
+        }
+        return instance;
+    }
+
+    /**
+     * @return The tessdata directory used by every engine of the pool
+     */
+    public String getTessdataPath() {
+        return tessdataPath;
+    }
+
+    /**
+     * Borrows an engine configured for the given profile.
+     * A new engine is created when no idle one is available.
+     * @param profile The configuration needed
+     * @return An engine that must be given back with {@link #release(Profile, ITesseract)}
+     */
+    public ITesseract borrow(Profile profile) {
+        PersistentTesseract tesseract = idle.get(profile).poll();
+        return tesseract != null ? tesseract : create(profile);
+    }
+
+    /**
+     * Gives back an engine previously borrowed for the given profile.
+     * The engine is shut down if the pool already holds enough idle engines.
+     * @param profile The profile the engine was borrowed for
+     * @param tesseract The engine to give back
+     */
+    public void release(Profile profile, ITesseract tesseract) {
+        if (!(tesseract instanceof PersistentTesseract persistent)) {
+            return;
+        }
+        if (!idle.get(profile).offer(persistent)) {
+            persistent.shutdown();
+        }
+    }
+
+    /**
+     * Creates the given number of idle engines per profile ahead of the first scan.
+     * @param count Number of engines per profile
+     * @param profiles Profiles about to be used
+     */
+    public void warmUp(int count, Profile... profiles) {
+        for (Profile profile : profiles) {
+            BlockingQueue<PersistentTesseract> queue = idle.get(profile);
+            for (int i = queue.size(); i < Math.min(count, maxIdlePerProfile); i++) {
+                PersistentTesseract tesseract = create(profile);
+                tesseract.warmUp();
+                if (!queue.offer(tesseract)) {
+                    tesseract.shutdown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the native resources of all idle engines.
+     */
+    public void shutdown() {
+        for (BlockingQueue<PersistentTesseract> queue : idle.values()) {
+            PersistentTesseract tesseract;
+            while ((tesseract = queue.poll()) != null) {
+                tesseract.shutdown();
+            }
+        }
+    }
+
+    private PersistentTesseract create(Profile profile) {
+        PersistentTesseract tesseract = new PersistentTesseract();
+        tesseract.setDatapath(tessdataPath);
+        tesseract.setLanguage(LANGUAGE);
+        tesseract.setPageSegMode(profile.getPageSegMode());
+        tesseract.setVariable("tessedit_char_whitelist", profile.getWhitelist());
+        return tesseract;
+    }
+
+    /**
+     * Searches once for a valid path for Tesseract data.
+     * @return Valid path, or the first candidate if none is found
+     */
+    private static String resolveTessdataPath() {
+        for (String path : TESSDATA_PATHS) {
+            File dir = new File(path);
+            if (dir.exists() && dir.isDirectory()) {
+                // Check that it contains at least one traineddata file
+                File[] trainedDataFiles = dir.listFiles((d, name) -> name.endsWith(".traineddata"));
+                if (trainedDataFiles != null && trainedDataFiles.length > 0) {
+                    return path;
+                }
+            }
+        }
+
+        System.err.println("ERROR: No valid tessdata directory found. OCR will not work properly.");
+        System.err.println("Paths searched:");
+        for (String path : TESSDATA_PATHS) {
+            System.err.println("  - " + path);
+        }
+        // Set a default path even if it doesn't exist
+        return TESSDATA_PATHS[0];
+    }
+
+    /**
+     * Tesseract engine that keeps its native handle between OCR calls.
+     * The base class creates and deletes the handle around every call, which reloads the language data each time.
+     */
+    private static final class PersistentTesseract extends Tesseract {
+        private boolean initialized = false;
+
+        @Override
+        protected void init() {
+            if (!initialized) {
+                super.init();
+                initialized = true;
+            }
+        }
+
+        @Override
+        protected void dispose() {
+            // Only drop the last recognition results, the handle is kept for the next call
+            if (initialized) {
+                getAPI().TessBaseAPIClear(getHandle());
+            }
+        }
+
+        void warmUp() {
+            init();
+        }
+
+        void shutdown() {
+            if (initialized) {
+                super.dispose();
+                initialized = false;
+            }
+        }
+    }
+}
@@ -1,11 +1,10 @@
 package be.esi.prj.easyeval.utils;
 
 import net.sourceforge.tess4j.ITesseract;
-import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.TesseractException;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.util.*;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -16,20 +15,13 @@ import java.util.regex.Pattern;
  * Modified version to directly extract all answers in order.
  */
 public class TextExtractor {
-    private ITesseract tesseract;
+    private static final Pattern MATRICULE = Pattern.compile("\\d{5}");
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\n\\s*\\n");
+
+    private TesseractPool tesseractPool;
     private final ImageProcessor imageProcessor;
     private boolean enableDebug = false;
 
-    // Possible paths for Tesseract data
-    private static final String[] TESSDATA_PATHS = {
-            "src/main/resources/be/esi/prj/easyeval/data/tessdata",
-            "data/tessdata",
-            "tessdata",
-            System.getProperty("user.dir") + "/src/main/resources/be/esi/prj/easyeval/data/tessdata",
-            System.getProperty("user.dir") + "/data/tessdata",
-            System.getProperty("user.dir") + "/tessdata"
-    };
-
     /**
      * Constructor
      * @param imageProcessor Image processor to use for graphic operations
@@ -41,58 +33,14 @@ public class TextExtractor {
 
     /**
      * Initializes Tesseract OCR.
+     * Engines and tessdata discovery are shared by the whole process through the pool.
      */
     public void initialize() {
-        tesseract = new Tesseract();
-
-        // Find a valid path for tessdata
-        String tessdataPath = findValidTessdataPath();
-        if (tessdataPath == null) {
-            System.err.println("ERROR: No valid tessdata directory found. OCR will not work properly.");
-            System.err.println("Paths searched:");
-            for (String path : TESSDATA_PATHS) {
-                System.err.println("  - " + path);
-            }
-            // Set a default path even if it doesn't exist
-            tessdataPath = TESSDATA_PATHS[0];
-        }
-
-        tesseract.setDatapath(tessdataPath);
+        tesseractPool = TesseractPool.getInstance();
 
         if (enableDebug) {
-            System.out.println("Tesseract initialized with datapath: " + tessdataPath);
+            System.out.println("Tesseract initialized with datapath: " + tesseractPool.getTessdataPath());
         }
-
-        // Default configuration
-        tesseract.setLanguage("fra");
-        tesseract.setPageSegMode(7); // PSM_SINGLE_LINE for student ID
-        resetTesseractVariables();
-    }
-
-    /**
-     * Searches for a valid path for Tesseract data.
-     * @return Valid path or null if none is found
-     */
-    private String findValidTessdataPath() {
-        for (String path : TESSDATA_PATHS) {
-            File dir = new File(path);
-            if (dir.exists() && dir.isDirectory()) {
-                // Check that it contains at least one traineddata file
-                File[] trainedDataFiles = dir.listFiles((d, name) -> name.endsWith(".traineddata"));
-                if (trainedDataFiles != null && trainedDataFiles.length > 0) {
-                    return path;
-                }
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Resets Tesseract variables to their default values.
-     */
-    private void resetTesseractVariables() {
-        tesseract.setTessVariable("tessedit_char_whitelist",
-                "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789.,;:!?()-");
     }
 
     /**
@@ -102,30 +50,30 @@ public class TextExtractor {
      * @return Extracted ID or "UNKNOWN"
      */
     public String extractMatricule(BufferedImage redTextImage, Rectangle matriculeZone) {
+        return extractMatricule(imageProcessor.safeGetSubimage(
+                redTextImage,
+                matriculeZone.x,
+                matriculeZone.y,
+                matriculeZone.width,
+                matriculeZone.height));
+    }
+
+    /**
+     * Extracts the student ID from the already cropped student ID zone.
+     * @param matriculeImage Red text of the student ID zone
+     * @return Extracted ID or "UNKNOWN"
+     */
+    public String extractMatricule(BufferedImage matriculeImage) {
         try {
             if (enableDebug) {
-                // Extract and save the student ID zone for debugging
-                BufferedImage zoneImage = imageProcessor.safeGetSubimage(
-                        redTextImage,
-                        matriculeZone.x,
-                        matriculeZone.y,
-                        matriculeZone.width,
-                        matriculeZone.height);
-                imageProcessor.saveDebugImage(zoneImage, "matricule_zone.png");
+                // Save the student ID zone for debugging
+                imageProcessor.saveDebugImage(matriculeImage, "matricule_zone.png");
             }
 
-            // Configure Tesseract for digit recognition
-            tesseract.setPageSegMode(7); // PSM_SINGLE_LINE
-            tesseract.setTessVariable("tessedit_char_whitelist", "0123456789"); // Limit to digits
-
-            String matriculeText = tesseract.doOCR(imageProcessor.safeGetSubimage(
-                    redTextImage,
-                    matriculeZone.x,
-                    matriculeZone.y,
-                    matriculeZone.width,
-                    matriculeZone.height)).trim();
+            // Digits-only single line engine
+            String matriculeText = doOCR(TesseractPool.Profile.MATRICULE, matriculeImage).trim();
 
-            String cleanedText = matriculeText.replaceAll("[^0-9]", "");
+            String cleanedText = digitsOf(matriculeText);
 
             if (enableDebug) {
                 System.out.println("Raw OCR text for student ID: " + matriculeText);
@@ -138,8 +86,7 @@ public class TextExtractor {
 
             // If not enough digits, look for a pattern of 5 digits
             if (cleanedText.length() < 5) {
-                Pattern pattern = Pattern.compile("\\d{5}");
-                Matcher matcher = pattern.matcher(matriculeText);
+                Matcher matcher = MATRICULE.matcher(matriculeText);
 
                 if (matcher.find()) {
                     return matcher.group();
@@ -152,8 +99,6 @@ public class TextExtractor {
             System.err.println("Error extracting student ID: " + e.getMessage());
             e.printStackTrace();
             return "UNKNOWN";
-        } finally {
-            resetTesseractVariables();
         }
     }
 
@@ -165,30 +110,37 @@ public class TextExtractor {
      * @return List of extracted answers
      */
     public List<String> extractAllAnswers(BufferedImage redTextImage, Rectangle answerZone, int expectedCount) {
+        // Extract the questions area
+        return extractAllAnswers(imageProcessor.safeGetSubimage(
+                redTextImage,
+                answerZone.x,
+                answerZone.y,
+                answerZone.width,
+                answerZone.height), expectedCount);
+    }
+
+    /**
+     * Extracts all answers from the already cropped questions area.
+     * @param answerImage Red text of the questions/answers zone
+     * @param expectedCount Expected number of questions
+     * @return List of extracted answers
+     */
+    public List<String> extractAllAnswers(BufferedImage answerImage, int expectedCount) {
         List<String> answers = new ArrayList<>();
 
         try {
-            // Extract the questions area
-            BufferedImage answerImage = imageProcessor.safeGetSubimage(
-                    redTextImage,
-                    answerZone.x,
-                    answerZone.y,
-                    answerZone.width,
-                    answerZone.height);
-
             if (enableDebug) {
                 imageProcessor.saveDebugImage(answerImage, "answer_zone.png");
             }
 
-            tesseract.setPageSegMode(6); // PSM_SINGLE_BLOCK
-            String fullText = tesseract.doOCR(answerImage).trim();
+            String fullText = doOCR(TesseractPool.Profile.ANSWERS, answerImage).trim();
 
             if (enableDebug) {
                 System.out.println("Raw OCR text from questions area: " + fullText);
             }
 
             // First, try to split by empty lines (paragraphs)
-            String[] paragraphs = fullText.split("\\n\\s*\\n");
+            String[] paragraphs = PARAGRAPH_BREAK.split(fullText);
 
             // If we don't have enough paragraphs, try to split by lines
             if (paragraphs.length < expectedCount) {
@@ -247,25 +199,76 @@ public class TextExtractor {
     }
 
     /**
-     * Cleans an answer extracted by OCR.
-     * @param rawAnswer Raw answer
-     * @return Cleaned answer
+     * Extracts one answer per answer box.
+     * Each box holds a single line, so it is recognised on its own with single line segmentation.
+     * Boxes are read one after the other on the calling thread, reusing one pooled engine:
+     * the batch engine already runs one OCR worker per core, so parallel boxes would outgrow the pool.
+     * @param boxImages Red text of each answer box, in question order
+     * @return One answer per box, empty when nothing was written in the box
      */
-    public String cleanAnswer(String rawAnswer) {
-        if (rawAnswer == null || rawAnswer.isEmpty()) {
-            return "";
+    public List<String> extractAnswersByBox(List<BufferedImage> boxImages) {
+        if (enableDebug) {
+            for (int i = 0; i < boxImages.size(); i++) {
+                imageProcessor.saveDebugImage(boxImages.get(i), "answer_box_" + (i + 1) + ".png");
+            }
+        }
+
+        List<String> answers = new ArrayList<>(boxImages.size());
+        for (BufferedImage boxImage : boxImages) {
+            answers.add(extractBoxAnswer(boxImage));
+        }
+
+        if (enableDebug) {
+            for (int i = 0; i < answers.size(); i++) {
+                System.out.println("Answer " + (i + 1) + ": " + answers.get(i));
+            }
         }
+        return answers;
+    }
 
-        // Remove numbers that could be question numbers
-        rawAnswer = rawAnswer.replaceAll("^\\s*\\d+\\.\\s*", "");
+    private String extractBoxAnswer(BufferedImage boxImage) {
+        try {
+            return cleanAnswer(doOCR(TesseractPool.Profile.LINE, boxImage));
+        } catch (Exception e) {
+            System.err.println("Error extracting answer box: " + e.getMessage());
+            return "XXX";
+        }
+    }
 
-        // Replace non-alphanumeric characters with spaces
-        String cleaned = rawAnswer.replaceAll("[^A-Za-z0-9]", " ");
+    /**
+     * Runs OCR on an image with an engine borrowed from the pool.
+     * @param profile Engine configuration to use
+     * @param image Image to read
+     * @return Recognized text
+     */
+    private String doOCR(TesseractPool.Profile profile, BufferedImage image) throws TesseractException {
+        ITesseract tesseract = tesseractPool.borrow(profile);
+        try {
+            return tesseract.doOCR(image);
+        } finally {
+            tesseractPool.release(profile, tesseract);
+        }
+    }
 
-        // Remove multiple spaces
-        cleaned = cleaned.replaceAll("\\s+", " ").trim();
+    /**
+     * Cleans an answer extracted by OCR.
+     * @param rawAnswer Raw answer
+     * @return Cleaned answer
+     * @see AnswerNormalizer
+     */
+    public String cleanAnswer(String rawAnswer) {
+        return AnswerNormalizer.normalize(rawAnswer);
+    }
 
-        return cleaned.toUpperCase();
+    private static String digitsOf(String text) {
+        StringBuilder digits = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
     }
 
     /**
@@ -300,33 +303,34 @@ public class TextExtractor {
     }
 
     /**
-     * Calculates the Levenshtein distance between two strings.
+     * Calculates the Levenshtein distance between two strings, keeping two rows of the matrix.
      * @param s1 First string
      * @param s2 Second string
      * @return Edit distance
      */
     private int calculateLevenshteinDistance(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-
-        for (int i = 0; i <= s1.length(); i++) {
-            dp[i][0] = i;
-        }
+        int[] previous = new int[s2.length() + 1];
+        int[] current = new int[s2.length() + 1];
 
         for (int j = 0; j <= s2.length(); j++) {
-            dp[0][j] = j;
+            previous[j] = j;
         }
 
         for (int i = 1; i <= s1.length(); i++) {
+            current[0] = i;
             for (int j = 1; j <= s2.length(); j++) {
                 int cost = (s1.charAt(i - 1) == s2.charAt(j - 1)) ? 0 : 1;
-                dp[i][j] = Math.min(
-                        Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
-                        dp[i - 1][j - 1] + cost
+                current[j] = Math.min(
+                        Math.min(previous[j] + 1, current[j - 1] + 1),
+                        previous[j - 1] + cost
                 );
             }
+            int[] row = previous;
+            previous = current;
+            current = row;
         }
 
-        return dp[s1.length()][s2.length()];
+        return previous[s2.length()];
     }
 
     /**
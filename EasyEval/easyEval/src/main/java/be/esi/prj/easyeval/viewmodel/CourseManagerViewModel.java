@@ -3,48 +3,83 @@ package be.esi.prj.easyeval.viewmodel;
 import be.esi.prj.easyeval.model.Course;
 import be.esi.prj.easyeval.repository.CourseRepository;
 import be.esi.prj.easyeval.repository.RepositoryException;
+import be.esi.prj.easyeval.service.AsyncDataAccess;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.control.Alert;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * ViewModel for handling Course-related operations and data binding.
  */
 public class CourseManagerViewModel {
+    static final Duration SEARCH_DELAY = Duration.ofMillis(250);
+
     private final CourseRepository repository;
+    private final AsyncDataAccess dataAccess;
+    private final Debouncer searchDebouncer;
+    // Number of the last course list requested, the results of an older request are dropped
+    private final AtomicLong lastRequest = new AtomicLong();
 
     private final ObjectProperty<Course> selectedCourse = new SimpleObjectProperty<>();
     private final ObservableList<Course> courseList = FXCollections.observableArrayList();
 
     public CourseManagerViewModel() {
-        this.repository = new CourseRepository();
-        fetchAllCourses();
+        this(new CourseRepository(), AsyncDataAccess.shared(), SEARCH_DELAY);
     }
 
     /**
-     * Constructor with repository for testing.
+     * Constructor with repository for testing, loading the courses on the calling thread.
      * @param repository The course repository to use
      */
     CourseManagerViewModel(CourseRepository repository) {
+        this(repository, AsyncDataAccess.direct(), SEARCH_DELAY);
+    }
+
+    /**
+     * Constructor with repository, data access and search delay for testing.
+     * @param repository The course repository to use
+     * @param dataAccess Runs the queries off the UI thread
+     * @param searchDelay Time without typing before a search runs
+     */
+    CourseManagerViewModel(CourseRepository repository, AsyncDataAccess dataAccess, Duration searchDelay) {
         this.repository = repository;
+        this.dataAccess = dataAccess;
+        this.searchDebouncer = new Debouncer("course-search", searchDelay);
         fetchAllCourses();
     }
 
     /**
-     * Fetches all courses from the repository and updates the observable list.
+     * Fetches all courses from the repository in the background and updates the observable list.
      */
     public void fetchAllCourses() {
-        try {
-            List<Course> courses = repository.findAll();
-            courseList.clear();
-            courseList.addAll(courses);
-        } catch (RepositoryException e) {
-            showErrorAlert("Error fetching courses", e.getMessage());
+        showCourses(lastRequest.incrementAndGet(), repository::findAll, "Error fetching courses");
+    }
+
+    /**
+     * Runs a course query in the background and shows its result, unless a newer list was requested meanwhile.
+     */
+    private void showCourses(long request, Supplier<List<Course>> query, String errorTitle) {
+        dataAccess.load(query,
+                courses -> {
+                    if (request == lastRequest.get()) {
+                        courseList.setAll(courses);
+                    }
+                },
+                error -> showErrorAlert(errorTitle, error.getMessage()));
+    }
+
+    private Supplier<List<Course>> searchQuery(String searchText) {
+        if (searchText == null || searchText.trim().isEmpty()) {
+            return repository::findAll; // Show all if search is empty
         }
+        return () -> repository.findByNameContaining(searchText);
     }
 
     /**
@@ -118,17 +153,18 @@ public class CourseManagerViewModel {
      * @param searchText The text to search for in course names
      */
     public void searchCourses(String searchText) {
-        try {
-            if (searchText == null || searchText.trim().isEmpty()) {
-                fetchAllCourses(); // Show all if search is empty
-            } else {
-                List<Course> filteredCourses = repository.findByNameContaining(searchText);
-                courseList.clear();
-                courseList.addAll(filteredCourses);
-            }
-        } catch (RepositoryException e) {
-            showErrorAlert("Error searching courses", e.getMessage());
-        }
+        searchDebouncer.cancel();
+        showCourses(lastRequest.incrementAndGet(), searchQuery(searchText), "Error searching courses");
+    }
+
+    /**
+     * Searches for courses while the user is typing: the search runs in the background once the text
+     * has not changed for a short delay, and the course list is updated on the UI thread.
+     * @param searchText The text to search for in course names
+     */
+    public void searchCoursesDebounced(String searchText) {
+        long request = lastRequest.incrementAndGet();
+        searchDebouncer.submit(() -> showCourses(request, searchQuery(searchText), "Error searching courses"));
     }
 
     /**
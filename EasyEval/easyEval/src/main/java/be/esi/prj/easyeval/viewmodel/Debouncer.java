@@ -0,0 +1,53 @@
+package be.esi.prj.easyeval.viewmodel;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an action once the requests have stopped for a delay, such as a search while the user is typing:
+ * each request cancels the pending one, so only the last text typed is searched.
+ * Actions run one at a time on a background thread, which stops when idle.
+ */
+public class Debouncer {
+    private final long delayMillis;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private ScheduledFuture<?> pending;
+
+    /**
+     * Constructor
+     * @param name Name of the background thread
+     * @param delay Time without request before the action runs
+     */
+    public Debouncer(String name, Duration delay) {
+        this.delayMillis = delay.toMillis();
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setKeepAliveTime(30, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Schedules an action after the delay, replacing the action not started yet.
+     * @param action Action to run on the background thread
+     */
+    public synchronized void submit(Runnable action) {
+        cancel();
+        pending = scheduler.schedule(action, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the action not started yet, if any.
+     */
+    public synchronized void cancel() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+}
@@ -2,45 +2,76 @@ package be.esi.prj.easyeval.viewmodel;
 
 import be.esi.prj.easyeval.model.ExamDocument;
 import be.esi.prj.easyeval.model.Question;
+import be.esi.prj.easyeval.repository.QuestionRepository;
 import be.esi.prj.easyeval.repository.RepositoryException;
+import be.esi.prj.easyeval.service.AsyncDataAccess;
 import be.esi.prj.easyeval.service.ExamDocumentService;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.control.Alert;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ViewModel for the Document Creator view which manages the creation and editing of exam documents.
  */
 public class DocumentCreatorViewModel {
+    static final Duration SEARCH_DELAY = Duration.ofMillis(250);
+
     private final ExamDocumentService examDocumentService;
+    private final QuestionRepository questionRepository;
+    private final AsyncDataAccess dataAccess;
+    private final Debouncer searchDebouncer;
+    // Number of the last question search requested, the results of an older search are dropped
+    private final AtomicLong lastSearch = new AtomicLong();
 
     private final ObjectProperty<ExamDocument> currentExam = new SimpleObjectProperty<>();
     private final ObjectProperty<Question> selectedQuestion = new SimpleObjectProperty<>();
     private final StringProperty examTitle = new SimpleStringProperty();
     private final StringProperty examInstructions = new SimpleStringProperty();
     private final ObservableList<Question> questionList = FXCollections.observableArrayList();
+    // Saved questions matching the last search, to reuse them in the exam
+    private final ObservableList<Question> questionSearchResults = FXCollections.observableArrayList();
 
     // Question properties
     private final StringProperty questionText = new SimpleStringProperty();
     private final StringProperty correctAnswer = new SimpleStringProperty();
+    // Name of the normalization policy comparing the answers of the question
+    private final StringProperty normalization = new SimpleStringProperty("standard");
 
     /**
      * Default constructor.
      */
     public DocumentCreatorViewModel() {
-        this.examDocumentService = new ExamDocumentService();
+        this(new ExamDocumentService(), new QuestionRepository(), AsyncDataAccess.shared(), SEARCH_DELAY);
+    }
+
+    /**
+     * Constructor with service and repository for testing, searching the questions on the calling thread.
+     * @param examDocumentService The exam document service to use
+     * @param questionRepository The question repository to use
+     */
+    DocumentCreatorViewModel(ExamDocumentService examDocumentService, QuestionRepository questionRepository) {
+        this(examDocumentService, questionRepository, AsyncDataAccess.direct(), SEARCH_DELAY);
     }
 
     /**
-     * Constructor with service for testing.
+     * Constructor with service, repository, data access and search delay for testing.
      * @param examDocumentService The exam document service to use
+     * @param questionRepository The question repository to use
+     * @param dataAccess Runs the queries off the UI thread
+     * @param searchDelay Time without typing before a search runs
      */
-    DocumentCreatorViewModel(ExamDocumentService examDocumentService) {
+    DocumentCreatorViewModel(ExamDocumentService examDocumentService, QuestionRepository questionRepository,
+                             AsyncDataAccess dataAccess, Duration searchDelay) {
         this.examDocumentService = examDocumentService;
+        this.questionRepository = questionRepository;
+        this.dataAccess = dataAccess;
+        this.searchDebouncer = new Debouncer("question-search", searchDelay);
     }
 
     /**
@@ -86,6 +117,7 @@ public class DocumentCreatorViewModel {
         }
 
         Question question = new Question(questionText.get(), correctAnswer.get());
+        question.setNormalization(normalization.get());
         questionList.add(question);
         clearQuestionForm();
 
@@ -115,6 +147,7 @@ public class DocumentCreatorViewModel {
 
         question.setText(questionText.get());
         question.setCorrectAnswer(correctAnswer.get());
+        question.setNormalization(normalization.get());
 
         int index = questionList.indexOf(question);
         if (index >= 0) {
@@ -153,6 +186,7 @@ public class DocumentCreatorViewModel {
         selectedQuestion.set(null);
         questionText.set("");
         correctAnswer.set("");
+        normalization.set("standard");
     }
 
     /**
@@ -164,6 +198,7 @@ public class DocumentCreatorViewModel {
             selectedQuestion.set(question);
             questionText.set(question.getText());
             correctAnswer.set(question.getCorrectAnswer());
+            normalization.set(question.getNormalization() != null ? question.getNormalization() : "standard");
         }
     }
 
@@ -233,6 +268,14 @@ public class DocumentCreatorViewModel {
         return correctAnswer;
     }
 
+    /**
+     * Gets the normalization policy property of the question form.
+     * @return The name of the policy: standard, accents or numeric
+     */
+    public StringProperty normalizationProperty() {
+        return normalization;
+    }
+
     /**
      * Get the current exam property for binding.
      * @return The current exam property
@@ -273,6 +316,36 @@ public class DocumentCreatorViewModel {
         return questionList;
     }
 
+    /**
+     * Searches the saved questions while the user is typing: the search runs in the background once the text
+     * has not changed for a short delay, and the results are updated on the UI thread.
+     * Each word typed matches the start of a word of the question, see {@link QuestionRepository#findByTextContaining}.
+     * @param searchText The text to search for in question texts, empty to clear the results
+     */
+    public void searchQuestionsDebounced(String searchText) {
+        long search = lastSearch.incrementAndGet();
+        if (searchText == null || searchText.trim().isEmpty()) {
+            searchDebouncer.cancel();
+            questionSearchResults.clear();
+            return;
+        }
+        searchDebouncer.submit(() -> dataAccess.load(() -> questionRepository.findByTextContaining(searchText),
+                questions -> {
+                    if (search == lastSearch.get()) {
+                        questionSearchResults.setAll(questions);
+                    }
+                },
+                error -> showErrorAlert("Error searching questions", error.getMessage())));
+    }
+
+    /**
+     * Get the observable list of saved questions matching the last search.
+     * @return Observable list of questions found
+     */
+    public ObservableList<Question> getQuestionSearchResults() {
+        return questionSearchResults;
+    }
+
 
 
     /**
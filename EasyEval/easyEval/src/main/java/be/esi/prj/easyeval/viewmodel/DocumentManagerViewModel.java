@@ -3,6 +3,7 @@ package be.esi.prj.easyeval.viewmodel;
 import be.esi.prj.easyeval.model.Course;
 import be.esi.prj.easyeval.model.ExamDocument;
 import be.esi.prj.easyeval.repository.RepositoryException;
+import be.esi.prj.easyeval.service.AsyncDataAccess;
 import be.esi.prj.easyeval.service.ExamDocumentService;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -11,13 +12,16 @@ import javafx.collections.ObservableList;
 import javafx.scene.control.Alert;
 
 import java.io.File;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ViewModel for handling ExamDocument-related operations and data binding for the Document Manager view.
  */
 public class DocumentManagerViewModel {
     private final ExamDocumentService examDocumentService;
+    private final AsyncDataAccess dataAccess;
+    // Number of the last exam list requested, the results of an older request are dropped
+    private final AtomicLong lastRequest = new AtomicLong();
 
     private final ObjectProperty<Course> currentCourse = new SimpleObjectProperty<>();
     private final ObjectProperty<ExamDocument> selectedExam = new SimpleObjectProperty<>();
@@ -27,15 +31,25 @@ public class DocumentManagerViewModel {
      * Default constructor.
      */
     public DocumentManagerViewModel() {
-        this.examDocumentService = new ExamDocumentService();
+        this(new ExamDocumentService(), AsyncDataAccess.shared());
     }
 
     /**
-     * Constructor with service for testing.
+     * Constructor with service for testing, loading the exams on the calling thread.
      * @param examDocumentService The exam document service to use
      */
     DocumentManagerViewModel(ExamDocumentService examDocumentService) {
+        this(examDocumentService, AsyncDataAccess.direct());
+    }
+
+    /**
+     * Constructor with service and data access for testing.
+     * @param examDocumentService The exam document service to use
+     * @param dataAccess Runs the queries off the UI thread
+     */
+    DocumentManagerViewModel(ExamDocumentService examDocumentService, AsyncDataAccess dataAccess) {
         this.examDocumentService = examDocumentService;
+        this.dataAccess = dataAccess;
     }
 
     /**
@@ -48,17 +62,19 @@ public class DocumentManagerViewModel {
     }
 
     /**
-     * Fetches all exams for the specified course from the repository and updates the observable list.
+     * Fetches all exams for the specified course from the repository in the background
+     * and updates the observable list, unless another list was requested meanwhile.
      * @param courseId The ID of the course
      */
     public void fetchExamsForCourse(Long courseId) {
-        try {
-            List<ExamDocument> exams = examDocumentService.findExamDocumentsByCourseId(courseId);
-            examList.clear();
-            examList.addAll(exams);
-        } catch (RepositoryException e) {
-            showErrorAlert("Error fetching exams", e.getMessage());
-        }
+        long request = lastRequest.incrementAndGet();
+        dataAccess.load(() -> examDocumentService.findExamDocumentsByCourseId(courseId),
+                exams -> {
+                    if (request == lastRequest.get()) {
+                        examList.setAll(exams);
+                    }
+                },
+                error -> showErrorAlert("Error fetching exams", error.getMessage()));
     }
 
     /**
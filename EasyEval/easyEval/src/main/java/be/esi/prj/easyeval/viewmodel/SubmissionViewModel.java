@@ -2,11 +2,19 @@ package be.esi.prj.easyeval.viewmodel;
 
 import be.esi.prj.easyeval.model.*;
 import be.esi.prj.easyeval.repository.*;
+import be.esi.prj.easyeval.service.AsyncDataAccess;
 import be.esi.prj.easyeval.service.ExamDocumentService;
+import be.esi.prj.easyeval.service.HotFolderWatcher;
+import be.esi.prj.easyeval.service.OCRBatchEngine;
 import be.esi.prj.easyeval.service.TesseractOCRService;
 import be.esi.prj.easyeval.utils.OCRProcessor;
+import be.esi.prj.easyeval.utils.PdfScanSource;
+import be.esi.prj.easyeval.utils.ResultsCsvExporter;
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
@@ -15,23 +23,28 @@ import javafx.concurrent.Task;
 import javafx.scene.control.Alert;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ViewModel for handling Submission-related operations and data binding.
  */
 public class SubmissionViewModel {
+    // Number of submissions loaded at once for the selected exam
+    static final int PAGE_SIZE = 200;
+
     private final ExamDocumentService examDocumentService;
     private final ExamDocumentRepository examDocumentRepository;
     private final SubmissionRepository submissionRepository;
     private final ScanResultRepository scanResultRepository;
     private final CourseRepository courseRepository;
     private final OCRProcessor ocrProcessor;
+    private final OCRBatchEngine batchEngine;
+    private final AsyncDataAccess dataAccess;
 
     private final ObjectProperty<ExamDocument> selectedExam = new SimpleObjectProperty<>();
     private final ObservableList<ExamDocument> examsList = FXCollections.observableArrayList();
@@ -39,8 +52,18 @@ public class SubmissionViewModel {
     private final ObservableList<ScanResult> scanResultsList = FXCollections.observableArrayList();
     private final ObservableList<Submission> processedSubmissionsList = FXCollections.observableArrayList();
     private final DoubleProperty progress = new SimpleDoubleProperty(0);
+    private final BooleanProperty moreSubmissions = new SimpleBooleanProperty(false);
+    // Key (submission date and ID) of the last submission loaded from the database, null before the first page
+    private SubmissionRepository.SubmissionKey lastLoadedKey;
+    // true while a page of submissions is read in the background
+    private boolean loadingSubmissions;
 
     private final Map<Long, String> submissionFilePaths = new ConcurrentHashMap<>();
+    // Page of the batch PDF for submissions imported from a PDF
+    private final Map<Long, Integer> submissionPages = new ConcurrentHashMap<>();
+    // Grades the scans written to the hot folder, null when the folder is not watched
+    private HotFolderWatcher hotFolderWatcher;
+    private final BooleanProperty watchingHotFolder = new SimpleBooleanProperty(false);
 
     /**
      * Default constructor.
@@ -52,12 +75,13 @@ public class SubmissionViewModel {
         this.scanResultRepository = new ScanResultRepository();
         this.courseRepository = new CourseRepository();
         this.ocrProcessor = new TesseractOCRService();
-
-        loadExamsForSelection();
+        this.batchEngine = new OCRBatchEngine(TesseractOCRService::new, submissionRepository, scanResultRepository,
+                new OcrCacheRepository());
+        this.dataAccess = AsyncDataAccess.shared();
     }
 
     /**
-     * Constructor for testing with repositories.
+     * Constructor for testing with repositories, accessing the database on the calling thread.
      */
     SubmissionViewModel(ExamDocumentService examDocumentService,
                         ExamDocumentRepository examDocumentRepository,
@@ -65,60 +89,121 @@ public class SubmissionViewModel {
                         ScanResultRepository scanResultRepository,
                         CourseRepository courseRepository,
                         OCRProcessor ocrProcessor) {
+        this(examDocumentService, examDocumentRepository, submissionRepository, scanResultRepository,
+                courseRepository, ocrProcessor, AsyncDataAccess.direct());
+    }
+
+    /**
+     * Constructor for testing with repositories and data access.
+     */
+    SubmissionViewModel(ExamDocumentService examDocumentService,
+                        ExamDocumentRepository examDocumentRepository,
+                        SubmissionRepository submissionRepository,
+                        ScanResultRepository scanResultRepository,
+                        CourseRepository courseRepository,
+                        OCRProcessor ocrProcessor,
+                        AsyncDataAccess dataAccess) {
+        this.dataAccess = dataAccess;
         this.examDocumentService = examDocumentService;
         this.examDocumentRepository = examDocumentRepository;
         this.submissionRepository = submissionRepository;
         this.scanResultRepository = scanResultRepository;
         this.courseRepository = courseRepository;
         this.ocrProcessor = ocrProcessor;
+        this.batchEngine = new OCRBatchEngine(() -> ocrProcessor, submissionRepository, scanResultRepository, 1);
     }
 
     /**
-     * Loads all exams for selection in the UI.
+     * Loads all exams for selection in the UI, in the background.
+     *
+     * @return Completed with true once the exams are listed, false if loading failed
      */
-    public void loadExamsForSelection() {
-        try {
-            List<ExamDocument> exams = examDocumentRepository.findAll();
-            examsList.clear();
-            examsList.addAll(exams);
-        } catch (RepositoryException e) {
-            showErrorAlert("Error loading exams", e.getMessage());
-        }
+    public CompletableFuture<Boolean> loadExamsForSelection() {
+        return dataAccess.load(examDocumentRepository::findAll,
+                        examsList::setAll,
+                        error -> showErrorAlert("Error loading exams", error.getMessage()))
+                .thenApply(exams -> true)
+                .exceptionally(error -> false);
     }
 
     /**
-     * Gets a Course object based on courseId.
+     * Gets a Course object based on courseId, in the background.
      *
      * @param courseId The ID of the course
-     * @return The Course object, or null if not found
+     * @return Completed with the Course object, or null if not found or loading failed
      */
-    public Course getCourseForExam(Long courseId) {
-        try {
-            Optional<Course> courseOpt = courseRepository.findById(courseId);
-            return courseOpt.orElse(null);
-        } catch (RepositoryException e) {
-            showErrorAlert("Error loading course", e.getMessage());
-            return null;
-        }
+    public CompletableFuture<Course> getCourseForExam(Long courseId) {
+        return dataAccess.load(() -> courseRepository.findById(courseId).orElse(null),
+                        course -> {
+                        },
+                        error -> showErrorAlert("Error loading course", error.getMessage()))
+                .exceptionally(error -> null);
+    }
+
+    /**
+     * Submission saved for one scanned page.
+     * @param submission The saved submission
+     * @param filePath Path of the scanned file
+     * @param page Index of the page in a batch PDF, null for an image
+     */
+    private record ImportedScan(Submission submission, String filePath, Integer page) {
+    }
+
+    /**
+     * Outcome of an import read in the background.
+     * @param scans Submissions saved, in the order of the files
+     * @param clearError Message of the error raised while clearing the previous submissions, null if none
+     * @param failedFiles Message of each file that could not be imported
+     */
+    private record ImportReport(List<ImportedScan> scans, String clearError, List<String> failedFiles) {
     }
 
     /**
      * Imports scanned files for OCR processing.
      * Clears any existing submissions before importing new ones.
+     * A batch PDF gives one submission per page.
+     * The submissions are saved in the background, then listed.
      *
      * @param files            List of scanned files to import
-     * @return true if import was successful, false otherwise
+     * @return Completed with true once every file is imported, false otherwise
      */
-    public boolean importScannedFiles(List<File> files) {
-        if (selectedExam.get() == null) {
+    public CompletableFuture<Boolean> importScannedFiles(List<File> files) {
+        ExamDocument exam = selectedExam.get();
+        if (exam == null) {
             showErrorAlert("No Exam Selected", "Please select an exam before importing files.");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
+        List<Submission> loaded = new ArrayList<>(submissionsList);
+        boolean more = moreSubmissions.get();
+        // No page is loaded while the submissions are replaced
+        moreSubmissions.set(false);
+
+        return dataAccess.load(() -> importFiles(exam, loaded, files),
+                        this::listImportedScans,
+                        error -> {
+                            moreSubmissions.set(more);
+                            showErrorAlert("Import Error", "Failed to import files: " + error.getMessage());
+                        })
+                .thenApply(report -> report.failedFiles().isEmpty())
+                .exceptionally(error -> false);
+    }
+
+    /**
+     * Clears the previous submissions of the exam, then saves one submission per image or PDF page.
+     * Runs on the calling thread.
+     */
+    private ImportReport importFiles(ExamDocument exam, List<Submission> loaded, List<File> files) {
+        String clearError = null;
         // Clear existing submissions before importing new ones
-        clearAllSubmissions();
+        try {
+            deleteSubmissions(exam, loaded);
+        } catch (RepositoryException e) {
+            clearError = e.getMessage();
+        }
 
-        boolean success = true;
+        List<ImportedScan> scans = new ArrayList<>();
+        List<String> failedFiles = new ArrayList<>();
         System.out.println("Importing " + files.size());
 
         for (File file : files) {
@@ -127,7 +212,7 @@ public class SubmissionViewModel {
 
                 if (!file.exists() || !file.canRead()) {
                     System.err.println("File does not exist or cannot be read: " + file.getAbsolutePath());
-                    success = false;
+                    failedFiles.add(file.getName() + ": file does not exist or cannot be read");
                     continue;
                 }
 
@@ -136,34 +221,75 @@ public class SubmissionViewModel {
                     studentId = "Student_" + System.currentTimeMillis();
                 }
 
-                System.out.println("Extracted student ID: " + studentId);
-
-                // Create and save submission
-                Submission submission = new Submission();
-                submission.setExamId(selectedExam.get().getId());
-                submission.setStudentId(studentId);
-                submission.setSubmissionDate(LocalDateTime.now());
-
-                // Save submission to database
-                submission = submissionRepository.save(submission);
-                System.out.println("Saved submission with ID: " + submission.getId());
-
-                // Store file path for this submission
-                submissionFilePaths.put(submission.getId(), file.getAbsolutePath());
-                System.out.println("Stored file path: " + file.getAbsolutePath());
+                if (PdfScanSource.isPdf(file)) {
+                    // Only the page count is read, pages are rendered during OCR
+                    int pageCount;
+                    try (PdfScanSource source = new PdfScanSource(file)) {
+                        pageCount = source.getPageCount();
+                    }
+                    System.out.println("Batch PDF with " + pageCount + " pages");
 
-                // Add to observable list
-                submissionsList.add(submission);
+                    for (int page = 0; page < pageCount; page++) {
+                        Submission submission = importSubmission(exam, studentId + "_p" + (page + 1));
+                        scans.add(new ImportedScan(submission, file.getAbsolutePath(), page));
+                    }
+                } else {
+                    System.out.println("Extracted student ID: " + studentId);
+                    Submission submission = importSubmission(exam, studentId);
+                    scans.add(new ImportedScan(submission, file.getAbsolutePath(), null));
+                }
 
             } catch (Exception e) {
-                success = false;
                 System.err.println("Import Error for file " + file.getName() + ": " + e.getMessage());
                 e.printStackTrace();
-                showErrorAlert("Import Error", "Failed to import file: " + file.getName() + "\nError: " + e.getMessage());
+                failedFiles.add(file.getName() + ": " + e.getMessage());
             }
         }
 
-        return success;
+        return new ImportReport(scans, clearError, failedFiles);
+    }
+
+    /**
+     * Creates and saves the submission of one scanned page.
+     * Runs on the calling thread.
+     */
+    private Submission importSubmission(ExamDocument exam, String studentId) {
+        // Create and save submission
+        Submission submission = new Submission();
+        submission.setExamId(exam.getId());
+        submission.setStudentId(studentId);
+        submission.setSubmissionDate(LocalDateTime.now());
+
+        // Save submission to database
+        submission = submissionRepository.save(submission);
+        System.out.println("Saved submission with ID: " + submission.getId());
+        return submission;
+    }
+
+    /**
+     * Replaces the listed submissions by the imported ones, and reports the files that failed.
+     */
+    private void listImportedScans(ImportReport report) {
+        if (report.clearError() != null) {
+            showErrorAlert("Clear Error", "Failed to clear submissions: " + report.clearError());
+        }
+        clearSubmissionLists();
+
+        List<Submission> submissions = new ArrayList<>();
+        for (ImportedScan scan : report.scans()) {
+            Long submissionId = scan.submission().getId();
+            // Store file path for this submission
+            submissionFilePaths.put(submissionId, scan.filePath());
+            if (scan.page() != null) {
+                submissionPages.put(submissionId, scan.page());
+            }
+            submissions.add(scan.submission());
+        }
+        submissionsList.addAll(submissions);
+
+        if (!report.failedFiles().isEmpty()) {
+            showErrorAlert("Import Error", "Failed to import file(s):\n" + String.join("\n", report.failedFiles()));
+        }
     }
 
     /**
@@ -183,6 +309,7 @@ public class SubmissionViewModel {
 
     /**
      * Creates a task to process submissions with OCR.
+     * Submissions go through the stages of the batch engine's pipeline.
      *
      * @param enhanceImages   Whether to enhance images
      * @param correctRotation Whether to correct rotation
@@ -190,6 +317,21 @@ public class SubmissionViewModel {
      * @return Task for processing submissions
      */
     public Task<Boolean> processSubmissions(boolean enhanceImages, boolean correctRotation, boolean debug) {
+        return processSubmissions(enhanceImages, correctRotation, debug, false);
+    }
+
+    /**
+     * Creates a task to process submissions with OCR.
+     * Submissions go through the stages of the batch engine's pipeline.
+     *
+     * @param enhanceImages   Whether to enhance images
+     * @param correctRotation Whether to correct rotation
+     * @param debug           Whether to enable debug mode
+     * @param templateZones   Whether to read answers only inside the answer boxes of the exam sheet
+     * @return Task for processing submissions
+     */
+    public Task<Boolean> processSubmissions(boolean enhanceImages, boolean correctRotation, boolean debug,
+                                            boolean templateZones) {
         return new Task<>() {
             @Override
             protected Boolean call() {
@@ -197,167 +339,184 @@ public class SubmissionViewModel {
                 System.out.println("- Image enhancement: " + enhanceImages);
                 System.out.println("- Rotation correction: " + correctRotation);
                 System.out.println("- Debug mode: " + debug);
+                System.out.println("- Template zones: " + templateZones);
 
-                ocrProcessor.setImageEnhancement(enhanceImages);
-                ocrProcessor.setRotationCorrection(correctRotation);
-                ocrProcessor.setDebugMode(debug);
-
-                int total = submissionsList.size();
-                int processed = 0;
-                System.out.println("Processing " + total + " submissions");
+                ExamDocument exam = selectedExam.get();
+                List<OCRBatchEngine.ScanJob> jobs = new ArrayList<>();
 
                 for (Submission submission : new ArrayList<>(submissionsList)) {
-                    if (isCancelled()) {
-                        return false;
+                    String filePath = submissionFilePaths.get(submission.getId());
+                    if (filePath == null) {
+                        System.err.println("No file path for submission ID " + submission.getId());
+                        continue;
                     }
+                    jobs.add(new OCRBatchEngine.ScanJob(submission, new File(filePath),
+                            submissionPages.getOrDefault(submission.getId(), -1)));
+                }
 
-                    try {
-                        updateMessage("Processing submission " + (processed + 1) + " of " + total);
-                        System.out.println("Processing submission ID: " + submission.getId());
-
-                        String filePath = submissionFilePaths.get(submission.getId());
-                        if (filePath == null) {
-                            System.err.println("No file path for submission ID " + submission.getId());
-                            continue;
-                        }
-
-                        File scanFile = new File(filePath);
-                        if (!scanFile.exists()) {
-                            System.err.println("Scan file does not exist: " + filePath);
-                            continue;
-                        }
-
-                        System.out.println("File exists: " + scanFile.getAbsolutePath());
-                        System.out.println("File size: " + scanFile.length() + " bytes");
-
-                        ExamDocument exam = selectedExam.get();
-                        System.out.println("Exam: " + exam.getId() + " - " + exam.getTitle());
-                        System.out.println("Questions: " + exam.getQuestions().size());
+                int total = jobs.size();
+                System.out.println("Processing " + total + " submissions");
+                updateMessage("Processing " + total + " submissions");
+
+                OCRBatchEngine.BatchReport report = batchEngine.process(
+                        jobs, exam, enhanceImages, correctRotation, debug, templateZones, this::isCancelled,
+                        new OCRBatchEngine.BatchListener() {
+                            @Override
+                            public void onGraded(Submission submission, ScanResult scanResult) {
+                                showGraded(submission, scanResult);
+                            }
 
-                        // Log question details
-                        for (Question q : exam.getQuestions()) {
-                            System.out.println(" - Q" + q.getId() + ": " + q.getText() +
-                                    " (Answer: " + q.getCorrectAnswer() + ")");
-                        }
+                            @Override
+                            public void onFailed(OCRBatchEngine.ScanJob job, Exception error) {
+                                System.err.println("Error processing submission " + job.submission().getId() +
+                                        ": " + error.getMessage());
+                                error.printStackTrace();
+                                updateMessage("Failed to process " + getFileNameForSubmission(job.submission()) +
+                                        ": " + error.getMessage());
+                            }
 
-                        // Process the exam with OCR
-                        Submission processedSubmission = ocrProcessor.processExam(scanFile, exam);
-                        System.out.println("OCR processing completed");
-                        System.out.println("Extracted student ID: " + processedSubmission.getStudentId());
-                        System.out.println("Answers extracted: " + processedSubmission.getStudentAnswers().size());
-
-                        // Update the stored submission with OCR results
-                        submission.setStudentId(processedSubmission.getStudentId());
-                        for (Long questionId : processedSubmission.getStudentAnswers().keySet()) {
-                            String answer = processedSubmission.getStudentAnswers().get(questionId);
-                            System.out.println("Setting answer for Q" + questionId + ": " + answer);
-                            submission.setAnswer(questionId, answer);
-                        }
+                            @Override
+                            public void onProgress(int done, int total) {
+                                updateMessage("Processed submission " + done + " of " + total);
+                                updateProgress(done, total);
+                            }
+                        });
 
-                        // Save updated submission
-                        System.out.println("Saving submission to database");
-                        submissionRepository.save(submission);
+                System.out.println("OCR processing finished: " + report.graded() + " graded, " +
+                        report.failed() + " failed");
+                // A queue that filled up points at the slowest stage
+                System.out.println("Peak queue depths: " + report.peakDepths());
 
-                        // Calculate score
-                        System.out.println("Calculating score");
-                        ScanResult scanResult = ocrProcessor.calculateScore(submission, exam);
-                        System.out.println("Score: " + scanResult.getScore() + "%");
-                        System.out.println("Confidence levels: " + scanResult.getConfidenceLevels().size());
+                return !report.cancelled();
+            }
+        };
+    }
 
-                        // Save scan result
-                        System.out.println("Saving scan result to database");
-                        scanResult = scanResultRepository.save(scanResult);
+    /**
+     * Logs a graded submission and lists it on the UI thread.
+     */
+    private void showGraded(Submission submission, ScanResult scanResult) {
+        System.out.println("Graded submission ID " + submission.getId() +
+                ": " + scanResult.getScore() + "%");
 
-                        // Update observable lists on UI thread
-                        ScanResult finalScanResult = scanResult;
-                        javafx.application.Platform.runLater(() -> {
+        dataAccess.onUi(() -> {
+            if (!scanResultsList.contains(scanResult)) {
+                scanResultsList.add(scanResult);
+            }
 
-                            if (!scanResultsList.contains(finalScanResult)) {
-                                scanResultsList.add(finalScanResult);
-                            }
+            if (!processedSubmissionsList.contains(submission)) {
+                processedSubmissionsList.add(submission);
+            }
+        });
+    }
 
-                            if (!processedSubmissionsList.contains(submission)) {
-                                processedSubmissionsList.add(submission);
+    /**
+     * Starts grading the scans written to the hot folder for the selected exam, each one as soon as it is complete.
+     * Scans already graded for this exam by a previous watch are skipped.
+     *
+     * @param enhanceImages   Whether to enhance images
+     * @param correctRotation Whether to correct rotation
+     * @param templateZones   Whether to read answers only inside the answer boxes of the exam sheet
+     * @return true if the folder is watched
+     */
+    public boolean startHotFolder(boolean enhanceImages, boolean correctRotation, boolean templateZones) {
+        ExamDocument exam = selectedExam.get();
+        if (exam == null) {
+            showErrorAlert("No Exam Selected", "Please select an exam before watching the scans folder.");
+            return false;
+        }
+        stopHotFolder();
+
+        HotFolderWatcher watcher = new HotFolderWatcher(HotFolderWatcher.DEFAULT_DIRECTORY, exam, batchEngine,
+                submissionRepository, new ScanLedgerRepository(), HotFolderWatcher.DEFAULT_SETTLE_DELAY,
+                new HotFolderWatcher.Listener() {
+                    @Override
+                    public void onImported(Submission submission, File scanFile, int pageIndex) {
+                        // Listed now, so the pages read from the database skip it
+                        submissionFilePaths.put(submission.getId(), scanFile.getAbsolutePath());
+                        if (pageIndex >= 0) {
+                            submissionPages.put(submission.getId(), pageIndex);
+                        }
+                        dataAccess.onUi(() -> {
+                            // A resumed submission may already be listed from the database
+                            if (selectedExam.get() == exam && !submissionsList.contains(submission)) {
+                                submissionsList.add(submission);
                             }
                         });
+                    }
 
-                    } catch (Exception e) {
-                        System.err.println("Error processing submission: " + e.getMessage());
-                        e.printStackTrace();
+                    @Override
+                    public void onGraded(Submission submission, ScanResult scanResult) {
+                        showGraded(submission, scanResult);
                     }
 
-                    processed++;
-                    updateProgress(processed, total);
-                }
+                    @Override
+                    public void onFailed(OCRBatchEngine.ScanJob job, Exception error) {
+                        System.err.println("Error processing " + getFileNameForSubmission(job.submission()) +
+                                ": " + error.getMessage());
+                    }
 
-                return true;
-            }
-        };
+                    @Override
+                    public void onProgress(int done, int total) {
+                        // Each scan is listed once graded
+                    }
+                });
+        watcher.setOcrSettings(enhanceImages, correctRotation, templateZones);
+
+        try {
+            watcher.start();
+        } catch (IOException e) {
+            showErrorAlert("Watch Error", "Failed to watch " + watcher.getDirectory() + ": " + e.getMessage());
+            return false;
+        }
+        System.out.println("Watching scans folder: " + watcher.getDirectory());
+        hotFolderWatcher = watcher;
+        watchingHotFolder.set(true);
+        return true;
+    }
+
+    /**
+     * Stops watching the hot folder. The scans already graded are kept.
+     */
+    public void stopHotFolder() {
+        if (hotFolderWatcher != null) {
+            hotFolderWatcher.close();
+            hotFolderWatcher = null;
+        }
+        watchingHotFolder.set(false);
+    }
+
+    /**
+     * @return true while the hot folder is watched
+     */
+    public ReadOnlyBooleanProperty watchingHotFolderProperty() {
+        return watchingHotFolder;
     }
 
     /**
      * Exports results to CSV file.
      *
      * @param directory Directory to save the CSV file
-     * @return The generated CSV file
-     * @throws IOException If file cannot be written
+     * @return Completed with the generated CSV file, once the submissions not loaded yet are read in the background;
+     * completed with an IOException if the file cannot be written
      */
-    public File exportResultsToCSV(File directory) throws IOException {
+    public CompletableFuture<File> exportResultsToCSV(File directory) {
         if (directory == null || !directory.isDirectory()) {
-            throw new IOException("Invalid directory");
+            return CompletableFuture.failedFuture(new IOException("Invalid directory"));
         }
 
-        // Create CSV file
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String examName = selectedExam.get().getTitle().replaceAll("[^a-zA-Z0-9]", "_");
-        File csvFile = new File(directory, examName + "_results_" + timestamp + ".csv");
-
-        try (FileWriter writer = new FileWriter(csvFile)) {
-            writer.write("StudentID,Score (%),ConfidenceLevel (%)");
-
-            for (Question question : selectedExam.get().getQuestions()) {
-                writer.write(",Q" + question.getId() + "_Answer,Q" + question.getId() + "_Correct");
+        // Results of all submissions, not only the pages shown
+        return loadRemainingSubmissions().thenApply(loaded -> {
+            if (!loaded) {
+                throw new CompletionException(new IOException("Submissions could not be loaded"));
             }
-            writer.write("\n");
-
-            for (Submission submission : processedSubmissionsList) {
-                // Find corresponding scan result
-                ScanResult scanResult = null;
-                for (ScanResult result : scanResultsList) {
-                    if (result.getSubmissionId().equals(submission.getId())) {
-                        scanResult = result;
-                        break;
-                    }
-                }
-
-                if (scanResult == null) continue;
-
-                writer.write(submission.getStudentId() + ",");
-                writer.write(String.format("%.2f", scanResult.getScore()) + ",");
-
-                double avgConfidence = 0;
-                int confidenceCount = 0;
-                for (Double confidence : scanResult.getConfidenceLevels().values()) {
-                    avgConfidence += confidence;
-                    confidenceCount++;
-                }
-                avgConfidence = confidenceCount > 0 ? avgConfidence / confidenceCount : 0;
-                writer.write(String.format("%.2f", avgConfidence));
-
-                // Write answers and correct answers for each question
-                for (Question question : selectedExam.get().getQuestions()) {
-                    String studentAnswer = submission.getAnswer(question.getId());
-                    String correctAnswer = question.getCorrectAnswer();
-
-                    writer.write("," + (studentAnswer != null ? studentAnswer : ""));
-                    writer.write("," + correctAnswer);
-                }
-
-                writer.write("\n");
+            try {
+                return ResultsCsvExporter.export(selectedExam.get(), processedSubmissionsList, scanResultsList,
+                        directory);
+            } catch (IOException e) {
+                throw new CompletionException(e);
             }
-        }
-
-        return csvFile;
+        });
     }
 
     /**
@@ -403,64 +562,85 @@ public class SubmissionViewModel {
     }
 
     /**
-     * Removes a submission from the list and database.
+     * Removes a submission from the database in the background, then from the lists.
      *
      * @param submission The submission to remove
-     * @return true if removal was successful, false otherwise
+     * @return Completed with true once the submission is removed, false if removal failed
      */
-    public boolean removeSubmission(Submission submission) {
+    public CompletableFuture<Boolean> removeSubmission(Submission submission) {
         if (submission == null) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
-        try {
-            // Check if there's a scan result
-            Optional<ScanResult> scanResult = scanResultRepository.findBySubmissionId(submission.getId());
-            scanResult.ifPresent(result -> {
-                scanResultRepository.deleteById(result.getId());
-                scanResultsList.removeIf(r -> r.getId().equals(result.getId()));
-                processedSubmissionsList.remove(submission);
-            });
-
-            // Delete submission
-            submissionRepository.deleteById(submission.getId());
-            submissionsList.remove(submission);
-
-            // Remove file path tracking
-            submissionFilePaths.remove(submission.getId());
-
-            return true;
-        } catch (RepositoryException e) {
-            showErrorAlert("Remove Error", "Failed to remove submission: " + e.getMessage());
-            return false;
-        }
+        Long submissionId = submission.getId();
+        // Its answers, scan result and confidence levels are deleted in cascade
+        return dataAccess.load(() -> submissionRepository.deleteById(submissionId),
+                deleted -> {
+                    scanResultsList.removeIf(result -> submissionId.equals(result.getSubmissionId()));
+                    processedSubmissionsList.remove(submission);
+                    submissionsList.remove(submission);
+
+                    // Remove file path tracking
+                    submissionFilePaths.remove(submissionId);
+                    submissionPages.remove(submissionId);
+                },
+                error -> showErrorAlert("Remove Error", "Failed to remove submission: " + error.getMessage()))
+                .thenApply(deleted -> true)
+                .exceptionally(error -> false);
     }
 
     /**
-     * Clears all submissions and related data from the database and UI.
+     * Clears all submissions of the selected exam and related data, from the database in the background,
+     * then from the lists.
+     *
+     * @return Completed with true once the submissions are cleared, false if clearing failed
      */
-    public void clearAllSubmissions() {
-        try {
-            // Make a copy of the list to avoid ConcurrentModificationException
-            List<Submission> submissionsToRemove = new ArrayList<>(submissionsList);
-
-            for (Submission submission : submissionsToRemove) {
-                Optional<ScanResult> scanResult = scanResultRepository.findBySubmissionId(submission.getId());
-                scanResult.ifPresent(result -> scanResultRepository.deleteById(result.getId()));
-
-                submissionRepository.deleteById(submission.getId());
-            }
+    public CompletableFuture<Boolean> clearAllSubmissions() {
+        ExamDocument exam = selectedExam.get();
+        List<Submission> loaded = new ArrayList<>(submissionsList);
+        boolean more = moreSubmissions.get();
+        // No page is loaded while the submissions are deleted
+        moreSubmissions.set(false);
+
+        return dataAccess.run(() -> deleteSubmissions(exam, loaded),
+                        this::clearSubmissionLists,
+                        error -> {
+                            moreSubmissions.set(more);
+                            showErrorAlert("Clear Error", "Failed to clear submissions: " + error.getMessage());
+                        })
+                .thenApply(cleared -> true)
+                .exceptionally(error -> false);
+    }
 
-            submissionsList.clear();
-            scanResultsList.clear();
-            processedSubmissionsList.clear();
-            submissionFilePaths.clear();
+    /**
+     * Deletes the submissions of the exam, loaded or not, with their answers and scan results:
+     * one statement per exam, whatever the number of submissions. Runs on the calling thread.
+     */
+    private void deleteSubmissions(ExamDocument exam, List<Submission> loaded) {
+        Set<Long> examIds = new LinkedHashSet<>();
+        if (exam != null) {
+            examIds.add(exam.getId());
+        }
+        // Listed submissions all belong to the selected exam, unless it was unselected
+        for (Submission submission : loaded) {
+            examIds.add(submission.getExamId());
+        }
 
-        } catch (RepositoryException e) {
-            showErrorAlert("Clear Error", "Failed to clear submissions: " + e.getMessage());
+        for (Long examId : examIds) {
+            submissionRepository.deleteByExamId(examId);
         }
     }
 
+    private void clearSubmissionLists() {
+        submissionsList.clear();
+        scanResultsList.clear();
+        processedSubmissionsList.clear();
+        submissionFilePaths.clear();
+        submissionPages.clear();
+        lastLoadedKey = null;
+        moreSubmissions.set(false);
+    }
+
 
     /**
      * Gets the file name for a submission.
@@ -478,7 +658,9 @@ public class SubmissionViewModel {
         }
 
         // Return just the file name, not the full path
-        return new File(filePath).getName();
+        String fileName = new File(filePath).getName();
+        Integer page = submissionPages.get(submission.getId());
+        return page != null ? fileName + " (page " + (page + 1) + ")" : fileName;
     }
 
     /**
@@ -502,44 +684,186 @@ public class SubmissionViewModel {
      * @param exam The exam to select
      */
     public void setSelectedExam(ExamDocument exam) {
+        // The watched scans belong to the previous exam
+        if (exam != selectedExam.get()) {
+            stopHotFolder();
+        }
         selectedExam.set(exam);
 
-        // Load existing submissions for this exam,
+        // Load the first page of existing submissions for this exam
         if (exam != null) {
-            loadSubmissionsForExam(exam.getId());
+            loadSubmissionsForExam();
         }
     }
 
     /**
-     * Loads existing submissions for an exam.
-     * @param examId The ID of the exam
+     * Loads the first page of existing submissions of the selected exam.
      */
-    private void loadSubmissionsForExam(Long examId) {
-        try {
-            submissionsList.clear();
-            scanResultsList.clear();
-            processedSubmissionsList.clear();
-            submissionFilePaths.clear();
-
-            List<Submission> submissions = submissionRepository.findByExamId(examId);
-            submissionsList.addAll(submissions);
-
-            // Load scan results and track processed submissions
-            for (Submission submission : submissions) {
-                Optional<ScanResult> scanResult = scanResultRepository.findBySubmissionId(submission.getId());
-                scanResult.ifPresent(result -> {
-                    scanResultsList.add(result);
-                    processedSubmissionsList.add(submission);
+    private void loadSubmissionsForExam() {
+        submissionsList.clear();
+        scanResultsList.clear();
+        processedSubmissionsList.clear();
+        submissionFilePaths.clear();
+        submissionPages.clear();
+        lastLoadedKey = null;
+        loadingSubmissions = false;
+        moreSubmissions.set(true);
+
+        loadMoreSubmissions();
+    }
+
+    /**
+     * Page of submissions read from the database, with the scan results of its submissions.
+     * @param examId Exam of the submissions
+     * @param afterKey Key of the submission the page was read after, null for the first page
+     * @param page Submissions of the page
+     * @param scanResults Scan results of the submissions not listed yet, by submission ID
+     */
+    private record LoadedPage(Long examId, SubmissionRepository.SubmissionKey afterKey,
+                              Page<SubmissionRepository.SubmissionKey, Submission> page,
+                              Map<Long, ScanResult> scanResults) {
+    }
+
+    /**
+     * Loads the next page of existing submissions of the selected exam, with their scan results, in the background.
+     * Called by the view when the user scrolls to the end of the loaded submissions.
+     */
+    public void loadMoreSubmissions() {
+        ExamDocument exam = selectedExam.get();
+        if (exam == null || !moreSubmissions.get() || loadingSubmissions) {
+            return;
+        }
+
+        loadingSubmissions = true;
+        Long examId = exam.getId();
+        SubmissionRepository.SubmissionKey afterKey = lastLoadedKey;
+        dataAccess.load(() -> readPage(examId, afterKey),
+                loaded -> {
+                    loadingSubmissions = false;
+                    appendPage(loaded);
+                },
+                error -> {
+                    loadingSubmissions = false;
+                    moreSubmissions.set(false);
+                    showErrorAlert("Load Error", "Failed to load submissions: " + error.getMessage());
                 });
+    }
+
+    /**
+     * Loads the existing submissions of the selected exam that are not loaded yet, with their scan results,
+     * in the background.
+     *
+     * @return Completed with true once all the submissions of the exam are listed, false if loading failed
+     */
+    public CompletableFuture<Boolean> loadRemainingSubmissions() {
+        ExamDocument exam = selectedExam.get();
+        if (exam == null || !moreSubmissions.get()) {
+            return CompletableFuture.completedFuture(exam != null);
+        }
+
+        Long examId = exam.getId();
+        SubmissionRepository.SubmissionKey afterKey = lastLoadedKey;
+        return dataAccess.load(() -> readRemainingPages(examId, afterKey),
+                        pages -> pages.forEach(this::appendPage),
+                        error -> {
+                            moreSubmissions.set(false);
+                            showErrorAlert("Load Error", "Failed to load submissions: " + error.getMessage());
+                        })
+                // A page loaded by scrolling meanwhile makes these pages dropped, so the rest is read again
+                .thenCompose(pages -> selectedExam.get() == exam && moreSubmissions.get()
+                        ? loadRemainingSubmissions()
+                        : CompletableFuture.completedFuture(selectedExam.get() == exam))
+                .exceptionally(error -> false);
+    }
 
-                // We don't have actual file paths, since they're not stored in the DB
-                // In a real application, you'd either store this info or regenerate it
-                submissionFilePaths.put(submission.getId(), "Existing submission (no file path)");
+    /**
+     * Reads the pages of submissions following a key up to the last one.
+     * Runs on the calling thread.
+     */
+    private List<LoadedPage> readRemainingPages(Long examId, SubmissionRepository.SubmissionKey afterKey) {
+        List<LoadedPage> pages = new ArrayList<>();
+        LoadedPage page = readPage(examId, afterKey);
+        pages.add(page);
+        while (page.page().hasNext()) {
+            page = readPage(examId, page.page().nextKey());
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    /**
+     * Reads a page of submissions and the scan results of those not listed yet, at once.
+     * Runs on the calling thread.
+     */
+    private LoadedPage readPage(Long examId, SubmissionRepository.SubmissionKey afterKey) {
+        Page<SubmissionRepository.SubmissionKey, Submission> page =
+                submissionRepository.findPageByExamId(examId, afterKey, PAGE_SIZE);
+
+        // Submissions imported during this session are already listed
+        List<Long> submissionIds = new ArrayList<>();
+        for (Submission submission : page.items()) {
+            if (!submissionFilePaths.containsKey(submission.getId())) {
+                submissionIds.add(submission.getId());
             }
+        }
 
-        } catch (RepositoryException e) {
-            showErrorAlert("Load Error", "Failed to load submissions: " + e.getMessage());
+        Map<Long, ScanResult> scanResults = new HashMap<>();
+        if (!submissionIds.isEmpty()) {
+            for (ScanResult result : scanResultRepository.findBySubmissionIds(submissionIds)) {
+                scanResults.put(result.getSubmissionId(), result);
+            }
+        }
+        return new LoadedPage(examId, afterKey, page, scanResults);
+    }
+
+    /**
+     * Adds a page read from the database to the lists, and tracks the processed submissions.
+     * The page is dropped if the exam changed or the page was added meanwhile.
+     */
+    private void appendPage(LoadedPage loaded) {
+        ExamDocument exam = selectedExam.get();
+        // The last page leaves the key as it was, moreSubmissions tells it was added
+        if (exam == null || !exam.getId().equals(loaded.examId()) || !moreSubmissions.get()
+                || !Objects.equals(lastLoadedKey, loaded.afterKey())) {
+            return;
         }
+
+        Page<SubmissionRepository.SubmissionKey, Submission> page = loaded.page();
+        if (page.hasNext()) {
+            lastLoadedKey = page.nextKey();
+        }
+        moreSubmissions.set(page.hasNext());
+
+        List<Submission> submissions = new ArrayList<>();
+        List<ScanResult> scanResults = new ArrayList<>();
+        List<Submission> processed = new ArrayList<>();
+        for (Submission submission : page.items()) {
+            if (submissionFilePaths.containsKey(submission.getId())) {
+                continue;
+            }
+            submissions.add(submission);
+
+            ScanResult scanResult = loaded.scanResults().get(submission.getId());
+            if (scanResult != null) {
+                scanResults.add(scanResult);
+                processed.add(submission);
+            }
+
+            // We don't have actual file paths, since they're not stored in the DB
+            // In a real application, you'd either store this info or regenerate it
+            submissionFilePaths.put(submission.getId(), "Existing submission (no file path)");
+        }
+
+        submissionsList.addAll(submissions);
+        scanResultsList.addAll(scanResults);
+        processedSubmissionsList.addAll(processed);
+    }
+
+    /**
+     * @return true while some existing submissions of the selected exam are not loaded yet
+     */
+    public ReadOnlyBooleanProperty moreSubmissionsProperty() {
+        return moreSubmissions;
     }
 
     /**
@@ -0,0 +1,131 @@
+package be.esi.prj.easyeval;
+
+import be.esi.prj.easyeval.repository.ConnectionManager;
+import be.esi.prj.easyeval.utils.NormalizationPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeadlessGraderTest {
+
+    @TempDir
+    Path folder;
+
+    private String databasePath;
+    private ByteArrayOutputStream output;
+    private PrintStream summary;
+
+    @BeforeEach
+    void setup() {
+        databasePath = ConnectionManager.getDatabasePath();
+        output = new ByteArrayOutputStream();
+        summary = new PrintStream(output, true, StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void restoreDatabase() {
+        ConnectionManager.setDatabasePath(databasePath);
+    }
+
+    @Test
+    void testParseDefaults() {
+        System.out.println("testParseDefaults");
+        //Action
+        HeadlessGrader.Options result = HeadlessGrader.parse(new String[]{"7", "scans"});
+        //Assert
+        assertEquals(7L, result.examId());
+        assertEquals(Path.of("scans"), result.scans());
+        assertEquals(Path.of("."), result.outputDirectory());
+        assertEquals(0, result.parallelism());
+        assertFalse(result.enhanceImages());
+        assertTrue(result.correctRotation());
+        assertFalse(result.templateZones());
+        // Each question is compared with its own policy
+        assertNull(result.normalization());
+        assertNull(result.databasePath());
+    }
+
+    @Test
+    void testParseOptions() {
+        System.out.println("testParseOptions");
+        //Action
+        HeadlessGrader.Options result = HeadlessGrader.parse(new String[]{"--parallelism", "4", "7",
+                "--decode-threads", "2", "--preprocess-threads", "3", "--enhance", "--no-rotation",
+                "--template-zones", "--normalization", "numeric", "--db", "test.db", "--output", "out", "scans.pdf"});
+        //Assert
+        assertEquals(7L, result.examId());
+        assertEquals(Path.of("scans.pdf"), result.scans());
+        assertEquals(Path.of("out"), result.outputDirectory());
+        assertEquals(4, result.parallelism());
+        assertEquals(2, result.decodeThreads());
+        assertEquals(3, result.preprocessThreads());
+        assertTrue(result.enhanceImages());
+        assertFalse(result.correctRotation());
+        assertTrue(result.templateZones());
+        assertEquals(NormalizationPolicy.NUMERIC, result.normalization());
+        assertEquals("test.db", result.databasePath());
+    }
+
+    @Test
+    void testRunWithInvalidArguments() {
+        System.out.println("testRunWithInvalidArguments");
+        //Arrange
+        String[][] invalidArguments = {
+                {},
+                {"7"},
+                {"7", "scans", "extra"},
+                {"seven", "scans"},
+                {"7", "scans", "--unknown"},
+                {"7", "scans", "--output"},
+                {"7", "scans", "--parallelism", "0"},
+                {"7", "scans", "--decode-threads", "two"},
+                {"7", "scans", "--normalization", "phonetic"},
+        };
+        for (String[] args : invalidArguments) {
+            //Action
+            int result = HeadlessGrader.run(args, summary);
+            //Assert
+            assertEquals(HeadlessGrader.EXIT_USAGE, result, String.join(" ", args));
+        }
+        assertEquals("", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testRunWithUnknownExam() {
+        System.out.println("testRunWithUnknownExam");
+        //Arrange
+        String database = folder.resolve("easyeval.db").toString();
+        //Action
+        int result = HeadlessGrader.run(new String[]{"424242", folder.toString(), "--db", database}, summary);
+        //Assert
+        assertEquals(HeadlessGrader.EXIT_ERROR, result);
+        assertEquals("{\"status\":\"error\",\"examId\":424242,\"error\":\"Exam not found: 424242\"}",
+                output.toString(StandardCharsets.UTF_8).trim());
+    }
+
+    @Test
+    void testJsonEscapesSpecialCharacters() {
+        System.out.println("testJsonEscapesSpecialCharacters");
+        //Action
+        String result = HeadlessGrader.json("C:\\scans\\\"copy\" 1.png\n\r\tend\u0001é");
+        //Assert
+        assertEquals("\"C:\\\\scans\\\\\\\"copy\\\" 1.png\\n\\r\\tend\\u0001é\"", result);
+    }
+
+    @Test
+    void testJsonNull() {
+        System.out.println("testJsonNull");
+        //Action
+        String result = HeadlessGrader.json(null);
+        //Assert
+        assertEquals("null", result);
+    }
+}
@@ -0,0 +1,158 @@
+package be.esi.prj.easyeval.repository;
+
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionManagerTest {
+    private static Connection connection;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE items (name TEXT NOT NULL)");
+        }
+    }
+
+    @BeforeEach
+    void setup() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM items");
+        }
+    }
+
+    @AfterAll
+    static void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void testInTransactionCommits() throws SQLException {
+        System.out.println("testInTransactionCommits");
+        //Action
+        ConnectionManager.inTransaction(connection, () -> insert("a"));
+        //Assert
+        assertEquals(1, count("a"));
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    void testInTransactionRollsBackOnException() throws SQLException {
+        System.out.println("testInTransactionRollsBackOnException");
+        //Action
+        assertThrows(RepositoryException.class, () -> ConnectionManager.inTransaction(connection, () -> {
+            insert("a");
+            throw new RepositoryException("failure", null);
+        }));
+        //Assert
+        assertEquals(0, count("a"));
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    void testNestedTransactionIsJoined() throws SQLException {
+        System.out.println("testNestedTransactionIsJoined");
+        //Action
+        assertThrows(SQLException.class, () -> ConnectionManager.inTransaction(connection, () -> {
+            ConnectionManager.inTransaction(connection, () -> insert("inner"));
+            throw new SQLException("outer failure");
+        }));
+        //Assert
+        assertEquals(0, count("inner"));
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    void testUnitOfWorkRollsBackAllWrites() throws SQLException {
+        System.out.println("testUnitOfWorkRollsBackAllWrites");
+        //Action
+        assertThrows(RepositoryException.class, () -> ConnectionManager.inUnitOfWork(() -> {
+            write("first");
+            write("second");
+            throw new RepositoryException("failure", null);
+        }));
+        //Assert
+        assertEquals(0, count("first"));
+        assertEquals(0, count("second"));
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    void testUnitOfWorkCommitsAllWrites() throws SQLException {
+        System.out.println("testUnitOfWorkCommitsAllWrites");
+        //Action
+        ConnectionManager.inUnitOfWork(() -> {
+            write("first");
+            write("second");
+            return null;
+        });
+        //Assert
+        assertEquals(1, count("first"));
+        assertEquals(1, count("second"));
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    void testConcurrentTransactionsDoNotShareStatements() throws Exception {
+        System.out.println("testConcurrentTransactionsDoNotShareStatements");
+        //Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            //Action
+            Future<?> failing = executor.submit(() -> ConnectionManager.inTransaction(connection, () -> {
+                insert("failed");
+                started.countDown();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                insert("failed");
+                throw new SQLException("failure");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<?> succeeding = executor.submit(() -> ConnectionManager.inTransaction(connection, () -> {
+                insert("committed");
+                return insert("committed");
+            }));
+            succeeding.get(5, TimeUnit.SECONDS);
+            assertThrows(Exception.class, () -> failing.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        //Assert
+        assertEquals(0, count("failed"));
+        assertEquals(2, count("committed"));
+        assertTrue(connection.getAutoCommit());
+    }
+
+    private static int insert(String name) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO items (name) VALUES (?)")) {
+            stmt.setString(1, name);
+            return stmt.executeUpdate();
+        }
+    }
+
+    private static void write(String name) {
+        try {
+            ConnectionManager.inTransaction(connection, () -> insert(name));
+        } catch (SQLException e) {
+            throw new RepositoryException("Insertion impossible", e);
+        }
+    }
+
+    private static int count(String name) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT COUNT(*) FROM items WHERE name = ?")) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}
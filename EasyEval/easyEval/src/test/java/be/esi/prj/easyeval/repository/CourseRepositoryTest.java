@@ -5,6 +5,7 @@ import org.junit.jupiter.api.*;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
@@ -49,6 +50,27 @@ class CourseRepositoryTest {
                         FOREIGN KEY (course_id) REFERENCES courses(id)
                     )
                     """);
+
+            stmt.execute("""
+                    CREATE TABLE questions (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        text TEXT NOT NULL,
+                        correct_answer TEXT NOT NULL,
+                        normalization TEXT NOT NULL DEFAULT 'standard',
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """);
+
+            stmt.execute("""
+                    CREATE TABLE exam_questions (
+                        exam_id INTEGER NOT NULL,
+                        question_id INTEGER NOT NULL,
+                        question_order INTEGER NOT NULL,
+                        PRIMARY KEY (exam_id, question_id),
+                        FOREIGN KEY (exam_id) REFERENCES exam_documents(id),
+                        FOREIGN KEY (question_id) REFERENCES questions(id)
+                    )
+                    """);
         }
     }
 
@@ -56,6 +78,8 @@ class CourseRepositoryTest {
     void setup() throws SQLException {
         instance = new CourseRepository(connection);
         try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM exam_questions");
+            stmt.execute("DELETE FROM questions");
             stmt.execute("DELETE FROM exam_documents");
             stmt.execute("DELETE FROM courses");
 
@@ -78,6 +102,8 @@ class CourseRepositoryTest {
     @AfterEach
     void cleanDatabase() throws SQLException {
         try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM exam_questions");
+            stmt.execute("DELETE FROM questions");
             stmt.execute("DELETE FROM exam_documents");
             stmt.execute("DELETE FROM courses");
         }
@@ -159,6 +185,29 @@ class CourseRepositoryTest {
         assertEquals("Programming Java", result.get(0).getName());
     }
 
+    @Test
+    void testFindByNameContainingUsesSearchIndex() throws SQLException {
+        System.out.println("testFindByNameContainingUsesSearchIndex");
+        //Arrange
+        try (Connection indexed = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            SchemaMigrations.migrate(indexed);
+            CourseRepository repository = new CourseRepository(indexed);
+            repository.save(new Course("Réseaux et télécommunications"));
+            repository.save(new Course("Programmation Java"));
+            repository.save(new Course("Bases de données"));
+            //Action
+            List<Course> byAccentlessPrefix = repository.findByNameContaining("reseau");
+            List<Course> byWords = repository.findByNameContaining("donn bas");
+            List<Course> byOperator = repository.findByNameContaining("Java OR");
+            //Assert
+            assertEquals(1, byAccentlessPrefix.size());
+            assertEquals("Réseaux et télécommunications", byAccentlessPrefix.get(0).getName());
+            assertEquals(1, byWords.size());
+            assertEquals("Bases de données", byWords.get(0).getName());
+            assertTrue(byOperator.isEmpty());
+        }
+    }
+
     @Test
     void testGetExamIds() {
         System.out.println("testGetExamIds");
@@ -228,13 +277,59 @@ class CourseRepositoryTest {
     }
 
     @Test
-    void testDeleteById() {
+    void testDeleteById() throws SQLException {
         System.out.println("testDeleteById");
+        //Arrange
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO questions (id, text, correct_answer) VALUES (1, 'Orphan', 'A')");
+        }
         //Action
         boolean result = instance.deleteById(1L);
         //Assert
         assertTrue(result);
         assertFalse(instance.existsById(1L));
+        // Orphaned questions are deleted on the repository's own connection
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM questions")) {
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testFindByIdIsCached() throws SQLException {
+        System.out.println("testFindByIdIsCached");
+        //Arrange
+        EntityCaches caches = new EntityCaches(10, 10, 10);
+        CourseRepository cached = new CourseRepository(connection, caches);
+        //Action
+        Course first = cached.findById(1L).orElseThrow();
+        first.setName("Edited but not saved");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("UPDATE courses SET name = 'Changed behind the cache' WHERE id = 1");
+        }
+        Course second = cached.findById(1L).orElseThrow();
+        //Assert
+        assertEquals("Programming Java", second.getName());
+        assertEquals(1, caches.courses.getHits());
+        assertEquals(1, caches.courses.getMisses());
+    }
+
+    @Test
+    void testSaveInvalidatesCache() {
+        System.out.println("testSaveInvalidatesCache");
+        //Arrange
+        EntityCaches caches = new EntityCaches(10, 10, 10);
+        CourseRepository cached = new CourseRepository(connection, caches);
+        Course course = cached.findById(2L).orElseThrow();
+        cached.findAll();
+        //Action
+        course.setName("Advanced Databases");
+        cached.save(course);
+        //Assert
+        assertEquals("Advanced Databases", cached.findById(2L).orElseThrow().getName());
+        assertTrue(cached.findAll().stream().anyMatch(c -> c.getName().equals("Advanced Databases")));
+        assertEquals(0, caches.courses.getHits());
+        assertEquals(0, caches.courseLists.getHits());
     }
 
     @Test
@@ -0,0 +1,117 @@
+package be.esi.prj.easyeval.repository;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityCacheTest {
+    private AtomicInteger loads;
+    private EntityCache<Long, List<String>> instance;
+
+    @BeforeEach
+    void setup() {
+        loads = new AtomicInteger();
+        instance = new EntityCache<>(2, ArrayList::new);
+    }
+
+    private List<String> load(Long key) {
+        loads.incrementAndGet();
+        return key < 0 ? null : new ArrayList<>(List.of("value " + key));
+    }
+
+    @Test
+    void testReadThrough() {
+        System.out.println("testReadThrough");
+        //Action
+        List<String> first = instance.get(1L, this::load);
+        List<String> second = instance.get(1L, this::load);
+        //Assert
+        assertEquals(List.of("value 1"), first);
+        assertEquals(List.of("value 1"), second);
+        assertEquals(1, loads.get());
+        assertEquals(1, instance.getHits());
+        assertEquals(1, instance.getMisses());
+        assertEquals(0.5, instance.getHitRate());
+    }
+
+    @Test
+    void testReturnedValueIsCopy() {
+        System.out.println("testReturnedValueIsCopy");
+        //Arrange
+        instance.get(1L, this::load).add("edited");
+        //Action
+        List<String> result = instance.get(1L, this::load);
+        //Assert
+        assertEquals(List.of("value 1"), result);
+    }
+
+    @Test
+    void testMissingValueIsNotCached() {
+        System.out.println("testMissingValueIsNotCached");
+        //Action
+        instance.get(-1L, this::load);
+        List<String> result = instance.get(-1L, this::load);
+        //Assert
+        assertNull(result);
+        assertEquals(2, loads.get());
+        assertEquals(0, instance.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        System.out.println("testLeastRecentlyUsedIsEvicted");
+        //Action
+        instance.get(1L, this::load);
+        instance.get(2L, this::load);
+        instance.get(1L, this::load);
+        instance.get(3L, this::load);
+        instance.get(1L, this::load);
+        instance.get(2L, this::load);
+        //Assert
+        assertEquals(2, instance.size());
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void testInvalidate() {
+        System.out.println("testInvalidate");
+        //Arrange
+        instance.get(1L, this::load);
+        instance.get(2L, this::load);
+        //Action
+        instance.invalidate(1L);
+        instance.get(1L, this::load);
+        instance.get(2L, this::load);
+        //Assert
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testValueLoadedBeforeInvalidationIsNotStored() {
+        System.out.println("testValueLoadedBeforeInvalidationIsNotStored");
+        //Action
+        instance.get(1L, key -> {
+            instance.invalidateAll();
+            return load(key);
+        });
+        //Assert
+        assertEquals(0, instance.size());
+    }
+
+    @Test
+    void testDisabledCacheKeepsNothing() {
+        System.out.println("testDisabledCacheKeepsNothing");
+        //Arrange
+        EntityCache<Long, List<String>> disabled = new EntityCache<>(0, ArrayList::new);
+        //Action
+        disabled.get(1L, this::load);
+        disabled.get(1L, this::load);
+        //Assert
+        assertEquals(2, loads.get());
+        assertEquals(0, disabled.size());
+    }
+}
@@ -45,6 +45,7 @@ class ExamDocumentRepositoryTest {
                         id INTEGER PRIMARY KEY AUTOINCREMENT,
                         text TEXT NOT NULL,
                         correct_answer TEXT NOT NULL,
+                        normalization TEXT NOT NULL DEFAULT 'standard',
                         created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
                     )
                     """);
@@ -238,6 +239,77 @@ class ExamDocumentRepositoryTest {
         assertEquals(2, fromDb.get().getQuestions().size());
     }
 
+    @Test
+    void testSaveAppliesQuestionChanges() {
+        System.out.println("testSaveAppliesQuestionChanges");
+        //Arrange
+        ExamDocument exam = instance.findById(1L).orElseThrow();
+        Question existing = exam.getQuestions().get(0);
+        existing.setText("What is the Java language?");
+        Question added = new Question("What is a JAR?", "A Java archive");
+        Question shared = instance.findById(2L).orElseThrow().getQuestions().get(0);
+        exam.setQuestions(new ArrayList<>(List.of(added, shared, existing)));
+        //Action
+        instance.save(exam);
+        //Assert
+        List<Question> questions = instance.findById(1L).orElseThrow().getQuestions();
+        assertEquals(3, questions.size());
+        assertEquals("What is a JAR?", questions.get(0).getText());
+        assertEquals(added.getId(), questions.get(0).getId());
+        assertEquals(2L, questions.get(1).getId());
+        assertEquals("What is the Java language?", questions.get(2).getText());
+        assertEquals(1, instance.findById(2L).orElseThrow().getQuestions().size());
+    }
+
+    @Test
+    void testSaveRemovesQuestionsFromExam() {
+        System.out.println("testSaveRemovesQuestionsFromExam");
+        //Arrange
+        ExamDocument exam = instance.findById(1L).orElseThrow();
+        exam.setQuestions(new ArrayList<>());
+        //Action
+        instance.save(exam);
+        //Assert
+        assertTrue(instance.findById(1L).orElseThrow().getQuestions().isEmpty());
+        // The question itself is kept, orphans are deleted with the exams
+        assertTrue(questionRepository.findById(1L).isPresent());
+    }
+
+    @Test
+    void testSaveFailureIsRolledBack() {
+        System.out.println("testSaveFailureIsRolledBack");
+        //Arrange
+        ExamDocument exam = instance.findById(1L).orElseThrow();
+        exam.setTitle("Advanced Java");
+        Question valid = new Question("What is JVM?", "Java Virtual Machine");
+        Question invalid = new Question(null, "No text");
+        exam.setQuestions(new ArrayList<>(List.of(valid, invalid)));
+        //Action & Assert
+        assertThrows(RepositoryException.class, () -> instance.save(exam));
+        ExamDocument fromDb = instance.findById(1L).orElseThrow();
+        assertEquals("Java Basics", fromDb.getTitle());
+        assertEquals(1, fromDb.getQuestions().size());
+        assertNull(valid.getId());
+        assertEquals(2, questionRepository.findAll().size());
+    }
+
+    @Test
+    void testQuestionSaveInvalidatesCachedExam() {
+        System.out.println("testQuestionSaveInvalidatesCachedExam");
+        //Arrange
+        EntityCaches caches = new EntityCaches(10, 10, 10);
+        QuestionRepository cachedQuestions = new QuestionRepository(connection, caches);
+        ExamDocumentRepository cached = new ExamDocumentRepository(connection, cachedQuestions, caches);
+        Question question = cached.findById(1L).orElseThrow().getQuestions().get(0);
+        //Action
+        question.setCorrectAnswer("Edited answer");
+        cachedQuestions.save(question);
+        ExamDocument result = cached.findById(1L).orElseThrow();
+        //Assert
+        assertEquals("Edited answer", result.getQuestions().get(0).getCorrectAnswer());
+        assertEquals(0, caches.exams.getHits());
+    }
+
     @Test
     void testDeleteById() {
         System.out.println("testDeleteById");
@@ -0,0 +1,190 @@
+package be.esi.prj.easyeval.repository;
+
+import be.esi.prj.easyeval.model.Submission;
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcrCacheRepositoryTest {
+    private static final String SETTINGS = "ocr=1;enhance=true;rotate=true";
+    private static Connection connection;
+    private OcrCacheRepository instance;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE courses (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        name TEXT NOT NULL UNIQUE,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """);
+
+            stmt.execute("""
+                    CREATE TABLE questions (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        text TEXT NOT NULL,
+                        correct_answer TEXT NOT NULL,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """);
+
+            stmt.execute("""
+                    CREATE TABLE exam_documents (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        title TEXT NOT NULL,
+                        instructions TEXT,
+                        course_id INTEGER NOT NULL,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        FOREIGN KEY (course_id) REFERENCES courses(id)
+                    )
+                    """);
+        }
+        SchemaMigrations.migrate(connection);
+    }
+
+    @BeforeEach
+    void setup() throws SQLException {
+        instance = new OcrCacheRepository(connection);
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA foreign_keys = ON");
+
+            stmt.execute("DELETE FROM ocr_cache_answers");
+            stmt.execute("DELETE FROM ocr_cache");
+            stmt.execute("DELETE FROM exam_documents");
+            stmt.execute("DELETE FROM questions");
+            stmt.execute("DELETE FROM courses");
+
+            stmt.execute("""
+                    INSERT INTO courses (id, name, created_at) VALUES
+                    (1, 'Programming', '2024-04-08 10:00:00')
+                    """);
+
+            stmt.execute("""
+                    INSERT INTO questions (id, text, correct_answer, created_at) VALUES
+                    (1, 'What is Java?', 'A programming language', '2024-04-08 10:00:00'),
+                    (2, 'What is HTML?', 'HyperText Markup Language', '2024-04-08 10:01:00')
+                    """);
+
+            stmt.execute("""
+                    INSERT INTO exam_documents (id, title, instructions, course_id, created_at) VALUES
+                    (1, 'Web Development Basics', 'Answer all questions', 1, '2024-04-08 10:00:00'),
+                    (2, 'Java Basics', 'Answer all questions', 1, '2024-04-08 10:00:00')
+                    """);
+        }
+
+        Submission alice = new Submission(1L, "12345");
+        alice.setAnswer(1L, "Language");
+        alice.setAnswer(2L, "Markup");
+        instance.save(1L, "hash-alice", SETTINGS, alice);
+    }
+
+    @AfterEach
+    void cleanDatabase() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM ocr_cache_answers");
+            stmt.execute("DELETE FROM ocr_cache");
+            stmt.execute("DELETE FROM exam_documents");
+            stmt.execute("DELETE FROM questions");
+            stmt.execute("DELETE FROM courses");
+        }
+    }
+
+    @AfterAll
+    static void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void testFindHit() {
+        System.out.println("testFindHit");
+        //Action
+        Optional<Submission> result = instance.find(1L, "hash-alice", SETTINGS);
+        //Assert
+        assertTrue(result.isPresent());
+        assertEquals("12345", result.get().getStudentId());
+        assertEquals("Language", result.get().getAnswer(1L));
+        assertEquals("Markup", result.get().getAnswer(2L));
+    }
+
+    @Test
+    void testFindOtherSettingsIsMiss() {
+        System.out.println("testFindOtherSettingsIsMiss");
+        //Action
+        Optional<Submission> result = instance.find(1L, "hash-alice", "ocr=1;enhance=false;rotate=true");
+        //Assert
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void testFindOtherExamIsMiss() {
+        System.out.println("testFindOtherExamIsMiss");
+        //Action
+        Optional<Submission> result = instance.find(2L, "hash-alice", SETTINGS);
+        //Assert
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void testFindAllReturnsOnlyHits() {
+        System.out.println("testFindAllReturnsOnlyHits");
+        //Arrange
+        Submission bob = new Submission(1L, "67890");
+        bob.setAnswer(1L, "Coffee");
+        instance.save(1L, "hash-bob", SETTINGS, bob);
+        //Action
+        Map<String, Submission> result = instance.findAll(1L, SETTINGS, List.of("hash-alice", "hash-bob", "hash-new"));
+        //Assert
+        assertEquals(2, result.size());
+        assertEquals("12345", result.get("hash-alice").getStudentId());
+        assertEquals("Coffee", result.get("hash-bob").getAnswer(1L));
+        assertFalse(result.containsKey("hash-new"));
+    }
+
+    @Test
+    void testSaveReplacesEntry() {
+        System.out.println("testSaveReplacesEntry");
+        //Arrange
+        Submission corrected = new Submission(1L, "12346");
+        corrected.setAnswer(1L, "Java");
+        //Action
+        instance.save(1L, "hash-alice", SETTINGS, corrected);
+        Optional<Submission> result = instance.find(1L, "hash-alice", SETTINGS);
+        //Assert
+        assertTrue(result.isPresent());
+        assertEquals("12346", result.get().getStudentId());
+        assertEquals("Java", result.get().getAnswer(1L));
+        assertNull(result.get().getAnswer(2L));
+    }
+
+    @Test
+    void testDeletedQuestionIsRemovedFromEntry() throws SQLException {
+        System.out.println("testDeletedQuestionIsRemovedFromEntry");
+        //Action
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM questions WHERE id = 2");
+        }
+        Optional<Submission> result = instance.find(1L, "hash-alice", SETTINGS);
+        //Assert
+        assertTrue(result.isPresent());
+        assertFalse(result.get().getStudentAnswers().containsKey(2L));
+    }
+
+    @Test
+    void testDeleteByExamId() {
+        System.out.println("testDeleteByExamId");
+        //Action
+        int deleted = instance.deleteByExamId(1L);
+        //Assert
+        assertEquals(1, deleted);
+        assertTrue(instance.find(1L, "hash-alice", SETTINGS).isEmpty());
+    }
+}
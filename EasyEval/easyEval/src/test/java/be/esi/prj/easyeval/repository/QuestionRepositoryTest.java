@@ -10,6 +10,7 @@ import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,6 +38,7 @@ class QuestionRepositoryTest {
                         id INTEGER PRIMARY KEY AUTOINCREMENT,
                         text TEXT NOT NULL,
                         correct_answer TEXT NOT NULL,
+                        normalization TEXT NOT NULL DEFAULT 'standard',
                         created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
                     )
                     """);
@@ -156,6 +158,23 @@ class QuestionRepositoryTest {
         assertEquals("What is Java?", result.get(0).getText());
     }
 
+    @Test
+    void testFindByTextContainingUsesSearchIndex() throws SQLException {
+        System.out.println("testFindByTextContainingUsesSearchIndex");
+        //Arrange
+        try (Connection indexed = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            SchemaMigrations.migrate(indexed);
+            QuestionRepository repository = new QuestionRepository(indexed);
+            repository.save(new Question("Qu'est-ce qu'une clé étrangère ?", "Une référence"));
+            repository.save(new Question("Que vaut la complexité du tri rapide ?", "n log n"));
+            //Action
+            List<Question> result = repository.findByTextContaining("cle etrang");
+            //Assert
+            assertEquals(1, result.size());
+            assertEquals("Qu'est-ce qu'une clé étrangère ?", result.get(0).getText());
+        }
+    }
+
     @Test
     void testFindByExamId() {
         System.out.println("testFindByExamId");
@@ -167,6 +186,20 @@ class QuestionRepositoryTest {
         assertEquals("What is HTML?", result.get(1).getText());
     }
 
+    @Test
+    void testFindByExamIds() {
+        System.out.println("testFindByExamIds");
+        //Action
+        Map<Long, List<Question>> result = instance.findByExamIds(List.of(1L, 2L, 3L));
+        //Assert
+        assertEquals(3, result.size());
+        assertEquals(2, result.get(1L).size());
+        assertEquals("What is Java?", result.get(1L).get(0).getText());
+        assertEquals("What is HTML?", result.get(1L).get(1).getText());
+        assertEquals(1, result.get(2L).size());
+        assertTrue(result.get(3L).isEmpty());
+    }
+
     @Test
     void testSaveNewQuestion() {
         System.out.println("testSaveNewQuestion");
@@ -204,6 +237,21 @@ class QuestionRepositoryTest {
         assertEquals("What is Java programming?", fromDb.get().getText());
     }
 
+    @Test
+    void testSaveNormalizationPolicy() {
+        System.out.println("testSaveNormalizationPolicy");
+        //Arrange
+        Question question = instance.findById(1L).get();
+        question.setNormalization("accents");
+        //Action
+        instance.save(question);
+        //Assert
+        assertEquals("accents", instance.findById(1L).get().getNormalization());
+        assertEquals("accents", instance.findByExamId(1L).stream()
+                .filter(found -> found.getId() == 1L).findFirst().get().getNormalization());
+        assertEquals("standard", instance.findById(2L).get().getNormalization());
+    }
+
     @Test
     void testDeleteById() {
         System.out.println("testDeleteById");
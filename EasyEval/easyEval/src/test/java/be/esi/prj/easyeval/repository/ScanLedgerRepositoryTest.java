@@ -0,0 +1,201 @@
+package be.esi.prj.easyeval.repository;
+
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanLedgerRepositoryTest {
+    private static final String SCAN = "/scans/alice.png";
+    private static Connection connection;
+    private ScanLedgerRepository instance;
+
+    @BeforeAll
+    static void setupDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE courses (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        name TEXT NOT NULL UNIQUE,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """);
+
+            stmt.execute("""
+                    CREATE TABLE questions (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        text TEXT NOT NULL,
+                        correct_answer TEXT NOT NULL,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """);
+
+            stmt.execute("""
+                    CREATE TABLE exam_documents (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        title TEXT NOT NULL,
+                        instructions TEXT,
+                        course_id INTEGER NOT NULL,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        FOREIGN KEY (course_id) REFERENCES courses(id)
+                    )
+                    """);
+        }
+        SchemaMigrations.migrate(connection);
+    }
+
+    @BeforeEach
+    void setup() throws SQLException {
+        instance = new ScanLedgerRepository(connection);
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA foreign_keys = ON");
+
+            stmt.execute("DELETE FROM ingested_scans");
+            stmt.execute("DELETE FROM submissions");
+            stmt.execute("DELETE FROM exam_documents");
+            stmt.execute("DELETE FROM courses");
+
+            stmt.execute("""
+                    INSERT INTO courses (id, name, created_at) VALUES
+                    (1, 'Programming', '2024-04-08 10:00:00')
+                    """);
+
+            stmt.execute("""
+                    INSERT INTO exam_documents (id, title, instructions, course_id, created_at) VALUES
+                    (1, 'Web Development Basics', 'Answer all questions', 1, '2024-04-08 10:00:00'),
+                    (2, 'Java Basics', 'Answer all questions', 1, '2024-04-08 10:00:00')
+                    """);
+
+            stmt.execute("""
+                    INSERT INTO submissions (id, exam_id, student_id, submission_date) VALUES
+                    (1, 1, 'alice_p1', '2024-04-08 10:00:00'),
+                    (2, 1, 'alice_p2', '2024-04-08 10:00:00')
+                    """);
+        }
+
+        instance.recordImported(1L, SCAN, 2048L, 1_700_000_000_000L, 0, 1L);
+        instance.recordImported(1L, SCAN, 2048L, 1_700_000_000_000L, 1, 2L);
+    }
+
+    @AfterEach
+    void cleanDatabase() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM ingested_scans");
+            stmt.execute("DELETE FROM submissions");
+            stmt.execute("DELETE FROM exam_documents");
+            stmt.execute("DELETE FROM courses");
+        }
+    }
+
+    @AfterAll
+    static void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void testFindPagesOfImportedScan() {
+        System.out.println("testFindPagesOfImportedScan");
+        //Action
+        List<ScanLedgerRepository.ScanPage> result = instance.findPages(1L, SCAN, 2048L, 1_700_000_000_000L);
+        //Assert
+        assertEquals(List.of(
+                new ScanLedgerRepository.ScanPage(0, 1L, ScanLedgerRepository.State.IMPORTED),
+                new ScanLedgerRepository.ScanPage(1, 2L, ScanLedgerRepository.State.IMPORTED)), result);
+    }
+
+    @Test
+    void testRewrittenScanIsNew() {
+        System.out.println("testRewrittenScanIsNew");
+        //Action
+        List<ScanLedgerRepository.ScanPage> otherTime = instance.findPages(1L, SCAN, 2048L, 1_700_000_005_000L);
+        List<ScanLedgerRepository.ScanPage> otherSize = instance.findPages(1L, SCAN, 4096L, 1_700_000_000_000L);
+        //Assert
+        assertTrue(otherTime.isEmpty());
+        assertTrue(otherSize.isEmpty());
+    }
+
+    @Test
+    void testOtherExamIsNew() {
+        System.out.println("testOtherExamIsNew");
+        //Action
+        List<ScanLedgerRepository.ScanPage> result = instance.findPages(2L, SCAN, 2048L, 1_700_000_000_000L);
+        //Assert
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void testSetStateOfGradedPage() {
+        System.out.println("testSetStateOfGradedPage");
+        //Action
+        boolean updated = instance.setState(2L, ScanLedgerRepository.State.GRADED);
+        //Assert
+        assertTrue(updated);
+        List<ScanLedgerRepository.ScanPage> pages = instance.findPages(1L, SCAN, 2048L, 1_700_000_000_000L);
+        assertEquals(ScanLedgerRepository.State.IMPORTED, pages.get(0).state());
+        assertEquals(ScanLedgerRepository.State.GRADED, pages.get(1).state());
+    }
+
+    @Test
+    void testSetStateOfUnknownSubmission() {
+        System.out.println("testSetStateOfUnknownSubmission");
+        //Action
+        boolean updated = instance.setState(99L, ScanLedgerRepository.State.GRADED);
+        //Assert
+        assertFalse(updated);
+    }
+
+    @Test
+    void testRecordUnreadableScan() {
+        System.out.println("testRecordUnreadableScan");
+        //Action
+        instance.recordUnreadable(1L, "/scans/broken.pdf", 10L, 1_700_000_000_000L);
+        //Assert
+        assertEquals(List.of(new ScanLedgerRepository.ScanPage(-1, null, ScanLedgerRepository.State.FAILED)),
+                instance.findPages(1L, "/scans/broken.pdf", 10L, 1_700_000_000_000L));
+    }
+
+    @Test
+    void testRecordTwiceKeepsOneEntry() {
+        System.out.println("testRecordTwiceKeepsOneEntry");
+        //Action
+        instance.recordImported(1L, SCAN, 2048L, 1_700_000_000_000L, 1, 2L);
+        //Assert
+        assertEquals(2, instance.findPages(1L, SCAN, 2048L, 1_700_000_000_000L).size());
+    }
+
+    @Test
+    void testDeletedSubmissionRemovesItsPage() throws SQLException {
+        System.out.println("testDeletedSubmissionRemovesItsPage");
+        //Action
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM submissions WHERE id = 1");
+        }
+        //Assert
+        assertEquals(List.of(new ScanLedgerRepository.ScanPage(1, 2L, ScanLedgerRepository.State.IMPORTED)),
+                instance.findPages(1L, SCAN, 2048L, 1_700_000_000_000L));
+    }
+
+    @Test
+    void testDeletedSubmissionsOfExamRemoveEntries() {
+        System.out.println("testDeletedSubmissionsOfExamRemoveEntries");
+        //Action
+        new SubmissionRepository(connection).deleteByExamId(1L);
+        //Assert
+        assertTrue(instance.findPages(1L, SCAN, 2048L, 1_700_000_000_000L).isEmpty());
+    }
+
+    @Test
+    void testDeletedExamRemovesEntries() throws SQLException {
+        System.out.println("testDeletedExamRemovesEntries");
+        //Action
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM exam_documents WHERE id = 1");
+        }
+        //Assert
+        assertTrue(instance.findPages(1L, SCAN, 2048L, 1_700_000_000_000L).isEmpty());
+    }
+}
@@ -234,6 +234,19 @@ class ScanResultRepositoryTest {
         }
     }
 
+    @Test
+    void testFindByExamId() {
+        System.out.println("testFindByExamId");
+        //Action
+        List<ScanResult> result = instance.findByExamId(1L);
+        //Assert
+        assertEquals(2, result.size());
+        for (ScanResult scanResult : result) {
+            assertEquals(2, scanResult.getConfidenceLevels().size());
+        }
+        assertTrue(instance.findByExamId(2L).isEmpty());
+    }
+
     @Test
     void testSaveNewScanResult() {
         System.out.println("testSaveNewScanResult");
@@ -271,6 +284,60 @@ class ScanResultRepositoryTest {
         assertEquals(0.70, fromDb.get().getConfidenceLevels().get(2L));
     }
 
+    @Test
+    void testSaveAllInsertsAndUpdates() {
+        System.out.println("testSaveAllInsertsAndUpdates");
+        //Arrange
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO submissions (id, exam_id, student_id, submission_date) VALUES " +
+                    "(3, 1, 'Charlie', '2024-04-08 11:00:00')");
+        } catch (SQLException e) {
+            fail("Could not create test submission: " + e.getMessage());
+        }
+
+        ScanResult existing = instance.findById(1L).orElseThrow();
+        existing.setScore(90.0);
+
+        ScanResult newScanResult = new ScanResult();
+        newScanResult.setSubmissionId(3L);
+        newScanResult.setScore(75.0);
+        Map<Long, Double> confidence = new HashMap<>();
+        confidence.put(1L, 0.80);
+        newScanResult.setConfidenceLevels(confidence);
+
+        //Action
+        List<ScanResult> saved = instance.saveAll(List.of(existing, newScanResult));
+
+        //Assert
+        assertEquals(2, saved.size());
+        assertNotNull(newScanResult.getId());
+
+        //Verify in database
+        assertEquals(90.0, instance.findById(1L).orElseThrow().getScore());
+        assertEquals(2, instance.findById(1L).orElseThrow().getConfidenceLevels().size());
+        Optional<ScanResult> fromDb = instance.findById(newScanResult.getId());
+        assertTrue(fromDb.isPresent());
+        assertEquals(75.0, fromDb.get().getScore());
+        assertEquals(0.80, fromDb.get().getConfidenceLevels().get(1L));
+    }
+
+    @Test
+    void testSaveAllRollsBackOnError() {
+        System.out.println("testSaveAllRollsBackOnError");
+        //Arrange
+        ScanResult duplicate = new ScanResult();
+        duplicate.setSubmissionId(1L); // submission_id is unique
+        duplicate.setScore(10.0);
+        ScanResult existing = instance.findById(2L).orElseThrow();
+        existing.setScore(99.0);
+
+        //Action & Assert
+        assertThrows(RepositoryException.class, () -> instance.saveAll(List.of(existing, duplicate)));
+        assertNull(duplicate.getId());
+        assertEquals(65.0, instance.findById(2L).orElseThrow().getScore());
+        assertEquals(2, instance.count());
+    }
+
     @Test
     void testSaveUpdateScanResult() {
         System.out.println("testSaveUpdateScanResult");
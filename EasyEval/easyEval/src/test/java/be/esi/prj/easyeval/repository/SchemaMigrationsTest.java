@@ -0,0 +1,174 @@
+package be.esi.prj.easyeval.repository;
+
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigrationsTest {
+    private Connection connection;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    private List<String> names(String type) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT name FROM sqlite_master WHERE type = ?")) {
+            stmt.setString(1, type);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString("name"));
+                }
+            }
+        }
+        return names;
+    }
+
+    private String queryPlan(String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString("detail")).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    @Test
+    void testMigrateEmptyDatabase() throws SQLException {
+        System.out.println("testMigrateEmptyDatabase");
+        //Action
+        int version = SchemaMigrations.migrate(connection);
+        //Assert
+        int latest = SchemaMigrations.MIGRATIONS.get(SchemaMigrations.MIGRATIONS.size() - 1).version();
+        assertEquals(latest, version);
+        assertEquals(latest, SchemaMigrations.currentVersion(connection));
+        List<String> tables = names("table");
+        assertTrue(tables.containsAll(List.of("courses", "exam_documents", "questions", "exam_questions",
+                "submissions", "student_answers", "scan_results", "confidence_levels",
+                "ocr_cache", "ocr_cache_answers", "schema_version")));
+        assertTrue(names("index").containsAll(List.of("idx_submissions_exam_id", "idx_exam_questions_exam_order",
+                "idx_exam_questions_question_id")));
+    }
+
+    @Test
+    void testMigrateTwiceIsNoOp() throws SQLException {
+        System.out.println("testMigrateTwiceIsNoOp");
+        //Arrange
+        SchemaMigrations.migrate(connection);
+        //Action
+        int version = SchemaMigrations.migrate(connection);
+        //Assert
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM schema_version")) {
+            assertTrue(rs.next());
+            assertEquals(SchemaMigrations.MIGRATIONS.size(), rs.getInt(1));
+        }
+        assertEquals(SchemaMigrations.currentVersion(connection), version);
+    }
+
+    @Test
+    void testMigrateExistingDatabaseKeepsData() throws SQLException {
+        System.out.println("testMigrateExistingDatabaseKeepsData");
+        //Arrange
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE courses (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        name TEXT NOT NULL UNIQUE,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """);
+            stmt.execute("INSERT INTO courses (name) VALUES ('Programming')");
+        }
+        //Action
+        SchemaMigrations.migrate(connection);
+        //Assert
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT name FROM courses")) {
+            assertTrue(rs.next());
+            assertEquals("Programming", rs.getString("name"));
+        }
+    }
+
+    @Test
+    void testFailedMigrationIsRolledBack() throws SQLException {
+        System.out.println("testFailedMigrationIsRolledBack");
+        //Arrange
+        List<SchemaMigrations.Migration> migrations = List.of(
+                new SchemaMigrations.Migration(1, "Table", List.of("CREATE TABLE notes (id INTEGER PRIMARY KEY)")),
+                new SchemaMigrations.Migration(2, "Broken", List.of(
+                        "CREATE TABLE drafts (id INTEGER PRIMARY KEY)",
+                        "CREATE INDEX idx_missing ON missing(id)")));
+        //Action & Assert
+        assertThrows(RepositoryException.class, () -> SchemaMigrations.migrate(connection, migrations));
+        assertEquals(1, SchemaMigrations.currentVersion(connection));
+        assertTrue(names("table").contains("notes"));
+        assertFalse(names("table").contains("drafts"));
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    void testLookupsUseIndexes() throws SQLException {
+        System.out.println("testLookupsUseIndexes");
+        //Arrange
+        SchemaMigrations.migrate(connection);
+        //Action & Assert
+        assertTrue(queryPlan("SELECT * FROM submissions WHERE exam_id = 1").contains("USING INDEX"));
+        assertTrue(queryPlan("SELECT * FROM student_answers WHERE submission_id = 1").contains("USING INDEX"));
+        assertTrue(queryPlan("SELECT * FROM confidence_levels WHERE scan_result_id = 1").contains("USING INDEX"));
+        assertTrue(queryPlan("SELECT * FROM scan_results WHERE submission_id = 1").contains("USING INDEX"));
+        assertTrue(queryPlan("SELECT * FROM courses WHERE name = 'Programming'").contains("USING INDEX"));
+        assertTrue(queryPlan("""
+                SELECT question_id FROM exam_questions WHERE exam_id = 1 ORDER BY question_order
+                """).contains("USING COVERING INDEX idx_exam_questions_exam_order"));
+    }
+
+    private int countMatches(String table, String query) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT COUNT(*) FROM " + table + " WHERE " + table + " MATCH ?")) {
+            stmt.setString(1, query);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    @Test
+    void testSearchIndexFollowsWrites() throws SQLException {
+        System.out.println("testSearchIndexFollowsWrites");
+        //Arrange
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE courses (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL UNIQUE, "
+                    + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            stmt.execute("INSERT INTO courses (name) VALUES ('Réseaux')");
+        }
+        SchemaMigrations.migrate(connection);
+        //Action & Assert
+        assertEquals(1, countMatches("courses_fts", "\"reseau\"*"));
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO courses (name) VALUES ('Systèmes d''exploitation')");
+            stmt.execute("INSERT INTO questions (text, correct_answer) VALUES ('Qu''est-ce qu''un défaut de page ?', 'x')");
+        }
+        assertEquals(1, countMatches("courses_fts", "\"systeme\"*"));
+        assertEquals(1, countMatches("questions_fts", "\"defaut\"* \"page\"*"));
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("UPDATE courses SET name = 'Télécommunications' WHERE name = 'Réseaux'");
+            stmt.execute("DELETE FROM questions");
+        }
+        assertEquals(0, countMatches("courses_fts", "\"reseau\"*"));
+        assertEquals(1, countMatches("courses_fts", "\"tele\"*"));
+        assertEquals(0, countMatches("questions_fts", "\"defaut\"*"));
+    }
+}
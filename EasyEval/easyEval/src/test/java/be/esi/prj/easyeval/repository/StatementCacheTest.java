@@ -0,0 +1,162 @@
+package be.esi.prj.easyeval.repository;
+
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCacheTest {
+    private Connection rawConnection;
+    private StatementCache instance;
+    private Connection connection;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        rawConnection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = rawConnection.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE courses (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        name TEXT NOT NULL UNIQUE
+                    )
+                    """);
+            stmt.execute("INSERT INTO courses (id, name) VALUES (1, 'Programming'), (2, 'Networks')");
+        }
+        instance = new StatementCache(rawConnection, 2);
+        connection = instance.getConnection();
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    private String findName(long id) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT name FROM courses WHERE id = ?")) {
+            stmt.setLong(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString("name") : null;
+            }
+        }
+    }
+
+    @Test
+    void testReuseCountsHits() throws SQLException {
+        System.out.println("testReuseCountsHits");
+        //Action
+        String first = findName(1);
+        String second = findName(2);
+        String third = findName(1);
+        //Assert
+        assertEquals("Programming", first);
+        assertEquals("Networks", second);
+        assertEquals("Programming", third);
+        assertEquals(1, instance.getMisses());
+        assertEquals(2, instance.getHits());
+        assertEquals(1, instance.size());
+    }
+
+    @Test
+    void testParametersAreResetOnClose() throws SQLException {
+        System.out.println("testParametersAreResetOnClose");
+        //Arrange
+        findName(1);
+        //Action
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT name FROM courses WHERE id = ?");
+             ResultSet rs = stmt.executeQuery()) {
+            //Assert
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    void testClosedStatementCannotBeUsed() throws SQLException {
+        System.out.println("testClosedStatementCannotBeUsed");
+        //Arrange
+        PreparedStatement stmt = connection.prepareStatement("SELECT name FROM courses WHERE id = ?");
+        //Action
+        stmt.close();
+        //Assert
+        assertTrue(stmt.isClosed());
+        assertThrows(SQLException.class, () -> stmt.setLong(1, 1));
+    }
+
+    @Test
+    void testStatementInUseIsNotShared() throws SQLException {
+        System.out.println("testStatementInUseIsNotShared");
+        //Arrange
+        String sql = "SELECT name FROM courses WHERE id = ?";
+        //Action
+        try (PreparedStatement outer = connection.prepareStatement(sql);
+             PreparedStatement inner = connection.prepareStatement(sql)) {
+            outer.setLong(1, 1);
+            inner.setLong(1, 2);
+            try (ResultSet outerRs = outer.executeQuery(); ResultSet innerRs = inner.executeQuery()) {
+                //Assert
+                assertTrue(outerRs.next());
+                assertTrue(innerRs.next());
+                assertEquals("Programming", outerRs.getString("name"));
+                assertEquals("Networks", innerRs.getString("name"));
+            }
+        }
+        assertEquals(2, instance.getMisses());
+        assertEquals(1, instance.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() throws SQLException {
+        System.out.println("testLeastRecentlyUsedIsEvicted");
+        //Arrange
+        String first = "SELECT COUNT(*) FROM courses";
+        String second = "SELECT MAX(id) FROM courses";
+        String third = "SELECT MIN(id) FROM courses";
+        //Action
+        connection.prepareStatement(first).close();
+        connection.prepareStatement(second).close();
+        connection.prepareStatement(first).close();
+        connection.prepareStatement(third).close();
+        connection.prepareStatement(first).close();
+        connection.prepareStatement(second).close();
+        //Assert
+        assertEquals(2, instance.size());
+        assertEquals(2, instance.getEvictions());
+        assertEquals(2, instance.getHits());
+        assertEquals(4, instance.getMisses());
+    }
+
+    @Test
+    void testGeneratedKeysStatementIsReused() throws SQLException {
+        System.out.println("testGeneratedKeysStatementIsReused");
+        //Arrange
+        String sql = "INSERT INTO courses (name) VALUES (?)";
+        long[] ids = new long[2];
+        //Action
+        for (int i = 0; i < 2; i++) {
+            try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, "Course " + i);
+                stmt.executeUpdate();
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    assertTrue(rs.next());
+                    ids[i] = rs.getLong(1);
+                }
+            }
+        }
+        //Assert
+        assertEquals(3, ids[0]);
+        assertEquals(4, ids[1]);
+        assertEquals(1, instance.getHits());
+    }
+
+    @Test
+    void testCloseConnectionClearsCache() throws SQLException {
+        System.out.println("testCloseConnectionClearsCache");
+        //Arrange
+        findName(1);
+        //Action
+        connection.close();
+        //Assert
+        assertEquals(0, instance.size());
+        assertTrue(rawConnection.isClosed());
+    }
+}
@@ -216,6 +216,66 @@ class SubmissionRepositoryTest {
         assertTrue(result.stream().anyMatch(s -> s.getStudentId().equals("Bob")));
     }
 
+    @Test
+    void testFindPage() {
+        System.out.println("testFindPage");
+        //Action
+        Page<Long, Submission> first = instance.findPage(null, 2);
+        Page<Long, Submission> second = instance.findPage(first.nextKey(), 2);
+        //Assert
+        assertEquals(List.of(1L, 2L), first.items().stream().map(Submission::getId).toList());
+        assertEquals(2L, first.nextKey());
+        assertEquals(List.of(3L), second.items().stream().map(Submission::getId).toList());
+        assertFalse(second.hasNext());
+        assertEquals("A programming language", first.items().get(0).getAnswer(1L));
+    }
+
+    @Test
+    void testFindPageByExamId() {
+        System.out.println("testFindPageByExamId");
+        //Action
+        Page<SubmissionRepository.SubmissionKey, Submission> first = instance.findPageByExamId(1L, null, 1);
+        Page<SubmissionRepository.SubmissionKey, Submission> second =
+                instance.findPageByExamId(1L, first.nextKey(), 1);
+        //Assert
+        assertEquals("Bob", first.items().get(0).getStudentId());
+        assertTrue(first.hasNext());
+        assertEquals("Alice", second.items().get(0).getStudentId());
+        assertFalse(second.hasNext());
+        assertEquals("A programming language", second.items().get(0).getAnswer(1L));
+    }
+
+    @Test
+    void testFindPageByExamIdWithSameDate() throws SQLException {
+        System.out.println("testFindPageByExamIdWithSameDate");
+        //Arrange
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                    INSERT INTO submissions (id, exam_id, student_id, submission_date) VALUES
+                    (4, 1, 'Carol', '2024-04-08 10:45:00'),
+                    (5, 1, 'Dave', '2024-04-08 10:45:00')
+                    """);
+        }
+        //Action
+        Page<SubmissionRepository.SubmissionKey, Submission> first = instance.findPageByExamId(1L, null, 2);
+        Page<SubmissionRepository.SubmissionKey, Submission> second =
+                instance.findPageByExamId(1L, first.nextKey(), 2);
+        //Assert
+        assertEquals(List.of(5L, 4L), first.items().stream().map(Submission::getId).toList());
+        assertEquals(new SubmissionRepository.SubmissionKey("2024-04-08 10:45:00", 4L), first.nextKey());
+        assertEquals(List.of(2L, 1L), second.items().stream().map(Submission::getId).toList());
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    void testStreamAll() {
+        System.out.println("testStreamAll");
+        //Action
+        List<Long> ids = instance.streamAll(2).map(Submission::getId).toList();
+        //Assert
+        assertEquals(List.of(1L, 2L, 3L), ids);
+    }
+
     @Test
     void testFindByStudentId() {
         System.out.println("testFindByStudentId");
@@ -285,6 +345,38 @@ class SubmissionRepositoryTest {
         assertEquals("Java is an OOP language", fromDb.get().getStudentAnswers().get(1L));
     }
 
+    @Test
+    void testSaveAllInsertsAndUpdates() {
+        System.out.println("testSaveAllInsertsAndUpdates");
+        //Arrange
+        Submission existing = instance.findById(1L).orElseThrow();
+        Map<Long, String> updatedAnswers = new HashMap<>(existing.getStudentAnswers());
+        updatedAnswers.put(1L, "Java is an OOP language");
+        existing.setStudentAnswers(updatedAnswers);
+
+        Submission newSubmission = new Submission();
+        newSubmission.setExamId(2L);
+        newSubmission.setStudentId("Charlie");
+        Map<Long, String> charlieAnswers = new HashMap<>();
+        charlieAnswers.put(1L, "Java is a programming language");
+        newSubmission.setStudentAnswers(charlieAnswers);
+
+        //Action
+        List<Submission> saved = instance.saveAll(List.of(existing, newSubmission));
+
+        //Assert
+        assertEquals(2, saved.size());
+        assertEquals(1L, saved.get(0).getId());
+        assertNotNull(saved.get(1).getId());
+
+        //Verify in database
+        assertEquals("Java is an OOP language", instance.findById(1L).orElseThrow().getStudentAnswers().get(1L));
+        Optional<Submission> fromDb = instance.findById(newSubmission.getId());
+        assertTrue(fromDb.isPresent());
+        assertEquals("Charlie", fromDb.get().getStudentId());
+        assertEquals("Java is a programming language", fromDb.get().getStudentAnswers().get(1L));
+    }
+
     @Test
     void testDeleteById() {
         System.out.println("testDeleteById");
@@ -317,6 +409,22 @@ class SubmissionRepositoryTest {
         assertFalse(result);
     }
 
+    @Test
+    void testDeleteByExamId() throws SQLException {
+        System.out.println("testDeleteByExamId");
+        //Action
+        int result = instance.deleteByExamId(1L);
+        //Assert
+        assertEquals(2, result);
+        assertTrue(instance.findByExamId(1L).isEmpty());
+        assertEquals(1, instance.findByExamId(2L).size());
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM student_answers WHERE submission_id IN (1, 2)")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
     @Test
     void testExistsById() {
         System.out.println("testExistsById");
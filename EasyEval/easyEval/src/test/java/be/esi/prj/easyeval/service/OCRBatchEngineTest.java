@@ -0,0 +1,272 @@
+package be.esi.prj.easyeval.service;
+
+import be.esi.prj.easyeval.model.*;
+import be.esi.prj.easyeval.repository.*;
+import be.esi.prj.easyeval.utils.OCRProcessor;
+import be.esi.prj.easyeval.utils.PreparedPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OCRBatchEngineTest {
+
+    @TempDir
+    Path scanFolder;
+
+    private SubmissionRepository submissionRepository;
+    private ScanResultRepository scanResultRepository;
+    private OcrCacheRepository ocrCache;
+    private OCRBatchEngine.BatchListener listener;
+    private List<OCRProcessor> processors;
+    private ExamDocument exam;
+
+    @BeforeEach
+    void setup() {
+        submissionRepository = mock(SubmissionRepository.class);
+        scanResultRepository = mock(ScanResultRepository.class);
+        ocrCache = mock(OcrCacheRepository.class);
+        listener = mock(OCRBatchEngine.BatchListener.class);
+        processors = new CopyOnWriteArrayList<>();
+
+        exam = new ExamDocument();
+        exam.setId(1L);
+        exam.addQuestion(new Question(1L, "Language?", "JAVA", null));
+    }
+
+    @Test
+    void process_shouldGradeAndSaveEveryScan() throws Exception {
+        List<OCRBatchEngine.ScanJob> jobs = jobs(10, 11, 12);
+        OCRBatchEngine engine = new OCRBatchEngine(this::fakeProcessor, submissionRepository, scanResultRepository, 2);
+        engine.setPreprocessParallelism(1);
+
+        OCRBatchEngine.BatchReport report = engine.process(jobs, exam, false, false, false, false, () -> false,
+                listener);
+
+        assertEquals(3, report.graded());
+        assertEquals(0, report.failed());
+        assertFalse(report.cancelled());
+        verify(submissionRepository).saveAll(argThat(submissions -> submissions.size() == 3));
+        verify(scanResultRepository).saveAll(argThat(results -> results.size() == 3));
+        for (OCRBatchEngine.ScanJob job : jobs) {
+            Submission submission = job.submission();
+            assertEquals("S" + (9 + submission.getId()), submission.getStudentId());
+            assertEquals("JAVA", submission.getAnswer(1L));
+            verify(listener).onGraded(eq(submission), argThat(result ->
+                    result.getSubmissionId().equals(submission.getId())));
+        }
+        verify(listener, never()).onFailed(any(), any());
+        // The engines of the two recognizers are prepared once, by the first recognizer
+        verify(processors.get(1), times(1)).warmUp(2);
+    }
+
+    @Test
+    void process_shouldReportProgressInOrderBeforeSavedCopies() throws Exception {
+        List<OCRBatchEngine.ScanJob> jobs = jobs(10, 11, 12);
+        OCRBatchEngine engine = new OCRBatchEngine(this::fakeProcessor, submissionRepository, scanResultRepository, 1);
+        engine.setPreprocessParallelism(1);
+
+        engine.process(jobs, exam, false, false, false, false, () -> false, listener);
+
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).onProgress(1, 3);
+        inOrder.verify(listener).onProgress(2, 3);
+        inOrder.verify(listener).onProgress(3, 3);
+        // Copies are saved in chunks, so they are announced after their progress
+        inOrder.verify(listener, times(3)).onGraded(any(), any());
+    }
+
+    @Test
+    void process_shouldFailMissingScanAndGradeOthers() throws Exception {
+        List<OCRBatchEngine.ScanJob> jobs = new ArrayList<>(jobs(10));
+        Submission missing = new Submission(1L, "missing");
+        missing.setId(2L);
+        OCRBatchEngine.ScanJob missingJob = new OCRBatchEngine.ScanJob(missing, scanFolder.resolve("none.png").toFile());
+        jobs.add(missingJob);
+        OCRBatchEngine engine = new OCRBatchEngine(this::fakeProcessor, submissionRepository, scanResultRepository, 1);
+        engine.setPreprocessParallelism(1);
+
+        OCRBatchEngine.BatchReport report = engine.process(jobs, exam, false, false, false, false, () -> false,
+                listener);
+
+        assertEquals(1, report.graded());
+        assertEquals(1, report.failed());
+        verify(listener).onFailed(eq(missingJob), any());
+        verify(listener).onGraded(eq(jobs.get(0).submission()), any());
+        verify(listener).onProgress(2, 2);
+    }
+
+    @Test
+    void process_shouldSaveOneByOneWhenChunkFails() throws Exception {
+        List<OCRBatchEngine.ScanJob> jobs = jobs(10, 11, 12);
+        when(scanResultRepository.saveAll(any())).thenThrow(new RepositoryException("chunk", null));
+        when(scanResultRepository.save(any())).thenAnswer(invocation -> {
+            ScanResult result = invocation.getArgument(0);
+            if (result.getSubmissionId() == 2L) {
+                throw new RepositoryException("copy", null);
+            }
+            return result;
+        });
+        OCRBatchEngine engine = new OCRBatchEngine(this::fakeProcessor, submissionRepository, scanResultRepository, 1);
+        engine.setPreprocessParallelism(1);
+
+        OCRBatchEngine.BatchReport report = engine.process(jobs, exam, false, false, false, false, () -> false,
+                listener);
+
+        assertEquals(2, report.graded());
+        assertEquals(1, report.failed());
+        verify(submissionRepository, times(3)).save(any());
+        verify(listener).onGraded(eq(jobs.get(0).submission()), any());
+        verify(listener).onFailed(eq(jobs.get(1)), any(RepositoryException.class));
+        verify(listener).onGraded(eq(jobs.get(2).submission()), any());
+    }
+
+    @Test
+    void process_shouldKeepCopiesGradedBeforeCancellation() throws Exception {
+        List<OCRBatchEngine.ScanJob> jobs = jobs(10, 11, 12);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        doAnswer(invocation -> {
+            cancelled.set(true);
+            return null;
+        }).when(listener).onProgress(anyInt(), anyInt());
+        OCRBatchEngine engine = new OCRBatchEngine(this::fakeProcessor, submissionRepository, scanResultRepository, 1);
+        engine.setPreprocessParallelism(1);
+
+        OCRBatchEngine.BatchReport report = engine.process(jobs, exam, false, false, false, false, cancelled::get,
+                listener);
+
+        assertTrue(report.cancelled());
+        assertEquals(1, report.graded());
+        verify(listener).onProgress(1, 3);
+        verify(listener, times(1)).onGraded(any(), any());
+        verify(submissionRepository).saveAll(argThat(submissions -> submissions.size() == 1));
+    }
+
+    @Test
+    void process_shouldSaveCopiesGradedBeforeWorkerCrash() throws Exception {
+        List<OCRBatchEngine.ScanJob> jobs = jobs(10, 11, 12);
+        OCRBatchEngine engine = new OCRBatchEngine(() -> {
+            OCRProcessor processor = fakeProcessor();
+            try {
+                doThrow(new UnsatisfiedLinkError("tesseract")).when(processor)
+                        .recognize(argThat(page -> page.getWidth() == 11), any());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return processor;
+        }, submissionRepository, scanResultRepository, 1);
+        // One thread per stage, so the pages reach the crashing page in order
+        engine.setDecodeParallelism(1);
+        engine.setPreprocessParallelism(1);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> engine.process(jobs, exam,
+                false, false, false, false, () -> false, listener));
+
+        assertInstanceOf(UnsatisfiedLinkError.class, error.getCause());
+        verify(submissionRepository).saveAll(argThat(submissions -> submissions.size() == 1));
+        verify(listener).onGraded(eq(jobs.get(0).submission()), any());
+        verify(listener, times(1)).onGraded(any(), any());
+    }
+
+    @Test
+    void process_shouldScoreCachedScanWithoutOcr() throws Exception {
+        List<OCRBatchEngine.ScanJob> jobs = jobs(10);
+        Submission cached = new Submission(1L, "CACHED");
+        cached.setAnswer(1L, "JAVA");
+        String fileHash = sha256(jobs.get(0).scanFile());
+        when(ocrCache.findAll(eq(1L), eq("fake"), eq(List.of(fileHash)))).thenReturn(Map.of(fileHash, cached));
+        OCRBatchEngine engine = new OCRBatchEngine(this::fakeProcessor, submissionRepository, scanResultRepository,
+                ocrCache, 1);
+        engine.setPreprocessParallelism(1);
+
+        OCRBatchEngine.BatchReport report = engine.process(jobs, exam, false, false, false, false, () -> false,
+                listener);
+
+        assertEquals(1, report.graded());
+        assertEquals("CACHED", jobs.get(0).submission().getStudentId());
+        for (OCRProcessor processor : processors) {
+            verify(processor, never()).preparePage(any(), any());
+            verify(processor, never()).recognize(any(), any());
+            verify(processor, never()).warmUp(anyInt());
+        }
+        verify(processors.get(1)).calculateScore(any(), eq(exam));
+        // Only new OCR results are cached
+        verify(ocrCache).saveAll(eq(1L), eq("fake"), eq(Map.of()));
+    }
+
+    @Test
+    void process_shouldCacheNewOcrResults() throws Exception {
+        List<OCRBatchEngine.ScanJob> jobs = jobs(10);
+        String fileHash = sha256(jobs.get(0).scanFile());
+        when(ocrCache.findAll(anyLong(), anyString(), any())).thenReturn(Map.of());
+        OCRBatchEngine engine = new OCRBatchEngine(this::fakeProcessor, submissionRepository, scanResultRepository,
+                ocrCache, 1);
+        engine.setPreprocessParallelism(1);
+
+        engine.process(jobs, exam, false, false, false, false, () -> false, listener);
+
+        verify(ocrCache).saveAll(eq(1L), eq("fake"), argThat(entries -> entries.keySet().equals(Set.of(fileHash))
+                && "S10".equals(entries.get(fileHash).getStudentId())));
+    }
+
+    /**
+     * Processor reading the width of the scan as the student ID, and JAVA as every answer.
+     */
+    private OCRProcessor fakeProcessor() {
+        OCRProcessor processor = mock(OCRProcessor.class);
+        try {
+            when(processor.getSettingsFingerprint()).thenReturn("fake");
+            when(processor.preparePage(any(), any())).thenAnswer(invocation -> {
+                BufferedImage image = invocation.getArgument(0);
+                return new PreparedPage(image.getWidth(), image.getHeight(), null, Map.of());
+            });
+            when(processor.recognize(any(), any())).thenAnswer(invocation -> {
+                PreparedPage page = invocation.getArgument(0);
+                Submission submission = new Submission(1L, "S" + page.getWidth());
+                submission.setAnswer(1L, "JAVA");
+                return submission;
+            });
+            when(processor.calculateScore(any(), any())).thenAnswer(invocation -> {
+                Submission submission = invocation.getArgument(0);
+                return new ScanResult(submission.getId(), 100.0);
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        processors.add(processor);
+        return processor;
+    }
+
+    /**
+     * @param widths Width of each scan, its submission ID is its position from 1
+     */
+    private List<OCRBatchEngine.ScanJob> jobs(int... widths) throws Exception {
+        List<OCRBatchEngine.ScanJob> jobs = new ArrayList<>();
+        for (int i = 0; i < widths.length; i++) {
+            File file = scanFolder.resolve("scan" + i + ".png").toFile();
+            ImageIO.write(new BufferedImage(widths[i], 10, BufferedImage.TYPE_INT_RGB), "png", file);
+            Submission submission = new Submission(1L, "scan" + i);
+            submission.setId(i + 1L);
+            jobs.add(new OCRBatchEngine.ScanJob(submission, file));
+        }
+        return jobs;
+    }
+
+    private static String sha256(File file) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file.toPath())));
+    }
+}
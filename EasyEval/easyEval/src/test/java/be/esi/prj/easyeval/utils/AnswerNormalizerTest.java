@@ -0,0 +1,83 @@
+package be.esi.prj.easyeval.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerNormalizerTest {
+
+    @Test
+    void testNormalizeMatchesOldRegularExpressions() {
+        System.out.println("testNormalizeMatchesOldRegularExpressions");
+        //Arrange
+        String[] answers = {"", " ", "Java", "3. Java", "  12.   réseau  ", "1.2.3", "12 . x", "a-b_c",
+                "Base de données!", "10. ", "x.  y", "\t4.\tTab", "ÀÉÎÕÜ çñ", "1O5", "abc123XYZ", "...", "7."};
+        for (String answer : answers) {
+            //Action
+            String result = AnswerNormalizer.normalize(answer);
+            //Assert
+            assertEquals(cleanAnswer(answer), result, answer);
+        }
+    }
+
+    @Test
+    void testNormalizeMatchesOldRegularExpressionsOnRandomAnswers() {
+        System.out.println("testNormalizeMatchesOldRegularExpressionsOnRandomAnswers");
+        //Arrange
+        String alphabet = "aZ09 .\t\n-_éÀ!";
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder answer = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                answer.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            //Action
+            String result = AnswerNormalizer.normalize(answer.toString());
+            //Assert
+            assertEquals(cleanAnswer(answer.toString()), result, answer.toString());
+        }
+    }
+
+    @Test
+    void testNormalizeNull() {
+        System.out.println("testNormalizeNull");
+        //Action
+        String result = AnswerNormalizer.normalize(null);
+        //Assert
+        assertEquals("", result);
+    }
+
+    @Test
+    void testNormalizeWithAccentFolding() {
+        System.out.println("testNormalizeWithAccentFolding");
+        //Action
+        String result = AnswerNormalizer.normalize("2. Réseau à forte côte", NormalizationPolicy.ACCENT_FOLDING);
+        //Assert
+        assertEquals("RESEAU A FORTE COTE", result);
+    }
+
+    @Test
+    void testNormalizeWithNumericPolicy() {
+        System.out.println("testNormalizeWithNumericPolicy");
+        //Action
+        String result = AnswerNormalizer.normalize("1O5 l2", NormalizationPolicy.NUMERIC);
+        //Assert
+        assertEquals("105 12", result);
+    }
+
+    /**
+     * Cleaning before the normalizer.
+     */
+    private static String cleanAnswer(String rawAnswer) {
+        if (rawAnswer == null || rawAnswer.isEmpty()) {
+            return "";
+        }
+        rawAnswer = rawAnswer.replaceAll("^\\s*\\d+\\.\\s*", "");
+        String cleaned = rawAnswer.replaceAll("[^A-Za-z0-9]", " ");
+        cleaned = cleaned.replaceAll("\\s+", " ").trim();
+        return cleaned.toUpperCase();
+    }
+}
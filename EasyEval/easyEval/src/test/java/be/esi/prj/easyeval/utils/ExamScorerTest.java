@@ -0,0 +1,196 @@
+package be.esi.prj.easyeval.utils;
+
+import be.esi.prj.easyeval.model.ExamDocument;
+import be.esi.prj.easyeval.model.Question;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExamScorerTest {
+    private static final String LONG_ANSWER =
+            "THE JAVA VIRTUAL MACHINE LOADS VERIFIES AND EXECUTES THE BYTECODE OF THE CLASSES";
+
+    @Test
+    void testSimilarityOfUnrelatedAnswerIsExact() {
+        System.out.println("testSimilarityOfUnrelatedAnswerIsExact");
+        //Arrange
+        ExamScorer instance = scorerFor("PROGRAMMATION");
+        //Action
+        double result = instance.similarity(0, "XYZWVUTSRQKJH");
+        //Assert
+        assertEquals(0.0, result);
+        assertEquals(oldSimilarity("XYZWVUTSRQKJH", "PROGRAMMATION"), result);
+    }
+
+    @Test
+    void testSimilarityMatchesOldLevenshtein() {
+        System.out.println("testSimilarityMatchesOldLevenshtein");
+        //Arrange
+        String[][] pairs = {
+                {"PROGRAMMATION", "PROGRAMMATION"},
+                {"Programmation", "1. programmation"},
+                {"PROGRAMMATION", "PR0GRAMMATI0N"},
+                {"PROGRAMMATION", "PROGRAM"},
+                {"PROGRAMMATION", ""},
+                {"PROGRAMMATION", null},
+                {"", "ANSWER"},
+                {"", ""},
+                {"JAVA", "JAVA SCRIPT"},
+                {"base de données", "BASE DE DONNEES"},
+                {LONG_ANSWER, LONG_ANSWER.toLowerCase()},
+                {LONG_ANSWER, LONG_ANSWER.replace('E', '3')},
+                {LONG_ANSWER, "THE JAVA MACHINE"},
+                {LONG_ANSWER, "XYZ"},
+        };
+        for (String[] pair : pairs) {
+            ExamScorer instance = scorerFor(pair[0]);
+            //Action
+            double result = instance.similarity(0, pair[1]);
+            //Assert
+            assertEquals(oldSimilarity(pair[1], pair[0]), result, pair[0] + " / " + pair[1]);
+        }
+    }
+
+    @Test
+    void testSimilarityMatchesOldLevenshteinOnRandomAnswers() {
+        System.out.println("testSimilarityMatchesOldLevenshteinOnRandomAnswers");
+        //Arrange
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            String correctAnswer = randomAnswer(random, 1 + random.nextInt(i % 2 == 0 ? 20 : 90));
+            String studentAnswer = random.nextBoolean()
+                    ? mutate(random, correctAnswer)
+                    : randomAnswer(random, random.nextInt(90));
+            ExamScorer instance = scorerFor(correctAnswer);
+            //Action
+            double result = instance.similarity(0, studentAnswer);
+            //Assert
+            assertEquals(oldSimilarity(studentAnswer, correctAnswer), result, correctAnswer + " / " + studentAnswer);
+        }
+    }
+
+    @Test
+    void testPassThresholdBoundary() {
+        System.out.println("testPassThresholdBoundary");
+        //Arrange
+        ExamScorer instance = scorerFor("ABCDEFGHIJ");
+        //Action
+        double twoErrors = instance.similarity(0, "ABCDEFGHXX");
+        double threeErrors = instance.similarity(0, "ABCDEFGXXX");
+        double oneErrorOfFive = scorerFor("ABCDE").similarity(0, "ABCDX");
+        //Assert
+        assertEquals(oldSimilarity("ABCDEFGHXX", "ABCDEFGHIJ"), twoErrors);
+        assertEquals(oldSimilarity("ABCDEFGXXX", "ABCDEFGHIJ"), threeErrors);
+        assertEquals(oldSimilarity("ABCDX", "ABCDE"), oneErrorOfFive);
+        assertTrue(twoErrors >= ExamScorer.PASS_THRESHOLD);
+        assertFalse(threeErrors >= ExamScorer.PASS_THRESHOLD);
+        assertEquals(oldSimilarity("ABCDX", "ABCDE") >= 0.8, oneErrorOfFive >= ExamScorer.PASS_THRESHOLD);
+    }
+
+    @Test
+    void testScorerIsReusedAcrossQuestions() {
+        System.out.println("testScorerIsReusedAcrossQuestions");
+        //Arrange
+        ExamDocument exam = new ExamDocument("Exam", 1L);
+        exam.addQuestion(new Question(1L, "Q1", LONG_ANSWER, null));
+        exam.addQuestion(new Question(2L, "Q2", "JAVA", null));
+        ExamScorer instance = new ExamScorer(exam);
+        //Action
+        double first = instance.similarity(0, LONG_ANSWER + " AND MORE");
+        double second = instance.similarity(1, "JAVO");
+        //Assert
+        assertEquals(oldSimilarity(LONG_ANSWER + " AND MORE", LONG_ANSWER), first);
+        assertEquals(oldSimilarity("JAVO", "JAVA"), second);
+    }
+
+    @Test
+    void testSimilarityUsesPolicyStoredWithQuestion() {
+        System.out.println("testSimilarityUsesPolicyStoredWithQuestion");
+        //Arrange
+        ExamDocument exam = new ExamDocument("Exam", 1L);
+        Question standard = new Question(1L, "Q1", "RESEAU", null);
+        Question accents = new Question(2L, "Q2", "RESEAU", null);
+        accents.setNormalization("accents");
+        exam.addQuestion(standard);
+        exam.addQuestion(accents);
+        ExamScorer instance = new ExamScorer(exam);
+        //Action
+        double withoutFolding = instance.similarity(0, "réseau");
+        double withFolding = instance.similarity(1, "réseau");
+        //Assert
+        assertTrue(withoutFolding < 1.0);
+        assertEquals(1.0, withFolding);
+    }
+
+    private static ExamScorer scorerFor(String correctAnswer) {
+        ExamDocument exam = new ExamDocument("Exam", 1L);
+        exam.addQuestion(new Question(1L, "Question", correctAnswer, null));
+        return new ExamScorer(exam);
+    }
+
+    private static String randomAnswer(Random random, int length) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 abcé.-";
+        StringBuilder answer = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            answer.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return answer.toString();
+    }
+
+    private static String mutate(Random random, String answer) {
+        StringBuilder mutated = new StringBuilder(answer);
+        int edits = random.nextInt(Math.max(1, answer.length() / 3));
+        for (int i = 0; i < edits && !mutated.isEmpty(); i++) {
+            int position = random.nextInt(mutated.length());
+            switch (random.nextInt(3)) {
+                case 0 -> mutated.deleteCharAt(position);
+                case 1 -> mutated.insert(position, (char) ('A' + random.nextInt(26)));
+                default -> mutated.setCharAt(position, (char) ('A' + random.nextInt(26)));
+            }
+        }
+        return mutated.toString();
+    }
+
+    /**
+     * Grading before the scorer: both answers cleaned with regular expressions, then a full Levenshtein matrix.
+     */
+    private static double oldSimilarity(String studentAnswer, String correctAnswer) {
+        String norm1 = cleanAnswer(studentAnswer).trim().toUpperCase();
+        String norm2 = cleanAnswer(correctAnswer).trim().toUpperCase();
+        if (norm1.equals(norm2)) {
+            return 1.0;
+        }
+
+        int[][] dp = new int[norm1.length() + 1][norm2.length() + 1];
+        for (int i = 0; i <= norm1.length(); i++) {
+            dp[i][0] = i;
+        }
+        for (int j = 0; j <= norm2.length(); j++) {
+            dp[0][j] = j;
+        }
+        for (int i = 1; i <= norm1.length(); i++) {
+            for (int j = 1; j <= norm2.length(); j++) {
+                int cost = (norm1.charAt(i - 1) == norm2.charAt(j - 1)) ? 0 : 1;
+                dp[i][j] = Math.min(Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1), dp[i - 1][j - 1] + cost);
+            }
+        }
+
+        int maxLength = Math.max(norm1.length(), norm2.length());
+        return maxLength == 0 ? 1.0 : 1.0 - ((double) dp[norm1.length()][norm2.length()] / maxLength);
+    }
+
+    /**
+     * Cleaning before the normalizer.
+     */
+    private static String cleanAnswer(String rawAnswer) {
+        if (rawAnswer == null || rawAnswer.isEmpty()) {
+            return "";
+        }
+        rawAnswer = rawAnswer.replaceAll("^\\s*\\d+\\.\\s*", "");
+        String cleaned = rawAnswer.replaceAll("[^A-Za-z0-9]", " ");
+        cleaned = cleaned.replaceAll("\\s+", " ").trim();
+        return cleaned.toUpperCase();
+    }
+}
@@ -2,12 +2,17 @@ package be.esi.prj.easyeval.viewmodel;
 
 import be.esi.prj.easyeval.model.Course;
 import be.esi.prj.easyeval.repository.CourseRepository;
+import be.esi.prj.easyeval.service.AsyncDataAccess;
 import javafx.collections.ObservableList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -118,6 +123,31 @@ class CourseManagerViewModelTest {
         }
     }
 
+    @Test
+    void searchCoursesDebounced_shouldOnlySearchLastText() throws InterruptedException {
+        Course course = new Course("JavaFX");
+        when(mockRepository.findByNameContaining("Java")).thenReturn(Collections.singletonList(course));
+        // The first update is the course list loaded by the constructor
+        CountDownLatch updated = new CountDownLatch(2);
+        Executor uiExecutor = update -> {
+            update.run();
+            updated.countDown();
+        };
+        CourseManagerViewModel debounced = new CourseManagerViewModel(mockRepository,
+                new AsyncDataAccess(Runnable::run, uiExecutor), Duration.ofMillis(200));
+
+        debounced.searchCoursesDebounced("J");
+        debounced.searchCoursesDebounced("Ja");
+        debounced.searchCoursesDebounced("Java");
+
+        assertTrue(updated.await(2, TimeUnit.SECONDS));
+        verify(mockRepository).findByNameContaining("Java");
+        verify(mockRepository, never()).findByNameContaining("J");
+        verify(mockRepository, never()).findByNameContaining("Ja");
+        assertEquals(1, debounced.getCourseList().size());
+        assertEquals("JavaFX", debounced.getCourseList().get(0).getName());
+    }
+
     @Test
     void selectedCourse_shouldBeSetAndGetCorrectly() {
         Course course = new Course("Algo");
@@ -2,6 +2,8 @@ package be.esi.prj.easyeval.viewmodel;
 
 import be.esi.prj.easyeval.model.ExamDocument;
 import be.esi.prj.easyeval.model.Question;
+import be.esi.prj.easyeval.repository.QuestionRepository;
+import be.esi.prj.easyeval.service.AsyncDataAccess;
 import be.esi.prj.easyeval.service.ExamDocumentService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,8 +11,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -22,11 +28,14 @@ public class DocumentCreatorViewModelTest {
     @Mock
     private ExamDocumentService examDocumentService;
 
+    @Mock
+    private QuestionRepository questionRepository;
+
     private DocumentCreatorViewModel viewModel;
 
     @BeforeEach
     public void setUp() {
-        viewModel = new DocumentCreatorViewModel(examDocumentService);
+        viewModel = new DocumentCreatorViewModel(examDocumentService, questionRepository);
     }
 
     @Test
@@ -91,6 +100,28 @@ public class DocumentCreatorViewModelTest {
 
 
 
+    @Test
+    public void addQuestion_withNormalization_shouldStoreItOnQuestion() {
+        // Arrange
+        viewModel.initialize(new ExamDocument("Test Exam", 1L));
+        viewModel.questionTextProperty().set("Network?");
+        viewModel.correctAnswerProperty().set("Réseau");
+        viewModel.normalizationProperty().set("accents");
+
+        // Act
+        Question result = viewModel.addQuestion();
+
+        // Assert
+        assertEquals("accents", result.getNormalization());
+        assertEquals("standard", viewModel.normalizationProperty().get());
+
+        // Act
+        viewModel.editQuestion(result);
+
+        // Assert
+        assertEquals("accents", viewModel.normalizationProperty().get());
+    }
+
     @Test
     public void updateQuestion_withSelectedQuestion_shouldUpdateQuestionInList() {
         // Arrange
@@ -230,4 +261,40 @@ public class DocumentCreatorViewModelTest {
 
         verify(examDocumentService).saveExamDocument(any(ExamDocument.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchQuestionsDebounced_shouldOnlySearchLastText() throws InterruptedException {
+        // Arrange
+        Question question = new Question("Protocole réseau ?", "TCP");
+        when(questionRepository.findByTextContaining("rés")).thenReturn(List.of(question));
+        CountDownLatch updated = new CountDownLatch(1);
+        Executor uiExecutor = update -> {
+            update.run();
+            updated.countDown();
+        };
+        DocumentCreatorViewModel debounced = new DocumentCreatorViewModel(examDocumentService, questionRepository,
+                new AsyncDataAccess(Runnable::run, uiExecutor), Duration.ofMillis(200));
+
+        // Act
+        debounced.searchQuestionsDebounced("r");
+        debounced.searchQuestionsDebounced("ré");
+        debounced.searchQuestionsDebounced("rés");
+
+        // Assert
+        assertTrue(updated.await(2, TimeUnit.SECONDS));
+        verify(questionRepository).findByTextContaining("rés");
+        verify(questionRepository, never()).findByTextContaining("r");
+        verify(questionRepository, never()).findByTextContaining("ré");
+        assertEquals(List.of(question), debounced.getQuestionSearchResults());
+    }
+
+    @Test
+    public void searchQuestionsDebounced_withEmptyText_shouldClearResults() {
+        // Act
+        viewModel.searchQuestionsDebounced(" ");
+
+        // Assert
+        assertTrue(viewModel.getQuestionSearchResults().isEmpty());
+        verifyNoInteractions(questionRepository);
+    }
+}
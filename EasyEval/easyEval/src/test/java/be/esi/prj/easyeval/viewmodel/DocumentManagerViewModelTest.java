@@ -2,13 +2,17 @@ package be.esi.prj.easyeval.viewmodel;
 
 import be.esi.prj.easyeval.model.Course;
 import be.esi.prj.easyeval.model.ExamDocument;
+import be.esi.prj.easyeval.service.AsyncDataAccess;
 import be.esi.prj.easyeval.service.ExamDocumentService;
 import javafx.collections.ObservableList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -41,6 +45,27 @@ class DocumentManagerViewModelTest {
         assertEquals("Exam 1", viewModel.getExamList().get(0).getTitle());
     }
 
+    @Test
+    void fetchExamsForCourse_shouldDropOlderResults() throws Exception {
+        ExamDocument first = new ExamDocument();
+        first.setTitle("Exam of course 1");
+        ExamDocument second = new ExamDocument();
+        second.setTitle("Exam of course 2");
+        when(mockService.findExamDocumentsByCourseId(1L)).thenReturn(List.of(first));
+        when(mockService.findExamDocumentsByCourseId(2L)).thenReturn(List.of(second));
+        Deque<Runnable> uiUpdates = new ArrayDeque<>();
+        DocumentManagerViewModel asyncViewModel = new DocumentManagerViewModel(mockService,
+                new AsyncDataAccess(Runnable::run, uiUpdates::add));
+
+        asyncViewModel.fetchExamsForCourse(1L);
+        asyncViewModel.fetchExamsForCourse(2L);
+        assertTrue(asyncViewModel.getExamList().isEmpty());
+        uiUpdates.pollLast().run();
+        uiUpdates.pollFirst().run();
+
+        assertEquals(List.of(second), asyncViewModel.getExamList());
+    }
+
     @Test
     void createExam_shouldReturnNewExamIfValid() throws Exception {
         viewModel.initialize(dummyCourse);
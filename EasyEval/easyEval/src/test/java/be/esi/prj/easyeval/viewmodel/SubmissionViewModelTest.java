@@ -2,20 +2,28 @@ package be.esi.prj.easyeval.viewmodel;
 
 import be.esi.prj.easyeval.model.*;
 import be.esi.prj.easyeval.repository.*;
+import be.esi.prj.easyeval.service.AsyncDataAccess;
 import be.esi.prj.easyeval.service.ExamDocumentService;
 import be.esi.prj.easyeval.utils.OCRProcessor;
 import javafx.collections.ObservableList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class SubmissionViewModelTest {
 
+    @TempDir
+    Path scanFolder;
+
     private ExamDocumentService examDocumentService;
     private ExamDocumentRepository examDocumentRepository;
     private SubmissionRepository submissionRepository;
@@ -63,7 +71,7 @@ class SubmissionViewModelTest {
         course.setId(1L);
         when(courseRepository.findById(1L)).thenReturn(Optional.of(course));
 
-        Course result = viewModel.getCourseForExam(1L);
+        Course result = viewModel.getCourseForExam(1L).join();
 
         assertNotNull(result);
         assertEquals("Math", result.getName());
@@ -76,7 +84,8 @@ class SubmissionViewModelTest {
         ExamDocument exam = new ExamDocument();
         exam.setId(10L);
         exam.setTitle("Examen");
-        when(submissionRepository.findByExamId(10L)).thenReturn(Collections.emptyList());
+        when(submissionRepository.findPageByExamId(10L, null, SubmissionViewModel.PAGE_SIZE))
+                .thenReturn(new Page<>(Collections.emptyList(), null));
 
         viewModel.setSelectedExam(exam);
 
@@ -84,6 +93,71 @@ class SubmissionViewModelTest {
         assertTrue(viewModel.getSubmissionsList().isEmpty());
     }
 
+    @Test
+    void loadMoreSubmissions_shouldAppendNextPage() throws Exception {
+        ExamDocument exam = new ExamDocument();
+        exam.setId(10L);
+        Submission first = new Submission(10L, "12345");
+        first.setId(1L);
+        Submission second = new Submission(10L, "67890");
+        second.setId(2L);
+        ScanResult scan = new ScanResult();
+        scan.setId(20L);
+        scan.setSubmissionId(2L);
+        SubmissionRepository.SubmissionKey firstKey = new SubmissionRepository.SubmissionKey("2024-04-08 10:00:00", 1L);
+        when(submissionRepository.findPageByExamId(10L, null, SubmissionViewModel.PAGE_SIZE))
+                .thenReturn(new Page<>(List.of(first), firstKey));
+        when(submissionRepository.findPageByExamId(10L, firstKey, SubmissionViewModel.PAGE_SIZE))
+                .thenReturn(new Page<>(List.of(second), null));
+        when(scanResultRepository.findBySubmissionIds(List.of(2L))).thenReturn(List.of(scan));
+
+        viewModel.setSelectedExam(exam);
+        assertEquals(List.of(first), viewModel.getSubmissionsList());
+        assertTrue(viewModel.moreSubmissionsProperty().get());
+
+        viewModel.loadMoreSubmissions();
+
+        assertEquals(List.of(first, second), viewModel.getSubmissionsList());
+        assertEquals(List.of(scan), viewModel.getScanResultsList());
+        assertEquals(List.of(second), viewModel.getProcessedSubmissionsList());
+        assertFalse(viewModel.moreSubmissionsProperty().get());
+    }
+
+    @Test
+    void loadRemainingSubmissions_shouldReadPagesInBackground() throws Exception {
+        ExamDocument exam = new ExamDocument();
+        exam.setId(10L);
+        Submission first = new Submission(10L, "12345");
+        first.setId(3L);
+        Submission second = new Submission(10L, "67890");
+        second.setId(2L);
+        Submission third = new Submission(10L, "24680");
+        third.setId(1L);
+        SubmissionRepository.SubmissionKey firstKey = new SubmissionRepository.SubmissionKey("2024-04-08 10:00:00", 3L);
+        SubmissionRepository.SubmissionKey secondKey = new SubmissionRepository.SubmissionKey("2024-04-08 10:00:00", 2L);
+        when(submissionRepository.findPageByExamId(10L, null, SubmissionViewModel.PAGE_SIZE))
+                .thenReturn(new Page<>(List.of(first), firstKey));
+        when(submissionRepository.findPageByExamId(10L, firstKey, SubmissionViewModel.PAGE_SIZE))
+                .thenReturn(new Page<>(List.of(second), secondKey));
+        when(submissionRepository.findPageByExamId(10L, secondKey, SubmissionViewModel.PAGE_SIZE))
+                .thenReturn(new Page<>(List.of(third), null));
+        Deque<Runnable> uiUpdates = new ArrayDeque<>();
+        SubmissionViewModel asyncViewModel = new SubmissionViewModel(examDocumentService, examDocumentRepository,
+                submissionRepository, scanResultRepository, courseRepository, ocrProcessor,
+                new AsyncDataAccess(Runnable::run, uiUpdates::add));
+        asyncViewModel.setSelectedExam(exam);
+        uiUpdates.poll().run();
+
+        CompletableFuture<Boolean> loaded = asyncViewModel.loadRemainingSubmissions();
+
+        assertFalse(loaded.isDone());
+        assertEquals(List.of(first), asyncViewModel.getSubmissionsList());
+        uiUpdates.poll().run();
+        assertTrue(loaded.join());
+        assertEquals(List.of(first, second, third), asyncViewModel.getSubmissionsList());
+        assertFalse(asyncViewModel.moreSubmissionsProperty().get());
+    }
+
     @Test
     void removeSubmission_shouldDeleteSubmissionAndResult() throws Exception {
         Submission submission = new Submission();
@@ -92,15 +166,77 @@ class SubmissionViewModelTest {
         scan.setId(200L);
         scan.setSubmissionId(100L);
 
-        when(scanResultRepository.findBySubmissionId(100L)).thenReturn(Optional.of(scan));
+        viewModel.getSubmissionsList().add(submission);
+        viewModel.getScanResultsList().add(scan);
+        when(submissionRepository.deleteById(100L)).thenReturn(true);
 
-        boolean result = viewModel.removeSubmission(submission);
+        boolean result = viewModel.removeSubmission(submission).join();
 
         assertTrue(result);
-        verify(scanResultRepository).deleteById(200L);
+        // The scan result is deleted in cascade with the submission
         verify(submissionRepository).deleteById(100L);
+        verifyNoInteractions(scanResultRepository);
+        assertTrue(viewModel.getSubmissionsList().isEmpty());
+        assertTrue(viewModel.getScanResultsList().isEmpty());
     }
 
+    @Test
+    void clearAllSubmissions_shouldUpdateListsOnUiThread() throws Exception {
+        ExamDocument exam = new ExamDocument();
+        exam.setId(10L);
+        Submission submission = new Submission(10L, "12345");
+        submission.setId(1L);
+        when(submissionRepository.findPageByExamId(10L, null, SubmissionViewModel.PAGE_SIZE))
+                .thenReturn(new Page<>(List.of(submission), null));
+        Deque<Runnable> uiUpdates = new ArrayDeque<>();
+        SubmissionViewModel asyncViewModel = new SubmissionViewModel(examDocumentService, examDocumentRepository,
+                submissionRepository, scanResultRepository, courseRepository, ocrProcessor,
+                new AsyncDataAccess(Runnable::run, uiUpdates::add));
+        asyncViewModel.setSelectedExam(exam);
+        uiUpdates.poll().run();
+        assertEquals(List.of(submission), asyncViewModel.getSubmissionsList());
+
+        CompletableFuture<Boolean> cleared = asyncViewModel.clearAllSubmissions();
+
+        verify(submissionRepository).deleteByExamId(10L);
+        verify(submissionRepository, never()).deleteById(any());
+        assertFalse(cleared.isDone());
+        assertEquals(List.of(submission), asyncViewModel.getSubmissionsList());
+        uiUpdates.poll().run();
+        assertTrue(cleared.join());
+        assertTrue(asyncViewModel.getSubmissionsList().isEmpty());
+    }
+
+    @Test
+    void importScannedFiles_shouldSaveInBackgroundAndListOnUiThread() throws Exception {
+        ExamDocument exam = new ExamDocument();
+        exam.setId(10L);
+        when(submissionRepository.findPageByExamId(10L, null, SubmissionViewModel.PAGE_SIZE))
+                .thenReturn(new Page<>(List.of(), null));
+        when(submissionRepository.save(any())).thenAnswer(invocation -> {
+            Submission submission = invocation.getArgument(0);
+            submission.setId(7L);
+            return submission;
+        });
+        File scan = Files.createFile(scanFolder.resolve("12345.png")).toFile();
+        Deque<Runnable> uiUpdates = new ArrayDeque<>();
+        SubmissionViewModel asyncViewModel = new SubmissionViewModel(examDocumentService, examDocumentRepository,
+                submissionRepository, scanResultRepository, courseRepository, ocrProcessor,
+                new AsyncDataAccess(Runnable::run, uiUpdates::add));
+        asyncViewModel.setSelectedExam(exam);
+        uiUpdates.poll().run();
+
+        CompletableFuture<Boolean> imported = asyncViewModel.importScannedFiles(List.of(scan));
+
+        verify(submissionRepository).deleteByExamId(10L);
+        verify(submissionRepository).save(argThat(submission -> submission.getExamId().equals(10L)));
+        assertFalse(imported.isDone());
+        assertTrue(asyncViewModel.getSubmissionsList().isEmpty());
+        uiUpdates.poll().run();
+        assertTrue(imported.join());
+        assertEquals(1, asyncViewModel.getSubmissionsList().size());
+        assertEquals("12345.png", asyncViewModel.getFileNameForSubmission(asyncViewModel.getSubmissionsList().get(0)));
+    }
 
     @Test
     void generateDetailedReport_shouldReturnMessageIfNoResultFound() {